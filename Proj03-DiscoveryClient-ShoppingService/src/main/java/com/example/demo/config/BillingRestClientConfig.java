@@ -0,0 +1,86 @@
+package com.example.demo.config;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+
+/**
+ * Shared, pooled HTTP client used to call the billing service.
+ *
+ * Connections are kept alive and reused between purchases instead of opening
+ * a new socket for every call.
+ */
+@Configuration
+public class BillingRestClientConfig {
+
+    @Value("${billing.client.pool.max-total:200}")
+    private int maxTotal;
+
+    @Value("${billing.client.pool.max-per-route:50}")
+    private int maxPerRoute;
+
+    @Value("${billing.client.connect-timeout-ms:1000}")
+    private long connectTimeoutMs;
+
+    @Value("${billing.client.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${billing.client.pool.acquire-timeout-ms:1000}")
+    private long acquireTimeoutMs;
+
+    @Value("${billing.client.pool.idle-evict-seconds:30}")
+    private long idleEvictSeconds;
+
+    @Bean
+    public PoolingHttpClientConnectionManager billingConnectionManager() {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient billingHttpClient(PoolingHttpClientConnectionManager billingConnectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(billingConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(acquireTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(idleEvictSeconds))
+                .build();
+    }
+
+    @Bean
+    public RestTemplate billingRestTemplate(RestTemplateBuilder builder, CloseableHttpClient billingHttpClient) {
+        return builder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(billingHttpClient))
+                .build();
+    }
+
+    // Publishes httpcomponents.httpclient.pool.* gauges under /actuator/metrics
+    @Bean
+    public MeterBinder billingConnectionPoolMetrics(PoolingHttpClientConnectionManager billingConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(billingConnectionManager, "billing-service");
+    }
+}
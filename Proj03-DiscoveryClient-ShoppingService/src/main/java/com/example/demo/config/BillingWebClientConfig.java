@@ -0,0 +1,50 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Non-blocking client used by the /shopping-api/v2 endpoints. Requests run on
+ * the Reactor Netty event loop, so no Tomcat worker waits for billing.
+ */
+@Configuration
+public class BillingWebClientConfig {
+
+    @Value("${billing.client.pool.max-total:200}")
+    private int maxTotal;
+
+    @Value("${billing.client.pool.acquire-timeout-ms:1000}")
+    private long acquireTimeoutMs;
+
+    @Value("${billing.client.pool.idle-evict-seconds:30}")
+    private long idleEvictSeconds;
+
+    @Value("${billing.client.connect-timeout-ms:1000}")
+    private int connectTimeoutMs;
+
+    @Value("${billing.client.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Bean
+    public WebClient billingWebClient(WebClient.Builder builder) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("billing-service")
+                .maxConnections(maxTotal)
+                .pendingAcquireTimeout(Duration.ofMillis(acquireTimeoutMs))
+                .maxIdleTime(Duration.ofSeconds(idleEvictSeconds))
+                .metrics(true)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs));
+        return builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+    }
+}
@@ -1,15 +1,14 @@
 package com.example.demo.controllers;
 
-import java.util.List;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import com.example.demo.loadbalancer.BillingInstanceCache;
+
 @Component
 public class BillingServiceClientComponent {
 
@@ -17,7 +16,10 @@ public class BillingServiceClientComponent {
     private static final Logger logger = LoggerFactory.getLogger(BillingServiceClientComponent.class);
 
     @Autowired
-    private DiscoveryClient client; // Injecting the DiscoveryClient to discover service instances
+    private BillingInstanceCache instanceCache; // Local snapshot of billing instances discovered through Eureka
+
+    @Autowired
+    private RestTemplate billingRestTemplate; // Shared pooled client, see BillingRestClientConfig
 
     /**
      * This method invokes the billing service to process the payment.
@@ -29,26 +31,27 @@ public class BillingServiceClientComponent {
         logger.info("Invoking payment service...");
 
         try {
-            // Get the list of instances for the BillingService from Eureka
-            List<ServiceInstance> instanceList = client.getInstances("Proj04-DiscoveryClient-BillingService");
-            
-            if (instanceList == null || instanceList.isEmpty()) {
+            // Pick a BillingService instance from the locally cached snapshot
+            ServiceInstance instance = instanceCache.choose();
+
+            if (instance == null) {
                 logger.error("No instances found for BillingService.");
                 return "Error: No instances available for BillingService";
             }
 
-            // Get the first instance (assuming there's at least one instance available)
-            ServiceInstance instance = instanceList.get(0);
             String url = instance.getUri() + "/billing-api/payment";  // Construct the URL for the payment API
 
             // Log the URL being called
             logger.debug("Calling billing service at URL: {}", url);
 
-            // Set up the RestTemplate to send the request
-            RestTemplate restTemplate = new RestTemplate();
-
-            // Make the GET request to the billing service and get the result
-            String result = restTemplate.getForObject(url, String.class);
+            // Make the GET request to the billing service over a pooled keep-alive connection
+            String result;
+            instanceCache.getChooser().onRequestStart(instance);
+            try {
+                result = billingRestTemplate.getForObject(url, String.class);
+            } finally {
+                instanceCache.getChooser().onRequestEnd(instance);
+            }
 
             // Log the result received from the billing service
             logger.info("Received payment response: {}", result);
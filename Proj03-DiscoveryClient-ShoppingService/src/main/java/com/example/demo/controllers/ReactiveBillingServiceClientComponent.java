@@ -0,0 +1,57 @@
+package com.example.demo.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.demo.loadbalancer.BillingInstanceCache;
+
+import reactor.core.publisher.Mono;
+
+@Component
+public class ReactiveBillingServiceClientComponent {
+
+    // Create a logger for this class
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveBillingServiceClientComponent.class);
+
+    @Autowired
+    private BillingInstanceCache instanceCache; // Same instance snapshot and strategy as the blocking client
+
+    @Autowired
+    private WebClient billingWebClient; // Non-blocking client, see BillingWebClientConfig
+
+    /**
+     * Non-blocking variant of {@link BillingServiceClientComponent#invokeDoPayment()}.
+     * Failures are turned into the same error strings as the blocking client.
+     *
+     * @return the result of the payment service
+     */
+    public Mono<String> invokeDoPayment() {
+        // Instance chosen per subscription, not when the Mono is assembled
+        return Mono.defer(() -> {
+            ServiceInstance instance = instanceCache.choose();
+            if (instance == null) {
+                logger.error("No instances found for BillingService.");
+                return Mono.just("Error: No instances available for BillingService");
+            }
+
+            String url = instance.getUri() + "/billing-api/payment";
+            logger.debug("Calling billing service at URL: {}", url);
+
+            return billingWebClient.get()
+                    .uri(url)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .doOnSubscribe(subscription -> instanceCache.getChooser().onRequestStart(instance))
+                    .doFinally(signal -> instanceCache.getChooser().onRequestEnd(instance));
+        })
+                .doOnNext(result -> logger.debug("Received payment response: {}", result))
+                .onErrorResume(e -> {
+                    logger.error("Error occurred while invoking payment service: {}", e.getMessage(), e);
+                    return Mono.just("Error: Payment service invocation failed");
+                });
+    }
+}
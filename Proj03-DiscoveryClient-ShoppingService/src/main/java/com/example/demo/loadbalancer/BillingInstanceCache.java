@@ -0,0 +1,151 @@
+package com.example.demo.loadbalancer;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps a local snapshot of the billing service instances so that choosing an
+ * instance does not hit the registry on every purchase.
+ *
+ * The snapshot is an array that is replaced as a whole on each refresh and never
+ * modified afterwards, so readers only do a volatile read. Refreshes run on a
+ * background thread every {@code billing.instance-cache.refresh-interval-ms} and
+ * after every registry fetch of the Eureka client, so changes are seen as soon
+ * as the client has them.
+ *
+ * While the snapshot is empty, {@link #choose()} asks the registry itself, but
+ * at most once every {@code billing.instance-cache.empty-lookup-interval-ms}, so
+ * that purchases made while no billing instance is registered do not each
+ * cost a registry call.
+ */
+@Component
+public class BillingInstanceCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(BillingInstanceCache.class);
+
+	private static final ServiceInstance[] EMPTY = new ServiceInstance[0];
+
+	private final DiscoveryClient discoveryClient;
+
+	private final InstanceChooser chooser;
+
+	private final String serviceId;
+
+	private final long refreshIntervalMs;
+
+	private final long emptyLookupIntervalNanos;
+
+	private final AtomicBoolean refreshPending = new AtomicBoolean();
+
+	private final AtomicLong nextEmptyLookupNanos = new AtomicLong(System.nanoTime());
+
+	private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "billing-instance-cache");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private volatile ServiceInstance[] snapshot = EMPTY;
+
+	public BillingInstanceCache(DiscoveryClient discoveryClient, InstanceChooser chooser,
+			@Value("${billing.instance-cache.service-id:Proj04-DiscoveryClient-BillingService}") String serviceId,
+			@Value("${billing.instance-cache.refresh-interval-ms:5000}") long refreshIntervalMs,
+			@Value("${billing.instance-cache.empty-lookup-interval-ms:1000}") long emptyLookupIntervalMs) {
+		this.discoveryClient = discoveryClient;
+		this.chooser = chooser;
+		this.serviceId = serviceId;
+		this.refreshIntervalMs = refreshIntervalMs;
+		this.emptyLookupIntervalNanos = TimeUnit.MILLISECONDS.toNanos(emptyLookupIntervalMs);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		refresher.scheduleWithFixedDelay(this::refresh, 0, refreshIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	// Eureka publishes a HeartbeatEvent after every registry fetch (30s by default), whether or
+	// not anything changed; its value is a fetch counter, not the registry state. Reading the
+	// local registry copy is cheap, so every fetch is followed by a refresh.
+	@EventListener(HeartbeatEvent.class)
+	public void onRegistryFetched() {
+		refreshAsync();
+	}
+
+	/**
+	 * Queues a refresh on the background thread. Requests made while one is
+	 * already queued are collapsed into it.
+	 */
+	public void refreshAsync() {
+		if (refreshPending.compareAndSet(false, true)) {
+			refresher.execute(() -> {
+				refreshPending.set(false);
+				refresh();
+			});
+		}
+	}
+
+	/**
+	 * Reloads the snapshot from the discovery client. On failure the previous
+	 * snapshot is kept.
+	 */
+	public void refresh() {
+		try {
+			List<ServiceInstance> instances = discoveryClient.getInstances(serviceId);
+			snapshot = instances == null || instances.isEmpty() ? EMPTY : instances.toArray(EMPTY);
+			logger.debug("Refreshed {} instance(s) of {}", snapshot.length, serviceId);
+		} catch (Exception e) {
+			logger.warn("Could not refresh instances of {}, keeping previous snapshot: {}", serviceId, e.getMessage());
+		}
+	}
+
+	/**
+	 * @return an instance picked by the configured {@link InstanceChooser}, or
+	 *         {@code null} if no instance is known
+	 */
+	public ServiceInstance choose() {
+		ServiceInstance[] current = snapshot;
+		if (current.length == 0) {
+			// Cold start or empty registry: one caller per interval does a synchronous lookup
+			long due = nextEmptyLookupNanos.get();
+			long now = System.nanoTime();
+			if (now - due < 0 || !nextEmptyLookupNanos.compareAndSet(due, now + emptyLookupIntervalNanos)) {
+				return null;
+			}
+			refresh();
+			current = snapshot;
+			if (current.length == 0) {
+				return null;
+			}
+		}
+		return chooser.choose(current);
+	}
+
+	public InstanceChooser getChooser() {
+		return chooser;
+	}
+
+	public int size() {
+		return snapshot.length;
+	}
+
+	@PreDestroy
+	public void stop() {
+		refresher.shutdownNow();
+	}
+}
@@ -0,0 +1,33 @@
+package com.example.demo.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Strategy used by {@link BillingInstanceCache} to pick one instance out of the
+ * current snapshot.
+ */
+public interface InstanceChooser {
+
+	/**
+	 * @param instances non-empty snapshot, must not be modified
+	 * @return the chosen instance
+	 */
+	ServiceInstance choose(ServiceInstance[] instances);
+
+	/**
+	 * Called before a request is sent to the chosen instance.
+	 */
+	default void onRequestStart(ServiceInstance instance) {
+	}
+
+	/**
+	 * Called once the request to the chosen instance has completed or failed.
+	 */
+	default void onRequestEnd(ServiceInstance instance) {
+	}
+
+	static String keyOf(ServiceInstance instance) {
+		String instanceId = instance.getInstanceId();
+		return instanceId != null ? instanceId : instance.getHost() + ":" + instance.getPort();
+	}
+}
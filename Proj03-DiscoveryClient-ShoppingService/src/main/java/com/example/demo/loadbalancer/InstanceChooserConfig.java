@@ -0,0 +1,29 @@
+package com.example.demo.loadbalancer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class InstanceChooserConfig {
+
+	/**
+	 * Selection strategy for billing instances, set with
+	 * {@code billing.instance-cache.strategy} (round-robin, random or
+	 * least-outstanding).
+	 */
+	@Bean
+	public InstanceChooser billingInstanceChooser(
+			@Value("${billing.instance-cache.strategy:round-robin}") String strategy) {
+		switch (strategy) {
+		case "round-robin":
+			return new RoundRobinInstanceChooser();
+		case "random":
+			return new RandomInstanceChooser();
+		case "least-outstanding":
+			return new LeastOutstandingInstanceChooser();
+		default:
+			throw new IllegalArgumentException("Unknown billing.instance-cache.strategy: " + strategy);
+		}
+	}
+}
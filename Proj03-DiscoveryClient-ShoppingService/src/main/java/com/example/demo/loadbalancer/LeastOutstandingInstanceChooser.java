@@ -0,0 +1,51 @@
+package com.example.demo.loadbalancer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+/**
+ * Picks the instance with the fewest requests currently in flight from this
+ * shopping service. Ties are broken from a random starting offset so idle
+ * instances share the load instead of the first one taking everything.
+ */
+public class LeastOutstandingInstanceChooser implements InstanceChooser {
+
+	private final ConcurrentHashMap<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+	@Override
+	public ServiceInstance choose(ServiceInstance[] instances) {
+		int start = ThreadLocalRandom.current().nextInt(instances.length);
+		ServiceInstance best = null;
+		int bestCount = Integer.MAX_VALUE;
+		for (int i = 0; i < instances.length; i++) {
+			ServiceInstance candidate = instances[(start + i) % instances.length];
+			int count = outstanding(candidate);
+			if (count < bestCount) {
+				best = candidate;
+				bestCount = count;
+			}
+		}
+		return best;
+	}
+
+	@Override
+	public void onRequestStart(ServiceInstance instance) {
+		inFlight.computeIfAbsent(InstanceChooser.keyOf(instance), key -> new AtomicInteger()).incrementAndGet();
+	}
+
+	@Override
+	public void onRequestEnd(ServiceInstance instance) {
+		AtomicInteger counter = inFlight.get(InstanceChooser.keyOf(instance));
+		if (counter != null) {
+			counter.decrementAndGet();
+		}
+	}
+
+	int outstanding(ServiceInstance instance) {
+		AtomicInteger counter = inFlight.get(InstanceChooser.keyOf(instance));
+		return counter == null ? 0 : counter.get();
+	}
+}
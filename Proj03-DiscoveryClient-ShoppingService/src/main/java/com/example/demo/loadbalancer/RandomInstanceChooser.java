@@ -0,0 +1,13 @@
+package com.example.demo.loadbalancer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+public class RandomInstanceChooser implements InstanceChooser {
+
+	@Override
+	public ServiceInstance choose(ServiceInstance[] instances) {
+		return instances[ThreadLocalRandom.current().nextInt(instances.length)];
+	}
+}
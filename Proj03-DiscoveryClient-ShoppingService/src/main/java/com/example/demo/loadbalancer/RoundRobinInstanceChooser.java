@@ -0,0 +1,16 @@
+package com.example.demo.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+public class RoundRobinInstanceChooser implements InstanceChooser {
+
+	private final AtomicInteger position = new AtomicInteger();
+
+	@Override
+	public ServiceInstance choose(ServiceInstance[] instances) {
+		int next = position.getAndIncrement() & Integer.MAX_VALUE;
+		return instances[next % instances.length];
+	}
+}
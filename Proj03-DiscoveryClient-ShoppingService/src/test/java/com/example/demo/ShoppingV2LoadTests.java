@@ -0,0 +1,123 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the shopping service with a Tomcat pool capped at {@value #MAX_THREADS}
+ * threads against two billing stubs that take {@value #BILLING_DELAY_MS}ms
+ * per call. A burst on /v2/purchase must not wait for Tomcat threads, as the
+ * blocking /purchase would: (requests / max threads) * delay.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"eureka.client.enabled=false",
+		"server.tomcat.threads.max=" + ShoppingV2LoadTests.MAX_THREADS })
+class ShoppingV2LoadTests {
+
+	static final int MAX_THREADS = 4;
+
+	static final int BILLING_DELAY_MS = 200;
+
+	private static final int REQUESTS = 200;
+
+	private static final AtomicInteger[] billingCalls = { new AtomicInteger(), new AtomicInteger() };
+
+	private static final HttpServer[] billingStubs = { startBillingStub(0), startBillingStub(1) };
+
+	@LocalServerPort
+	private int port;
+
+	@DynamicPropertySource
+	static void billingInstances(DynamicPropertyRegistry registry) {
+		for (int i = 0; i < billingStubs.length; i++) {
+			int stub = i;
+			registry.add("spring.cloud.discovery.client.simple.instances.Proj04-DiscoveryClient-BillingService["
+					+ i + "].uri", () -> "http://localhost:" + billingStubs[stub].getAddress().getPort());
+		}
+	}
+
+	@AfterAll
+	static void stopBillingStubs() {
+		for (HttpServer stub : billingStubs) {
+			stub.stop(0);
+		}
+	}
+
+	@Test
+	void v2BurstIsNotCappedByTomcatThreadPool() {
+		HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		URI uri = URI.create("http://localhost:" + port + "/shopping-api/v2/purchase");
+
+		// Warm up the JIT and the connection pools first
+		burst(httpClient, uri, MAX_THREADS * 2);
+
+		long start = System.nanoTime();
+		burst(httpClient, uri, REQUESTS);
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		long threadPoolFloorMs = (long) REQUESTS / MAX_THREADS * BILLING_DELAY_MS;
+		assertTrue(elapsedMs < threadPoolFloorMs / 2, REQUESTS + " purchases took " + elapsedMs
+				+ "ms, expected well under the thread-pool bound of " + threadPoolFloorMs + "ms");
+		// An instance is chosen per purchase
+		assertTrue(billingCalls[0].get() > 0 && billingCalls[1].get() > 0,
+				"billing calls per stub: " + billingCalls[0] + ", " + billingCalls[1]);
+	}
+
+	private static void burst(HttpClient httpClient, URI uri, int requests) {
+		List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+		for (int i = 0; i < requests; i++) {
+			responses.add(httpClient.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString()));
+		}
+		responses.forEach(response -> {
+			assertEquals(200, response.join().statusCode());
+			assertEquals("Shopping is done.Payment Status: Bill Amount is 1.", response.join().body());
+		});
+	}
+
+	private static HttpServer startBillingStub(int stub) {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.setExecutor(Executors.newCachedThreadPool());
+			server.createContext("/billing-api/payment", exchange -> {
+				billingCalls[stub].incrementAndGet();
+				try {
+					Thread.sleep(BILLING_DELAY_MS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				byte[] body = "Bill Amount is 1.".getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			});
+			server.start();
+			return server;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
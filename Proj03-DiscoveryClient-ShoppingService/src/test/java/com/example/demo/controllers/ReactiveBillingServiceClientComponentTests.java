@@ -0,0 +1,32 @@
+package com.example.demo.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.loadbalancer.BillingInstanceCache;
+
+import reactor.core.publisher.Mono;
+
+class ReactiveBillingServiceClientComponentTests {
+
+    @Test
+    void instanceIsChosenOnEverySubscription() {
+        BillingInstanceCache instanceCache = mock(BillingInstanceCache.class);
+        ReactiveBillingServiceClientComponent client = new ReactiveBillingServiceClientComponent();
+        ReflectionTestUtils.setField(client, "instanceCache", instanceCache);
+
+        Mono<String> payment = client.invokeDoPayment();
+        verify(instanceCache, never()).choose();
+
+        // A retried or resubscribed Mono picks again, here from no instances at all
+        assertEquals("Error: No instances available for BillingService", payment.block());
+        assertEquals("Error: No instances available for BillingService", payment.block());
+        verify(instanceCache, times(2)).choose();
+    }
+}
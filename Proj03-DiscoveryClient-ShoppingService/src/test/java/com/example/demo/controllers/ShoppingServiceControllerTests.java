@@ -0,0 +1,71 @@
+package com.example.demo.controllers;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * The non-blocking purchase answers like the blocking one, for a payment, an
+ * empty billing body and a failure.
+ */
+@SpringBootTest(properties = "eureka.client.enabled=false")
+@AutoConfigureMockMvc
+class ShoppingServiceControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockitoBean
+	private BillingServiceClientComponent client;
+
+	@MockitoBean
+	private ReactiveBillingServiceClientComponent reactiveClient;
+
+	@Test
+	void v2AnswersWithThePaymentStatus() throws Exception {
+		when(reactiveClient.invokeDoPayment()).thenReturn(Mono.just("Bill Amount is 1."));
+
+		purchaseV2().andExpect(status().isOk())
+				.andExpect(content().string("Shopping is done.Payment Status: Bill Amount is 1."));
+	}
+
+	@Test
+	void emptyBillingBodyAnswersLikeV1() throws Exception {
+		when(client.invokeDoPayment()).thenReturn(null);
+		when(reactiveClient.invokeDoPayment()).thenReturn(Mono.empty());
+
+		String v1 = mockMvc.perform(get("/shopping-api/purchase"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		purchaseV2().andExpect(status().isOk()).andExpect(content().string(v1));
+	}
+
+	@Test
+	void billingErrorAnswers500() throws Exception {
+		when(reactiveClient.invokeDoPayment()).thenReturn(Mono.error(new IllegalStateException("billing down")));
+
+		purchaseV2().andExpect(status().isInternalServerError())
+				.andExpect(content().string("Shopping failed due to payment error."));
+	}
+
+	private ResultActions purchaseV2() throws Exception {
+		MvcResult started = mockMvc.perform(get("/shopping-api/v2/purchase"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		return mockMvc.perform(asyncDispatch(started));
+	}
+}
@@ -0,0 +1,129 @@
+package com.example.demo.loadbalancer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+class BillingInstanceCacheTests {
+
+	private static final String SERVICE_ID = "Proj04-DiscoveryClient-BillingService";
+
+	@Test
+	void servesLookupsFromSnapshotWithoutHittingRegistry() {
+		CountingDiscoveryClient discovery = new CountingDiscoveryClient(instances(3));
+		BillingInstanceCache cache = new BillingInstanceCache(discovery, new RoundRobinInstanceChooser(), SERVICE_ID,
+				60_000, 1000);
+
+		Set<String> seen = new HashSet<>();
+		for (int i = 0; i < 300; i++) {
+			seen.add(cache.choose().getInstanceId());
+		}
+
+		assertEquals(3, seen.size());
+		assertEquals(1, discovery.lookups.get());
+		cache.stop();
+	}
+
+	@Test
+	void keepsPreviousSnapshotWhenRefreshFails() {
+		CountingDiscoveryClient discovery = new CountingDiscoveryClient(instances(2));
+		BillingInstanceCache cache = new BillingInstanceCache(discovery, new RandomInstanceChooser(), SERVICE_ID,
+				60_000, 1000);
+		cache.refresh();
+
+		discovery.fail = true;
+		cache.refresh();
+
+		assertEquals(2, cache.size());
+		cache.stop();
+	}
+
+	@Test
+	void returnsNullWhenNoInstanceIsRegistered() {
+		BillingInstanceCache cache = new BillingInstanceCache(new CountingDiscoveryClient(List.of()),
+				new RoundRobinInstanceChooser(), SERVICE_ID, 60_000, 1000);
+
+		assertNull(cache.choose());
+		cache.stop();
+	}
+
+	@Test
+	void rateLimitsRegistryLookupsWhileEmpty() {
+		CountingDiscoveryClient discovery = new CountingDiscoveryClient(List.of());
+		BillingInstanceCache cache = new BillingInstanceCache(discovery, new RoundRobinInstanceChooser(), SERVICE_ID,
+				60_000, 60_000);
+
+		for (int i = 0; i < 100; i++) {
+			assertNull(cache.choose());
+		}
+
+		assertEquals(1, discovery.lookups.get());
+		cache.stop();
+	}
+
+	@Test
+	void leastOutstandingAvoidsBusyInstance() {
+		ServiceInstance[] snapshot = instances(2).toArray(new ServiceInstance[0]);
+		LeastOutstandingInstanceChooser chooser = new LeastOutstandingInstanceChooser();
+		chooser.onRequestStart(snapshot[0]);
+		chooser.onRequestStart(snapshot[0]);
+
+		for (int i = 0; i < 50; i++) {
+			assertEquals("billing-1", chooser.choose(snapshot).getInstanceId());
+		}
+
+		chooser.onRequestEnd(snapshot[0]);
+		chooser.onRequestEnd(snapshot[0]);
+		assertEquals(0, chooser.outstanding(snapshot[0]));
+	}
+
+	private static List<ServiceInstance> instances(int count) {
+		List<ServiceInstance> instances = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			instances.add(new DefaultServiceInstance("billing-" + i, SERVICE_ID, "localhost", 9000 + i, false));
+		}
+		return instances;
+	}
+
+	private static class CountingDiscoveryClient implements DiscoveryClient {
+
+		private final List<ServiceInstance> instances;
+
+		private final AtomicInteger lookups = new AtomicInteger();
+
+		private volatile boolean fail;
+
+		CountingDiscoveryClient(List<ServiceInstance> instances) {
+			this.instances = instances;
+		}
+
+		@Override
+		public String description() {
+			return "counting";
+		}
+
+		@Override
+		public List<ServiceInstance> getInstances(String serviceId) {
+			lookups.incrementAndGet();
+			if (fail) {
+				throw new IllegalStateException("registry unavailable");
+			}
+			return instances;
+		}
+
+		@Override
+		public List<String> getServices() {
+			return List.of(SERVICE_ID);
+		}
+	}
+}
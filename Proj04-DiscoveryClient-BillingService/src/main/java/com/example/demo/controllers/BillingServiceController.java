@@ -1,6 +1,6 @@
 package com.example.demo.controllers;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,6 +10,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.dto.PaymentResponse;
+
 @RestController
 @RequestMapping("/billing-api")
 public class BillingServiceController {
@@ -17,6 +19,15 @@ public class BillingServiceController {
     // Create a logger for this class
     private static final Logger logger = LoggerFactory.getLogger(BillingServiceController.class);
 
+    private static final String AMOUNT_PREFIX = "Bill Amount is ";
+
+    private static final String PAYMENT_MODES = "Cards, UPI Payment";
+
+    private static final String PAYMENT_SUFFIX = " Payment can be done via " + PAYMENT_MODES;
+
+    // Longest possible amount (8 digits) plus some slack
+    private static final int MESSAGE_CAPACITY = AMOUNT_PREFIX.length() + 16 + PAYMENT_SUFFIX.length();
+
     /**
      * This endpoint handles the payment request and returns available payment methods.
      * 
@@ -25,16 +36,29 @@ public class BillingServiceController {
     @GetMapping("payment")
     public ResponseEntity<String> doPayment() {
         // Log the incoming request for the payment endpoint
-        logger.info("Received request to process payment...");
+        logger.debug("Received request to process payment...");
         
-        int amount=new Random().nextInt(100000000);
+        int amount = nextAmount();
         // Respond with a message about available payment methods
-        String responseMessage = "Bill Amount is "+amount+" Payment can be done via Cards, UPI Payment";
+        String responseMessage = new StringBuilder(MESSAGE_CAPACITY)
+                .append(AMOUNT_PREFIX).append(amount).append(PAYMENT_SUFFIX).toString();
 
         // Log the response being sent
         logger.debug("Returning payment methods: {}", responseMessage);
 
         return new ResponseEntity<>(responseMessage, HttpStatus.OK);
     }
-}
 
+    /**
+     * Same payment as {@link #doPayment()}, returned as a JSON {@link PaymentResponse}.
+     */
+    @GetMapping("/v2/payment")
+    public ResponseEntity<PaymentResponse> doPaymentV2() {
+        return new ResponseEntity<>(new PaymentResponse(nextAmount(), PAYMENT_MODES), HttpStatus.OK);
+    }
+
+    // Generate a random amount for the bill without allocating a Random per request
+    private static int nextAmount() {
+        return ThreadLocalRandom.current().nextInt(100000000);
+    }
+}
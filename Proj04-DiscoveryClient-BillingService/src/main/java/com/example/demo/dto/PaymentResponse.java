@@ -0,0 +1,25 @@
+package com.example.demo.dto;
+
+/**
+ * Structured form of the payment message, returned by the /billing-api/v2
+ * endpoints as JSON.
+ */
+public class PaymentResponse {
+
+	private final int amount;
+
+	private final String paymentModes;
+
+	public PaymentResponse(int amount, String paymentModes) {
+		this.amount = amount;
+		this.paymentModes = paymentModes;
+	}
+
+	public int getAmount() {
+		return amount;
+	}
+
+	public String getPaymentModes() {
+		return paymentModes;
+	}
+}
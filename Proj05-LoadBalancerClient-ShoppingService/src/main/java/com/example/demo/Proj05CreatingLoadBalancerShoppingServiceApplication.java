@@ -3,9 +3,13 @@ package com.example.demo;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+
+import com.example.demo.loadbalancer.LatencyAwareLoadBalancerConfig;
 
 @SpringBootApplication
 @EnableDiscoveryClient
+@LoadBalancerClient(name = "Proj06-LoadBalancerClient-BillingService", configuration = LatencyAwareLoadBalancerConfig.class)
 public class Proj05CreatingLoadBalancerShoppingServiceApplication {
 
 	public static void main(String[] args) {
@@ -10,6 +10,8 @@ import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import com.example.demo.loadbalancer.InstanceLatencyStats;
+
 @Component
 public class BillingServiceClientComponent {
 
@@ -19,6 +21,12 @@ public class BillingServiceClientComponent {
     @Autowired
     private LoadBalancerClient client; 
 
+    @Autowired
+    private RestTemplate billingRestTemplate; // Shared pooled client, see BillingRestClientConfig
+
+    @Autowired
+    private InstanceLatencyStats latencyStats; // Feeds in-flight counts and response times back to the load balancer
+
     /**
      * This method invokes the billing service to process the payment.
      * It uses Eureka to discover the Billing Service instance and make a request to it.
@@ -29,7 +37,7 @@ public class BillingServiceClientComponent {
         logger.info("Invoking payment service...");
 
         try {
-            // Get the list of instances for the BillingService from Eureka
+            // Let the latency-aware load balancer pick a BillingService instance registered in Eureka
            ServiceInstance instance = client.choose("Proj06-LoadBalancerClient-BillingService");
             
             if (instance == null) {
@@ -42,11 +50,17 @@ public class BillingServiceClientComponent {
             // Log the URL being called
             logger.debug("Calling billing service at URL: {}", url);
 
-            // Set up the RestTemplate to send the request
-            RestTemplate restTemplate = new RestTemplate();
-
-            // Make the GET request to the billing service and get the result
-            String result = restTemplate.getForObject(url, String.class);
+            // Make the GET request to the billing service over a pooled keep-alive connection
+            String result;
+            long start = latencyStats.onRequestStart(instance.getInstanceId());
+            try {
+                result = billingRestTemplate.getForObject(url, String.class);
+            } catch (Throwable e) {
+                // Penalised, so that a node failing fast does not look like the fastest one
+                latencyStats.onRequestFailed(instance.getInstanceId(), start);
+                throw e;
+            }
+            latencyStats.onRequestEnd(instance.getInstanceId(), start);
 
             // Log the result received from the billing service
             logger.info("Received payment response: {}", result);
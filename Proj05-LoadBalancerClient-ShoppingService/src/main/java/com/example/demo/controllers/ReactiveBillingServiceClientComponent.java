@@ -0,0 +1,75 @@
+package com.example.demo.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.example.demo.loadbalancer.InstanceLatencyStats;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+@Component
+public class ReactiveBillingServiceClientComponent {
+
+    // Create a logger for this class
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveBillingServiceClientComponent.class);
+
+    private static final String SERVICE_ID = "Proj06-LoadBalancerClient-BillingService";
+
+    @Autowired
+    private ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory; // Resolves to the latency-aware balancer
+
+    @Autowired
+    private WebClient billingWebClient; // Non-blocking client, see BillingWebClientConfig
+
+    @Autowired
+    private InstanceLatencyStats latencyStats; // Feeds in-flight counts and response times back to the load balancer
+
+    /**
+     * Non-blocking variant of {@link BillingServiceClientComponent#invokeDoPayment()}.
+     * Failures are turned into the same error strings as the blocking client.
+     *
+     * @return the result of the payment service
+     */
+    public Mono<String> invokeDoPayment() {
+        return Mono.from(loadBalancerFactory.getInstance(SERVICE_ID).choose())
+                .flatMap(response -> {
+                    if (!response.hasServer()) {
+                        logger.error("No instances found for BillingService.");
+                        return Mono.just("Error: No instances available for BillingService");
+                    }
+                    return call(response.getServer());
+                });
+    }
+
+    private Mono<String> call(ServiceInstance instance) {
+        String url = instance.getUri() + "/billing-api/payment";
+        logger.debug("Calling billing service at URL: {}", url);
+
+        return Mono.defer(() -> {
+            long start = latencyStats.onRequestStart(instance.getInstanceId());
+            return billingWebClient.get()
+                    .uri(url)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .doFinally(signal -> {
+                        // Penalised, so that a node failing fast does not look like the fastest one
+                        if (signal == SignalType.ON_ERROR) {
+                            latencyStats.onRequestFailed(instance.getInstanceId(), start);
+                        } else {
+                            latencyStats.onRequestEnd(instance.getInstanceId(), start);
+                        }
+                    });
+        })
+                .doOnNext(result -> logger.debug("Received payment response: {}", result))
+                .onErrorResume(e -> {
+                    logger.error("Error occurred while invoking payment service: {}", e.getMessage(), e);
+                    return Mono.just("Error: Payment service invocation failed");
+                });
+    }
+}
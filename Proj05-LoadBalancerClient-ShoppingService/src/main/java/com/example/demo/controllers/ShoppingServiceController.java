@@ -11,6 +11,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import reactor.core.publisher.Mono;
+
 @RestController
 @RequestMapping("/shopping-api")
 public class ShoppingServiceController {
@@ -21,6 +23,9 @@ public class ShoppingServiceController {
 	@Autowired
 	private BillingServiceClientComponent client; // Injecting the BillingServiceClientComponent
 
+	@Autowired
+	private ReactiveBillingServiceClientComponent reactiveClient; // Non-blocking client used by the v2 endpoint
+
 	/**
 	 * Endpoint to handle shopping and payment processing
 	 * 
@@ -39,11 +44,36 @@ public class ShoppingServiceController {
 			logger.info("Payment service invoked successfully. Result: {}", result);
 
 			// Return response with shopping amount and payment result
-			return new ResponseEntity<>("Shopping is done.Payment Status: " + result,HttpStatus.OK);
+			return purchased(result);
 		} catch (Exception e) {
 			// Log any error that occurs during payment processing
 			logger.error("Error occurred while invoking payment service: {}", e.getMessage(), e);
 			return new ResponseEntity<>("Shopping failed due to payment error.", HttpStatus.INTERNAL_SERVER_ERROR);
 		}
 	}
+
+	/**
+	 * Non-blocking variant of {@link #shoppping()}. The Tomcat worker is released
+	 * while billing is called and the response is written when the Mono completes.
+	 * 
+	 * @return Mono of ResponseEntity with a shopping summary and payment status
+	 */
+	@GetMapping("/v2/purchase")
+	public Mono<ResponseEntity<String>> shopppingV2() {
+		logger.debug("Starting non-blocking shopping process...");
+
+		return reactiveClient.invokeDoPayment()
+				.map(ShoppingServiceController::purchased)
+				.defaultIfEmpty(purchased(null))
+				.onErrorResume(e -> {
+					logger.error("Error occurred while invoking payment service: {}", e.getMessage(), e);
+					return Mono.just(new ResponseEntity<>("Shopping failed due to payment error.",
+							HttpStatus.INTERNAL_SERVER_ERROR));
+				});
+	}
+
+	// Also for an empty billing body, which the blocking client reads as null
+	private static ResponseEntity<String> purchased(String result) {
+		return new ResponseEntity<>("Shopping is done.Payment Status: " + result, HttpStatus.OK);
+	}
 }
@@ -0,0 +1,133 @@
+package com.example.demo.loadbalancer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-instance load figures used by {@link LatencyAwareServiceInstanceLoadBalancer}:
+ * the number of requests currently in flight and an exponentially weighted
+ * moving average (EWMA) of the response time.
+ *
+ * The average fades back toward {@code billing.loadbalancer.initial-latency-ms}
+ * while an instance gets no responses, with a time constant of
+ * {@code billing.loadbalancer.decay-ms}. Otherwise an instance that was slow
+ * once would keep the worst score, get no more requests and never be measured
+ * again, even after it recovered.
+ *
+ * A failed request counts as taking at least
+ * {@code billing.loadbalancer.failure-penalty-ms}. Failures are often fast (a
+ * refused connection, an immediate 5xx), and averaged in as they are they
+ * would make a dead instance the most attractive one.
+ *
+ * Instances are keyed by their Eureka instance id
+ * ({@code eureka.instance.instance-id} of the billing service).
+ */
+@Component
+public class InstanceLatencyStats {
+
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final double alpha;
+
+	private final long initialLatencyNanos;
+
+	private final double decayNanos;
+
+	private final long failurePenaltyNanos;
+
+	public InstanceLatencyStats(@Value("${billing.loadbalancer.ewma-alpha:0.3}") double alpha,
+			@Value("${billing.loadbalancer.initial-latency-ms:10}") long initialLatencyMs,
+			@Value("${billing.loadbalancer.decay-ms:10000}") long decayMs,
+			@Value("${billing.loadbalancer.failure-penalty-ms:5000}") long failurePenaltyMs) {
+		if (alpha <= 0 || alpha > 1) {
+			throw new IllegalArgumentException("billing.loadbalancer.ewma-alpha must be in (0, 1]");
+		}
+		if (decayMs <= 0) {
+			throw new IllegalArgumentException("billing.loadbalancer.decay-ms must be positive");
+		}
+		this.alpha = alpha;
+		this.initialLatencyNanos = initialLatencyMs * 1_000_000L;
+		this.decayNanos = decayMs * 1_000_000d;
+		this.failurePenaltyNanos = failurePenaltyMs * 1_000_000L;
+	}
+
+	/**
+	 * Marks the start of a request to the given instance.
+	 *
+	 * @return the start timestamp to pass to {@link #onRequestEnd(String, long)}
+	 *         or {@link #onRequestFailed(String, long)}
+	 */
+	public long onRequestStart(String instanceId) {
+		entry(instanceId).inFlight.incrementAndGet();
+		return System.nanoTime();
+	}
+
+	public void onRequestEnd(String instanceId, long startNanos) {
+		record(instanceId, startNanos, 0);
+	}
+
+	// The request failed: averaged in as taking the failure penalty, unless it took longer
+	public void onRequestFailed(String instanceId, long startNanos) {
+		record(instanceId, startNanos, failurePenaltyNanos);
+	}
+
+	private void record(String instanceId, long startNanos, long minimumNanos) {
+		Entry entry = entry(instanceId);
+		entry.inFlight.decrementAndGet();
+		long now = System.nanoTime();
+		long elapsed = Math.max(now - startNanos, minimumNanos);
+		Ewma previous;
+		Ewma next;
+		do {
+			previous = entry.ewma.get();
+			next = new Ewma(previous == null ? elapsed
+					: (long) (alpha * elapsed + (1 - alpha) * decayed(previous, now)), now);
+		} while (!entry.ewma.compareAndSet(previous, next));
+	}
+
+	/**
+	 * Expected cost of sending one more request to the instance: the average
+	 * response time scaled by the queue the request would join. Instances that
+	 * have not answered yet are assumed to respond in
+	 * {@code billing.loadbalancer.initial-latency-ms}.
+	 */
+	public double score(String instanceId) {
+		Entry entry = entries.get(instanceId);
+		if (entry == null) {
+			return initialLatencyNanos;
+		}
+		Ewma ewma = entry.ewma.get();
+		double latency = ewma == null ? initialLatencyNanos : decayed(ewma, System.nanoTime());
+		return latency * (entry.inFlight.get() + 1);
+	}
+
+	public int inFlight(String instanceId) {
+		Entry entry = entries.get(instanceId);
+		return entry == null ? 0 : entry.inFlight.get();
+	}
+
+	private Entry entry(String instanceId) {
+		return entries.computeIfAbsent(instanceId, id -> new Entry());
+	}
+
+	// The average as it stands now, faded toward the initial latency since it was last updated
+	private double decayed(Ewma ewma, long now) {
+		double weight = Math.exp(-Math.max(0, now - ewma.updatedAtNanos) / decayNanos);
+		return initialLatencyNanos + (ewma.nanos - initialLatencyNanos) * weight;
+	}
+
+	private record Ewma(long nanos, long updatedAtNanos) {
+	}
+
+	private static final class Entry {
+
+		private final AtomicInteger inFlight = new AtomicInteger();
+
+		// null until the first response has been recorded
+		private final AtomicReference<Ewma> ewma = new AtomicReference<>();
+	}
+}
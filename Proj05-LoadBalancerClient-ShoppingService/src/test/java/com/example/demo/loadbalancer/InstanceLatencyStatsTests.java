@@ -0,0 +1,41 @@
+package com.example.demo.loadbalancer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class InstanceLatencyStatsTests {
+
+	private static final double MS = 1_000_000;
+
+	@Test
+	void unknownInstanceScoresTheInitialLatency() {
+		InstanceLatencyStats stats = new InstanceLatencyStats(0.3, 10, 10_000, 1000);
+		assertEquals(10 * MS, stats.score("billing:1"));
+	}
+
+	@Test
+	void slowInstanceIsForgivenOnceItGetsNoResponses() throws Exception {
+		InstanceLatencyStats stats = new InstanceLatencyStats(0.3, 10, 100, 1000);
+		long start = stats.onRequestStart("billing:1");
+		Thread.sleep(80);
+		stats.onRequestEnd("billing:1", start);
+		assertTrue(stats.score("billing:1") > 40 * MS, "just measured as slow: " + stats.score("billing:1") / MS);
+
+		// Ten decay periods later the penalty is gone, so the instance gets requests again
+		Thread.sleep(1000);
+		assertTrue(stats.score("billing:1") < 11 * MS, "still penalized: " + stats.score("billing:1") / MS);
+	}
+
+	@Test
+	void fastFailuresCountAsThePenalty() {
+		InstanceLatencyStats stats = new InstanceLatencyStats(1, 10, 10_000, 1000);
+		stats.onRequestFailed("billing:1", stats.onRequestStart("billing:1"));
+		assertTrue(stats.score("billing:1") > 900 * MS, "failure not penalized: " + stats.score("billing:1") / MS);
+		assertEquals(0, stats.inFlight("billing:1"));
+
+		stats.onRequestEnd("billing:1", stats.onRequestStart("billing:1"));
+		assertTrue(stats.score("billing:1") < 10 * MS, "success not measured: " + stats.score("billing:1") / MS);
+	}
+}
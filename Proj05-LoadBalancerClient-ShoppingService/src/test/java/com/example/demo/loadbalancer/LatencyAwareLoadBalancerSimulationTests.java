@@ -0,0 +1,243 @@
+package com.example.demo.loadbalancer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Starts local billing stubs, one of them slow or failing, and compares the
+ * share of requests that stub gets from the default round-robin balancer and
+ * from the latency-aware one. Latencies are logged, and only compared
+ * between the two balancers, as they depend on the machine running the test.
+ */
+class LatencyAwareLoadBalancerSimulationTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(LatencyAwareLoadBalancerSimulationTests.class);
+
+	private static final String NODELAY = "sun.net.httpserver.nodelay";
+
+	private static final String SERVICE_ID = "Proj06-LoadBalancerClient-BillingService";
+
+	private static final int CLIENTS = 8;
+
+	private static final int REQUESTS_PER_CLIENT = 100;
+
+	private final List<HttpServer> stubs = new ArrayList<>();
+
+	private final List<ServiceInstance> instances = new ArrayList<>();
+
+	private static String previousNodelay;
+
+	private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+	@BeforeAll
+	static void disableNagle() {
+		// Otherwise the stub's header and body writes hit the 40ms delayed-ACK penalty
+		previousNodelay = System.setProperty(NODELAY, "true");
+	}
+
+	@AfterAll
+	static void restoreNagle() {
+		if (previousNodelay == null) {
+			System.clearProperty(NODELAY);
+		} else {
+			System.setProperty(NODELAY, previousNodelay);
+		}
+	}
+
+	private void startBillingStub(int delayMs, int status) throws IOException {
+		String instanceId = SERVICE_ID + ":stub-" + stubs.size();
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/billing-api/payment", exchange -> {
+			try {
+				Thread.sleep(delayMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			byte[] body = ("Bill Amount is 1. " + instanceId).getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(status, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		stubs.add(server);
+		instances.add(new DefaultServiceInstance(instanceId, SERVICE_ID, "localhost",
+				server.getAddress().getPort(), false));
+	}
+
+	@AfterEach
+	void stopBillingStubs() {
+		stubs.forEach(server -> server.stop(0));
+	}
+
+	@Test
+	void latencyAwareBalancerAvoidsTheSlowNode() throws Exception {
+		startBillingStub(5, 200);
+		startBillingStub(5, 200);
+		startBillingStub(80, 200);
+		String slowInstanceId = instances.get(2).getInstanceId();
+
+		Result roundRobin = run(this::roundRobin, slowInstanceId);
+		Result latencyAware = run(this::latencyAware, slowInstanceId);
+
+		log("slow", roundRobin, latencyAware);
+		assertTrue(roundRobin.share() > 0.25,
+				"round-robin should send the slow node its third, got " + roundRobin.share());
+		assertTrue(latencyAware.share() < 0.05,
+				"slow node should receive almost no traffic, got " + latencyAware.share());
+		// Fewer than 1% of the requests wait for the slow node
+		assertTrue(latencyAware.percentile(99) < roundRobin.percentile(99), "latency-aware p99 "
+				+ latencyAware.percentile(99) + "ms, round-robin p99 " + roundRobin.percentile(99) + "ms");
+	}
+
+	@Test
+	void latencyAwareBalancerAvoidsTheFailingNode() throws Exception {
+		startBillingStub(5, 200);
+		startBillingStub(5, 200);
+		// Fails faster than the others answer
+		startBillingStub(0, 503);
+		String failingInstanceId = instances.get(2).getInstanceId();
+
+		Result roundRobin = run(this::roundRobin, failingInstanceId);
+		Result latencyAware = run(this::latencyAware, failingInstanceId);
+
+		log("failing", roundRobin, latencyAware);
+		assertTrue(roundRobin.share() > 0.25,
+				"round-robin should send the failing node its third, got " + roundRobin.share());
+		assertTrue(latencyAware.share() < 0.05,
+				"failing node should receive almost no traffic, got " + latencyAware.share());
+	}
+
+	private ReactorServiceInstanceLoadBalancer roundRobin(InstanceLatencyStats stats) {
+		return new RoundRobinLoadBalancer(supplier(), SERVICE_ID);
+	}
+
+	private ReactorServiceInstanceLoadBalancer latencyAware(InstanceLatencyStats stats) {
+		return new LatencyAwareServiceInstanceLoadBalancer(supplier(), SERVICE_ID, stats);
+	}
+
+	private SimpleObjectProvider<ServiceInstanceListSupplier> supplier() {
+		return new SimpleObjectProvider<>(
+				ServiceInstanceListSuppliers.from(SERVICE_ID, instances.toArray(new ServiceInstance[0])));
+	}
+
+	private static void log(String node, Result roundRobin, Result latencyAware) {
+		logger.info("round-robin   p50={}ms p99={}ms {}-node-share={}%", roundRobin.percentile(50),
+				roundRobin.percentile(99), node, String.format("%.1f", roundRobin.share() * 100));
+		logger.info("latency-aware p50={}ms p99={}ms {}-node-share={}%", latencyAware.percentile(50),
+				latencyAware.percentile(99), node, String.format("%.1f", latencyAware.share() * 100));
+	}
+
+	// Share of the requests sent to the watched instance, and latencies of all of them
+	private Result run(Function<InstanceLatencyStats, ReactorServiceInstanceLoadBalancer> balancers,
+			String watchedInstanceId) throws Exception {
+		InstanceLatencyStats stats = new InstanceLatencyStats(0.3, 10, 10_000, 1000);
+		ReactorServiceInstanceLoadBalancer balancer = balancers.apply(stats);
+		long[] latencies = new long[CLIENTS * REQUESTS_PER_CLIENT];
+		AtomicInteger slot = new AtomicInteger();
+		ConcurrentHashMap<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+		Function<ServiceInstance, String> call = instance -> {
+			HttpRequest request = HttpRequest.newBuilder(URI.create(instance.getUri() + "/billing-api/payment")).build();
+			try {
+				HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+				if (response.statusCode() >= 500) {
+					throw new IllegalStateException("HTTP " + response.statusCode());
+				}
+				return response.body();
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+		};
+
+		ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+		CountDownLatch done = new CountDownLatch(CLIENTS);
+		for (int c = 0; c < CLIENTS; c++) {
+			clients.execute(() -> {
+				try {
+					for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+						Response<ServiceInstance> response = balancer.choose().block();
+						ServiceInstance instance = response.getServer();
+						hits.computeIfAbsent(instance.getInstanceId(), id -> new AtomicInteger()).incrementAndGet();
+						long begin = System.nanoTime();
+						long start = stats.onRequestStart(instance.getInstanceId());
+						// As BillingServiceClientComponent does
+						try {
+							call.apply(instance);
+							stats.onRequestEnd(instance.getInstanceId(), start);
+						} catch (IllegalStateException e) {
+							stats.onRequestFailed(instance.getInstanceId(), start);
+						}
+						latencies[slot.getAndIncrement()] = (System.nanoTime() - begin) / 1_000_000;
+					}
+				} finally {
+					done.countDown();
+				}
+			});
+		}
+		done.await();
+		clients.shutdown();
+
+		AtomicInteger watchedHits = hits.getOrDefault(watchedInstanceId, new AtomicInteger());
+		return new Result(latencies, watchedHits.get() / (double) latencies.length);
+	}
+
+	private static final class Result {
+
+		private final long[] sortedLatencies;
+
+		private final double share;
+
+		Result(long[] latencies, double share) {
+			this.sortedLatencies = latencies.clone();
+			Arrays.sort(this.sortedLatencies);
+			this.share = share;
+		}
+
+		long percentile(int p) {
+			int index = (int) Math.ceil(p / 100.0 * sortedLatencies.length) - 1;
+			return sortedLatencies[Math.max(0, index)];
+		}
+
+		double share() {
+			return share;
+		}
+	}
+}
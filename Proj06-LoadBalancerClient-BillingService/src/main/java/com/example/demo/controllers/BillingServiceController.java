@@ -1,6 +1,6 @@
 package com.example.demo.controllers;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,12 +11,23 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.dto.PaymentResponse;
+
+import jakarta.annotation.PostConstruct;
+
 @RestController
 @RequestMapping("/billing-api")
 public class BillingServiceController {
 
     // Create a logger for this class
     private static final Logger logger = LoggerFactory.getLogger(BillingServiceController.class);
+
+    private static final String AMOUNT_PREFIX = "Bill Amount is ";
+
+    private static final String PAYMENT_MODES = "Cards, UPI Payment";
+
+    // Longest possible amount (8 digits) plus some slack
+    private static final int AMOUNT_CAPACITY = 16;
     
     @Value("${server.port}")
     private int port;
@@ -24,6 +35,15 @@ public class BillingServiceController {
     @Value("${eureka.instance.instance-id}")
     private String instanceId;
 
+    // Part of the response that only depends on this instance, built once at startup
+    private String paymentSuffix;
+
+    @PostConstruct
+    void precomputeResponseFragments() {
+        paymentSuffix = ". Payment can be done via " + PAYMENT_MODES + " " + instanceId + " : " + port;
+        logger.info("Billing instance {} ready on port {}", instanceId, port);
+    }
+
     /**
      * This endpoint handles the payment request and returns available payment methods.
      * 
@@ -32,17 +52,29 @@ public class BillingServiceController {
     @GetMapping("payment")
     public ResponseEntity<String> doPayment() {
         // Log the incoming request for the payment endpoint
-        logger.info("Received request to process payment...");
-        
-        logger.info("Instanc Id{}",instanceId);
-        int amount=new Random().nextInt(100000000);
+        logger.debug("Received request to process payment on {}", instanceId);
+
+        int amount = nextAmount();
         // Respond with a message about available payment methods
-        String responseMessage = String.format("Bill Amount is %s. Payment can be done via Cards, UPI Payment %s : %d", amount, instanceId, port);
+        String responseMessage = new StringBuilder(AMOUNT_PREFIX.length() + AMOUNT_CAPACITY + paymentSuffix.length())
+                .append(AMOUNT_PREFIX).append(amount).append(paymentSuffix).toString();
 
         // Log the response being sent
         logger.debug("Returning payment methods: {}", responseMessage);
 
         return new ResponseEntity<>(responseMessage, HttpStatus.OK);
     }
-}
 
+    /**
+     * Same payment as {@link #doPayment()}, returned as a JSON {@link PaymentResponse}.
+     */
+    @GetMapping("/v2/payment")
+    public ResponseEntity<PaymentResponse> doPaymentV2() {
+        return new ResponseEntity<>(new PaymentResponse(nextAmount(), PAYMENT_MODES, instanceId, port), HttpStatus.OK);
+    }
+
+    // Generate a random amount for the bill without allocating a Random per request
+    private static int nextAmount() {
+        return ThreadLocalRandom.current().nextInt(100000000);
+    }
+}
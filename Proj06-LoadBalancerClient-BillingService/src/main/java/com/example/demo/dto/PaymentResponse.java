@@ -0,0 +1,39 @@
+package com.example.demo.dto;
+
+/**
+ * Structured form of the payment message, returned by the /billing-api/v2
+ * endpoints as JSON.
+ */
+public class PaymentResponse {
+
+	private final int amount;
+
+	private final String paymentModes;
+
+	private final String instanceId;
+
+	private final int port;
+
+	public PaymentResponse(int amount, String paymentModes, String instanceId, int port) {
+		this.amount = amount;
+		this.paymentModes = paymentModes;
+		this.instanceId = instanceId;
+		this.port = port;
+	}
+
+	public int getAmount() {
+		return amount;
+	}
+
+	public String getPaymentModes() {
+		return paymentModes;
+	}
+
+	public String getInstanceId() {
+		return instanceId;
+	}
+
+	public int getPort() {
+		return port;
+	}
+}
@@ -0,0 +1,46 @@
+package com.example.demo.dto;
+
+/**
+ * Structured form of the payment message, returned by the /billing-api/v2
+ * endpoints as JSON.
+ */
+public class PaymentResponse {
+
+	private final int amount;
+
+	private final Long cardNo;
+
+	private final String paymentModes;
+
+	private final String instanceId;
+
+	private final int port;
+
+	public PaymentResponse(int amount, Long cardNo, String paymentModes, String instanceId, int port) {
+		this.amount = amount;
+		this.cardNo = cardNo;
+		this.paymentModes = paymentModes;
+		this.instanceId = instanceId;
+		this.port = port;
+	}
+
+	public int getAmount() {
+		return amount;
+	}
+
+	public Long getCardNo() {
+		return cardNo;
+	}
+
+	public String getPaymentModes() {
+		return paymentModes;
+	}
+
+	public String getInstanceId() {
+		return instanceId;
+	}
+
+	public int getPort() {
+		return port;
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.example.demo.controllers.BatchingBillingServiceClient;
+import com.example.demo.controllers.CoalescingBillingServiceClient;
+import com.example.demo.controllers.CoalescingKeyResolver;
+import com.example.demo.controllers.IBillingServiceClientComponent;
+import com.example.demo.controllers.PaymentMicroBatcher;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Builds the {@link IBillingServiceClientComponent} used by the controllers.
+ * Starting from the Feign client, the optional layers are stacked as
+ * coalescing -> batching -> Feign, so identical calls are merged before
+ * they are queued for a batch.
+ */
+@Configuration
+public class BillingClientChainConfig {
+
+	@Bean(destroyMethod = "close")
+	@ConditionalOnProperty(name = "billing.batching.enabled", havingValue = "true")
+	public PaymentMicroBatcher paymentMicroBatcher(
+			@Qualifier("feignBillingClient") IBillingServiceClientComponent feignClient,
+			MeterRegistry meterRegistry,
+			@Value("${billing.batching.max-batch-size:50}") int maxBatchSize,
+			@Value("${billing.batching.linger-ms:5}") long lingerMs,
+			@Value("${billing.batching.max-queue-depth:10000}") int maxQueueDepth,
+			@Value("${billing.batching.max-concurrent-batches:4}") int maxConcurrentBatches) {
+		return new PaymentMicroBatcher(feignClient, maxBatchSize, lingerMs, maxQueueDepth, maxConcurrentBatches,
+				meterRegistry);
+	}
+
+	@Bean
+	@Primary
+	public IBillingServiceClientComponent billingClient(
+			@Qualifier("feignBillingClient") IBillingServiceClientComponent feignClient,
+			ObjectProvider<PaymentMicroBatcher> batcher,
+			ObjectProvider<CoalescingKeyResolver> keyResolver,
+			MeterRegistry meterRegistry,
+			@Value("${billing.coalescing.enabled:false}") boolean coalescingEnabled,
+			@Value("${billing.coalescing.window-ms:0}") long coalescingWindowMs,
+			@Value("${billing.coalescing.join-timeout-ms:10000}") long coalescingJoinTimeoutMs,
+			@Value("${billing.batching.result-timeout-ms:10000}") long batchResultTimeoutMs) {
+		IBillingServiceClientComponent client = feignClient;
+		PaymentMicroBatcher microBatcher = batcher.getIfAvailable();
+		if (microBatcher != null) {
+			client = new BatchingBillingServiceClient(client, microBatcher,
+					Duration.ofMillis(batchResultTimeoutMs));
+		}
+		if (coalescingEnabled) {
+			client = new CoalescingBillingServiceClient(client,
+					keyResolver.getIfAvailable(() -> cardNo -> cardNo), meterRegistry, coalescingWindowMs,
+					Duration.ofMillis(coalescingJoinTimeoutMs));
+		}
+		return client;
+	}
+}
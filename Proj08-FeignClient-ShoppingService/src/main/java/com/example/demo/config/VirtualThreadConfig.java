@@ -0,0 +1,31 @@
+package com.example.demo.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.cloud.openfeign.clientconfig.http2client.Http2ClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Active only with {@code spring.threads.virtual.enabled=true} (see the
+ * virtual-threads profile).
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+	// The JDK HttpClient behind Feign runs its internal tasks on virtual threads too.
+	// Not a default candidate, or Boot would not create its applicationTaskExecutor.
+	@Bean(destroyMethod = "close", defaultCandidate = false)
+	public ExecutorService feignHttpClientExecutor() {
+		return Executors.newVirtualThreadPerTaskExecutor();
+	}
+
+	@Bean
+	public Http2ClientCustomizer virtualThreadFeignHttpClient() {
+		return builder -> builder.executor(feignHttpClientExecutor());
+	}
+}
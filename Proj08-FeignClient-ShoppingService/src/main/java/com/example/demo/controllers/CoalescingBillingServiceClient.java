@@ -0,0 +1,157 @@
+package com.example.demo.controllers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Single-flight layer in front of the Feign billing client. Concurrent
+ * {@link #invokeDoPayment(long)} calls that resolve to the same key share one
+ * outstanding remote call and its result. With {@code billing.coalescing.window-ms}
+ * greater than zero, a successful result is also shared with calls arriving
+ * within that window after the remote call started. Failures are never shared
+ * beyond the callers already waiting. A caller waits for another caller's
+ * remote call no longer than {@code billing.coalescing.join-timeout-ms}.
+ *
+ * Enabled with {@code billing.coalescing.enabled=true}, see BillingClientChainConfig.
+ */
+public class CoalescingBillingServiceClient implements IBillingServiceClientComponent {
+
+	private static final Logger logger = LoggerFactory.getLogger(CoalescingBillingServiceClient.class);
+
+	private final IBillingServiceClientComponent delegate;
+
+	private final CoalescingKeyResolver keyResolver;
+
+	private final long windowNanos;
+
+	private final long joinTimeoutNanos;
+
+	private final ConcurrentHashMap<Object, Flight> flights = new ConcurrentHashMap<>();
+
+	private final Counter requests;
+
+	private final Counter downstreamCalls;
+
+	public CoalescingBillingServiceClient(IBillingServiceClientComponent delegate, CoalescingKeyResolver keyResolver,
+			MeterRegistry meterRegistry, long windowMs, Duration joinTimeout) {
+		this.delegate = delegate;
+		this.keyResolver = keyResolver;
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+		this.joinTimeoutNanos = joinTimeout.toNanos();
+		this.requests = Counter.builder("billing.coalescing.requests")
+				.description("Payment calls received by the single-flight layer")
+				.register(meterRegistry);
+		this.downstreamCalls = Counter.builder("billing.coalescing.downstream.calls")
+				.description("Payment calls actually sent to the billing service")
+				.register(meterRegistry);
+		Gauge.builder("billing.coalescing.ratio", this, CoalescingBillingServiceClient::coalescingRatio)
+				.description("Share of payment calls answered by another caller's remote call")
+				.register(meterRegistry);
+	}
+
+	// Every call without a card number produces a new bill, so it is never coalesced
+	@Override
+	public String invokeDoPayment() {
+		return delegate.invokeDoPayment();
+	}
+
+	@Override
+	public String invokeDoPayment(long cardNo) {
+		requests.increment();
+		Object key = keyResolver.resolve(cardNo);
+		while (true) {
+			Flight existing = flights.get(key);
+			if (existing != null && existing.isShareable(System.nanoTime())) {
+				logger.debug("Joining in-flight payment call for key {}", key);
+				return join(existing);
+			}
+			Flight flight = new Flight(System.nanoTime() + windowNanos);
+			boolean owner = existing == null ? flights.putIfAbsent(key, flight) == null
+					: flights.replace(key, existing, flight);
+			if (owner) {
+				return execute(key, flight, cardNo);
+			}
+		}
+	}
+
+	@Override
+	public List<String> invokeDoPayments(List<Long> cardNos) {
+		return delegate.invokeDoPayments(cardNos);
+	}
+
+	private String execute(Object key, Flight flight, long cardNo) {
+		downstreamCalls.increment();
+		try {
+			String result = delegate.invokeDoPayment(cardNo);
+			flight.result.complete(result);
+			if (windowNanos == 0) {
+				flights.remove(key, flight);
+			} else {
+				CompletableFuture.delayedExecutor(windowNanos, TimeUnit.NANOSECONDS)
+						.execute(() -> flights.remove(key, flight));
+			}
+			return result;
+		} catch (Throwable e) {
+			// Errors too, or the callers that joined would wait on the flight forever
+			flights.remove(key, flight);
+			flight.result.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	private String join(Flight flight) {
+		try {
+			return flight.result.get(joinTimeoutNanos, TimeUnit.NANOSECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			if (e.getCause() instanceof Error cause) {
+				throw cause;
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (TimeoutException e) {
+			// The owner's call goes on and may still pay; this caller is not told
+			throw new IllegalStateException("No result from the in-flight payment call within "
+					+ TimeUnit.NANOSECONDS.toMillis(joinTimeoutNanos) + " ms", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the in-flight payment call", e);
+		}
+	}
+
+	double coalescingRatio() {
+		double total = requests.count();
+		return total == 0 ? 0 : 1 - downstreamCalls.count() / total;
+	}
+
+	private static final class Flight {
+
+		private final CompletableFuture<String> result = new CompletableFuture<>();
+
+		private final long shareUntilNanos;
+
+		Flight(long shareUntilNanos) {
+			this.shareUntilNanos = shareUntilNanos;
+		}
+
+		boolean isShareable(long now) {
+			if (!result.isDone()) {
+				return true;
+			}
+			return !result.isCompletedExceptionally() && now - shareUntilNanos < 0;
+		}
+	}
+}
@@ -0,0 +1,12 @@
+package com.example.demo.controllers;
+
+/**
+ * Decides which payment calls are considered identical by
+ * {@link CoalescingBillingServiceClient}. Without a bean of this type calls
+ * are keyed on the card number; declare one to coalesce on something else.
+ */
+@FunctionalInterface
+public interface CoalescingKeyResolver {
+
+	Object resolve(long cardNo);
+}
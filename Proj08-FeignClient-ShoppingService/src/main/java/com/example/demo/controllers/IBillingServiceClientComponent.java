@@ -1,10 +1,15 @@
 package com.example.demo.controllers;
 
+import java.util.List;
+
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 
-@FeignClient("Proj07-FeignClient-BillingService")
+// Not primary: BillingClientChainConfig wraps it with the optional batching and coalescing layers
+@FeignClient(name = "Proj07-FeignClient-BillingService", qualifiers = "feignBillingClient", primary = false)
 public interface IBillingServiceClientComponent {
 	
 	@GetMapping("/billing-api/payment")
@@ -12,5 +17,7 @@ public interface IBillingServiceClientComponent {
 	
 	@GetMapping("/billing-api/payment/{cardNo}")
     public String invokeDoPayment(@PathVariable("cardNo") long cardNo);
+	
+	@PostMapping("/billing-api/payments/batch")
+    public List<String> invokeDoPayments(@RequestBody List<Long> cardNos);
 }
-
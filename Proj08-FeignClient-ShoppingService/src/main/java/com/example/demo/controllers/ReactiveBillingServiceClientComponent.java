@@ -0,0 +1,25 @@
+package com.example.demo.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link IBillingServiceClientComponent}.
+ */
+@Component
+public class ReactiveBillingServiceClientComponent {
+
+	@Autowired
+	private WebClient billingWebClient; // Load-balanced client, see BillingWebClientConfig
+
+	public Mono<String> invokeDoPayment() {
+		return billingWebClient.get().uri("/billing-api/payment").retrieve().bodyToMono(String.class);
+	}
+
+	public Mono<String> invokeDoPayment(long cardNo) {
+		return billingWebClient.get().uri("/billing-api/payment/{cardNo}", cardNo).retrieve().bodyToMono(String.class);
+	}
+}
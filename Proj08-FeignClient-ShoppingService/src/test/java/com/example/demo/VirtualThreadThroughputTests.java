@@ -0,0 +1,117 @@
+package com.example.demo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the shopping service in the virtual-threads profile with a Tomcat pool
+ * capped at {@value #MAX_THREADS} threads and a billing stub that takes
+ * {@value #BILLING_DELAY_MS}ms per call. With platform threads the burst below
+ * cannot finish faster than (requests / max threads) * delay.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"eureka.client.enabled=false",
+		"server.tomcat.threads.max=" + VirtualThreadThroughputTests.MAX_THREADS })
+@ActiveProfiles("virtual-threads")
+class VirtualThreadThroughputTests {
+
+	static final int MAX_THREADS = 4;
+
+	static final int BILLING_DELAY_MS = 500;
+
+	private static final int REQUESTS = 200;
+
+	private static final HttpServer billingStub = startBillingStub();
+
+	@LocalServerPort
+	private int port;
+
+	@DynamicPropertySource
+	static void billingInstance(DynamicPropertyRegistry registry) {
+		registry.add("spring.cloud.discovery.client.simple.instances.Proj07-FeignClient-BillingService[0].uri",
+				() -> "http://localhost:" + billingStub.getAddress().getPort());
+	}
+
+	@AfterAll
+	static void stopBillingStub() {
+		billingStub.stop(0);
+	}
+
+	@Test
+	void keepsBootsTaskExecutor(@Autowired ApplicationContext context) {
+		assertTrue(context.containsBean("applicationTaskExecutor"));
+	}
+
+	@Test
+	void throughputIsNotCappedByTomcatThreadPool() {
+		HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		URI uri = URI.create("http://localhost:" + port + "/shopping-api/purchase/1234");
+
+		// Warm up the JIT, the Feign proxy and the connection pools first
+		burst(httpClient, uri, MAX_THREADS * 2);
+
+		long start = System.nanoTime();
+		burst(httpClient, uri, REQUESTS);
+		long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+		long platformThreadFloorMs = (long) REQUESTS / MAX_THREADS * BILLING_DELAY_MS;
+		assertTrue(elapsedMs < platformThreadFloorMs / 2, REQUESTS + " purchases took " + elapsedMs
+				+ "ms, expected well under the thread-pool bound of " + platformThreadFloorMs + "ms");
+	}
+
+	private static void burst(HttpClient httpClient, URI uri, int requests) {
+		List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+		for (int i = 0; i < requests; i++) {
+			responses.add(httpClient.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString()));
+		}
+		responses.forEach(response -> assertEquals(200, response.join().statusCode()));
+	}
+
+	private static HttpServer startBillingStub() {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+			server.createContext("/billing-api/payment", exchange -> {
+				try {
+					Thread.sleep(BILLING_DELAY_MS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				byte[] body = "Bill Amount is 1. Payment can be done using CardNO: 1234".getBytes(StandardCharsets.UTF_8);
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(body);
+				}
+			});
+			server.start();
+			return server;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package com.example.demo.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class CoalescingBillingServiceClientTests {
+
+	private static final int CALLERS_PER_KEY = 50;
+
+	private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS_PER_KEY * 2);
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@AfterEach
+	void shutdown() {
+		callers.shutdownNow();
+	}
+
+	@Test
+	void concurrentIdenticalCallsShareOneDownstreamCallPerKey() throws Exception {
+		SlowBillingClient billing = new SlowBillingClient(200);
+		CoalescingBillingServiceClient client = client(billing, 0);
+
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<String>> results = new ArrayList<>();
+		for (long cardNo : new long[] { 1111, 2222 }) {
+			for (int i = 0; i < CALLERS_PER_KEY; i++) {
+				results.add(callers.submit(() -> {
+					start.await();
+					return client.invokeDoPayment(cardNo);
+				}));
+			}
+		}
+		start.countDown();
+		for (Future<String> result : results) {
+			result.get();
+		}
+
+		assertEquals(1, billing.calls(1111));
+		assertEquals(1, billing.calls(2222));
+		assertEquals(2 * CALLERS_PER_KEY, meterRegistry.get("billing.coalescing.requests").counter().count());
+		assertEquals(2, meterRegistry.get("billing.coalescing.downstream.calls").counter().count());
+		assertEquals(0.98, meterRegistry.get("billing.coalescing.ratio").gauge().value(), 1e-9);
+	}
+
+	@Test
+	void resultIsReusedWithinWindowOnly() throws Exception {
+		SlowBillingClient billing = new SlowBillingClient(0);
+		CoalescingBillingServiceClient client = client(billing, 300);
+
+		client.invokeDoPayment(1111);
+		client.invokeDoPayment(1111);
+		assertEquals(1, billing.calls(1111));
+
+		Thread.sleep(400);
+		client.invokeDoPayment(1111);
+		assertEquals(2, billing.calls(1111));
+	}
+
+	@Test
+	void failuresAreNotCached() {
+		SlowBillingClient billing = new SlowBillingClient(0);
+		billing.fail = true;
+		CoalescingBillingServiceClient client = client(billing, 10_000);
+
+		assertThrows(IllegalStateException.class, () -> client.invokeDoPayment(1111));
+		billing.fail = false;
+		client.invokeDoPayment(1111);
+
+		assertEquals(2, billing.calls(1111));
+	}
+
+	@Test
+	void errorsReachEveryCallerAndAreNotCached() throws Exception {
+		SlowBillingClient billing = new SlowBillingClient(200);
+		billing.error = true;
+		CoalescingBillingServiceClient client = client(billing, 10_000);
+
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < CALLERS_PER_KEY; i++) {
+			results.add(callers.submit(() -> {
+				start.await();
+				return client.invokeDoPayment(1111);
+			}));
+		}
+		start.countDown();
+		for (Future<String> result : results) {
+			ExecutionException e = assertThrows(ExecutionException.class, result::get);
+			assertTrue(e.getCause() instanceof NoClassDefFoundError, e.getCause().toString());
+		}
+
+		billing.error = false;
+		client.invokeDoPayment(1111);
+		assertEquals(2, billing.calls(1111));
+	}
+
+	@Test
+	void joinedCallersWaitNoLongerThanTheJoinTimeout() throws Exception {
+		SlowBillingClient billing = new SlowBillingClient(2000);
+		CoalescingBillingServiceClient client = new CoalescingBillingServiceClient(billing, cardNo -> cardNo,
+				meterRegistry, 0, Duration.ofMillis(100));
+
+		Future<String> owner = callers.submit(() -> client.invokeDoPayment(1111));
+		while (billing.calls(1111) == 0) {
+			Thread.sleep(5);
+		}
+		long start = System.nanoTime();
+		assertThrows(IllegalStateException.class, () -> client.invokeDoPayment(1111));
+		assertTrue(System.nanoTime() - start < Duration.ofMillis(1000).toNanos());
+
+		// The owner still gets its own result
+		assertEquals("Bill Amount is 1. Payment can be done using CardNO: 1111", owner.get());
+		assertEquals(1, billing.calls(1111));
+	}
+
+	private CoalescingBillingServiceClient client(IBillingServiceClientComponent billing, long windowMs) {
+		return new CoalescingBillingServiceClient(billing, cardNo -> cardNo, meterRegistry, windowMs,
+				Duration.ofSeconds(10));
+	}
+
+	private static final class SlowBillingClient implements IBillingServiceClientComponent {
+
+		private final ConcurrentHashMap<Long, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+		private final long delayMs;
+
+		private volatile boolean fail;
+
+		private volatile boolean error;
+
+		SlowBillingClient(long delayMs) {
+			this.delayMs = delayMs;
+		}
+
+		@Override
+		public String invokeDoPayment() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String invokeDoPayment(long cardNo) {
+			calls.computeIfAbsent(cardNo, key -> new AtomicInteger()).incrementAndGet();
+			try {
+				Thread.sleep(delayMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (fail) {
+				throw new IllegalStateException("billing down");
+			}
+			if (error) {
+				throw new NoClassDefFoundError("billing client broken");
+			}
+			return "Bill Amount is 1. Payment can be done using CardNO: " + cardNo;
+		}
+
+		@Override
+		public List<String> invokeDoPayments(List<Long> cardNos) {
+			throw new UnsupportedOperationException();
+		}
+
+		int calls(long cardNo) {
+			AtomicInteger count = calls.get(cardNo);
+			return count == null ? 0 : count.get();
+		}
+	}
+}
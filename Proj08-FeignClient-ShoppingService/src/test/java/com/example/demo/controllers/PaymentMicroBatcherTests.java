@@ -0,0 +1,150 @@
+package com.example.demo.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PaymentMicroBatcherTests {
+
+	@Test
+	void concurrentPaymentsAreSentInBatchesAndAnsweredInOrder() throws Exception {
+		RecordingBillingClient billing = new RecordingBillingClient(null);
+		try (PaymentMicroBatcher batcher = new PaymentMicroBatcher(billing, 20, 50, 1000, 2, new SimpleMeterRegistry())) {
+			List<CompletableFuture<String>> results = new ArrayList<>();
+			for (long cardNo = 0; cardNo < 100; cardNo++) {
+				results.add(batcher.submit(cardNo));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				assertEquals("paid:" + i, results.get(i).get());
+			}
+		}
+		assertTrue(billing.batchSizes.size() <= 10, "expected at most 10 batch requests, got " + billing.batchSizes);
+		assertTrue(billing.batchSizes.stream().allMatch(size -> size <= 20));
+	}
+
+	@Test
+	void lonePaymentIsSentAfterLinger() throws Exception {
+		RecordingBillingClient billing = new RecordingBillingClient(null);
+		try (PaymentMicroBatcher batcher = new PaymentMicroBatcher(billing, 50, 20, 1000, 1, new SimpleMeterRegistry())) {
+			assertEquals("paid:7", batcher.submit(7).get());
+		}
+		assertEquals(List.of(1), billing.batchSizes);
+	}
+
+	@Test
+	void batchFailureFailsEveryCaller() throws Exception {
+		RecordingBillingClient billing = new RecordingBillingClient(new IllegalStateException("billing down"));
+		try (PaymentMicroBatcher batcher = new PaymentMicroBatcher(billing, 10, 20, 1000, 1, new SimpleMeterRegistry())) {
+			CompletableFuture<String> first = batcher.submit(1);
+			CompletableFuture<String> second = batcher.submit(2);
+			assertThrows(ExecutionException.class, first::get);
+			assertThrows(ExecutionException.class, second::get);
+		}
+	}
+
+	@Test
+	void rejectsWhenQueueIsFull() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		IBillingServiceClientComponent stuck = new RecordingBillingClient(null) {
+			@Override
+			public List<String> invokeDoPayments(List<Long> cardNos) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.invokeDoPayments(cardNos);
+			}
+		};
+		try (PaymentMicroBatcher batcher = new PaymentMicroBatcher(stuck, 1, 0, 2, 1, new SimpleMeterRegistry())) {
+			assertThrows(RejectedExecutionException.class, () -> {
+				for (int i = 0; i < 10; i++) {
+					batcher.submit(i);
+				}
+			});
+			release.countDown();
+		}
+	}
+
+	@Test
+	void closeFailsTheBatchBeingCollected() throws Exception {
+		RecordingBillingClient billing = new RecordingBillingClient(null);
+		PaymentMicroBatcher batcher = new PaymentMicroBatcher(billing, 10, 60_000, 1000, 1, new SimpleMeterRegistry());
+		CompletableFuture<String> lingering = batcher.submit(1);
+		// Still waiting for more payments, with the first one taken off the queue
+		Thread.sleep(100);
+		batcher.close();
+		ExecutionException failure = assertThrows(ExecutionException.class, () -> lingering.get(5, TimeUnit.SECONDS));
+		assertTrue(failure.getCause() instanceof RejectedExecutionException);
+		assertTrue(billing.batchSizes.isEmpty());
+		assertThrows(RejectedExecutionException.class, () -> batcher.submit(2));
+	}
+
+	@Test
+	void callerGivesUpAfterResultTimeout() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		IBillingServiceClientComponent stuck = new RecordingBillingClient(null) {
+			@Override
+			public List<String> invokeDoPayments(List<Long> cardNos) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.invokeDoPayments(cardNos);
+			}
+		};
+		try (PaymentMicroBatcher batcher = new PaymentMicroBatcher(stuck, 10, 0, 1000, 1, new SimpleMeterRegistry())) {
+			BatchingBillingServiceClient client = new BatchingBillingServiceClient(stuck, batcher,
+					Duration.ofMillis(50));
+			assertThrows(IllegalStateException.class, () -> client.invokeDoPayment(1));
+			release.countDown();
+		}
+	}
+
+	private static class RecordingBillingClient implements IBillingServiceClientComponent {
+
+		private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+		private final RuntimeException failure;
+
+		RecordingBillingClient(RuntimeException failure) {
+			this.failure = failure;
+		}
+
+		@Override
+		public String invokeDoPayment() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String invokeDoPayment(long cardNo) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<String> invokeDoPayments(List<Long> cardNos) {
+			batchSizes.add(cardNos.size());
+			if (failure != null) {
+				throw failure;
+			}
+			List<String> results = new ArrayList<>();
+			cardNos.forEach(cardNo -> results.add("paid:" + cardNo));
+			return results;
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.example.demo.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.filter.ResponseCacheEndpoint;
+import com.example.demo.filter.ResponseCacheGatewayFilterFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The {@code ResponseCache} route filter and its actuator endpoint.
+ */
+@Configuration
+public class ResponseCacheConfig {
+
+	@Bean
+	public ResponseCacheGatewayFilterFactory responseCacheGatewayFilterFactory(MeterRegistry meterRegistry) {
+		return new ResponseCacheGatewayFilterFactory(meterRegistry);
+	}
+
+	@Bean
+	public ResponseCacheEndpoint responseCacheEndpoint(
+			ResponseCacheGatewayFilterFactory responseCacheGatewayFilterFactory) {
+		return new ResponseCacheEndpoint(responseCacheGatewayFilterFactory);
+	}
+}
@@ -0,0 +1,29 @@
+package com.example.demo.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.example.demo.routing.TrieRoutePredicateHandlerMapping;
+
+/**
+ * Route selection through a compiled path trie, in place of the gateway's
+ * own handler mapping that tries every route in order.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gateway.routing.trie.enabled", matchIfMissing = true)
+public class RoutingConfig {
+
+	@Bean
+	public TrieRoutePredicateHandlerMapping routePredicateHandlerMapping(FilteringWebHandler webHandler,
+			RouteLocator routeLocator, RouteDefinitionLocator routeDefinitionLocator,
+			GlobalCorsProperties globalCorsProperties, Environment environment) {
+		return new TrieRoutePredicateHandlerMapping(webHandler, routeLocator, routeDefinitionLocator,
+				globalCorsProperties, environment);
+	}
+}
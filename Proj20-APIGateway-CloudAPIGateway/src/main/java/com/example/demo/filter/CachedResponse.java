@@ -0,0 +1,47 @@
+package com.example.demo.filter;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+/**
+ * A response held by {@link RouteResponseCache}: status, headers and the
+ * whole body, with the values of the request headers it varies by.
+ */
+record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, Map<String, String> vary,
+		Duration timeToLive, long storedAtNanos) {
+
+	/**
+	 * Whether this response can answer {@code request}, which has to have the
+	 * same values as the stored one for every header in {@code Vary}.
+	 */
+	boolean matches(ServerHttpRequest request) {
+		for (Map.Entry<String, String> header : vary.entrySet()) {
+			if (!header.getValue().equals(RouteResponseCache.headerValue(request, header.getKey()))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Seconds since the response was stored, for the {@code Age} header. */
+	long ageSeconds() {
+		return Duration.ofNanos(System.nanoTime() - storedAtNanos).toSeconds();
+	}
+
+	// Rough bytes of heap held by the entry, bounded by the route's size
+	int weight(String key) {
+		int weight = 64 + 2 * key.length() + body.length;
+		for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+			weight += 2 * header.getKey().length();
+			for (String value : header.getValue()) {
+				weight += 2 * value.length();
+			}
+		}
+		return weight;
+	}
+}
@@ -0,0 +1,33 @@
+package com.example.demo.filter;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * {@code /actuator/responsecache}: for the response cache of each route,
+ * hits, collapsed misses (served from another request's response), misses,
+ * bypassed requests, hit ratio, entries and approximate bytes held. The same
+ * figures are in {@code /actuator/metrics} under
+ * {@code gateway.response.cache.*}, tagged by route.
+ */
+@Endpoint(id = "responsecache")
+public class ResponseCacheEndpoint {
+
+	private final ResponseCacheGatewayFilterFactory responseCacheGatewayFilterFactory;
+
+	public ResponseCacheEndpoint(ResponseCacheGatewayFilterFactory responseCacheGatewayFilterFactory) {
+		this.responseCacheGatewayFilterFactory = responseCacheGatewayFilterFactory;
+	}
+
+	@ReadOperation
+	public Map<String, Object> routes() {
+		Map<String, Object> routes = new TreeMap<>();
+		for (RouteResponseCache cache : responseCacheGatewayFilterFactory.caches()) {
+			routes.put(cache.routeId(), cache.describe());
+		}
+		return routes;
+	}
+}
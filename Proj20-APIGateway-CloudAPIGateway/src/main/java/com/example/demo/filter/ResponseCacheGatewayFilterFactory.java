@@ -0,0 +1,107 @@
+package com.example.demo.filter;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.util.unit.DataSize;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * {@code ResponseCache}: caches the route's GET responses in memory, see
+ * {@link RouteResponseCache}. Arguments: {@code timeToLive} (at most, a
+ * shorter {@code max-age} wins), {@code size} (bytes of responses kept for the
+ * route) and {@code headers}, the request headers besides path and query that
+ * responses differ by.
+ *
+ * The cache of a route outlives its filters, which are made again every time
+ * the routes are refreshed, and only starts over when its arguments change.
+ */
+public class ResponseCacheGatewayFilterFactory
+		extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+	// Before the response is written, so that the body can be copied on its way out
+	private static final int ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 3;
+
+	private final MeterRegistry meterRegistry;
+
+	private final ConcurrentMap<String, RouteResponseCache> caches = new ConcurrentHashMap<>();
+
+	public ResponseCacheGatewayFilterFactory(MeterRegistry meterRegistry) {
+		super(Config.class);
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public List<String> shortcutFieldOrder() {
+		return List.of("timeToLive", "size", "headers");
+	}
+
+	@Override
+	public GatewayFilter apply(Config config) {
+		RouteResponseCache cache = caches.compute(config.getRouteId(),
+				(routeId, existing) -> existing == null ? new RouteResponseCache(routeId, config, meterRegistry)
+						: existing.reconfigure(config));
+		return new OrderedGatewayFilter(cache::filter, ORDER);
+	}
+
+	Collection<RouteResponseCache> caches() {
+		return caches.values();
+	}
+
+	public static class Config implements HasRouteId {
+
+		private Duration timeToLive = Duration.ofMinutes(1);
+
+		private DataSize size = DataSize.ofMegabytes(1);
+
+		private List<String> headers = List.of();
+
+		private String routeId;
+
+		public Duration getTimeToLive() {
+			return timeToLive;
+		}
+
+		public Config setTimeToLive(Duration timeToLive) {
+			this.timeToLive = timeToLive;
+			return this;
+		}
+
+		public DataSize getSize() {
+			return size;
+		}
+
+		public Config setSize(DataSize size) {
+			this.size = size;
+			return this;
+		}
+
+		public List<String> getHeaders() {
+			return headers;
+		}
+
+		public Config setHeaders(List<String> headers) {
+			this.headers = headers;
+			return this;
+		}
+
+		@Override
+		public String getRouteId() {
+			return routeId;
+		}
+
+		@Override
+		public void setRouteId(String routeId) {
+			this.routeId = routeId;
+		}
+	}
+}
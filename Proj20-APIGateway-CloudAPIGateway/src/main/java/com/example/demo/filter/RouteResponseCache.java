@@ -0,0 +1,428 @@
+package com.example.demo.filter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Scheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * The response cache of one route, shared by every filter the route gets
+ * through {@link ResponseCacheGatewayFilterFactory}, so that it survives the
+ * routes being rebuilt.
+ *
+ * Only GETs are cached, keyed by path, query and the route's key headers,
+ * and by the request headers named in the {@code Vary} of the last response
+ * stored for them. A response is stored if it is a 200 with a body, without
+ * {@code Set-Cookie}, {@code Vary: *} or {@code no-store}, {@code no-cache}
+ * or {@code private}, for the route's time to live or its
+ * {@code s-maxage}/{@code max-age} if shorter. Requests with
+ * {@code no-store} or an {@code Authorization} header that is not a key
+ * header go straight through; requests with {@code no-cache} or
+ * {@code max-age=0} are not served from the cache but refresh it.
+ *
+ * Concurrent misses on one key make one call upstream: the first request
+ * goes through, and the others wait for its response and are served from it,
+ * or go through themselves if it could not be stored.
+ */
+class RouteResponseCache {
+
+	private static final List<String> HOP_BY_HOP = List.of(HttpHeaders.CONNECTION, HttpHeaders.TRANSFER_ENCODING,
+			"Keep-Alive", HttpHeaders.CONTENT_LENGTH, HttpHeaders.AGE);
+
+	private final String routeId;
+
+	private final ConcurrentMap<String, Sinks.One<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+	private final Counter hits;
+
+	private final Counter misses;
+
+	private final Counter collapsed;
+
+	private final Counter bypassed;
+
+	private volatile Settings settings;
+
+	RouteResponseCache(String routeId, ResponseCacheGatewayFilterFactory.Config config, MeterRegistry meterRegistry) {
+		this.routeId = routeId;
+		this.settings = new Settings(config);
+		this.hits = counter(meterRegistry, "hit");
+		this.misses = counter(meterRegistry, "miss");
+		this.collapsed = counter(meterRegistry, "collapsed");
+		this.bypassed = counter(meterRegistry, "bypass");
+		Gauge.builder("gateway.response.cache.size", this, cache -> cache.settings.entries.estimatedSize())
+				.description("Responses in the cache")
+				.tag("route", routeId)
+				.register(meterRegistry);
+		Gauge.builder("gateway.response.cache.bytes", this, RouteResponseCache::bytes)
+				.description("Approximate heap held by the cached responses")
+				.baseUnit("bytes")
+				.tag("route", routeId)
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Takes the route's settings again; the cache starts over if its bounds or
+	 * key headers changed.
+	 */
+	RouteResponseCache reconfigure(ResponseCacheGatewayFilterFactory.Config config) {
+		if (!settings.sameAs(config)) {
+			settings = new Settings(config);
+		}
+		return this;
+	}
+
+	Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+		ServerHttpRequest request = exchange.getRequest();
+		Settings settings = this.settings;
+		if (request.getMethod() != HttpMethod.GET || bypasses(request, settings)) {
+			bypassed.increment();
+			return chain.filter(exchange);
+		}
+		String key = settings.key(request);
+		boolean refresh = refreshes(request);
+		if (!refresh) {
+			CachedResponse cached = settings.entries.getIfPresent(key);
+			if (cached != null && cached.matches(request)) {
+				hits.increment();
+				return write(exchange.getResponse(), cached);
+			}
+		}
+
+		Sinks.One<CachedResponse> response = Sinks.one();
+		Sinks.One<CachedResponse> leader = refresh ? null : inFlight.putIfAbsent(key, response);
+		if (leader != null) {
+			return leader.asMono().map(Optional::of).defaultIfEmpty(Optional.empty()).flatMap(stored -> {
+				if (stored.isPresent() && stored.get().matches(request)) {
+					collapsed.increment();
+					return write(exchange.getResponse(), stored.get());
+				}
+				misses.increment();
+				return chain.filter(exchange);
+			});
+		}
+		misses.increment();
+		ServerHttpResponse capturing = new CapturingResponse(exchange.getResponse(), request, settings,
+				stored -> response.tryEmitValue(stored));
+		return chain.filter(exchange.mutate().response(capturing).build()).doFinally(signal -> {
+			if (!refresh) {
+				inFlight.remove(key, response);
+			}
+			// Lets waiting requests go upstream when nothing was stored
+			response.tryEmitEmpty();
+		});
+	}
+
+	String routeId() {
+		return routeId;
+	}
+
+	Map<String, Object> describe() {
+		Map<String, Object> described = new LinkedHashMap<>();
+		double hitCount = hits.count() + collapsed.count();
+		double lookups = hitCount + misses.count();
+		described.put("hits", (long) hits.count());
+		described.put("collapsed", (long) collapsed.count());
+		described.put("misses", (long) misses.count());
+		described.put("bypassed", (long) bypassed.count());
+		described.put("hitRatio", lookups == 0 ? 0 : hitCount / lookups);
+		described.put("entries", settings.entries.estimatedSize());
+		described.put("bytes", bytes());
+		described.put("maxBytes", settings.size.toBytes());
+		described.put("timeToLive", settings.timeToLive.toString());
+		return described;
+	}
+
+	private long bytes() {
+		return settings.entries.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+	}
+
+	private Counter counter(MeterRegistry meterRegistry, String result) {
+		return Counter.builder("gateway.response.cache.requests")
+				.description("GETs through the response cache, by how they were answered")
+				.tag("route", routeId)
+				.tag("result", result)
+				.register(meterRegistry);
+	}
+
+	private static Mono<Void> write(ServerHttpResponse response, CachedResponse cached) {
+		response.setStatusCode(cached.status());
+		response.getHeaders().putAll(cached.headers());
+		response.getHeaders().setContentLength(cached.body().length);
+		response.getHeaders().set(HttpHeaders.AGE, Long.toString(cached.ageSeconds()));
+		return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.body())));
+	}
+
+	private static boolean bypasses(ServerHttpRequest request, Settings settings) {
+		if (directives(request.getHeaders()).containsKey("no-store")) {
+			return true;
+		}
+		// Responses to one user are only shared between requests of that user
+		return request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)
+				&& !settings.keyHeaders.contains(HttpHeaders.AUTHORIZATION.toLowerCase(Locale.ROOT));
+	}
+
+	private static boolean refreshes(ServerHttpRequest request) {
+		Map<String, String> directives = directives(request.getHeaders());
+		return directives.containsKey("no-cache") || "0".equals(directives.get("max-age"))
+				|| request.getHeaders().getOrEmpty(HttpHeaders.PRAGMA).contains("no-cache");
+	}
+
+	static String headerValue(ServerHttpRequest request, String name) {
+		return String.join(",", request.getHeaders().getOrEmpty(name));
+	}
+
+	// Cache-Control directives by lower-case name, with their value or ""
+	private static Map<String, String> directives(HttpHeaders headers) {
+		List<String> values = headers.getOrEmpty(HttpHeaders.CACHE_CONTROL);
+		if (values.isEmpty()) {
+			return Map.of();
+		}
+		Map<String, String> directives = new LinkedHashMap<>();
+		for (String value : values) {
+			for (String directive : value.split(",")) {
+				int equals = directive.indexOf('=');
+				String name = (equals < 0 ? directive : directive.substring(0, equals)).trim().toLowerCase(Locale.ROOT);
+				if (!name.isEmpty()) {
+					directives.put(name, equals < 0 ? "" : directive.substring(equals + 1).trim().replace("\"", ""));
+				}
+			}
+		}
+		return directives;
+	}
+
+	private static Duration seconds(String value) {
+		try {
+			return Duration.ofSeconds(Long.parseLong(value));
+		}
+		catch (NumberFormatException e) {
+			return Duration.ZERO;
+		}
+	}
+
+	/** The bounds and key headers of the route, and the entries they hold. */
+	private static final class Settings {
+
+		private final Duration timeToLive;
+
+		private final DataSize size;
+
+		// Lower-case, in the order configured
+		private final List<String> keyHeaders;
+
+		private final Cache<String, CachedResponse> entries;
+
+		// Names of the headers the last response stored for a key varies by
+		private final ConcurrentMap<String, List<String>> vary = new ConcurrentHashMap<>();
+
+		private Settings(ResponseCacheGatewayFilterFactory.Config config) {
+			this.timeToLive = config.getTimeToLive();
+			this.size = config.getSize();
+			this.keyHeaders = config.getHeaders().stream().map(h -> h.trim().toLowerCase(Locale.ROOT)).toList();
+			this.entries = Caffeine.newBuilder()
+					.maximumWeight(size.toBytes())
+					.weigher((String key, CachedResponse response) -> response.weight(key))
+					.expireAfter(new Expiry<String, CachedResponse>() {
+
+						@Override
+						public long expireAfterCreate(String key, CachedResponse response, long currentTime) {
+							return response.timeToLive().toNanos();
+						}
+
+						@Override
+						public long expireAfterUpdate(String key, CachedResponse response, long currentTime,
+								long currentDuration) {
+							return response.timeToLive().toNanos();
+						}
+
+						@Override
+						public long expireAfterRead(String key, CachedResponse response, long currentTime,
+								long currentDuration) {
+							return currentDuration;
+						}
+					})
+					// Frees expired responses without waiting for the next request of the route
+					.scheduler(Scheduler.systemScheduler())
+					.build();
+		}
+
+		private boolean sameAs(ResponseCacheGatewayFilterFactory.Config config) {
+			return timeToLive.equals(config.getTimeToLive()) && size.equals(config.getSize())
+					&& keyHeaders.equals(config.getHeaders().stream().map(h -> h.trim().toLowerCase(Locale.ROOT)).toList());
+		}
+
+		private String key(ServerHttpRequest request) {
+			String primary = primaryKey(request);
+			return withVary(primary, request, vary.getOrDefault(primary, List.of()));
+		}
+
+		private String primaryKey(ServerHttpRequest request) {
+			StringBuilder key = new StringBuilder(request.getURI().getRawPath());
+			String query = request.getURI().getRawQuery();
+			if (query != null) {
+				key.append('?').append(query);
+			}
+			for (String header : keyHeaders) {
+				key.append('\n').append(header).append(':').append(headerValue(request, header));
+			}
+			return key.toString();
+		}
+
+		private static String withVary(String primary, ServerHttpRequest request, List<String> varyHeaders) {
+			if (varyHeaders.isEmpty()) {
+				return primary;
+			}
+			StringBuilder key = new StringBuilder(primary).append("\nvary");
+			for (String header : varyHeaders) {
+				key.append('\n').append(header).append(':').append(headerValue(request, header));
+			}
+			return key.toString();
+		}
+
+		/**
+		 * Stores the response to {@code request} if it may be stored, and
+		 * returns it; {@code null} if it may not.
+		 */
+		private CachedResponse store(ServerHttpRequest request, ServerHttpResponse response, byte[] body) {
+			Duration timeToLive = storableFor(response);
+			if (timeToLive == null) {
+				return null;
+			}
+			List<String> varyHeaders = new ArrayList<>();
+			for (String value : response.getHeaders().getVary()) {
+				varyHeaders.add(value.trim().toLowerCase(Locale.ROOT));
+			}
+			Map<String, String> varyValues = new LinkedHashMap<>();
+			for (String header : varyHeaders) {
+				varyValues.put(header, headerValue(request, header));
+			}
+			HttpHeaders headers = new HttpHeaders();
+			response.getHeaders().forEach((name, values) -> {
+				if (HOP_BY_HOP.stream().noneMatch(name::equalsIgnoreCase)) {
+					headers.addAll(name, values);
+				}
+			});
+			CachedResponse cached = new CachedResponse(response.getStatusCode(), HttpHeaders.readOnlyHttpHeaders(headers),
+					body, Map.copyOf(varyValues), timeToLive, System.nanoTime());
+			String primary = primaryKey(request);
+			vary.put(primary, List.copyOf(varyHeaders));
+			entries.put(withVary(primary, request, varyHeaders), cached);
+			return cached;
+		}
+
+		/** How long the response may be kept, {@code null} if it may not be stored. */
+		private Duration storableFor(ServerHttpResponse response) {
+			HttpHeaders headers = response.getHeaders();
+			if (!HttpStatus.OK.equals(response.getStatusCode()) || headers.containsKey(HttpHeaders.SET_COOKIE)
+					|| headers.getVary().contains("*")) {
+				return null;
+			}
+			long contentLength = headers.getContentLength();
+			if (contentLength > size.toBytes()) {
+				return null;
+			}
+			Map<String, String> directives = directives(headers);
+			if (directives.containsKey("no-store") || directives.containsKey("no-cache")
+					|| directives.containsKey("private")) {
+				return null;
+			}
+			Duration timeToLive = this.timeToLive;
+			String maxAge = directives.containsKey("s-maxage") ? directives.get("s-maxage") : directives.get("max-age");
+			if (maxAge != null && seconds(maxAge).compareTo(timeToLive) < 0) {
+				timeToLive = seconds(maxAge);
+			}
+			return timeToLive.isZero() || timeToLive.isNegative() ? null : timeToLive;
+		}
+	}
+
+	/**
+	 * Passes the response through to the client, keeping a copy of the body
+	 * for the cache when the response may be stored. Streamed responses,
+	 * responses without a body and bodies larger than the route's size, which
+	 * chunked responses only reveal once they have been read that far, are not
+	 * stored.
+	 */
+	private static final class CapturingResponse extends ServerHttpResponseDecorator {
+
+		private final ServerHttpRequest request;
+
+		private final Settings settings;
+
+		private final Consumer<CachedResponse> onStored;
+
+		private CapturingResponse(ServerHttpResponse delegate, ServerHttpRequest request, Settings settings,
+				Consumer<CachedResponse> onStored) {
+			super(delegate);
+			this.request = request;
+			this.settings = settings;
+			this.onStored = onStored;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			if (settings.storableFor(getDelegate()) == null) {
+				return super.writeWith(body);
+			}
+			int maxBytes = (int) Math.min(settings.size.toBytes(), Integer.MAX_VALUE);
+			AtomicLong read = new AtomicLong();
+			AtomicBoolean tooLarge = new AtomicBoolean();
+			// The first list is the whole body, unless it outgrew the limit: then the
+			// buffers read so far, followed by one list per remaining buffer
+			Flux<List<DataBuffer>> chunks = Flux.from(body).<DataBuffer>map(buffer -> buffer)
+					.bufferUntil(buffer -> {
+						if (read.addAndGet(buffer.readableByteCount()) > maxBytes) {
+							tooLarge.set(true);
+						}
+						return tooLarge.get();
+					}, true);
+			return chunks.switchOnFirst((first, all) -> {
+				if (!first.hasValue() || tooLarge.get()) {
+					return super.writeWith(all.concatMapIterable(buffers -> buffers));
+				}
+				return DataBufferUtils.join(Flux.fromIterable(first.get()), maxBytes).flatMap(joined -> {
+					byte[] bytes = new byte[joined.readableByteCount()];
+					joined.read(bytes);
+					DataBufferUtils.release(joined);
+					CachedResponse stored = settings.store(request, getDelegate(), bytes);
+					if (stored != null) {
+						onStored.accept(stored);
+					}
+					return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+				});
+			}).then();
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package com.example.demo.routing;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.http.server.PathContainer;
+
+/**
+ * The {@code Path} patterns of the gateway's routes compiled into a tree of
+ * path segments, to find the routes that can match a request path in one
+ * walk down the path instead of trying every pattern in turn.
+ *
+ * Literal segments are looked up in a map. A segment with a wildcard or a
+ * URI variable ({@code *}, {@code ?}, {@code {id}}) matches any one segment,
+ * and a trailing {@code **} or {@code {*rest}} any number of remaining ones.
+ * A lookup costs one map lookup per segment and per wildcard branch taken,
+ * however many routes there are.
+ *
+ * The result may hold routes that do not match after all (a URI variable
+ * with a regular expression, a trailing slash the route does not accept) but
+ * never misses one that does: the routes' own predicates have the last word.
+ * Patterns that cannot be split into segments are refused by
+ * {@link #add(String, int)}, and their routes have to be tried on every
+ * request.
+ *
+ * Routes are numbered by the caller. A trie is filled once and then only
+ * read, by any number of threads.
+ */
+public class PathTrie {
+
+	private final Node root = new Node();
+
+	/**
+	 * Adds a pattern of route {@code route}; {@code false} if the pattern
+	 * could not be compiled and nothing was added.
+	 */
+	public boolean add(String pattern, int route) {
+		if (!pattern.startsWith("/")) {
+			return false;
+		}
+		String[] parts = pattern.substring(1).split("/", -1);
+		List<String> segments = new ArrayList<>(parts.length);
+		boolean rest = false;
+		for (int i = 0; i < parts.length; i++) {
+			String part = parts[i];
+			if (part.equals("**") || (part.startsWith("{*") && part.endsWith("}"))) {
+				// Only allowed at the end of a pattern
+				if (i != parts.length - 1) {
+					return false;
+				}
+				rest = true;
+			}
+			else if (!balanced(part)) {
+				// A regular expression with a '/' in it
+				return false;
+			}
+			else {
+				segments.add(part);
+			}
+		}
+
+		Node node = root;
+		for (String segment : segments) {
+			node = isWildcard(segment) ? node.wildcard() : node.literal(segment);
+		}
+		(rest ? node.rest : node.routes).set(route);
+		return true;
+	}
+
+	/**
+	 * The routes with a pattern that can match a path of the first
+	 * {@code count} of {@code segments}, as split by {@link #segments}.
+	 */
+	public BitSet match(String[] segments, int count) {
+		BitSet routes = new BitSet();
+		match(root, segments, 0, count, routes);
+		return routes;
+	}
+
+	/**
+	 * Splits a path into the values its segments are matched on, decoded and
+	 * without matrix variables. A trailing slash, or two slashes in a row,
+	 * give an empty segment; the leading slash does not. Returns the number of
+	 * segments written to {@code into}, which needs room for
+	 * {@code path.elements().size()} of them.
+	 */
+	public static int segments(PathContainer path, String[] into) {
+		int count = 0;
+		boolean separator = false;
+		for (PathContainer.Element element : path.elements()) {
+			if (element instanceof PathContainer.PathSegment segment) {
+				into[count++] = segment.valueToMatch();
+				separator = false;
+			}
+			else {
+				if (separator) {
+					into[count++] = "";
+				}
+				separator = true;
+			}
+		}
+		if (separator) {
+			into[count++] = "";
+		}
+		return count;
+	}
+
+	private static void match(Node node, String[] segments, int index, int count, BitSet routes) {
+		routes.or(node.rest);
+		if (index == count) {
+			routes.or(node.routes);
+			return;
+		}
+		if (index == count - 1 && segments[index].isEmpty()) {
+			// A trailing slash, which the pattern may accept
+			routes.or(node.routes);
+		}
+		Node literal = node.literals.get(segments[index]);
+		if (literal != null) {
+			match(literal, segments, index + 1, count, routes);
+		}
+		if (node.wildcard != null) {
+			match(node.wildcard, segments, index + 1, count, routes);
+		}
+	}
+
+	private static boolean isWildcard(String segment) {
+		for (int i = 0; i < segment.length(); i++) {
+			char c = segment.charAt(i);
+			// '%': compared with the decoded segment
+			if (c == '*' || c == '?' || c == '{' || c == '%') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean balanced(String segment) {
+		int depth = 0;
+		for (int i = 0; i < segment.length(); i++) {
+			char c = segment.charAt(i);
+			if (c == '{') {
+				depth++;
+			}
+			else if (c == '}' && --depth < 0) {
+				return false;
+			}
+		}
+		return depth == 0;
+	}
+
+	private static final class Node {
+
+		private final Map<String, Node> literals = new HashMap<>();
+
+		private Node wildcard;
+
+		// Routes with a pattern that ends at this node
+		private final BitSet routes = new BitSet();
+
+		// Routes with a pattern that ends in ** at this node
+		private final BitSet rest = new BitSet();
+
+		private Node literal(String segment) {
+			return literals.computeIfAbsent(segment, s -> new Node());
+		}
+
+		private Node wildcard() {
+			if (wildcard == null) {
+				wildcard = new Node();
+			}
+			return wildcard;
+		}
+	}
+}
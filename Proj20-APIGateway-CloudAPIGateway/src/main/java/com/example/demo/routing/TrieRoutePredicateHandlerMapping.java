@@ -0,0 +1,146 @@
+package com.example.demo.routing;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.server.ServerWebExchange;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Route selection that only tries the routes whose {@code Path} predicate can
+ * match the request path, found in a {@link PathTrie}, instead of every route
+ * in order.
+ *
+ * The candidates are tried exactly as {@link RoutePredicateHandlerMapping}
+ * tries all routes: in route order, with their full predicates, so the route
+ * chosen is the same. Routes without a {@code Path} predicate, routes
+ * defined in code and routes with a pattern the trie does not understand are
+ * candidates for every request.
+ *
+ * The trie is compiled again from the route locator and its definitions
+ * every time the routes are refreshed, which with the discovery locator is
+ * on every change in the registry. Until the first compile every route is
+ * tried.
+ */
+public class TrieRoutePredicateHandlerMapping extends RoutePredicateHandlerMapping
+		implements ApplicationListener<RefreshRoutesResultEvent> {
+
+	private static final String PATH_PREDICATE = "Path";
+
+	private static final String MATCH_TRAILING_SLASH = "matchTrailingSlash";
+
+	private final RouteLocator routeLocator;
+
+	private final RouteDefinitionLocator routeDefinitionLocator;
+
+	private volatile CompiledRoutes compiled;
+
+	public TrieRoutePredicateHandlerMapping(FilteringWebHandler webHandler, RouteLocator routeLocator,
+			RouteDefinitionLocator routeDefinitionLocator, GlobalCorsProperties globalCorsProperties,
+			Environment environment) {
+		super(webHandler, routeLocator, globalCorsProperties, environment);
+		this.routeLocator = routeLocator;
+		this.routeDefinitionLocator = routeDefinitionLocator;
+	}
+
+	@Override
+	public void onApplicationEvent(RefreshRoutesResultEvent event) {
+		if (event.isSuccess()) {
+			compile().subscribe(null, e -> logger.error("Could not compile the routes, keeping the previous ones", e));
+		}
+	}
+
+	/**
+	 * Compiles the current routes; lookups use them once the returned
+	 * {@code Mono} completes.
+	 */
+	public Mono<Void> compile() {
+		return Mono.zip(routeLocator.getRoutes().collectList(),
+				routeDefinitionLocator.getRouteDefinitions().collectMap(RouteDefinition::getId))
+				.doOnNext(routes -> compiled = CompiledRoutes.of(routes.getT1(), routes.getT2()))
+				.then();
+	}
+
+	@Override
+	protected Mono<Route> lookupRoute(ServerWebExchange exchange) {
+		CompiledRoutes routes = compiled;
+		if (routes == null) {
+			return super.lookupRoute(exchange);
+		}
+		return Flux.fromIterable(routes.candidates(exchange.getRequest().getPath().pathWithinApplication()))
+				.filterWhen(route -> {
+					exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, route.getId());
+					return Mono.from(route.getPredicate().apply(exchange)).onErrorResume(e -> {
+						logger.error("Error applying predicate for route: " + route.getId(), e);
+						return Mono.just(false);
+					});
+				})
+				.next()
+				.map(route -> {
+					if (logger.isDebugEnabled()) {
+						logger.debug("Route matched: " + route.getId());
+					}
+					validateRoute(route, exchange);
+					return route;
+				});
+	}
+
+	private record CompiledRoutes(List<Route> routes, PathTrie trie, BitSet everywhere) {
+
+		static CompiledRoutes of(List<Route> routes, Map<String, RouteDefinition> definitions) {
+			PathTrie trie = new PathTrie();
+			BitSet everywhere = new BitSet();
+			for (int i = 0; i < routes.size(); i++) {
+				List<String> patterns = patterns(definitions.get(routes.get(i).getId()));
+				boolean added = !patterns.isEmpty();
+				for (String pattern : patterns) {
+					added &= trie.add(pattern.trim(), i);
+				}
+				if (!added) {
+					everywhere.set(i);
+				}
+			}
+			return new CompiledRoutes(List.copyOf(routes), trie, everywhere);
+		}
+
+		// The patterns of the first Path predicate; all predicates of a route have to match
+		private static List<String> patterns(RouteDefinition definition) {
+			if (definition == null) {
+				return List.of();
+			}
+			for (PredicateDefinition predicate : definition.getPredicates()) {
+				if (PATH_PREDICATE.equals(predicate.getName())) {
+					return predicate.getArgs().entrySet().stream()
+							.filter(arg -> !MATCH_TRAILING_SLASH.equals(arg.getKey()))
+							.flatMap(arg -> List.of(arg.getValue().split(",")).stream())
+							.toList();
+				}
+			}
+			return List.of();
+		}
+
+		List<Route> candidates(PathContainer path) {
+			String[] segments = new String[path.elements().size()];
+			BitSet matches = trie.match(segments, PathTrie.segments(path, segments));
+			matches.or(everywhere);
+			return matches.stream().mapToObj(routes::get).toList();
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package com.example.demo.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * GETs through the {@code ResponseCache} filter of a route to a stub
+ * upstream that counts the calls it gets.
+ */
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT, properties = {
+		"eureka.client.enabled=false",
+		"spring.cloud.gateway.discovery.locator.enabled=false" })
+class ResponseCacheTests {
+
+	private static final HttpServer UPSTREAM = startUpstream();
+
+	// Over the route's 1MB, sent without a Content-Length
+	private static final int LARGE_BODY_BYTES = 2 * 1024 * 1024;
+
+	private static final Map<String, AtomicInteger> CALLS = new ConcurrentHashMap<>();
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ResponseCacheEndpoint responseCacheEndpoint;
+
+	@DynamicPropertySource
+	static void route(DynamicPropertyRegistry registry) {
+		// All in one place: a list of routes is not merged across property sources
+		registry.add("spring.cloud.gateway.routes[0].id", () -> "reports");
+		registry.add("spring.cloud.gateway.routes[0].predicates[0]", () -> "Path=/report-api/**");
+		registry.add("spring.cloud.gateway.routes[0].filters[0]", () -> "ResponseCache=1m,1MB,Accept");
+		registry.add("spring.cloud.gateway.routes[0].uri",
+				() -> "http://localhost:" + UPSTREAM.getAddress().getPort());
+	}
+
+	@AfterAll
+	static void stopUpstream() {
+		UPSTREAM.stop(0);
+	}
+
+	@Test
+	void servesRepeatedGetsFromTheCache() {
+		String first = get("/report-api/report?year=2024", HttpHeaders.EMPTY);
+		String second = get("/report-api/report?year=2024", HttpHeaders.EMPTY);
+		get("/report-api/report?year=2025", HttpHeaders.EMPTY);
+		get("/report-api/report?year=2024", headers(HttpHeaders.ACCEPT, "text/plain"));
+
+		assertThat(second).isEqualTo(first);
+		assertThat(calls("/report-api/report?year=2024")).isEqualTo(2);
+		assertThat(calls("/report-api/report?year=2025")).isEqualTo(1);
+		client().get().uri("/report-api/report?year=2024").exchange()
+				.expectHeader().exists(HttpHeaders.AGE);
+	}
+
+	@Test
+	void honoursCacheControl() {
+		get("/report-api/private", HttpHeaders.EMPTY);
+		get("/report-api/private", HttpHeaders.EMPTY);
+		get("/report-api/short", HttpHeaders.EMPTY);
+		get("/report-api/short", headers(HttpHeaders.CACHE_CONTROL, "no-cache"));
+		get("/report-api/short", HttpHeaders.EMPTY);
+
+		assertThat(calls("/report-api/private")).isEqualTo(2);
+		// The request with no-cache goes upstream and refreshes the entry
+		assertThat(calls("/report-api/short")).isEqualTo(2);
+	}
+
+	@Test
+	void keepsOneResponsePerVariant() {
+		String english = get("/report-api/vary", headers(HttpHeaders.ACCEPT_LANGUAGE, "en"));
+		String german = get("/report-api/vary", headers(HttpHeaders.ACCEPT_LANGUAGE, "de"));
+
+		assertThat(get("/report-api/vary", headers(HttpHeaders.ACCEPT_LANGUAGE, "en"))).isEqualTo(english);
+		assertThat(get("/report-api/vary", headers(HttpHeaders.ACCEPT_LANGUAGE, "de"))).isEqualTo(german);
+		assertThat(german).isNotEqualTo(english);
+		assertThat(calls("/report-api/vary")).isEqualTo(2);
+	}
+
+	@Test
+	void collapsesConcurrentMisses() {
+		WebTestClient client = client();
+		List<String> bodies = Flux.range(0, 8)
+				.flatMap(i -> client.get().uri("/report-api/slow").exchange().returnResult(String.class)
+						.getResponseBody())
+				.collectList()
+				.block(Duration.ofSeconds(20));
+
+		assertThat(bodies).hasSize(8).containsOnly(bodies.get(0));
+		assertThat(calls("/report-api/slow")).isEqualTo(1);
+
+		@SuppressWarnings("unchecked")
+		Map<String, Object> route = (Map<String, Object>) responseCacheEndpoint.routes().get("reports");
+		assertThat((Long) route.get("collapsed") + (Long) route.get("hits")).isGreaterThanOrEqualTo(7);
+		assertThat((Long) route.get("bytes")).isPositive();
+	}
+
+	@Test
+	void passesChunkedResponsesLargerThanTheRouteThrough() {
+		String first = get("/report-api/large", HttpHeaders.EMPTY);
+		String second = get("/report-api/large", HttpHeaders.EMPTY);
+
+		assertThat(first).hasSizeGreaterThan(LARGE_BODY_BYTES).contains("#1");
+		assertThat(second).hasSizeGreaterThan(LARGE_BODY_BYTES).contains("#2");
+		assertThat(calls("/report-api/large")).isEqualTo(2);
+	}
+
+	private String get(String uri, HttpHeaders headers) {
+		return client().get().uri(uri).headers(h -> h.addAll(headers)).exchange()
+				.expectStatus().isOk()
+				.expectBody(String.class).returnResult().getResponseBody();
+	}
+
+	private WebTestClient client() {
+		return WebTestClient.bindToServer().baseUrl("http://localhost:" + port)
+				.codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(2 * LARGE_BODY_BYTES))
+				.responseTimeout(Duration.ofSeconds(20)).build();
+	}
+
+	private static HttpHeaders headers(String name, String value) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.add(name, value);
+		return headers;
+	}
+
+	private static int calls(String uri) {
+		AtomicInteger calls = CALLS.get(uri);
+		return calls == null ? 0 : calls.get();
+	}
+
+	private static HttpServer startUpstream() {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.setExecutor(Executors.newCachedThreadPool());
+			server.createContext("/", ResponseCacheTests::respond);
+			server.start();
+			return server;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void respond(HttpExchange exchange) throws IOException {
+		String uri = exchange.getRequestURI().toString();
+		int call = CALLS.computeIfAbsent(uri, u -> new AtomicInteger()).incrementAndGet();
+		String path = exchange.getRequestURI().getPath();
+		if (path.endsWith("/private")) {
+			exchange.getResponseHeaders().add(HttpHeaders.CACHE_CONTROL, "private");
+		}
+		else if (path.endsWith("/short")) {
+			exchange.getResponseHeaders().add(HttpHeaders.CACHE_CONTROL, "max-age=30");
+		}
+		else if (path.endsWith("/vary")) {
+			exchange.getResponseHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_LANGUAGE);
+		}
+		else if (path.endsWith("/slow")) {
+			try {
+				Thread.sleep(500);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		byte[] body = (uri + " #" + call + " " + exchange.getRequestHeaders().getFirst(HttpHeaders.ACCEPT_LANGUAGE))
+				.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add(HttpHeaders.CONTENT_TYPE, "text/plain");
+		if (path.endsWith("/large")) {
+			exchange.sendResponseHeaders(200, 0);
+			exchange.getResponseBody().write(body);
+			byte[] chunk = "x".repeat(64 * 1024).getBytes(StandardCharsets.UTF_8);
+			for (int written = 0; written < LARGE_BODY_BYTES; written += chunk.length) {
+				exchange.getResponseBody().write(chunk);
+			}
+			exchange.close();
+			return;
+		}
+		exchange.sendResponseHeaders(200, body.length);
+		exchange.getResponseBody().write(body);
+		exchange.close();
+	}
+}
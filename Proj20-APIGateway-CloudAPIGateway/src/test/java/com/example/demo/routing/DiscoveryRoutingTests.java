@@ -0,0 +1,46 @@
+package com.example.demo.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+/**
+ * Services found in the registry with a gateway path are routed to through
+ * the load balancer; services without one are not routed to.
+ */
+@SpringBootTest(properties = {
+		"eureka.client.enabled=false",
+		"spring.cloud.discovery.client.simple.instances.employee-service[0].uri=http://localhost:8091",
+		"spring.cloud.discovery.client.simple.instances.employee-service[0].metadata.gateway-path=/employee-api/**",
+		"spring.cloud.discovery.client.simple.instances.customer-service[0].uri=http://localhost:8092",
+		"spring.cloud.discovery.client.simple.instances.customer-service[0].metadata.gateway-path=/customer-api/**",
+		"spring.cloud.discovery.client.simple.instances.internal-service[0].uri=http://localhost:8093" })
+class DiscoveryRoutingTests {
+
+	@Autowired
+	private RoutePredicateHandlerMapping routePredicateHandlerMapping;
+
+	@Test
+	void routesByPathToLoadBalancedServices() {
+		assertThat(routePredicateHandlerMapping).isInstanceOf(TrieRoutePredicateHandlerMapping.class);
+
+		assertThat(route("/employee-api/report").getUri()).isEqualTo(URI.create("lb://employee-service"));
+		assertThat(route("/customer-api/report").getUri()).isEqualTo(URI.create("lb://customer-service"));
+		assertThat(route("/internal-service/report")).isNull();
+	}
+
+	private Route route(String path) {
+		MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+		routePredicateHandlerMapping.getHandler(exchange).block();
+		return exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+	}
+}
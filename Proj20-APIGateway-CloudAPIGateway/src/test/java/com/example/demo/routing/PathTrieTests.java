@@ -0,0 +1,66 @@
+package com.example.demo.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.server.PathContainer;
+
+/**
+ * The trie has to give every route that can match a path, and as few
+ * others as it can.
+ */
+class PathTrieTests {
+
+	@Test
+	void matchesLiteralsWildcardsAndTheRest() {
+		PathTrie trie = new PathTrie();
+		trie.add("/employee-api/**", 0);
+		trie.add("/customer-api/report", 1);
+		trie.add("/customer-api/{id}/orders", 2);
+		trie.add("/**", 3);
+		trie.add("/customer-api/r*", 4);
+
+		assertThat(match(trie, "/employee-api")).isEqualTo(routes(0, 3));
+		assertThat(match(trie, "/employee-api/report/2024")).isEqualTo(routes(0, 3));
+		assertThat(match(trie, "/customer-api/report")).isEqualTo(routes(1, 3, 4));
+		assertThat(match(trie, "/customer-api/report/")).isEqualTo(routes(1, 3, 4));
+		assertThat(match(trie, "/customer-api/42/orders")).isEqualTo(routes(2, 3));
+		assertThat(match(trie, "/customer-api/42")).isEqualTo(routes(3, 4));
+		assertThat(match(trie, "/")).isEqualTo(routes(3));
+	}
+
+	@Test
+	void refusesPatternsItCannotSplit() {
+		PathTrie trie = new PathTrie();
+
+		assertThat(trie.add("/files/{path:.+/.+}", 0)).isFalse();
+		assertThat(trie.add("/**/report", 1)).isFalse();
+		assertThat(trie.add("report", 2)).isFalse();
+		assertThat(trie.add("/files/{name:[a-z]+}.txt", 3)).isTrue();
+		assertThat(match(trie, "/files/a/b")).isEqualTo(routes());
+	}
+
+	@Test
+	void matchesDecodedSegments() {
+		PathTrie trie = new PathTrie();
+		trie.add("/customer api/report", 0);
+
+		assertThat(match(trie, "/customer%20api/report;v=1")).isEqualTo(routes(0));
+	}
+
+	private static BitSet match(PathTrie trie, String path) {
+		PathContainer container = PathContainer.parsePath(path);
+		String[] segments = new String[container.elements().size()];
+		return trie.match(segments, PathTrie.segments(container, segments));
+	}
+
+	private static BitSet routes(int... routes) {
+		BitSet set = new BitSet();
+		for (int route : routes) {
+			set.set(route);
+		}
+		return set;
+	}
+}
@@ -0,0 +1,88 @@
+package com.example.demo.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.handler.predicate.MethodRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * The trie may only prune routes: for every request the route chosen must be
+ * the one the gateway's own handler mapping chooses.
+ */
+class TrieRoutePredicateHandlerMappingTests {
+
+	private static final List<String> PATTERNS = List.of("/employee-api/**", "/customer-api/report",
+			"/customer-api/{id}/orders", "/customer-api/r?port", "/files/{name:[a-z]+}.txt", "/customer-api/**");
+
+	private final List<Route> routes = new ArrayList<>();
+
+	private final List<RouteDefinition> definitions = new ArrayList<>();
+
+	@Test
+	void choosesTheSameRouteAsTheDefaultMapping() {
+		for (String pattern : PATTERNS) {
+			route(pattern);
+		}
+		// A route without a Path predicate, tried for every request
+		routes.add(Route.async().id("posts").uri(URI.create("lb://posts")).order(0)
+				.predicate(new MethodRoutePredicateFactory()
+						.apply(c -> c.setMethods(HttpMethod.POST)))
+				.build());
+
+		RoutePredicateHandlerMapping standard = new RoutePredicateHandlerMapping(new FilteringWebHandler(List.of()),
+				() -> Flux.fromIterable(routes), new GlobalCorsProperties(), new MockEnvironment());
+		TrieRoutePredicateHandlerMapping trie = new TrieRoutePredicateHandlerMapping(
+				new FilteringWebHandler(List.of()), () -> Flux.fromIterable(routes),
+				() -> Flux.fromIterable(definitions), new GlobalCorsProperties(), new MockEnvironment());
+		trie.compile().block();
+
+		for (String path : List.of("/employee-api", "/employee-api/report", "/customer-api/report",
+				"/customer-api/report/", "/customer-api/repport", "/customer-api/rapport", "/customer-api/7/orders",
+				"/customer-api/7", "/files/ab.txt", "/files/a1.txt", "/products", "/", "/employee-api%2Freport")) {
+			for (HttpMethod method : List.of(HttpMethod.GET, HttpMethod.POST)) {
+				assertThat(route(trie, method, path)).as("%s %s", method, path)
+						.isEqualTo(route(standard, method, path));
+			}
+		}
+		assertThat(route(trie, HttpMethod.GET, "/customer-api/7/orders")).isEqualTo("route-2");
+		assertThat(route(trie, HttpMethod.POST, "/products")).isEqualTo("posts");
+		assertThat(route(trie, HttpMethod.GET, "/products")).isNull();
+	}
+
+	private void route(String pattern) {
+		String id = "route-" + routes.size();
+		routes.add(Route.async().id(id).uri(URI.create("lb://service-" + routes.size())).order(0)
+				.predicate(new PathRoutePredicateFactory().apply(c -> c.setPatterns(List.of(pattern))))
+				.build());
+		RouteDefinition definition = new RouteDefinition();
+		definition.setId(id);
+		definition.setPredicates(List.of(new PredicateDefinition("Path=" + pattern)));
+		definitions.add(definition);
+	}
+
+	private static String route(RoutePredicateHandlerMapping mapping, HttpMethod method, String path) {
+		MockServerWebExchange exchange = MockServerWebExchange
+				.from(MockServerHttpRequest.method(method, URI.create(path)));
+		mapping.getHandler(exchange).block();
+		Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+		return route == null ? null : route.getId();
+	}
+}
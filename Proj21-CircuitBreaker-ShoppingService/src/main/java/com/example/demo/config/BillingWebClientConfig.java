@@ -0,0 +1,41 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.netty.channel.ChannelOption;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * Load-balanced, non-blocking client used by the /shopping-api/v2 endpoints.
+ * The service id in the base URL is resolved to a billing instance by Spring
+ * Cloud LoadBalancer, like the Feign client does for the blocking endpoints.
+ */
+@Configuration
+public class BillingWebClientConfig {
+
+    @Value("${billing.client.connect-timeout-ms:1000}")
+    private int connectTimeoutMs;
+
+    @Value("${billing.client.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Bean
+    public WebClient billingWebClient(WebClient.Builder builder,
+            ReactorLoadBalancerExchangeFilterFunction loadBalancerFilter) {
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(readTimeoutMs));
+        return builder
+                .baseUrl("http://Proj22-CircuitBreaker-BillingService")
+                .filter(loadBalancerFilter)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.controllers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Routes {@link #invokeDoPayment(long)} through a {@link PaymentMicroBatcher}
+ * so that concurrent purchases share batch requests to the billing service.
+ * The caller still blocks until its own result is available, but no longer
+ * than {@code resultTimeout}.
+ */
+public class BatchingBillingServiceClient implements IBillingServiceClientComponent {
+
+	private final IBillingServiceClientComponent delegate;
+
+	private final PaymentMicroBatcher batcher;
+
+	private final long resultTimeoutNanos;
+
+	public BatchingBillingServiceClient(IBillingServiceClientComponent delegate, PaymentMicroBatcher batcher,
+			Duration resultTimeout) {
+		this.delegate = delegate;
+		this.batcher = batcher;
+		this.resultTimeoutNanos = resultTimeout.toNanos();
+	}
+
+	@Override
+	public String invokeDoPayment() {
+		return delegate.invokeDoPayment();
+	}
+
+	@Override
+	public String invokeDoPayment(long cardNo) {
+		try {
+			return batcher.submit(cardNo).get(resultTimeoutNanos, TimeUnit.NANOSECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (TimeoutException e) {
+			// The payment may still go through with its batch; the caller is not told
+			throw new IllegalStateException("No billing result for the batched payment within "
+					+ TimeUnit.NANOSECONDS.toMillis(resultTimeoutNanos) + " ms", e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the batched payment", e);
+		}
+	}
+
+	@Override
+	public List<String> invokeDoPayments(List<Long> cardNos) {
+		return delegate.invokeDoPayments(cardNos);
+	}
+}
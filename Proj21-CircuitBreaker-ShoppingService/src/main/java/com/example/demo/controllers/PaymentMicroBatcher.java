@@ -0,0 +1,176 @@
+package com.example.demo.controllers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Collects single card payments and sends them to the billing service as one
+ * {@code POST /billing-api/payments/batch} request. A batch is sent once it
+ * holds {@code maxBatchSize} payments or {@code lingerMs} after its first
+ * payment arrived, whichever comes first. Each caller gets its own result back
+ * through the returned future.
+ */
+public class PaymentMicroBatcher implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(PaymentMicroBatcher.class);
+
+	private final IBillingServiceClientComponent billingClient;
+
+	private final int maxBatchSize;
+
+	private final long lingerNanos;
+
+	private final BlockingQueue<PendingPayment> queue;
+
+	private final Semaphore batchesInFlight;
+
+	private final ExecutorService senders;
+
+	private final Thread collector;
+
+	private final DistributionSummary batchSizes;
+
+	private volatile boolean running = true;
+
+	public PaymentMicroBatcher(IBillingServiceClientComponent billingClient, int maxBatchSize, long lingerMs,
+			int maxQueueDepth, int maxConcurrentBatches, MeterRegistry meterRegistry) {
+		this.billingClient = billingClient;
+		this.maxBatchSize = maxBatchSize;
+		this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMs);
+		this.queue = new ArrayBlockingQueue<>(maxQueueDepth);
+		this.batchesInFlight = new Semaphore(maxConcurrentBatches);
+		AtomicInteger senderCount = new AtomicInteger();
+		this.senders = Executors.newFixedThreadPool(maxConcurrentBatches, runnable -> {
+			Thread thread = new Thread(runnable, "billing-batch-sender-" + senderCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.batchSizes = DistributionSummary.builder("billing.batching.batch.size")
+				.description("Number of payments sent per batch request")
+				.register(meterRegistry);
+		meterRegistry.gauge("billing.batching.queue.depth", queue, BlockingQueue::size);
+		this.collector = new Thread(this::collect, "billing-batch-collector");
+		this.collector.setDaemon(true);
+		this.collector.start();
+	}
+
+	/**
+	 * Queues a payment for the next batch.
+	 *
+	 * @throws RejectedExecutionException if the queue already holds
+	 *                                    {@code maxQueueDepth} payments
+	 */
+	public CompletableFuture<String> submit(long cardNo) {
+		PendingPayment payment = new PendingPayment(cardNo);
+		if (!running || !queue.offer(payment)) {
+			throw new RejectedExecutionException("Billing batch queue is full or closed");
+		}
+		// close() may have drained the queue between the check and the offer
+		if (!running && queue.remove(payment)) {
+			throw new RejectedExecutionException("Billing batch queue is full or closed");
+		}
+		return payment.result;
+	}
+
+	private void collect() {
+		while (running) {
+			List<PendingPayment> batch = new ArrayList<>(maxBatchSize);
+			try {
+				batch.add(queue.take());
+				long deadline = System.nanoTime() + lingerNanos;
+				while (batch.size() < maxBatchSize) {
+					// Take whatever is already queued without waiting
+					if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+						continue;
+					}
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						break;
+					}
+					PendingPayment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				batchesInFlight.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				abandon(batch);
+				return;
+			}
+			try {
+				senders.execute(() -> send(batch));
+			} catch (RejectedExecutionException e) {
+				// The senders were shut down by close()
+				batchesInFlight.release();
+				abandon(batch);
+			}
+		}
+	}
+
+	private void send(List<PendingPayment> batch) {
+		try {
+			List<Long> cardNos = new ArrayList<>(batch.size());
+			for (PendingPayment payment : batch) {
+				cardNos.add(payment.cardNo);
+			}
+			batchSizes.record(batch.size());
+			List<String> results = billingClient.invokeDoPayments(cardNos);
+			if (results == null || results.size() != batch.size()) {
+				throw new IllegalStateException("Billing returned " + (results == null ? 0 : results.size())
+						+ " results for a batch of " + batch.size());
+			}
+			for (int i = 0; i < batch.size(); i++) {
+				batch.get(i).result.complete(results.get(i));
+			}
+		} catch (RuntimeException e) {
+			logger.error("Batch of {} payments failed: {}", batch.size(), e.getMessage());
+			batch.forEach(payment -> payment.result.completeExceptionally(e));
+		} finally {
+			batchesInFlight.release();
+		}
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		collector.interrupt();
+		senders.shutdown();
+		List<PendingPayment> abandoned = new ArrayList<>();
+		queue.drainTo(abandoned);
+		abandon(abandoned);
+	}
+
+	// The collector fails the batch it holds itself when it stops
+	private static void abandon(List<PendingPayment> payments) {
+		payments.forEach(payment -> payment.result
+				.completeExceptionally(new RejectedExecutionException("Billing batcher is shutting down")));
+	}
+
+	private static final class PendingPayment {
+
+		private final long cardNo;
+
+		private final CompletableFuture<String> result = new CompletableFuture<>();
+
+		PendingPayment(long cardNo) {
+			this.cardNo = cardNo;
+		}
+	}
+}
@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/shopping-api")
@@ -23,6 +24,9 @@ public class ShoppingServiceController {
 	@Autowired
 	private IBillingServiceClientComponent client;
 
+	@Autowired
+	private ReactiveBillingServiceClientComponent reactiveClient; // Non-blocking client used by the v2 endpoints
+
 	/**
 	 * Endpoint to handle shopping and payment processing
 	 * 
@@ -44,7 +48,7 @@ public class ShoppingServiceController {
 			logger.info("Payment service invoked successfully. Result: {}", result);
 
 			// Return response with shopping amount and payment result
-			return new ResponseEntity<>("Shopping is done.Payment Status: " + result,HttpStatus.OK);
+			return purchased(result);
 //		} catch (Exception e) {
 //			// Log any error that occurs during payment processing
 //			logger.error("Error occurred while invoking payment service: {}", e.getMessage(), e);
@@ -76,11 +80,52 @@ public class ShoppingServiceController {
 			logger.info("Payment service invoked successfully. Result: {}", result);
 
 			// Return response with shopping amount and payment result
-			return new ResponseEntity<>("Shopping is done.Payment Status: " + result,HttpStatus.OK);
+			return purchased(result);
 		} catch (Exception e) {
 			// Log any error that occurs during payment processing
 			logger.error("Error occurred while invoking payment service: {}", e.getMessage(), e);
 			return new ResponseEntity<>("Shopping failed due to payment error.", HttpStatus.INTERNAL_SERVER_ERROR);
 		}
 	}
+
+	/**
+	 * Non-blocking variant of {@link #shoppping()}, guarded by the same circuit
+	 * breaker. The Tomcat worker is released while billing is called.
+	 * 
+	 * @return Mono of ResponseEntity with a shopping summary and payment status
+	 */
+	@GetMapping("/v2/purchase")
+	@CircuitBreaker(name = "Proj21-CircuitBreaker-ShoppingService",fallbackMethod = "billingFallbackV2")
+	public Mono<ResponseEntity<String>> shopppingV2() {
+		return reactiveClient.invokeDoPayment()
+				.map(ShoppingServiceController::purchased)
+				.defaultIfEmpty(purchased(null));
+	}
+
+	public Mono<ResponseEntity<String>> billingFallbackV2(Exception e) {
+		logger.warn("Billing fallback for non-blocking purchase: {}", e.getMessage());
+		return Mono.just(new ResponseEntity<>("Billling operations are out of service", HttpStatus.INTERNAL_SERVER_ERROR));
+	}
+
+	/**
+	 * Non-blocking variant of {@link #shoppping(long)}.
+	 * @param cardNo
+	 * @return Mono of ResponseEntity with a shopping summary and payment status
+	 */
+	@GetMapping("/v2/purchase/{cardNo}")
+	public Mono<ResponseEntity<String>> shopppingV2(@PathVariable("cardNo") long cardNo) {
+		return reactiveClient.invokeDoPayment(cardNo)
+				.map(ShoppingServiceController::purchased)
+				.defaultIfEmpty(purchased(null))
+				.onErrorResume(e -> {
+					logger.error("Error occurred while invoking payment service: {}", e.getMessage(), e);
+					return Mono.just(new ResponseEntity<>("Shopping failed due to payment error.",
+							HttpStatus.INTERNAL_SERVER_ERROR));
+				});
+	}
+
+	// Also for an empty billing body, which the blocking client reads as null
+	private static ResponseEntity<String> purchased(String result) {
+		return new ResponseEntity<>("Shopping is done.Payment Status: " + result, HttpStatus.OK);
+	}
 }
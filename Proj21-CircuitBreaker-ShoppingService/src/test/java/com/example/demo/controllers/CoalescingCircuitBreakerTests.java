@@ -0,0 +1,155 @@
+package com.example.demo.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+
+/**
+ * Runs the shopping service with the coalescing layer in front of a billing
+ * stub that can be made to fail, to check that coalescing does not hide
+ * failures from the {@code @CircuitBreaker} of {@code /purchase} nor keep
+ * serving them once billing has recovered.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"eureka.client.enabled=false",
+		"billing.coalescing.enabled=true",
+		"billing.coalescing.window-ms=10000" })
+class CoalescingCircuitBreakerTests {
+
+	private static final String BREAKER = "Proj21-CircuitBreaker-ShoppingService";
+
+	private static final Map<String, AtomicInteger> CALLS = new ConcurrentHashMap<>();
+
+	private static volatile boolean billingFails;
+
+	private static final HttpServer billingStub = startBillingStub();
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+
+	@Autowired
+	private IBillingServiceClientComponent client;
+
+	@Autowired
+	private CircuitBreakerRegistry circuitBreakers;
+
+	@DynamicPropertySource
+	static void billingInstance(DynamicPropertyRegistry registry) {
+		registry.add("spring.cloud.discovery.client.simple.instances.Proj22-CircuitBreaker-BillingService[0].uri",
+				() -> "http://localhost:" + billingStub.getAddress().getPort());
+	}
+
+	@AfterAll
+	static void stopBillingStub() {
+		billingStub.stop(0);
+	}
+
+	@BeforeEach
+	void resetBilling() {
+		billingFails = false;
+		CALLS.clear();
+		circuitBreakers.circuitBreaker(BREAKER).reset();
+	}
+
+	@Test
+	void everyFailedPurchaseCountsTowardsTheBreaker() {
+		assertInstanceOf(CoalescingBillingServiceClient.class, client);
+		billingFails = true;
+
+		// minimum-number-of-calls=5, all failed: over the 50% threshold
+		for (int i = 0; i < 5; i++) {
+			ResponseEntity<String> response = restTemplate.getForEntity("/shopping-api/purchase", String.class);
+			assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+			assertEquals("Billling operations are out of service", response.getBody());
+		}
+		assertEquals(5, calls("/billing-api/payment"));
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreakers.circuitBreaker(BREAKER).getState());
+
+		// Open: the fallback answers without calling billing
+		ResponseEntity<String> response = restTemplate.getForEntity("/shopping-api/purchase", String.class);
+		assertEquals("Billling operations are out of service", response.getBody());
+		assertEquals(5, calls("/billing-api/payment"));
+	}
+
+	@Test
+	void purchasesWithoutCardAreNeverCoalesced() {
+		for (int i = 0; i < 3; i++) {
+			ResponseEntity<String> response = restTemplate.getForEntity("/shopping-api/purchase", String.class);
+			assertEquals(HttpStatus.OK, response.getStatusCode());
+		}
+		assertEquals(3, calls("/billing-api/payment"));
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreakers.circuitBreaker(BREAKER).getState());
+	}
+
+	@Test
+	void failedCardPaymentIsNotReusedAfterBillingRecovers() {
+		billingFails = true;
+		ResponseEntity<String> failed = restTemplate.getForEntity("/shopping-api/purchase/1234", String.class);
+		assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, failed.getStatusCode());
+
+		billingFails = false;
+		ResponseEntity<String> paid = restTemplate.getForEntity("/shopping-api/purchase/1234", String.class);
+		ResponseEntity<String> reused = restTemplate.getForEntity("/shopping-api/purchase/1234", String.class);
+
+		assertEquals(HttpStatus.OK, paid.getStatusCode());
+		assertTrue(paid.getBody().contains("CardNO: 1234"), paid.getBody());
+		// The successful result is shared within the window, the failure was not
+		assertEquals(paid.getBody(), reused.getBody());
+		assertEquals(2, calls("/billing-api/payment/1234"));
+	}
+
+	private static int calls(String path) {
+		AtomicInteger calls = CALLS.get(path);
+		return calls == null ? 0 : calls.get();
+	}
+
+	private static HttpServer startBillingStub() {
+		try {
+			HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+			server.setExecutor(Executors.newCachedThreadPool());
+			server.createContext("/billing-api/payment", CoalescingCircuitBreakerTests::respond);
+			server.start();
+			return server;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void respond(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		CALLS.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+		String cardNo = path.substring(path.lastIndexOf('/') + 1);
+		byte[] body = (billingFails ? "billing down" : "Bill Amount is 1. Payment can be done using CardNO: " + cardNo)
+				.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(billingFails ? 500 : 200, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+}
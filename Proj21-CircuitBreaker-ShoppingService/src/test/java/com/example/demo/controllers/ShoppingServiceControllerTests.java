@@ -0,0 +1,75 @@
+package com.example.demo.controllers;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * The non-blocking purchases answer like the blocking ones, for a payment, an
+ * empty billing body and a failure.
+ */
+@SpringBootTest(properties = "eureka.client.enabled=false")
+@AutoConfigureMockMvc
+class ShoppingServiceControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@MockitoBean
+	private ReactiveBillingServiceClientComponent reactiveClient;
+
+	@Test
+	void v2AnswersWithThePaymentStatus() throws Exception {
+		when(reactiveClient.invokeDoPayment()).thenReturn(Mono.just("Bill Amount is 1."));
+		when(reactiveClient.invokeDoPayment(42L)).thenReturn(Mono.just("Bill Amount is 2."));
+
+		purchaseV2("/shopping-api/v2/purchase").andExpect(status().isOk())
+				.andExpect(content().string("Shopping is done.Payment Status: Bill Amount is 1."));
+		purchaseV2("/shopping-api/v2/purchase/42").andExpect(status().isOk())
+				.andExpect(content().string("Shopping is done.Payment Status: Bill Amount is 2."));
+	}
+
+	@Test
+	void emptyBillingBodyAnswersLikeV1() throws Exception {
+		when(reactiveClient.invokeDoPayment()).thenReturn(Mono.empty());
+		when(reactiveClient.invokeDoPayment(42L)).thenReturn(Mono.empty());
+
+		// What /purchase answers when the blocking client reads the empty body as null
+		purchaseV2("/shopping-api/v2/purchase").andExpect(status().isOk())
+				.andExpect(content().string("Shopping is done.Payment Status: null"));
+		purchaseV2("/shopping-api/v2/purchase/42").andExpect(status().isOk())
+				.andExpect(content().string("Shopping is done.Payment Status: null"));
+	}
+
+	@Test
+	void billingErrorAnswersWithTheBreakerFallback() throws Exception {
+		when(reactiveClient.invokeDoPayment()).thenReturn(Mono.error(new IllegalStateException("billing down")));
+		when(reactiveClient.invokeDoPayment(42L)).thenReturn(Mono.error(new IllegalStateException("billing down")));
+
+		purchaseV2("/shopping-api/v2/purchase").andExpect(status().isInternalServerError())
+				.andExpect(content().string("Billling operations are out of service"));
+		purchaseV2("/shopping-api/v2/purchase/42").andExpect(status().isInternalServerError())
+				.andExpect(content().string("Shopping failed due to payment error."));
+	}
+
+	private ResultActions purchaseV2(String url) throws Exception {
+		MvcResult started = mockMvc.perform(get(url))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		return mockMvc.perform(asyncDispatch(started));
+	}
+}
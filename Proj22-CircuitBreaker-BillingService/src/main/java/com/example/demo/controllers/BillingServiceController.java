@@ -1,6 +1,8 @@
 package com.example.demo.controllers;
 
-import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,15 +11,28 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.example.demo.dto.PaymentResponse;
+
+import jakarta.annotation.PostConstruct;
+
 @RestController
 @RequestMapping("/billing-api")
 public class BillingServiceController {
 
     // Create a logger for this class
     private static final Logger logger = LoggerFactory.getLogger(BillingServiceController.class);
+
+    private static final String AMOUNT_PREFIX = "Bill Amount is ";
+
+    private static final String PAYMENT_MODES = "Cards, UPI Payment";
+
+    // Longest possible amount (8 digits) and card number (19 digits) plus some slack
+    private static final int NUMBERS_CAPACITY = 32;
     
     @Value("${server.port}")
     private int port;
@@ -25,6 +40,24 @@ public class BillingServiceController {
     @Value("${eureka.instance.instance-id}")
     private String instanceId;
 
+    @Value("${billing.batch.max-size:500}")
+    private int maxBatchSize;
+
+    // Parts of the responses that only depend on this instance, built once at startup
+    private String paymentSuffix;
+
+    private String cardPrefix;
+
+    private String cardSuffix;
+
+    @PostConstruct
+    void precomputeResponseFragments() {
+        paymentSuffix = ". Payment can be done via " + PAYMENT_MODES + " " + instanceId + " : " + port;
+        cardPrefix = ". Payment can be done using CardNO: ";
+        cardSuffix = ". Instance ID: " + instanceId + ", Port: " + port;
+        logger.info("Billing instance {} ready on port {}", instanceId, port);
+    }
+
     /**
      * This endpoint handles the payment request and returns available payment methods.
      * 
@@ -33,12 +66,12 @@ public class BillingServiceController {
     @GetMapping("payment")
     public ResponseEntity<String> doPayment() {
         // Log the incoming request for the payment endpoint
-        logger.info("Received request to process payment...");
-        
-        logger.info("Instanc Id{}",instanceId);
-        int amount=new Random().nextInt(100000000);
+        logger.debug("Received request to process payment...");
+
+        int amount = nextAmount();
         // Respond with a message about available payment methods
-        String responseMessage = String.format("Bill Amount is %s. Payment can be done via Cards, UPI Payment %s : %d", amount, instanceId, port);
+        String responseMessage = new StringBuilder(AMOUNT_PREFIX.length() + NUMBERS_CAPACITY + paymentSuffix.length())
+                .append(AMOUNT_PREFIX).append(amount).append(paymentSuffix).toString();
 
         // Log the response being sent
         logger.debug("Returning payment methods: {}", responseMessage);
@@ -49,16 +82,9 @@ public class BillingServiceController {
     @GetMapping("/payment/{cardNo}") // Corrected path to include the dynamic part
     public ResponseEntity<String> doPayment(@PathVariable("cardNo") long cardNo) {
         // Log the incoming request for the payment endpoint
-        logger.info("Received request to process payment...");
-
-        // Generate a random amount for the bill
-        int amount = new Random().nextInt(100000000);
+        logger.debug("Received request to process payment...");
 
-        // Respond with a message about available payment methods
-        String responseMessage = String.format(
-            "Bill Amount is %s. Payment can be done using CardNO: %d. Instance ID: %s, Port: %d", 
-            amount, cardNo, instanceId, port
-        );
+        String responseMessage = appendCardPaymentMessage(newCardMessageBuilder(), nextAmount(), cardNo).toString();
 
         // Log the response being sent
         logger.debug("Returning payment methods: {}", responseMessage);
@@ -67,5 +93,64 @@ public class BillingServiceController {
         return new ResponseEntity<>(responseMessage, HttpStatus.OK);
     }
 
-}
+    /**
+     * Processes several card payments in one request. The response holds one
+     * message per card number, in the same order as the request.
+     *
+     * @param cardNos card numbers to bill
+     * @return ResponseEntity containing the payment messages, or 400 if the batch is empty, too large
+     *         or holds a null card number
+     */
+    @PostMapping("/payments/batch")
+    public ResponseEntity<List<String>> doPayments(@RequestBody List<Long> cardNos) {
+        if (cardNos == null || cardNos.isEmpty() || cardNos.size() > maxBatchSize) {
+            logger.warn("Rejecting payment batch of size {}", cardNos == null ? 0 : cardNos.size());
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (cardNos.contains(null)) {
+            logger.warn("Rejecting payment batch with a null card number");
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        logger.debug("Received request to process {} payments...", cardNos.size());
 
+        // One builder is reused for every message of the batch
+        StringBuilder builder = newCardMessageBuilder();
+        List<String> responseMessages = new ArrayList<>(cardNos.size());
+        for (Long cardNo : cardNos) {
+            builder.setLength(0);
+            responseMessages.add(appendCardPaymentMessage(builder, nextAmount(), cardNo).toString());
+        }
+        return new ResponseEntity<>(responseMessages, HttpStatus.OK);
+    }
+
+    /**
+     * Same payment as {@link #doPayment()}, returned as a JSON {@link PaymentResponse}.
+     */
+    @GetMapping("/v2/payment")
+    public ResponseEntity<PaymentResponse> doPaymentV2() {
+        return new ResponseEntity<>(new PaymentResponse(nextAmount(), null, PAYMENT_MODES, instanceId, port),
+                HttpStatus.OK);
+    }
+
+    /**
+     * Same payment as {@link #doPayment(long)}, returned as a JSON {@link PaymentResponse}.
+     */
+    @GetMapping("/v2/payment/{cardNo}")
+    public ResponseEntity<PaymentResponse> doPaymentV2(@PathVariable("cardNo") long cardNo) {
+        return new ResponseEntity<>(new PaymentResponse(nextAmount(), cardNo, "Card", instanceId, port),
+                HttpStatus.OK);
+    }
+
+    private StringBuilder newCardMessageBuilder() {
+        return new StringBuilder(AMOUNT_PREFIX.length() + cardPrefix.length() + NUMBERS_CAPACITY + cardSuffix.length());
+    }
+
+    private StringBuilder appendCardPaymentMessage(StringBuilder builder, int amount, long cardNo) {
+        return builder.append(AMOUNT_PREFIX).append(amount).append(cardPrefix).append(cardNo).append(cardSuffix);
+    }
+
+    // Generate a random amount for the bill without allocating a Random per request
+    private static int nextAmount() {
+        return ThreadLocalRandom.current().nextInt(100000000);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.demo.controllers;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+@SpringBootTest(properties = { "eureka.client.enabled=false", "billing.batch.max-size=3" })
+@AutoConfigureMockMvc
+class BillingServiceControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void batchAnswersOneMessagePerCardInOrder() throws Exception {
+		postBatch("[1111, 2222]")
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[0]").value(containsString("1111")))
+				.andExpect(jsonPath("$[1]").value(containsString("2222")));
+	}
+
+	@Test
+	void emptyOversizedOrNullCardBatchesAreRejected() throws Exception {
+		postBatch("[]").andExpect(status().isBadRequest());
+		postBatch("[1, 2, 3, 4]").andExpect(status().isBadRequest());
+		postBatch("[1111, null]").andExpect(status().isBadRequest());
+	}
+
+	private ResultActions postBatch(String body) throws Exception {
+		return mockMvc.perform(post("/billing-api/payments/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content(body));
+	}
+}
@@ -0,0 +1,21 @@
+package com.example.demo.cache;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cache.Cache.ValueWrapper;
+
+/**
+ * Cache that can read and write several keys in one round-trip. Used by
+ * {@link TwoLevelCache#getAll} for its L2 when available.
+ */
+public interface BulkCache {
+
+	/**
+	 * @return one entry per key, in the order of {@code keys}; {@code null}
+	 *         for the keys that are not cached
+	 */
+	List<ValueWrapper> getAll(List<?> keys);
+
+	void putAll(Map<?, ?> entries);
+}
@@ -0,0 +1,82 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * {@link RedisCache} that reads several keys with one MGET and writes them in
+ * one pipeline. Keys and values are serialized exactly like single-key
+ * operations, so both can be mixed freely.
+ */
+public class BulkRedisCache extends RedisCache implements BulkCache {
+
+	private final RedisConnectionFactory connectionFactory;
+
+	protected BulkRedisCache(String name, RedisCacheWriter cacheWriter, RedisCacheConfiguration cacheConfiguration,
+			RedisConnectionFactory connectionFactory) {
+		super(name, cacheWriter, cacheConfiguration);
+		this.connectionFactory = connectionFactory;
+	}
+
+	@Override
+	public List<ValueWrapper> getAll(List<?> keys) {
+		if (keys.isEmpty()) {
+			return List.of();
+		}
+		byte[][] redisKeys = new byte[keys.size()][];
+		for (int i = 0; i < redisKeys.length; i++) {
+			redisKeys[i] = serializeCacheKey(createCacheKey(keys.get(i)));
+		}
+		List<byte[]> values;
+		try (RedisConnection connection = connectionFactory.getConnection()) {
+			values = connection.stringCommands().mGet(redisKeys);
+		}
+		List<ValueWrapper> result = new ArrayList<>(keys.size());
+		for (int i = 0; i < keys.size(); i++) {
+			byte[] value = values == null ? null : values.get(i);
+			result.add(value == null ? null : decode(value));
+		}
+		return result;
+	}
+
+	// Undecodable values count as misses, as in TwoLevelCache
+	private ValueWrapper decode(byte[] value) {
+		try {
+			return toValueWrapper(deserializeCacheValue(value));
+		} catch (SerializationException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public void putAll(Map<?, ?> entries) {
+		if (entries.isEmpty()) {
+			return;
+		}
+		try (RedisConnection connection = connectionFactory.getConnection()) {
+			connection.openPipeline();
+			for (Map.Entry<?, ?> entry : entries.entrySet()) {
+				byte[] key = serializeCacheKey(createCacheKey(entry.getKey()));
+				byte[] value = serializeCacheValue(toStoreValue(entry.getValue()));
+				Duration ttl = getCacheConfiguration().getTtlFunction().getTimeToLive(entry.getKey(), entry.getValue());
+				if (ttl.isZero() || ttl.isNegative()) {
+					connection.stringCommands().set(key, value);
+				} else {
+					connection.stringCommands().set(key, value, Expiration.from(ttl), SetOption.upsert());
+				}
+			}
+			connection.closePipeline();
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package com.example.demo.cache;
+
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+/**
+ * {@link RedisCacheManager} creating {@link BulkRedisCache}s.
+ */
+public class BulkRedisCacheManager extends RedisCacheManager {
+
+	private final RedisConnectionFactory connectionFactory;
+
+	public BulkRedisCacheManager(RedisCacheWriter cacheWriter, RedisCacheConfiguration defaultCacheConfiguration,
+			RedisConnectionFactory connectionFactory) {
+		super(cacheWriter, defaultCacheConfiguration);
+		this.connectionFactory = connectionFactory;
+	}
+
+	@Override
+	protected RedisCache createRedisCache(String name, RedisCacheConfiguration cacheConfiguration) {
+		return new BulkRedisCache(name, getCacheWriter(), cacheConfiguration, connectionFactory);
+	}
+}
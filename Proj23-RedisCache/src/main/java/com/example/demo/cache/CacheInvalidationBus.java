@@ -0,0 +1,47 @@
+package com.example.demo.cache;
+
+import java.util.Collection;
+
+/**
+ * Carries local (L1) cache invalidations between the nodes that share the
+ * same L2 cache, so that a write on one node does not leave stale copies in
+ * the memory of the others.
+ */
+public interface CacheInvalidationBus {
+
+	/**
+	 * Tells the other nodes to drop {@code key} from {@code cacheName}.
+	 *
+	 * @param key key to drop, or {@code null} to drop the whole cache
+	 */
+	void publish(String cacheName, String key);
+
+	/**
+	 * Tells the other nodes to drop several keys from {@code cacheName}.
+	 */
+	default void publishAll(String cacheName, Collection<String> keys) {
+		keys.forEach(key -> publish(cacheName, key));
+	}
+
+	/**
+	 * Registers a listener for invalidations published by other nodes. A node
+	 * never receives its own invalidations.
+	 */
+	void subscribe(CacheInvalidationListener listener);
+
+	/**
+	 * @return a bus for a single node, which has nobody to notify
+	 */
+	static CacheInvalidationBus none() {
+		return new CacheInvalidationBus() {
+
+			@Override
+			public void publish(String cacheName, String key) {
+			}
+
+			@Override
+			public void subscribe(CacheInvalidationListener listener) {
+			}
+		};
+	}
+}
@@ -0,0 +1,24 @@
+package com.example.demo.cache;
+
+import java.util.Collection;
+
+/**
+ * Receives the invalidations published by other nodes through a
+ * {@link CacheInvalidationBus}.
+ */
+@FunctionalInterface
+public interface CacheInvalidationListener {
+
+	/**
+	 * @param cacheName name of the cache to invalidate
+	 * @param key       key to drop, or {@code null} to drop the whole cache
+	 */
+	void onInvalidation(String cacheName, String key);
+
+	/**
+	 * Several keys of {@code cacheName} published together.
+	 */
+	default void onInvalidation(String cacheName, Collection<String> keys) {
+		keys.forEach(key -> onInvalidation(cacheName, key));
+	}
+}
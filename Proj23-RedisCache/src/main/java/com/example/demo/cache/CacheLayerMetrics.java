@@ -0,0 +1,130 @@
+package com.example.demo.cache;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Hit, miss and eviction counters of one {@link TwoLevelCache}, tagged with
+ * the cache name and the layer ({@code l1} or {@code l2}):
+ * <ul>
+ * <li>{@code product.cache.gets} with {@code result} hit or miss</li>
+ * <li>{@code product.cache.evictions} with {@code cause} size, expired,
+ * explicit or remote</li>
+ * <li>{@code product.cache.loads} with {@code cause} miss or refresh, and
+ * {@code cause} shared for the misses that waited for a load already
+ * running</li>
+ * </ul>
+ */
+class CacheLayerMetrics {
+
+	static final String L1 = "l1";
+
+	static final String L2 = "l2";
+
+	private final MeterRegistry registry;
+
+	private final String cacheName;
+
+	private final Counter l1Hits;
+
+	private final Counter l1Misses;
+
+	private final Counter l2Hits;
+
+	private final Counter l2Misses;
+
+	private final Counter l1SizeEvictions;
+
+	private final Counter l1ExpiredEvictions;
+
+	private final Counter l1ExplicitEvictions;
+
+	private final Counter l1RemoteEvictions;
+
+	private final Counter l2ExplicitEvictions;
+
+	private final Counter missLoads;
+
+	private final Counter refreshLoads;
+
+	private final Counter sharedLoads;
+
+	CacheLayerMetrics(MeterRegistry registry, String cacheName) {
+		this.registry = registry;
+		this.cacheName = cacheName;
+		this.l1Hits = gets(L1, "hit");
+		this.l1Misses = gets(L1, "miss");
+		this.l2Hits = gets(L2, "hit");
+		this.l2Misses = gets(L2, "miss");
+		this.l1SizeEvictions = evictions(L1, "size");
+		this.l1ExpiredEvictions = evictions(L1, "expired");
+		this.l1ExplicitEvictions = evictions(L1, "explicit");
+		this.l1RemoteEvictions = evictions(L1, "remote");
+		this.l2ExplicitEvictions = evictions(L2, "explicit");
+		this.missLoads = loads("miss");
+		this.refreshLoads = loads("refresh");
+		this.sharedLoads = loads("shared");
+	}
+
+	private Counter gets(String layer, String result) {
+		return Counter.builder("product.cache.gets")
+				.tag("cache", cacheName).tag("layer", layer).tag("result", result)
+				.register(registry);
+	}
+
+	private Counter evictions(String layer, String cause) {
+		return Counter.builder("product.cache.evictions")
+				.tag("cache", cacheName).tag("layer", layer).tag("cause", cause)
+				.register(registry);
+	}
+
+	private Counter loads(String cause) {
+		return Counter.builder("product.cache.loads")
+				.tag("cache", cacheName).tag("cause", cause)
+				.register(registry);
+	}
+
+	void l1Hit() {
+		l1Hits.increment();
+	}
+
+	void l1Miss() {
+		l1Misses.increment();
+	}
+
+	void l2Hit() {
+		l2Hits.increment();
+	}
+
+	void l2Miss() {
+		l2Misses.increment();
+	}
+
+	void evicted(long count) {
+		l1ExplicitEvictions.increment(count);
+		l2ExplicitEvictions.increment(count);
+	}
+
+	void loaded(boolean refresh) {
+		(refresh ? refreshLoads : missLoads).increment();
+	}
+
+	void sharedLoad() {
+		sharedLoads.increment();
+	}
+
+	void l1RemoteEvicted(long count) {
+		l1RemoteEvictions.increment(count);
+	}
+
+	// Caffeine calls this for the entries it removes on its own
+	void l1Evicted(RemovalCause cause) {
+		if (cause == RemovalCause.SIZE) {
+			l1SizeEvictions.increment();
+		} else if (cause == RemovalCause.EXPIRED) {
+			l1ExpiredEvictions.increment();
+		}
+	}
+}
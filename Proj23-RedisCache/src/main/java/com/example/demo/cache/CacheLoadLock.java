@@ -0,0 +1,47 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+
+/**
+ * Lets one node at a time load a missing key into the shared L2 cache. The
+ * other nodes wait up to {@link #lease()} for the value to show up in L2
+ * instead of loading it themselves.
+ */
+public interface CacheLoadLock {
+
+	/**
+	 * @return {@code true} if this node may load the key, {@code false} if
+	 *         another node is loading it
+	 */
+	boolean tryAcquire(String cacheName, String key);
+
+	void release(String cacheName, String key);
+
+	/**
+	 * @return how long a lock is held at most, and so how long the other nodes
+	 *         wait for the value
+	 */
+	Duration lease();
+
+	/**
+	 * @return a lock for a single node, which always lets it load
+	 */
+	static CacheLoadLock none() {
+		return new CacheLoadLock() {
+
+			@Override
+			public boolean tryAcquire(String cacheName, String key) {
+				return true;
+			}
+
+			@Override
+			public void release(String cacheName, String key) {
+			}
+
+			@Override
+			public Duration lease() {
+				return Duration.ZERO;
+			}
+		};
+	}
+}
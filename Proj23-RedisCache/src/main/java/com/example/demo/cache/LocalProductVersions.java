@@ -0,0 +1,45 @@
+package com.example.demo.cache;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ProductVersions} in this node's memory, for a single node or when
+ * Redis is turned off. The epoch is drawn when the node starts. Counters of
+ * deleted products are dropped; as in {@link RedisProductVersions}, a counter
+ * created again starts from the catalog counter, so an old ETag of the
+ * product cannot match again.
+ */
+public class LocalProductVersions implements ProductVersions {
+
+	private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+	private final ConcurrentMap<Integer, Long> products = new ConcurrentHashMap<>();
+
+	private final AtomicLong catalog = new AtomicLong();
+
+	@Override
+	public String product(int pid) {
+		return epoch + "." + products.computeIfAbsent(pid, key -> catalog.get());
+	}
+
+	@Override
+	public String catalog() {
+		return epoch + "." + catalog.get();
+	}
+
+	@Override
+	public void bump(Collection<Integer> pids) {
+		pids.forEach(pid -> products.compute(pid, (key, count) -> (count == null ? catalog.get() : count) + 1));
+		catalog.incrementAndGet();
+	}
+
+	@Override
+	public void deleted(Collection<Integer> pids) {
+		pids.forEach(products::remove);
+		catalog.incrementAndGet();
+	}
+}
@@ -0,0 +1,102 @@
+package com.example.demo.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tells the other nodes which products were saved or deleted on this one, for
+ * what every node keeps of the catalog outside the caches (the ID filter,
+ * the search index, the catalog snapshot). Stock writes count as saves.
+ * The IDs go over the {@link CacheInvalidationBus}, as keys of the
+ * pseudo-caches {@value #SAVED} and {@value #DELETED}, which no cache manager
+ * has and so ignores. Without an L2 there is no bus and nobody to tell.
+ *
+ * Listeners only hear about other nodes' changes, some milliseconds after
+ * they were committed, and not at all about messages lost while their node
+ * was cut off from Redis; whatever they keep has to be rebuilt from the table
+ * now and then to catch up with those.
+ */
+@Component
+public class ProductChanges implements CacheInvalidationListener {
+
+	public static final String SAVED = "product-changes-saved";
+
+	public static final String DELETED = "product-changes-deleted";
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductChanges.class);
+
+	/**
+	 * Receives the IDs of products saved or deleted on other nodes.
+	 */
+	public interface Listener {
+
+		void onSaved(Collection<Integer> pids);
+
+		void onDeleted(Collection<Integer> pids);
+	}
+
+	private final CacheInvalidationBus invalidationBus;
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	public ProductChanges(ObjectProvider<CacheInvalidationBus> invalidationBus) {
+		this.invalidationBus = invalidationBus.getIfAvailable(CacheInvalidationBus::none);
+		this.invalidationBus.subscribe(this);
+	}
+
+	public void subscribe(Listener listener) {
+		listeners.add(listener);
+	}
+
+	// After the change is committed
+	public void saved(Collection<Integer> pids) {
+		invalidationBus.publishAll(SAVED, keys(pids));
+	}
+
+	public void deleted(Collection<Integer> pids) {
+		invalidationBus.publishAll(DELETED, keys(pids));
+	}
+
+	@Override
+	public void onInvalidation(String cacheName, String key) {
+		if (key != null) {
+			onInvalidation(cacheName, List.of(key));
+		}
+	}
+
+	@Override
+	public void onInvalidation(String cacheName, Collection<String> keys) {
+		boolean saved = SAVED.equals(cacheName);
+		if (!saved && !DELETED.equals(cacheName)) {
+			return;
+		}
+		List<Integer> pids = new ArrayList<>(keys.size());
+		for (String key : keys) {
+			try {
+				pids.add(Integer.valueOf(key));
+			} catch (NumberFormatException e) {
+				logger.warn("Ignoring product change for ID {}", key);
+			}
+		}
+		for (Listener listener : listeners) {
+			if (saved) {
+				listener.onSaved(pids);
+			} else {
+				listener.onDeleted(pids);
+			}
+		}
+	}
+
+	private static List<String> keys(Collection<Integer> pids) {
+		List<String> keys = new ArrayList<>(pids.size());
+		pids.forEach(pid -> keys.add(String.valueOf(pid)));
+		return keys;
+	}
+}
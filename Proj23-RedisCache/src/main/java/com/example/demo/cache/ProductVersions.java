@@ -0,0 +1,45 @@
+package com.example.demo.cache;
+
+import java.util.Collection;
+
+/**
+ * Version counters behind the HTTP ETags of product reads: one per product
+ * and one for the whole catalog, so a conditional GET is answered without
+ * reading the cached value or the database.
+ *
+ * Writers bump the versions after the caches have dropped or replaced the old
+ * value, and readers take the version before reading the value. A response can
+ * therefore carry a version older than its body, which costs the client one
+ * more full response, but never a newer one. Versions include an epoch that
+ * changes whenever the counters may have been lost, so counting again from
+ * zero cannot match an ETag handed out before. A product counter that is
+ * dropped, on delete or expiry, starts again from the catalog counter, which
+ * is never behind it.
+ *
+ * With versions {@link #shared() shared} between nodes, the ordering only
+ * holds for the L2 cache and the database: another node's write may reach
+ * this node's L1 and catalog snapshot after its version, so a body served
+ * with a version must be read with that version in hand, see
+ * {@link TwoLevelCache#get(Object, String, java.util.concurrent.Callable)}.
+ */
+public interface ProductVersions {
+
+	// Current version of one product, unchanged until it is saved, deleted or its stock is written
+	String product(int pid);
+
+	// Current version of the catalog, changed by every write to any product
+	String catalog();
+
+	// The products changed: bumps each of them and the catalog
+	void bump(Collection<Integer> pids);
+
+	// The products were deleted: bumps the catalog, their own versions are no longer needed
+	default void deleted(Collection<Integer> pids) {
+		bump(pids);
+	}
+
+	// Whether other nodes bump these versions too
+	default boolean shared() {
+		return false;
+	}
+}
@@ -0,0 +1,87 @@
+package com.example.demo.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * {@link CacheInvalidationBus} over Redis pub/sub. Each message is
+ * {@code <node id>\n<cache name>[\n<key>]*}, without keys for a whole-cache
+ * invalidation; the node id lets a node skip the messages it published itself.
+ */
+public class RedisCacheInvalidationBus implements CacheInvalidationBus, MessageListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(RedisCacheInvalidationBus.class);
+
+	private static final String SEPARATOR = "\n";
+
+	private final String nodeId = UUID.randomUUID().toString();
+
+	private final StringRedisTemplate redisTemplate;
+
+	private final String channel;
+
+	private final List<CacheInvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+	public RedisCacheInvalidationBus(StringRedisTemplate redisTemplate, RedisMessageListenerContainer container,
+			String channel) {
+		this.redisTemplate = redisTemplate;
+		this.channel = channel;
+		container.addMessageListener(this, new ChannelTopic(channel));
+	}
+
+	@Override
+	public void publish(String cacheName, String key) {
+		send(cacheName, key == null ? nodeId + SEPARATOR + cacheName : nodeId + SEPARATOR + cacheName + SEPARATOR + key);
+	}
+
+	// One message for the whole batch
+	@Override
+	public void publishAll(String cacheName, Collection<String> keys) {
+		if (!keys.isEmpty()) {
+			send(cacheName, nodeId + SEPARATOR + cacheName + SEPARATOR + String.join(SEPARATOR, keys));
+		}
+	}
+
+	private void send(String cacheName, String message) {
+		try {
+			redisTemplate.convertAndSend(channel, message);
+		} catch (RuntimeException e) {
+			// The write itself succeeded, other nodes catch up when their L1 entry expires
+			logger.warn("Could not publish invalidation for cache {}: {}", cacheName, e.getMessage());
+		}
+	}
+
+	@Override
+	public void subscribe(CacheInvalidationListener listener) {
+		listeners.add(listener);
+	}
+
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(SEPARATOR);
+		if (parts.length < 2 || nodeId.equals(parts[0])) {
+			return;
+		}
+		logger.debug("Invalidating {} key(s) in cache {} on request of node {}", Math.max(parts.length - 2, 1), parts[1],
+				parts[0]);
+		List<String> keys = List.of(parts).subList(2, parts.length);
+		for (CacheInvalidationListener listener : listeners) {
+			if (keys.isEmpty()) {
+				listener.onInvalidation(parts[1], (String) null);
+			} else {
+				listener.onInvalidation(parts[1], keys);
+			}
+		}
+	}
+}
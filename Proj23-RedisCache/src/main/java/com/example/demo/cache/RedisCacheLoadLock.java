@@ -0,0 +1,75 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * {@link CacheLoadLock} on a Redis key {@code <cache name>::<key>::loading}
+ * set with {@code SET NX PX <lease>}. The value is the node and thread
+ * holding it, so a node only ever deletes its own lock, even after the lease
+ * ran out and another node took over.
+ *
+ * If Redis cannot be reached the lock is granted: the node loads from the
+ * database as it would without a lock.
+ */
+public class RedisCacheLoadLock implements CacheLoadLock {
+
+	private static final Logger logger = LoggerFactory.getLogger(RedisCacheLoadLock.class);
+
+	// Deletes the lock only if it is still ours
+	private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(
+			"if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+			Long.class);
+
+	private final String nodeId = UUID.randomUUID().toString();
+
+	private final StringRedisTemplate redisTemplate;
+
+	private final Duration lease;
+
+	public RedisCacheLoadLock(StringRedisTemplate redisTemplate, Duration lease) {
+		this.redisTemplate = redisTemplate;
+		this.lease = lease;
+	}
+
+	@Override
+	public boolean tryAcquire(String cacheName, String key) {
+		try {
+			return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey(cacheName, key), owner(), lease));
+		} catch (RuntimeException e) {
+			logger.warn("Could not lock {} in cache {}, loading anyway: {}", key, cacheName, e.getMessage());
+			return true;
+		}
+	}
+
+	@Override
+	public void release(String cacheName, String key) {
+		try {
+			redisTemplate.execute(RELEASE, List.of(lockKey(cacheName, key)), owner());
+		} catch (RuntimeException e) {
+			// The lease ends it anyway
+			logger.warn("Could not unlock {} in cache {}: {}", key, cacheName, e.getMessage());
+		}
+	}
+
+	@Override
+	public Duration lease() {
+		return lease;
+	}
+
+	private static String lockKey(String cacheName, String key) {
+		return cacheName + "::" + key + "::loading";
+	}
+
+	// Acquire and release run on the same thread, see TwoLevelCache
+	private String owner() {
+		return nodeId + ":" + Thread.currentThread().getId();
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * {@link ProductVersions} shared by all nodes, next to the L2 cache: one Redis
+ * counter {@code product-version::<pid>} per product and
+ * {@code product-version::catalog}. A read is one script call returning the
+ * epoch key and the counter; if Redis lost the epoch (flushed or restarted
+ * without persistence), the counters went with it and the reader sets the
+ * new epoch it passed along.
+ *
+ * Product counters expire after {@code product.versions.ttl-seconds} without
+ * reads or bumps, and are dropped when their product is deleted. A counter
+ * that is created again, by a read or a bump, starts from the catalog
+ * counter, which never goes back and is never behind any product counter,
+ * so it cannot come back to a version handed out before.
+ *
+ * Bumped by every node, so the invalidation of this node's L1 may arrive
+ * after the version it goes with.
+ */
+public class RedisProductVersions implements ProductVersions {
+
+	private static final String KEY_PREFIX = "product-version::";
+
+	private static final String CATALOG_KEY = KEY_PREFIX + "catalog";
+
+	private static final String EPOCH_KEY = KEY_PREFIX + "epoch";
+
+	// KEYS: epoch, counter, catalog; ARGV: new epoch, ttl seconds, 1 to create a missing counter
+	private static final RedisScript<List> READ = new DefaultRedisScript<>("""
+			redis.call('set', KEYS[1], ARGV[1], 'NX')
+			local epoch = redis.call('get', KEYS[1])
+			local count = redis.call('get', KEYS[2])
+			if not count and ARGV[3] == '1' then
+				count = redis.call('get', KEYS[3]) or '0'
+				redis.call('set', KEYS[2], count)
+			end
+			if count and KEYS[2] ~= KEYS[3] then redis.call('expire', KEYS[2], ARGV[2]) end
+			return {epoch, count or '0'}
+			""", List.class);
+
+	// KEYS: product counters, then the catalog; ARGV: ttl seconds
+	private static final RedisScript<Long> BUMP = new DefaultRedisScript<>("""
+			local catalog = KEYS[#KEYS]
+			for i = 1, #KEYS - 1 do
+				if redis.call('exists', KEYS[i]) == 0 then
+					redis.call('set', KEYS[i], redis.call('get', catalog) or '0')
+				end
+				redis.call('incr', KEYS[i])
+				redis.call('expire', KEYS[i], ARGV[1])
+			end
+			return redis.call('incr', catalog)
+			""", Long.class);
+
+	// KEYS: product counters, then the catalog
+	private static final RedisScript<Long> DELETE = new DefaultRedisScript<>("""
+			for i = 1, #KEYS - 1 do redis.call('del', KEYS[i]) end
+			return redis.call('incr', KEYS[#KEYS])
+			""", Long.class);
+
+	private final StringRedisTemplate redisTemplate;
+
+	private final String ttlSeconds;
+
+	public RedisProductVersions(StringRedisTemplate redisTemplate, Duration ttl) {
+		this.redisTemplate = redisTemplate;
+		this.ttlSeconds = String.valueOf(ttl.toSeconds());
+	}
+
+	@Override
+	public String product(int pid) {
+		return read(KEY_PREFIX + pid, true);
+	}
+
+	@Override
+	public String catalog() {
+		return read(CATALOG_KEY, false);
+	}
+
+	@Override
+	public void bump(Collection<Integer> pids) {
+		redisTemplate.execute(BUMP, withCatalog(pids), ttlSeconds);
+	}
+
+	@Override
+	public void deleted(Collection<Integer> pids) {
+		redisTemplate.execute(DELETE, withCatalog(pids));
+	}
+
+	@Override
+	public boolean shared() {
+		return true;
+	}
+
+	private static List<String> withCatalog(Collection<Integer> pids) {
+		List<String> keys = new ArrayList<>(pids.size() + 1);
+		pids.forEach(pid -> keys.add(KEY_PREFIX + pid));
+		keys.add(CATALOG_KEY);
+		return keys;
+	}
+
+	private String read(String key, boolean create) {
+		List<?> values = redisTemplate.execute(READ, List.of(EPOCH_KEY, key, CATALOG_KEY),
+				Long.toHexString(ThreadLocalRandom.current().nextLong()), ttlSeconds, create ? "1" : "0");
+		return values.get(0) + "." + values.get(1);
+	}
+}
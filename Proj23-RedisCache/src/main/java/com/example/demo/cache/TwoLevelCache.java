@@ -0,0 +1,578 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * {@link Cache} with a bounded in-process Caffeine layer (L1) in front of a
+ * shared remote cache (L2, Redis in production).
+ *
+ * Reads try L1, then L2, and copy L2 hits into L1. Writes and evictions go to
+ * both layers and are published on the {@link CacheInvalidationBus}, so the
+ * other nodes drop their L1 copy and read the new value from L2 next time.
+ * L1 keys are the string form of the cache key, as Redis keys are. Keys
+ * cached as missing ({@code null} values) live in a separate, smaller L1 with
+ * a shorter TTL.
+ *
+ * Values loaded through {@link #get(Object, Callable)} (used by
+ * {@code @Cacheable(sync = true)}) are only stored if no write or eviction
+ * happened on this node while they were loading. Otherwise a read that
+ * started before a write could put the old value back after the write
+ * evicted it. Across nodes the same race is bounded by the L2 TTL.
+ *
+ * Concurrent misses on the same key share one load: the first caller runs the
+ * loader and the others wait for its result. With an L2, the
+ * {@link CacheLoadLock} extends this across nodes. With refresh-ahead on, a
+ * hit on an entry older than {@code refreshAfter} reloads it in the
+ * background, so keys that keep being read never expire.
+ *
+ * Values served under a version that other nodes bump, such as an ETag from
+ * {@link ProductVersions}, are read with {@link #get(Object, String, Callable)}:
+ * the invalidation of this node's L1 may arrive after the new version, so L1
+ * is only trusted for a version it has already been checked against.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(TwoLevelCache.class);
+
+	// How often a node waiting on another node's load checks L2
+	private static final long REMOTE_LOAD_POLL_MS = 20;
+
+	private final String name;
+
+	private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+
+	// Keys cached as missing, kept apart so that probes for unknown keys cannot push real entries out of L1
+	private final com.github.benmanes.caffeine.cache.Cache<String, Object> negative;
+
+	// The version each L1 value was read at from L2 or the loader, see get(Object, String, Callable)
+	private final com.github.benmanes.caffeine.cache.Cache<String, VersionedValue> versions;
+
+	private final Cache remote;
+
+	private final CacheInvalidationBus invalidationBus;
+
+	private final CacheLoadLock loadLock;
+
+	private final Duration refreshAfter;
+
+	private final Executor refreshExecutor;
+
+	private final CacheLayerMetrics metrics;
+
+	// Loads running on this node by L1 key; writes drop the entry of the key they change
+	private final ConcurrentMap<String, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+
+	// Bumped before every write or eviction, see get(Object, Callable)
+	private final AtomicLong writeEpoch = new AtomicLong();
+
+	private final ReadWriteLock epochLock = new ReentrantReadWriteLock();
+
+	/**
+	 * @param remote       the L2 cache, or {@code null} to run with L1 only
+	 * @param refreshAfter age after which a hit reloads the entry in the
+	 *                     background, or {@code null} for no refresh-ahead
+	 */
+	TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<String, Object> local,
+			com.github.benmanes.caffeine.cache.Cache<String, Object> negative,
+			com.github.benmanes.caffeine.cache.Cache<String, VersionedValue> versions, Cache remote,
+			CacheInvalidationBus invalidationBus, CacheLoadLock loadLock, Duration refreshAfter,
+			Executor refreshExecutor, CacheLayerMetrics metrics) {
+		super(true);
+		this.name = name;
+		this.local = local;
+		this.negative = negative;
+		this.versions = versions;
+		this.remote = remote;
+		this.invalidationBus = invalidationBus;
+		this.loadLock = loadLock;
+		this.refreshAfter = refreshAfter;
+		this.refreshExecutor = refreshExecutor;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Object getNativeCache() {
+		return local;
+	}
+
+	@Override
+	protected Object lookup(Object key) {
+		String localKey = localKey(key);
+		Object value = localGet(localKey);
+		if (value != null) {
+			metrics.l1Hit();
+			return value;
+		}
+		metrics.l1Miss();
+		if (remote == null) {
+			return null;
+		}
+		ValueWrapper wrapper = remoteGet(key);
+		if (wrapper == null) {
+			metrics.l2Miss();
+			return null;
+		}
+		metrics.l2Hit();
+		value = toStoreValue(wrapper.get());
+		localPut(localKey, value);
+		return value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		Object value = lookup(key);
+		if (value != null) {
+			refreshIfDue(key, valueLoader);
+			return (T) fromStoreValue(value);
+		}
+		String localKey = localKey(key);
+		CompletableFuture<Object> load = new CompletableFuture<>();
+		CompletableFuture<Object> running = loads.putIfAbsent(localKey, load);
+		if (running != null) {
+			metrics.sharedLoad();
+			return (T) await(running);
+		}
+		try {
+			// A load that finished between our lookup and registering this one has stored its value
+			value = localGet(localKey);
+			Object loaded = value != null ? fromStoreValue(value) : load(key, valueLoader, false);
+			load.complete(loaded);
+			return (T) loaded;
+		} catch (RuntimeException e) {
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			loads.remove(localKey, load);
+		}
+	}
+
+	/**
+	 * {@link #get(Object, Callable)} for a value served as {@code version},
+	 * which the caller read before calling and which writers on any node bump
+	 * after writing L2. The L1 entry is only used if it is the very value read
+	 * at that version before; otherwise the value is read from L2, or loaded,
+	 * replaces the L1 entry and is recorded with the version. Keys cached as
+	 * missing are never recorded and always read again.
+	 *
+	 * Concurrent misses share one read the same way, but only among callers at
+	 * the same version: a read started before a newer version was seen may have
+	 * found the older value. Hits trigger refresh-ahead as in
+	 * {@link #get(Object, Callable)}.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, String version, Callable<T> valueLoader) {
+		String localKey = localKey(key);
+		Object value = local.getIfPresent(localKey);
+		VersionedValue read = versions.getIfPresent(localKey);
+		if (value != null && read != null && read.value() == value && read.version().equals(version)) {
+			metrics.l1Hit();
+			refreshIfDue(key, valueLoader);
+			return (T) fromStoreValue(value);
+		}
+		metrics.l1Miss();
+		VersionedLoad load = new VersionedLoad(version);
+		CompletableFuture<Object> running = loads.putIfAbsent(localKey, load);
+		if (running instanceof VersionedLoad other && other.version.equals(version)) {
+			metrics.sharedLoad();
+			return (T) await(running);
+		}
+		// Another version's read, or a refresh, is running: read on our own without waiting for it
+		try {
+			Object loaded = readAtVersion(key, localKey, version, valueLoader);
+			load.complete(loaded);
+			return (T) loaded;
+		} catch (RuntimeException e) {
+			load.completeExceptionally(e);
+			throw e;
+		} finally {
+			if (running == null) {
+				loads.remove(localKey, load);
+			}
+		}
+	}
+
+	private Object readAtVersion(Object key, String localKey, String version, Callable<?> valueLoader) {
+		if (remote != null) {
+			ValueWrapper wrapper = remoteGet(key);
+			if (wrapper != null) {
+				metrics.l2Hit();
+				Object value = toStoreValue(wrapper.get());
+				localPut(localKey, value);
+				recordVersion(localKey, version, value);
+				return fromStoreValue(value);
+			}
+			metrics.l2Miss();
+		}
+		Object loaded = load(key, valueLoader, false);
+		// Only if the load was stored: otherwise L1 may hold another read's value
+		Object stored = local.getIfPresent(localKey);
+		if (loaded != null && stored == loaded) {
+			recordVersion(localKey, version, stored);
+		}
+		return loaded;
+	}
+
+	private void recordVersion(String localKey, String version, Object value) {
+		if (value != NullValue.INSTANCE) {
+			versions.put(localKey, new VersionedValue(version, value));
+		}
+	}
+
+	private static Object await(CompletableFuture<Object> load) {
+		try {
+			return load.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Runs the loader, unless another node holds the load lock and its value
+	 * shows up in L2 within the lease, and stores the result.
+	 *
+	 * @param refresh {@code true} for a refresh-ahead, which does not wait for
+	 *                another node's load
+	 */
+	private Object load(Object key, Callable<?> valueLoader, boolean refresh) {
+		String localKey = localKey(key);
+		long epoch = writeEpoch.get();
+		boolean locked = remote != null && loadLock.tryAcquire(name, localKey);
+		try {
+			if (remote != null && !locked) {
+				// Another node refreshing the key will update L2, keep serving the current value
+				ValueWrapper wrapper = refresh ? remoteGet(key) : awaitRemoteLoad(key);
+				if (wrapper != null) {
+					if (!refresh) {
+						localPut(localKey, toStoreValue(wrapper.get()));
+					}
+					return wrapper.get();
+				}
+			}
+			metrics.loaded(refresh);
+			Object loaded;
+			try {
+				loaded = valueLoader.call();
+			} catch (Exception e) {
+				throw new ValueRetrievalException(key, valueLoader, e);
+			}
+			// Writers bump the epoch under the write lock before touching the layers,
+			// so a load either lands before their eviction or is not stored at all
+			epochLock.readLock().lock();
+			try {
+				if (writeEpoch.get() == epoch) {
+					store(key, loaded);
+				}
+			} finally {
+				epochLock.readLock().unlock();
+			}
+			return loaded;
+		} finally {
+			if (locked) {
+				loadLock.release(name, localKey);
+			}
+		}
+	}
+
+	private ValueWrapper awaitRemoteLoad(Object key) {
+		long deadline = System.nanoTime() + loadLock.lease().toNanos();
+		while (System.nanoTime() < deadline) {
+			try {
+				TimeUnit.MILLISECONDS.sleep(REMOTE_LOAD_POLL_MS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+			ValueWrapper wrapper = remoteGet(key);
+			if (wrapper != null) {
+				return wrapper;
+			}
+		}
+		// The other node did not make it within its lease, load here
+		return null;
+	}
+
+	// The loader of an @Cacheable call can be run again: it invokes the cached method
+	private void refreshIfDue(Object key, Callable<?> valueLoader) {
+		if (refreshAfter == null) {
+			return;
+		}
+		String localKey = localKey(key);
+		Optional<Duration> age = local.policy().expireAfterWrite().flatMap(expiration -> expiration.ageOf(localKey));
+		if (age.isEmpty() || age.get().compareTo(refreshAfter) < 0) {
+			return;
+		}
+		CompletableFuture<Object> refresh = new CompletableFuture<>();
+		if (loads.putIfAbsent(localKey, refresh) != null) {
+			return;
+		}
+		try {
+			refreshExecutor.execute(() -> {
+				try {
+					refresh.complete(load(key, valueLoader, true));
+				} catch (RuntimeException e) {
+					// The current value stays until it expires
+					logger.warn("Could not refresh {} in cache {}: {}", key, name, e.getMessage());
+					refresh.completeExceptionally(e);
+				} finally {
+					loads.remove(localKey, refresh);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			loads.remove(localKey, refresh);
+			refresh.complete(fromStoreValue(localGet(localKey)));
+		}
+	}
+
+	/**
+	 * Bulk version of {@link #get(Object, Callable)}: looks all keys up in L1,
+	 * the L1 misses in L2 with one {@link BulkCache#getAll} when the L2 supports
+	 * it, and loads the remaining misses with a single call to {@code loader}.
+	 * Keys the loader returns no value for are cached as {@code null}.
+	 *
+	 * @return the value of every distinct key, in the order of {@code keys};
+	 *         {@code null} values for keys that do not exist
+	 */
+	public <K> Map<K, Object> getAll(Collection<K> keys, Function<Set<K>, Map<K, ?>> loader) {
+		Map<K, Object> result = new LinkedHashMap<>();
+		List<K> localMisses = new ArrayList<>();
+		for (K key : new LinkedHashSet<>(keys)) {
+			Object value = localGet(localKey(key));
+			if (value != null) {
+				metrics.l1Hit();
+				result.put(key, fromStoreValue(value));
+			} else {
+				metrics.l1Miss();
+				localMisses.add(key);
+				result.put(key, null);  // keeps the request order
+			}
+		}
+		if (localMisses.isEmpty()) {
+			return result;
+		}
+		long epoch = writeEpoch.get();
+		Set<K> misses = new LinkedHashSet<>();
+		if (remote == null) {
+			misses.addAll(localMisses);
+		} else {
+			List<ValueWrapper> remoteValues = remote instanceof BulkCache bulk ? bulk.getAll(localMisses)
+					: localMisses.stream().map(this::remoteGet).toList();
+			for (int i = 0; i < localMisses.size(); i++) {
+				K key = localMisses.get(i);
+				ValueWrapper wrapper = remoteValues.get(i);
+				if (wrapper == null) {
+					metrics.l2Miss();
+					misses.add(key);
+				} else {
+					metrics.l2Hit();
+					localPut(localKey(key), toStoreValue(wrapper.get()));
+					result.put(key, wrapper.get());
+				}
+			}
+		}
+		if (misses.isEmpty()) {
+			return result;
+		}
+		Map<K, ?> loaded = loader.apply(misses);
+		Map<K, Object> toStore = new LinkedHashMap<>();
+		for (K key : misses) {
+			Object value = loaded.get(key);
+			result.put(key, value);
+			toStore.put(key, value);
+		}
+		// Same rule as get(Object, Callable): drop the loaded values if a write happened meanwhile
+		epochLock.readLock().lock();
+		try {
+			if (writeEpoch.get() == epoch) {
+				storeAll(toStore);
+			}
+		} finally {
+			epochLock.readLock().unlock();
+		}
+		return result;
+	}
+
+	@Override
+	public void put(Object key, Object value) {
+		beginWrite();
+		loads.remove(localKey(key));
+		store(key, value);
+		invalidationBus.publish(name, localKey(key));
+	}
+
+	private void store(Object key, Object value) {
+		if (remote != null) {
+			remote.put(key, value);
+		}
+		localPut(localKey(key), toStoreValue(value));
+	}
+
+	private void storeAll(Map<?, Object> entries) {
+		if (remote instanceof BulkCache bulk) {
+			bulk.putAll(entries);
+		} else if (remote != null) {
+			entries.forEach(remote::put);
+		}
+		entries.forEach((key, value) -> localPut(localKey(key), toStoreValue(value)));
+	}
+
+	@Override
+	public void evict(Object key) {
+		beginWrite();
+		String localKey = localKey(key);
+		loads.remove(localKey);
+		if (remote != null) {
+			remote.evict(key);
+		}
+		local.invalidate(localKey);
+		negative.invalidate(localKey);
+		metrics.evicted(1);
+		invalidationBus.publish(name, localKey);
+	}
+
+	/**
+	 * Evicts several keys with a single invalidation message to the other nodes.
+	 */
+	public void evictAll(Collection<?> keys) {
+		beginWrite();
+		List<String> localKeys = new ArrayList<>(keys.size());
+		for (Object key : keys) {
+			if (remote != null) {
+				remote.evict(key);
+			}
+			localKeys.add(localKey(key));
+		}
+		localKeys.forEach(loads::remove);
+		local.invalidateAll(localKeys);
+		negative.invalidateAll(localKeys);
+		metrics.evicted(localKeys.size());
+		invalidationBus.publishAll(name, localKeys);
+	}
+
+	@Override
+	public void clear() {
+		beginWrite();
+		loads.clear();
+		if (remote != null) {
+			remote.clear();
+		}
+		metrics.evicted(local.estimatedSize() + negative.estimatedSize());
+		local.invalidateAll();
+		negative.invalidateAll();
+		invalidationBus.publish(name, null);
+	}
+
+	/**
+	 * Drops a key from L1 only, after another node changed it.
+	 */
+	void evictLocal(String localKey) {
+		beginWrite();
+		loads.remove(localKey);
+		boolean removed = local.asMap().remove(localKey) != null;
+		if (negative.asMap().remove(localKey) != null || removed) {
+			metrics.l1RemoteEvicted(1);
+		}
+	}
+
+	/**
+	 * Drops all of L1 only, after another node cleared the cache.
+	 */
+	void clearLocal() {
+		beginWrite();
+		loads.clear();
+		metrics.l1RemoteEvicted(local.estimatedSize() + negative.estimatedSize());
+		local.invalidateAll();
+		negative.invalidateAll();
+	}
+
+	/**
+	 * Reads L2, taking values it cannot decode as a miss: during a rolling
+	 * deploy, nodes still on the previous version find entries in a format
+	 * they do not know yet, see {@link ProductRedisSerializer}.
+	 */
+	private ValueWrapper remoteGet(Object key) {
+		try {
+			return remote.get(key);
+		} catch (SerializationException e) {
+			logger.debug("Could not decode {} in cache {}, reloading it: {}", key, name, e.getMessage());
+			return null;
+		}
+	}
+
+	private Object localGet(String localKey) {
+		Object value = local.getIfPresent(localKey);
+		return value != null ? value : negative.getIfPresent(localKey);
+	}
+
+	private void localPut(String localKey, Object storeValue) {
+		if (storeValue == NullValue.INSTANCE) {
+			local.invalidate(localKey);
+			negative.put(localKey, storeValue);
+		} else {
+			negative.invalidate(localKey);
+			local.put(localKey, storeValue);
+		}
+	}
+
+	private void beginWrite() {
+		epochLock.writeLock().lock();
+		try {
+			writeEpoch.incrementAndGet();
+		} finally {
+			epochLock.writeLock().unlock();
+		}
+	}
+
+	private static String localKey(Object key) {
+		return String.valueOf(key);
+	}
+
+	// Compared by identity: an L1 value replaced since is a different object, even if equal
+	record VersionedValue(String version, Object value) {
+	}
+
+	// A read started by get(Object, String, Callable), shared only with callers at its version
+	private static final class VersionedLoad extends CompletableFuture<Object> {
+
+		private final String version;
+
+		VersionedLoad(String version) {
+			this.version = version;
+		}
+	}
+}
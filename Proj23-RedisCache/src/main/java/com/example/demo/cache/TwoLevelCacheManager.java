@@ -0,0 +1,143 @@
+package com.example.demo.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * {@link CacheManager} creating a {@link TwoLevelCache} per cache name. Every
+ * L1 is bounded by {@code l1MaximumSize} entries and expires entries
+ * {@code l1Ttl} after they were written, which also caps how long a node can
+ * serve a stale value if an invalidation message is lost. Keys cached as
+ * missing go to a separate L1 bounded by {@code negativeMaximumSize} with
+ * {@code negativeTtl}.
+ *
+ * With a {@code refreshAheadRatio} between 0 and 1, an entry read after that
+ * share of {@code l1Ttl} is reloaded on {@code refreshExecutor} while the
+ * current value keeps being served.
+ */
+public class TwoLevelCacheManager implements CacheManager, CacheInvalidationListener {
+
+	private final long l1MaximumSize;
+
+	private final Duration l1Ttl;
+
+	private final long negativeMaximumSize;
+
+	private final Duration negativeTtl;
+
+	private final Function<String, Cache> remoteCaches;
+
+	private final CacheInvalidationBus invalidationBus;
+
+	private final CacheLoadLock loadLock;
+
+	private final Duration refreshAfter;
+
+	private final Executor refreshExecutor;
+
+	private final MeterRegistry meterRegistry;
+
+	private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+	/**
+	 * @param remoteCaches returns the L2 cache for a name, or {@code null} to
+	 *                     run with L1 only
+	 */
+	public TwoLevelCacheManager(long l1MaximumSize, Duration l1Ttl, Function<String, Cache> remoteCaches,
+			CacheInvalidationBus invalidationBus, MeterRegistry meterRegistry) {
+		this(l1MaximumSize, l1Ttl, l1MaximumSize, l1Ttl, remoteCaches, invalidationBus, CacheLoadLock.none(), 0, null,
+				meterRegistry);
+	}
+
+	/**
+	 * @param negativeMaximumSize most keys cached as missing, per cache
+	 * @param negativeTtl       how long a key stays cached as missing in L1
+	 * @param loadLock          keeps other nodes from loading a key this node is
+	 *                          loading into L2
+	 * @param refreshAheadRatio share of {@code l1Ttl} after which a read
+	 *                          refreshes the entry, or 0 for no refresh-ahead
+	 */
+	public TwoLevelCacheManager(long l1MaximumSize, Duration l1Ttl, long negativeMaximumSize, Duration negativeTtl,
+			Function<String, Cache> remoteCaches, CacheInvalidationBus invalidationBus, CacheLoadLock loadLock,
+			double refreshAheadRatio,
+			Executor refreshExecutor, MeterRegistry meterRegistry) {
+		if (refreshAheadRatio < 0 || refreshAheadRatio >= 1) {
+			throw new IllegalArgumentException("refreshAheadRatio must be at least 0 and below 1: " + refreshAheadRatio);
+		}
+		this.l1MaximumSize = l1MaximumSize;
+		this.l1Ttl = l1Ttl;
+		this.negativeMaximumSize = negativeMaximumSize;
+		this.negativeTtl = negativeTtl;
+		this.remoteCaches = remoteCaches;
+		this.invalidationBus = invalidationBus;
+		this.loadLock = loadLock;
+		this.refreshAfter = refreshAheadRatio == 0 ? null
+				: Duration.ofNanos((long) (l1Ttl.toNanos() * refreshAheadRatio));
+		this.refreshExecutor = refreshExecutor;
+		this.meterRegistry = meterRegistry;
+		invalidationBus.subscribe(this);
+	}
+
+	@Override
+	public Cache getCache(String name) {
+		return caches.computeIfAbsent(name, this::createCache);
+	}
+
+	@Override
+	public Collection<String> getCacheNames() {
+		return Collections.unmodifiableSet(caches.keySet());
+	}
+
+	@Override
+	public void onInvalidation(String cacheName, String key) {
+		TwoLevelCache cache = caches.get(cacheName);
+		if (cache == null) {
+			return;
+		}
+		if (key == null) {
+			cache.clearLocal();
+		} else {
+			cache.evictLocal(key);
+		}
+	}
+
+	private TwoLevelCache createCache(String name) {
+		CacheLayerMetrics metrics = new CacheLayerMetrics(meterRegistry, name);
+		com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+				.maximumSize(l1MaximumSize)
+				.expireAfterWrite(l1Ttl)
+				.evictionListener((key, value, cause) -> metrics.l1Evicted(cause))
+				.build();
+		Gauge.builder("product.cache.size", local, com.github.benmanes.caffeine.cache.Cache::estimatedSize)
+				.tag("cache", name).tag("layer", CacheLayerMetrics.L1)
+				.register(meterRegistry);
+		com.github.benmanes.caffeine.cache.Cache<String, Object> negative = Caffeine.newBuilder()
+				.maximumSize(negativeMaximumSize)
+				.expireAfterWrite(negativeTtl)
+				.build();
+		Gauge.builder("product.cache.negative.size", negative, com.github.benmanes.caffeine.cache.Cache::estimatedSize)
+				.description("Keys cached as missing")
+				.tag("cache", name).tag("layer", CacheLayerMetrics.L1)
+				.register(meterRegistry);
+		com.github.benmanes.caffeine.cache.Cache<String, TwoLevelCache.VersionedValue> versions = Caffeine.newBuilder()
+				.maximumSize(l1MaximumSize)
+				.expireAfterWrite(l1Ttl)
+				.build();
+		Cache remote = remoteCaches == null ? null : remoteCaches.apply(name);
+		return new TwoLevelCache(name, local, negative, versions, remote, invalidationBus, loadLock, refreshAfter,
+				refreshExecutor, metrics);
+	}
+}
@@ -0,0 +1,153 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.BatchStrategies;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.example.demo.cache.BulkRedisCacheManager;
+import com.example.demo.cache.CacheInvalidationBus;
+import com.example.demo.cache.CacheLoadLock;
+import com.example.demo.cache.ProductRedisSerializer;
+import com.example.demo.cache.RedisCacheInvalidationBus;
+import com.example.demo.cache.RedisCacheLoadLock;
+import com.example.demo.cache.TwoLevelCacheManager;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Product caches: a bounded Caffeine L1 in every node in front of a shared
+ * Redis L2. With {@code product.cache.l2.enabled=false} the nodes run with
+ * L1 only and do not connect to Redis. Keys cached as missing expire after
+ * {@code product.cache.negative.ttl-seconds} on both layers. Redis values
+ * are written with {@link ProductRedisSerializer} unless
+ * {@code product.cache.l2.serializer} says otherwise.
+ *
+ * Concurrent misses on a key run one load per node, and with an L2 one load
+ * across all nodes. {@code product.cache.refresh-ahead.ratio} turns on
+ * background reloads of entries that are read late in their L1 lifetime.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Value("${product.cache.l1.maximum-size:10000}")
+    private long l1MaximumSize;
+
+    @Value("${product.cache.l1.ttl-seconds:60}")
+    private long l1TtlSeconds;
+
+    @Value("${product.cache.negative.maximum-size:10000}")
+    private long negativeMaximumSize;
+
+    @Value("${product.cache.negative.ttl-seconds:10}")
+    private long negativeTtlSeconds;
+
+    @Value("${product.cache.l2.enabled:false}")
+    private boolean l2Enabled;
+
+    @Value("${product.cache.l2.ttl-seconds:600}")
+    private long l2TtlSeconds;
+
+    // binary (ProductRedisSerializer), jdk or json
+    @Value("${product.cache.l2.serializer:binary}")
+    private String l2Serializer;
+
+    @Value("${product.cache.invalidation.channel:product-cache-invalidation}")
+    private String invalidationChannel;
+
+    @Value("${product.cache.load-lock.lease-ms:2000}")
+    private long loadLockLeaseMs;
+
+    @Value("${product.cache.refresh-ahead.ratio:0}")
+    private double refreshAheadRatio;
+
+    @Value("${product.cache.refresh-ahead.threads:2}")
+    private int refreshThreads;
+
+    @Value("${product.cache.refresh-ahead.queue-size:1000}")
+    private int refreshQueueSize;
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(ObjectProvider<RedisConnectionFactory> connectionFactory,
+            ObjectProvider<CacheInvalidationBus> invalidationBus, ObjectProvider<CacheLoadLock> loadLock,
+            ExecutorService cacheRefreshExecutor, MeterRegistry meterRegistry) {
+        RedisCacheManager redisCacheManager = null;
+        if (l2Enabled) {
+            RedisConnectionFactory redis = connectionFactory.getObject();
+            redisCacheManager = new BulkRedisCacheManager(
+                    // SCAN instead of KEYS when a cache is cleared
+                    RedisCacheWriter.nonLockingRedisCacheWriter(redis, BatchStrategies.scan(1000)),
+                    RedisCacheConfiguration.defaultCacheConfig().entryTtl((key, value) -> value == null
+                            ? Duration.ofSeconds(negativeTtlSeconds)
+                            : Duration.ofSeconds(l2TtlSeconds))
+                            .serializeValuesWith(SerializationPair.fromSerializer(valueSerializer())),
+                    redis);
+            redisCacheManager.afterPropertiesSet();
+        }
+        return new TwoLevelCacheManager(l1MaximumSize, Duration.ofSeconds(l1TtlSeconds),
+                negativeMaximumSize, Duration.ofSeconds(negativeTtlSeconds),
+                redisCacheManager == null ? null : redisCacheManager::getCache,
+                invalidationBus.getIfAvailable(CacheInvalidationBus::none),
+                loadLock.getIfAvailable(CacheLoadLock::none), refreshAheadRatio, cacheRefreshExecutor, meterRegistry);
+    }
+
+    private RedisSerializer<?> valueSerializer() {
+        return switch (l2Serializer) {
+            case "binary" -> new ProductRedisSerializer();
+            case "jdk" -> RedisSerializer.java();
+            case "json" -> RedisSerializer.json();
+            default -> throw new IllegalArgumentException(
+                    "product.cache.l2.serializer must be binary, jdk or json: " + l2Serializer);
+        };
+    }
+
+    // Refreshes beyond the queue are skipped, the entry is then loaded again when it expires
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService cacheRefreshExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(refreshThreads, refreshThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(refreshQueueSize), runnable -> {
+                    Thread thread = new Thread(runnable, "product-cache-refresh-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "product.cache.l2.enabled", havingValue = "true")
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "product.cache.l2.enabled", havingValue = "true")
+    public CacheInvalidationBus cacheInvalidationBus(StringRedisTemplate redisTemplate,
+            RedisMessageListenerContainer cacheInvalidationListenerContainer) {
+        return new RedisCacheInvalidationBus(redisTemplate, cacheInvalidationListenerContainer, invalidationChannel);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "product.cache.l2.enabled", havingValue = "true")
+    public CacheLoadLock cacheLoadLock(StringRedisTemplate redisTemplate) {
+        return new RedisCacheLoadLock(redisTemplate, Duration.ofMillis(loadLockLeaseMs));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.demo.config;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.example.demo.cache.ProductChanges;
+import com.example.demo.entity.Product;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Hibernate second-level cache: {@link Product} entities and the results of
+ * cacheable {@code IProductDAO} queries, kept in bounded Caffeine caches
+ * through JCache. Turned on with
+ * {@code spring.jpa.properties.hibernate.cache.use_second_level_cache=true}.
+ *
+ * The regions live in this node only: products saved or deleted on other
+ * nodes are evicted from them by {@link HibernateCacheEviction}, and the TTL
+ * catches up with messages lost on the way, like it does for the Caffeine L1. The
+ * update timestamps region, which tells Hibernate which cached query results
+ * are out of date, is not bounded; evicting from it would serve stale
+ * results.
+ *
+ * Every context gets its own JCache manager, and regions this class does not
+ * create fail the startup instead of being created unbounded. Region
+ * statistics are served by {@link HibernateCacheEndpoint}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.jpa.properties.hibernate.cache.use_second_level_cache", havingValue = "true")
+public class HibernateCacheConfig {
+
+    public static final String QUERY_RESULTS_REGION = "default-query-results-region";
+
+    public static final String UPDATE_TIMESTAMPS_REGION = "default-update-timestamps-region";
+
+    @Value("${product.hibernate-cache.entity.maximum-size:10000}")
+    private long entityMaximumSize;
+
+    @Value("${product.hibernate-cache.entity.ttl-seconds:60}")
+    private long entityTtlSeconds;
+
+    @Value("${product.hibernate-cache.query.maximum-size:1000}")
+    private long queryMaximumSize;
+
+    @Value("${product.hibernate-cache.query.ttl-seconds:60}")
+    private long queryTtlSeconds;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+        cacheManager.createCache(Product.CACHE_REGION,
+                bounded(entityMaximumSize, Duration.ofSeconds(entityTtlSeconds)));
+        cacheManager.createCache(QUERY_RESULTS_REGION,
+                bounded(queryMaximumSize, Duration.ofSeconds(queryTtlSeconds)));
+        cacheManager.createCache(UPDATE_TIMESTAMPS_REGION, new CaffeineConfiguration<>().setStoreByValue(false));
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+        };
+    }
+
+    @Bean
+    public HibernateCacheEviction hibernateCacheEviction(EntityManagerFactory entityManagerFactory,
+            ProductChanges productChanges) {
+        return new HibernateCacheEviction(entityManagerFactory, productChanges);
+    }
+
+    @Bean
+    public HibernateCacheEndpoint hibernateCacheEndpoint(EntityManagerFactory entityManagerFactory) {
+        return new HibernateCacheEndpoint(entityManagerFactory);
+    }
+
+    // Hibernate caches immutable copies of the state already, so the cache keeps them by reference
+    private static CaffeineConfiguration<Object, Object> bounded(long maximumSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setStoreByValue(false);
+        return configuration;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.demo.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * {@code /actuator/hibernatecache}: hits, misses and puts of each region of
+ * the Hibernate second-level cache, and of the query cache. The counts need
+ * {@code spring.jpa.properties.hibernate.generate_statistics=true}.
+ */
+@Endpoint(id = "hibernatecache")
+public class HibernateCacheEndpoint {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public HibernateCacheEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @ReadOperation
+    public Map<String, Object> regions() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        Map<String, Object> regions = new LinkedHashMap<>();
+        // Entity and query result regions
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                regions.put(region, describe(regionStatistics));
+            }
+        }
+        report.put("regions", regions);
+        report.put("queries", Map.of(
+                "hits", statistics.getQueryCacheHitCount(),
+                "misses", statistics.getQueryCacheMissCount(),
+                "puts", statistics.getQueryCachePutCount()));
+        return report;
+    }
+
+    private static Map<String, Object> describe(CacheRegionStatistics region) {
+        Map<String, Object> described = new LinkedHashMap<>();
+        long hits = region.getHitCount();
+        long misses = region.getMissCount();
+        described.put("hits", hits);
+        described.put("misses", misses);
+        described.put("puts", region.getPutCount());
+        described.put("hitRatio", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        // Not every cache provider can count its entries
+        if (region.getElementCountInMemory() >= 0) {
+            described.put("elementCountInMemory", region.getElementCountInMemory());
+        }
+        return described;
+    }
+}
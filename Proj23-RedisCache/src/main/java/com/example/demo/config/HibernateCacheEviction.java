@@ -0,0 +1,43 @@
+package com.example.demo.config;
+
+import java.util.Collection;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+
+import com.example.demo.cache.ProductChanges;
+import com.example.demo.entity.Product;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Drops what the Hibernate second-level cache of this node keeps of products
+ * saved or deleted on other nodes: their entities, and every cached query
+ * result, since any of them may list the product. Hibernate only sees the
+ * writes of its own node, so without this the regions would serve other
+ * nodes' old rows until their TTL runs out.
+ */
+public class HibernateCacheEviction implements ProductChanges.Listener {
+
+    private final Cache cache;
+
+    public HibernateCacheEviction(EntityManagerFactory entityManagerFactory, ProductChanges productChanges) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        productChanges.subscribe(this);
+    }
+
+    @Override
+    public void onSaved(Collection<Integer> pids) {
+        evict(pids);
+    }
+
+    @Override
+    public void onDeleted(Collection<Integer> pids) {
+        evict(pids);
+    }
+
+    private void evict(Collection<Integer> pids) {
+        pids.forEach(pid -> cache.evictEntityData(Product.class, pid));
+        cache.evictDefaultQueryRegion();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.example.demo.cache.LocalProductVersions;
+import com.example.demo.cache.ProductVersions;
+import com.example.demo.cache.RedisProductVersions;
+
+/**
+ * ETag versions of products: in Redis next to the L2 cache, shared by all
+ * nodes, when the L2 is on, otherwise in this node's memory.
+ */
+@Configuration
+public class ProductVersionConfig {
+
+    @Value("${product.cache.l2.enabled:false}")
+    private boolean redisEnabled;
+
+    @Value("${product.versions.ttl-seconds:86400}")
+    private long ttlSeconds;
+
+    @Bean
+    public ProductVersions productVersions(ObjectProvider<StringRedisTemplate> redisTemplate) {
+        return redisEnabled ? new RedisProductVersions(redisTemplate.getObject(), Duration.ofSeconds(ttlSeconds)) : new LocalProductVersions();
+    }
+}
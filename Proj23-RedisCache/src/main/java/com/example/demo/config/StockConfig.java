@@ -0,0 +1,27 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.example.demo.stock.LocalStockStore;
+import com.example.demo.stock.RedisStockStore;
+import com.example.demo.stock.StockStore;
+
+/**
+ * Stock reservations: counted in Redis, shared by all nodes, when the Redis
+ * L2 cache is on, otherwise in this node's memory.
+ */
+@Configuration
+public class StockConfig {
+
+    @Value("${product.cache.l2.enabled:false}")
+    private boolean redisEnabled;
+
+    @Bean
+    public StockStore stockStore(ObjectProvider<StringRedisTemplate> redisTemplate) {
+        return redisEnabled ? new RedisStockStore(redisTemplate.getObject()) : new LocalStockStore();
+    }
+}
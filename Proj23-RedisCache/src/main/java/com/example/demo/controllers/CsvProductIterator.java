@@ -0,0 +1,108 @@
+package com.example.demo.controllers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.example.demo.entity.Product;
+
+/**
+ * Reads products from CSV lines of {@code pname,price,qty} one at a time, so
+ * a feed is never held in memory as a whole. A first line starting with
+ * {@code pname} is taken as the header, blank lines are skipped, and names
+ * containing commas can be quoted ({@code "a, b"}, with {@code ""} for a quote).
+ */
+class CsvProductIterator implements Iterator<Product> {
+
+	private final BufferedReader reader;
+
+	private int lineNumber;
+
+	private String nextLine;
+
+	CsvProductIterator(Reader reader) {
+		this.reader = new BufferedReader(reader);
+		this.nextLine = readDataLine();
+		if (nextLine != null && nextLine.startsWith("pname")) {
+			nextLine = readDataLine();
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return nextLine != null;
+	}
+
+	@Override
+	public Product next() {
+		if (nextLine == null) {
+			throw new NoSuchElementException();
+		}
+		Product product = parse(nextLine);
+		nextLine = readDataLine();
+		return product;
+	}
+
+	private Product parse(String line) {
+		List<String> fields = split(line);
+		if (fields.size() != 3) {
+			throw new IllegalArgumentException(
+					"Line " + lineNumber + ": expected pname,price,qty but got " + fields.size() + " field(s)");
+		}
+		try {
+			Product product = new Product();
+			product.setPname(fields.get(0));
+			product.setPrice(Double.valueOf(fields.get(1).trim()));
+			product.setQty(Double.valueOf(fields.get(2).trim()));
+			return product;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+		}
+	}
+
+	private static List<String> split(String line) {
+		List<String> fields = new ArrayList<>(3);
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	private String readDataLine() {
+		try {
+			String line;
+			do {
+				line = reader.readLine();
+				lineNumber++;
+			} while (line != null && line.isBlank());
+			return line;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
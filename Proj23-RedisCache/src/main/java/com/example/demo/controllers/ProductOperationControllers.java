@@ -1,11 +1,19 @@
 package com.example.demo.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.OptionalLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,10 +21,24 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.demo.cache.ProductVersions;
 import com.example.demo.entity.Product;
+import com.example.demo.index.ProductIdIndex;
 import com.example.demo.service.IProductMgmtService;
+import com.example.demo.service.InsufficientStockException;
+import com.example.demo.service.ProductImportException;
+import com.example.demo.warmup.ProductAccessStats;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 @RestController
 @RequestMapping("/product-api")
@@ -24,9 +46,36 @@ public class ProductOperationControllers {
 	
     private static final Logger logger = LoggerFactory.getLogger(ProductOperationControllers.class);
 
+    // Header carrying the afterPid of the next page, absent on the last page
+    static final String NEXT_AFTER_PID_HEADER = "X-Next-After-Pid";
+
+    // Rows written between two flushes of the NDJSON stream
+    private static final int STREAM_FLUSH_ROWS = 1000;
+
     @Autowired
     private IProductMgmtService productMgmtService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductAccessStats productAccessStats;
+
+    @Autowired
+    private ProductVersions productVersions;
+
+    @Autowired
+    private ProductIdIndex productIdIndex;
+
+    @Value("${product.page.max-limit:1000}")
+    private int maxPageLimit;
+
+    @Value("${product.multiget.max-ids:100}")
+    private int maxMultiGetIds;
+
+    @Value("${product.search.max-limit:100}")
+    private int maxSearchLimit;
+
     @PostMapping("/save")
     public ResponseEntity<Product> saveProduct(@RequestBody Product product) {
         logger.info("Attempting to save product: {}", product);
@@ -35,27 +84,207 @@ public class ProductOperationControllers {
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    /**
+     * Imports a JSON array of products. The array is read one product at a time
+     * and saved in chunks; IDs in the feed are ignored.
+     */
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> importProducts(InputStream body) throws IOException {
+        try (MappingIterator<Product> products = objectMapper.readerFor(Product.class).readValues(body)) {
+            return importFeed(products);
+        }
+    }
+
+    /**
+     * Imports products from CSV lines of {@code pname,price,qty}, see {@link CsvProductIterator}.
+     */
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    public ResponseEntity<String> importProductsCsv(Reader body) {
+        return importFeed(new CsvProductIterator(body));
+    }
+
+    private ResponseEntity<String> importFeed(Iterator<Product> products) {
+        try {
+            int imported = productMgmtService.importProducts(products);
+            return new ResponseEntity<>(String.format("%d products imported", imported), HttpStatus.CREATED);
+        } catch (ProductImportException e) {
+            // Chunks before the failure are committed, the message says how many products made it
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    /**
+     * All products. The ETag follows the catalog version, so a client sending
+     * it back in {@code If-None-Match} gets 304 until some product changes.
+     */
     @GetMapping("/getall")
-    public ResponseEntity<List<Product>> getAllProduct() {
+    public ResponseEntity<List<Product>> getAllProduct(WebRequest request) {
+        String version = productVersions.catalog();
+        String etag = etag(version);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
         logger.info("Fetching all products.");
-        List<Product> products = productMgmtService.showAllProducts();
+        // With versions shared between nodes, this node's copy may still be older than the version
+        List<Product> products = productVersions.shared() ? productMgmtService.showAllProducts(version)
+                : productMgmtService.showAllProducts();
         logger.info("Successfully fetched all products. Total: {}", products.size());
-        return new ResponseEntity<>(products, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(etag).body(products);
+    }
+
+    /**
+     * One page of products ordered by ID: {@code /getall?afterPid=0&limit=100},
+     * then {@code afterPid} set to the {@value #NEXT_AFTER_PID_HEADER} header of
+     * the previous response until that header is missing.
+     */
+    @GetMapping(value = "/getall", params = "limit")
+    public ResponseEntity<List<Product>> getProductPage(@RequestParam(defaultValue = "0") int afterPid,
+            @RequestParam int limit, WebRequest request) {
+        if (limit < 1 || limit > maxPageLimit) {
+            logger.warn("Rejecting page limit {}, allowed 1 to {}", limit, maxPageLimit);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        String version = productVersions.catalog();
+        String etag = etag(version);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<Product> products = productVersions.shared() ? productMgmtService.showProducts(afterPid, limit, version)
+                : productMgmtService.showProducts(afterPid, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag);
+        if (products.size() == limit) {
+            response.header(NEXT_AFTER_PID_HEADER, String.valueOf(products.get(products.size() - 1).getPid()));
+        }
+        return response.body(products);
+    }
+
+    /**
+     * All products as newline-delimited JSON, requested with
+     * {@code Accept: application/x-ndjson}. Rows are written while they are read
+     * from the database, so neither side holds the whole catalog in memory.
+     */
+    @GetMapping(value = "/getall", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProducts(WebRequest request) {
+        String etag = etag(productVersions.catalog() + "-ndjson");
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        logger.info("Streaming all products.");
+        ObjectWriter writer = objectMapper.writerFor(Product.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = writer.createGenerator(out)) {
+                generator.setRootValueSeparator(new SerializedString("\n"));
+                int[] rows = { 0 };
+                productMgmtService.streamAllProducts(product -> {
+                    try {
+                        writer.writeValue(generator, product);
+                        // First row goes out at once, the rest in chunks
+                        if (++rows[0] % STREAM_FLUSH_ROWS == 1) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (rows[0] > 0) {
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).eTag(etag).body(body);
     }
 
+    /**
+     * One product. The ETag follows the product's version: 304 for a matching
+     * {@code If-None-Match} until the product is saved, deleted or its stock
+     * is written, without reading the product.
+     */
     @GetMapping("/get/{pid}")
-    public ResponseEntity<Product> getProductById(@PathVariable Integer pid) {
+    public ResponseEntity<Product> getProductById(@PathVariable Integer pid, WebRequest request) {
+        // Before the version: IDs the filter rules out cost no Redis round trip
+        if (!productIdIndex.mightContain(pid)) {
+            productIdIndex.recordRejection();
+            logger.warn("Product with ID: {} not found", pid);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        String version = productVersions.product(pid);
+        String etag = etag(version);
+        if (request.checkNotModified(etag)) {
+            productAccessStats.record(pid);
+            return null;
+        }
         logger.info("Fetching product with ID: {}", pid);
-        Product product = productMgmtService.findProductById(pid);
+        Product product = productVersions.shared() ? productMgmtService.findProductById(pid, version)
+                : productMgmtService.findProductById(pid);
         if (product != null) {
+            productAccessStats.record(pid);
             logger.info("Product found: {}", product);
-            return new ResponseEntity<>(product, HttpStatus.OK);
+            return ResponseEntity.ok().eTag(etag).body(product);
         } else {
             logger.warn("Product with ID: {} not found", pid);
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
     }
 
+    /**
+     * Several products at once: {@code /get?ids=3,1,2}. Products come back in
+     * the order of {@code ids}; IDs that do not exist are left out.
+     */
+    @GetMapping(value = "/get", params = "ids")
+    public ResponseEntity<List<Product>> getProductsByIds(@RequestParam List<Integer> ids) {
+        if (ids.isEmpty() || ids.size() > maxMultiGetIds) {
+            logger.warn("Rejecting {} IDs, allowed 1 to {}", ids.size(), maxMultiGetIds);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        List<Product> products = productMgmtService.findProductsByIds(ids);
+        products.forEach(product -> productAccessStats.record(product.getPid()));
+        return new ResponseEntity<>(products, HttpStatus.OK);
+    }
+
+    /**
+     * Products by name prefix and price range, cheapest first:
+     * {@code /search?prefix=gal&minPrice=100&maxPrice=500&limit=20}. Every
+     * parameter is optional.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Product>> searchProducts(@RequestParam(required = false) String prefix,
+            @RequestParam(required = false) Double minPrice, @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "20") int limit) {
+        if (limit < 1 || limit > maxSearchLimit
+                || (minPrice != null && maxPrice != null && minPrice > maxPrice)) {
+            logger.warn("Rejecting search with limit {} and prices {} to {}", limit, minPrice, maxPrice);
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(productMgmtService.searchProducts(prefix, minPrice, maxPrice, limit),
+                HttpStatus.OK);
+    }
+
+    /**
+     * Takes {@code n} units of stock: 200 with the units left, 409 if fewer
+     * than {@code n} are left, 404 for an unknown product. The product's
+     * {@code qty} follows within {@code product.stock.flush-interval-ms}.
+     */
+    @PostMapping("/{pid}/reserve")
+    public ResponseEntity<Long> reserveStock(@PathVariable Integer pid, @RequestParam(defaultValue = "1") int n) {
+        if (n < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        try {
+            OptionalLong left = productMgmtService.reserveStock(pid, n);
+            return left.isPresent() ? new ResponseEntity<>(left.getAsLong(), HttpStatus.OK)
+                    : new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        } catch (InsufficientStockException e) {
+            logger.info(e.getMessage());
+            return new ResponseEntity<>(HttpStatus.CONFLICT);
+        }
+    }
+
+    // Strong ETag: the same version always stands for the same bytes of one representation
+    private static String etag(String version) {
+        return "\"" + version + "\"";
+    }
+
     @DeleteMapping("/delete/{pid}")
     public ResponseEntity<String> deleteById(@PathVariable Integer pid) {
         logger.info("Attempting to delete product with ID: {}", pid);
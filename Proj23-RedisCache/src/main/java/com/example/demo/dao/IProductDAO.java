@@ -1,9 +1,82 @@
 package com.example.demo.dao;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.demo.entity.Product;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
 public interface IProductDAO extends JpaRepository<Product,Integer> {
 
+	// Whole catalog, results kept in the Hibernate query cache
+	@Override
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	List<Product> findAll();
+
+	// Keyset pagination: walks the primary key index from afterPid instead of skipping OFFSET rows.
+	// Pages are kept in the Hibernate query cache. Written as JPQL: a derived query is built as a criteria
+	// query on every call and translated again, which would cost more than the cache saves
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	@Query("select p from Product p where p.pid > :afterPid order by p.pid")
+	List<Product> findByPidGreaterThanOrderByPidAsc(Integer afterPid, Limit limit);
+
+	// Rows are fetched from the database in chunks as the stream is consumed; needs an open transaction.
+	// Not put in the second-level cache, a full scan would only push out the products being read
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+		@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE")
+	})
+	@Query("select p from Product p order by p.pid")
+	Stream<Product> streamAllOrderByPid();
+
+	// All IDs, for the product ID filter; needs an open transaction
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query("select p.pid from Product p")
+	Stream<Integer> streamAllPids();
+
+	// ID, name and price of all products, for the search index; needs an open transaction
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query("select p.pid, p.pname, p.price from Product p")
+	Stream<Object[]> streamSearchFields();
+
+	// All products by ID, for the catalog snapshot; needs an open transaction
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+		@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+	})
+	@Query("select p.pid, p.pname, p.price, p.qty from Product p order by p.pid")
+	Stream<Object[]> streamSnapshotFields();
+
+	// Stock only, for loading the stock store; never from the query cache, the stock store must start from the table
+	@Query("select coalesce(p.qty, 0) from Product p where p.pid = :pid")
+	Optional<Double> findQtyByPid(Integer pid);
+
+	// The row as it is before an update, locked until the update commits so that no stock flush writes in between
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("select p from Product p where p.pid = :pid")
+	Optional<Product> lockById(Integer pid);
+
+	// Search while the in-memory search index is not loaded yet, same matches and order. The prefix is a
+	// LIKE pattern: % and _ must be escaped with \; null bounds match any price, including none
+	@Query("select p from Product p where lower(p.pname) like concat(lower(:prefix), '%') escape '\\'"
+			+ " and (:minPrice is null or p.price >= :minPrice) and (:maxPrice is null or p.price <= :maxPrice)"
+			+ " order by p.price nulls last, p.pid")
+	List<Product> search(String prefix, Double minPrice, Double maxPrice, Limit limit);
 }
@@ -2,22 +2,36 @@ package com.example.demo.entity;
 
 import java.io.Serializable;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
 @Table(name = "tbl_mst_cache_product")
+// Hibernate second-level cache, see HibernateCacheConfig
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Product.CACHE_REGION)
 public class Product implements Serializable{
 
 
 	private static final long serialVersionUID = 2082293264572037914L;
+
+	// Region of the Hibernate second-level cache
+	public static final String CACHE_REGION = "product";
 	
+	// Pooled sequence instead of IDENTITY: IDs are known before the insert, so inserts can be batched,
+	// and one sequence call covers 50 rows. Must match the INCREMENT BY of product_seq.
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+	@SequenceGenerator(name = "product_seq", sequenceName = "product_seq", initialValue = 1001, allocationSize = 50)
 	private Integer pid;
 	
 	@Column(name = "pname",length = 30)
@@ -0,0 +1,105 @@
+package com.example.demo.index;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over {@code int} keys. {@link #mightContain} never answers
+ * {@code false} for a key that was {@link #put}, and answers {@code true} for
+ * a key that was not with about the false-positive rate the filter was sized
+ * for, as long as no more than {@code expectedInsertions} keys are put.
+ *
+ * Safe for concurrent use: bits are set with a compare-and-set on the word
+ * holding them. Keys cannot be removed; rebuild the filter instead.
+ */
+public class BloomFilter {
+
+	private final AtomicLongArray words;
+
+	private final long bitSize;
+
+	private final int hashCount;
+
+	private final AtomicLong bitsSet = new AtomicLong();
+
+	/**
+	 * @param expectedInsertions number of keys the filter is sized for
+	 * @param falsePositiveRate  wanted false-positive rate at that size, for
+	 *                           example 0.01
+	 */
+	public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+		if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+			throw new IllegalArgumentException(
+					"Invalid bloom filter size " + expectedInsertions + " / rate " + falsePositiveRate);
+		}
+		// m = -n ln(p) / ln(2)^2 bits and k = m/n ln(2) hash functions
+		long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+		this.bitSize = words.length() * 64L;
+		this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+	}
+
+	public void put(int key) {
+		long hash = mix(key);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			setBit(index(h1 + i * h2));
+		}
+	}
+
+	public boolean mightContain(int key) {
+		long hash = mix(key);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 1; i <= hashCount; i++) {
+			long bit = index(h1 + i * h2);
+			if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the false-positive rate for the bits set so far, {@code (set bits
+	 *         / bits)^hash functions}
+	 */
+	public double expectedFalsePositiveRate() {
+		return Math.pow((double) bitsSet.get() / bitSize, hashCount);
+	}
+
+	public long bitSize() {
+		return bitSize;
+	}
+
+	public int hashCount() {
+		return hashCount;
+	}
+
+	private long index(int combinedHash) {
+		// Kirsch-Mitzenmacher double hashing, flipped to stay positive
+		return (combinedHash < 0 ? ~combinedHash : combinedHash) % bitSize;
+	}
+
+	private void setBit(long bit) {
+		int word = (int) (bit >>> 6);
+		long mask = 1L << bit;
+		long current;
+		do {
+			current = words.get(word);
+			if ((current & mask) != 0) {
+				return;
+			}
+		} while (!words.compareAndSet(word, current, current | mask));
+		bitsSet.incrementAndGet();
+	}
+
+	// SplitMix64 finalizer: spreads consecutive IDs over the whole 64 bits
+	private static long mix(int key) {
+		long z = key * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
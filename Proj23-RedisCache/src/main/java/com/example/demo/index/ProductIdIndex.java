@@ -0,0 +1,248 @@
+package com.example.demo.index;
+
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.cache.ProductChanges;
+import com.example.demo.dao.IProductDAO;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-memory {@link BloomFilter} of the product IDs in the table, so that
+ * lookups of IDs that certainly do not exist skip the caches and JPA.
+ *
+ * The filter is loaded from the table once the application is ready; until
+ * then, and with {@code product.id-filter.enabled=false}, every ID might
+ * exist. Saves add their ID, on this node at once and on the other nodes
+ * sharing the L2 when the {@link ProductChanges} message reaches them, which
+ * is until then the time a product saved on one node can be 404 on another.
+ * Deleted IDs stay in the filter, as false
+ * positives, until the filter is rebuilt in the background, which happens
+ * once deletes reach {@code product.id-filter.rebuild-deleted-ratio} of the
+ * entries or the entries outgrow the size the filter was built for, and
+ * every {@code product.id-filter.rebuild-interval-ms}. Products written to
+ * the table without going through the service, or whose message a node
+ * missed, are only seen there after a rebuild, so that interval bounds how
+ * long they can be 404.
+ *
+ * Metrics: {@code product.id.filter.rejections} (lookups answered without the
+ * database), {@code product.id.filter.false.positives} (lookups the filter let
+ * through that found nothing), {@code product.id.filter.false.positive.rate}
+ * with {@code kind} expected (from the bits set) or observed, and
+ * {@code product.id.filter.memory} in bytes.
+ */
+// Named explicitly: the @Cacheable condition in ProductMgmtServiceImpl refers to it
+@Component("productIdIndex")
+public class ProductIdIndex implements ProductChanges.Listener {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductIdIndex.class);
+
+	private final IProductDAO productDAO;
+
+	private final TransactionTemplate readOnlyTransaction;
+
+	private final boolean enabled;
+
+	private final double falsePositiveRate;
+
+	private final long minCapacity;
+
+	private final double rebuildDeletedRatio;
+
+	private final long rebuildIntervalMs;
+
+	private final Counter rejections;
+
+	private final Counter falsePositives;
+
+	private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+	private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "product-id-index");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// null until the first build: everything might exist
+	private volatile BloomFilter filter;
+
+	// Set while a rebuild reads the table, so that saves made meanwhile reach the new filter too
+	private volatile BloomFilter building;
+
+	private volatile long capacity;
+
+	private final AtomicLong entries = new AtomicLong();
+
+	private final AtomicLong deleted = new AtomicLong();
+
+	public ProductIdIndex(IProductDAO productDAO, PlatformTransactionManager transactionManager,
+			ProductChanges productChanges, MeterRegistry meterRegistry,
+			@Value("${product.id-filter.enabled:true}") boolean enabled,
+			@Value("${product.id-filter.false-positive-rate:0.01}") double falsePositiveRate,
+			@Value("${product.id-filter.min-capacity:100000}") long minCapacity,
+			@Value("${product.id-filter.rebuild-deleted-ratio:0.1}") double rebuildDeletedRatio,
+			@Value("${product.id-filter.rebuild-interval-ms:600000}") long rebuildIntervalMs) {
+		this.productDAO = productDAO;
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.enabled = enabled;
+		this.falsePositiveRate = falsePositiveRate;
+		this.minCapacity = minCapacity;
+		this.rebuildDeletedRatio = rebuildDeletedRatio;
+		this.rebuildIntervalMs = rebuildIntervalMs;
+		this.rejections = Counter.builder("product.id.filter.rejections")
+				.description("Product lookups answered as missing without the database")
+				.register(meterRegistry);
+		this.falsePositives = Counter.builder("product.id.filter.false.positives")
+				.description("Product lookups let through by the filter that found nothing")
+				.register(meterRegistry);
+		Gauge.builder("product.id.filter.false.positive.rate", this,
+				index -> index.filter == null ? 0 : index.filter.expectedFalsePositiveRate())
+				.tag("kind", "expected")
+				.register(meterRegistry);
+		Gauge.builder("product.id.filter.false.positive.rate", this, ProductIdIndex::observedFalsePositiveRate)
+				.tag("kind", "observed")
+				.register(meterRegistry);
+		Gauge.builder("product.id.filter.memory", this, index -> index.filter == null ? 0 : index.filter.bitSize() / 8)
+				.baseUnit("bytes")
+				.register(meterRegistry);
+		Gauge.builder("product.id.filter.entries", entries, AtomicLong::get)
+				.register(meterRegistry);
+		productChanges.subscribe(this);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (enabled) {
+			rebuild();
+			if (rebuildIntervalMs > 0) {
+				rebuilder.scheduleWithFixedDelay(this::rebuild, rebuildIntervalMs, rebuildIntervalMs,
+						TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * @return {@code false} only if no product with this ID exists
+	 */
+	public boolean mightContain(int pid) {
+		BloomFilter current = filter;
+		return current == null || current.mightContain(pid);
+	}
+
+	public void add(int pid) {
+		// building before filter: a rebuild swaps filter first and clears building last
+		BloomFilter next = building;
+		BloomFilter current = filter;
+		if (next != null) {
+			next.put(pid);
+		}
+		// Updates and IDs already added by a message are not new entries
+		if (current == null || current.mightContain(pid)) {
+			return;
+		}
+		current.put(pid);
+		if (entries.incrementAndGet() > capacity) {
+			rebuildAsync();
+		}
+	}
+
+	public void remove(int pid) {
+		if (filter != null && deleted.incrementAndGet() > entries.get() * rebuildDeletedRatio) {
+			rebuildAsync();
+		}
+	}
+
+	// Saved on another node
+	@Override
+	public void onSaved(Collection<Integer> pids) {
+		pids.forEach(this::add);
+	}
+
+	@Override
+	public void onDeleted(Collection<Integer> pids) {
+		pids.forEach(this::remove);
+	}
+
+	// A lookup the filter answered
+	public void recordRejection() {
+		rejections.increment();
+	}
+
+	// A lookup the filter let through and the database did not find
+	public void recordFalsePositive() {
+		falsePositives.increment();
+	}
+
+	/**
+	 * Queues a rebuild on the background thread. Requests made while one is
+	 * already queued are collapsed into it.
+	 */
+	public void rebuildAsync() {
+		if (rebuildPending.compareAndSet(false, true)) {
+			rebuilder.execute(() -> {
+				rebuildPending.set(false);
+				rebuild();
+			});
+		}
+	}
+
+	/**
+	 * Builds a new filter from the table, sized for twice the current number
+	 * of products, and swaps it in. On failure the current filter is kept.
+	 */
+	public synchronized void rebuild() {
+		try {
+			long size = Math.max(minCapacity, productDAO.count() * 2);
+			BloomFilter next = new BloomFilter(size, falsePositiveRate);
+			building = next;
+			long[] count = { 0 };
+			readOnlyTransaction.executeWithoutResult(status -> {
+				try (Stream<Integer> pids = productDAO.streamAllPids()) {
+					pids.forEach(pid -> {
+						next.put(pid);
+						count[0]++;
+					});
+				}
+			});
+			capacity = size;
+			entries.set(count[0]);
+			deleted.set(0);
+			filter = next;
+			logger.info("Built product ID filter: {} IDs, {} KB, expected false-positive rate {}", count[0],
+					next.bitSize() / 8 / 1024, String.format("%.4f", next.expectedFalsePositiveRate()));
+		} catch (RuntimeException e) {
+			logger.warn("Could not build product ID filter, keeping the previous one: {}", e.getMessage());
+		} finally {
+			building = null;
+		}
+	}
+
+	private double observedFalsePositiveRate() {
+		double negatives = rejections.count() + falsePositives.count();
+		return negatives == 0 ? 0 : falsePositives.count() / negatives;
+	}
+
+	@PreDestroy
+	public void stop() {
+		rebuilder.shutdownNow();
+	}
+}
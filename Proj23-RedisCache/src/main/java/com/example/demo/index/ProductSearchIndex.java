@@ -0,0 +1,446 @@
+package com.example.demo.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.cache.ProductChanges;
+import com.example.demo.dao.IProductDAO;
+import com.example.demo.entity.Product;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * In-memory index of product names and prices for searches by name prefix
+ * and price range, without the database.
+ *
+ * The products are held twice in sorted arrays, once by lower-cased name and
+ * once by price, so that a prefix and a price range are each a binary search
+ * followed by a scan; a search scans whichever of the two ranges is shorter.
+ * Results are ordered by price, then ID, with products without a price last.
+ *
+ * Readers never lock: they work on an immutable snapshot that writers
+ * replace. Saves and deletes do not copy the arrays, they go to a small set
+ * of changes on top of them, and once {@code product.search.max-pending}
+ * changes have piled up the arrays are rebuilt with them in the background.
+ *
+ * The index is loaded from the table once the application is ready; until
+ * then {@link #isReady()} is {@code false}. Products saved or deleted on
+ * other nodes sharing the L2 are read from the table when their
+ * {@link ProductChanges} message arrives, some milliseconds after the write.
+ * The index is loaded again every {@code product.search.rebuild-interval-ms},
+ * which bounds how long it misses products written to the table without
+ * going through the service, or whose message this node did not get.
+ *
+ * Metrics: {@code product.search.index.entries} and
+ * {@code product.search.index.pending} (changes not merged into the arrays).
+ */
+@Component
+public class ProductSearchIndex implements ProductChanges.Listener {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+	// Products without a price sort after all others, see Entry
+	private static final Comparator<Entry> BY_PRICE = Comparator.comparingDouble(Entry::price)
+			.thenComparingInt(Entry::pid);
+
+	private static final Snapshot EMPTY = new Snapshot(Base.of(List.of()), Map.of(), Set.of(), false);
+
+	private final IProductDAO productDAO;
+
+	private final TransactionTemplate readOnlyTransaction;
+
+	private final boolean enabled;
+
+	private final int maxPending;
+
+	private final long rebuildIntervalMs;
+
+	private final AtomicBoolean mergePending = new AtomicBoolean();
+
+	// Merges, periodic rebuilds and other nodes' changes, in order
+	private final ScheduledExecutorService merger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "product-search-index");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private volatile Snapshot snapshot = EMPTY;
+
+	public ProductSearchIndex(IProductDAO productDAO, PlatformTransactionManager transactionManager,
+			ProductChanges productChanges, MeterRegistry meterRegistry,
+			@Value("${product.search.index-enabled:true}") boolean enabled,
+			@Value("${product.search.max-pending:4096}") int maxPending,
+			@Value("${product.search.rebuild-interval-ms:600000}") long rebuildIntervalMs) {
+		this.productDAO = productDAO;
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.enabled = enabled;
+		this.maxPending = maxPending;
+		this.rebuildIntervalMs = rebuildIntervalMs;
+		Gauge.builder("product.search.index.entries", this, index -> index.snapshot.size())
+				.register(meterRegistry);
+		Gauge.builder("product.search.index.pending", this, index -> index.snapshot.pending())
+				.register(meterRegistry);
+		productChanges.subscribe(this);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (enabled) {
+			rebuild();
+			if (rebuildIntervalMs > 0) {
+				merger.scheduleWithFixedDelay(this::rebuild, rebuildIntervalMs, rebuildIntervalMs,
+						TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	// false until the first load from the table has finished
+	public boolean isReady() {
+		return snapshot.ready;
+	}
+
+	/**
+	 * @param prefix   start of the name, any case; {@code null} or empty for
+	 *                 any name
+	 * @param minPrice lowest price, inclusive; {@code null} for no bound
+	 * @param maxPrice highest price, inclusive; {@code null} for no bound
+	 * @return up to {@code limit} product IDs, by price then ID
+	 */
+	public List<Integer> search(String prefix, Double minPrice, Double maxPrice, int limit) {
+		return snapshot.search(new Query(prefix, minPrice, maxPrice), limit);
+	}
+
+	public void put(Product product) {
+		putAll(List.of(product));
+	}
+
+	// One new snapshot for all of them, for bulk imports
+	public synchronized void putAll(Collection<Product> products) {
+		Map<Integer, Entry> upserts = new HashMap<>(snapshot.upserts);
+		Set<Integer> deletes = new HashSet<>(snapshot.deletes);
+		for (Product product : products) {
+			Entry entry = Entry.of(product);
+			upserts.put(entry.pid, entry);
+			deletes.remove(entry.pid);
+		}
+		replace(upserts, deletes);
+	}
+
+	public void remove(int pid) {
+		removeAll(List.of(pid));
+	}
+
+	public synchronized void removeAll(Collection<Integer> pids) {
+		Map<Integer, Entry> upserts = new HashMap<>(snapshot.upserts);
+		Set<Integer> deletes = new HashSet<>(snapshot.deletes);
+		for (Integer pid : pids) {
+			upserts.remove(pid);
+			deletes.add(pid);
+		}
+		replace(upserts, deletes);
+	}
+
+	// Saved on another node: read from the table, off the message listener's thread
+	@Override
+	public void onSaved(Collection<Integer> pids) {
+		if (enabled) {
+			merger.execute(() -> reload(pids));
+		}
+	}
+
+	// Queued behind the reloads, so that a reload that read the product before the delete cannot add it back
+	@Override
+	public void onDeleted(Collection<Integer> pids) {
+		if (enabled) {
+			merger.execute(() -> removeAll(pids));
+		}
+	}
+
+	private void reload(Collection<Integer> pids) {
+		try {
+			List<Product> found = new ArrayList<>(pids.size());
+			Set<Integer> missing = new HashSet<>(pids);
+			productDAO.findAllById(pids).forEach(product -> {
+				found.add(product);
+				missing.remove(product.getPid());
+			});
+			putAll(found);
+			if (!missing.isEmpty()) {
+				removeAll(missing);
+			}
+		} catch (RuntimeException e) {
+			logger.warn("Could not read {} products changed on another node, the next rebuild will: {}",
+					pids.size(), e.getMessage());
+		}
+	}
+
+	private void replace(Map<Integer, Entry> upserts, Set<Integer> deletes) {
+		Snapshot current = snapshot;
+		snapshot = new Snapshot(current.base, upserts, deletes, current.ready);
+		if (upserts.size() + deletes.size() > maxPending) {
+			mergeAsync();
+		}
+	}
+
+	private void mergeAsync() {
+		if (mergePending.compareAndSet(false, true)) {
+			merger.execute(() -> {
+				mergePending.set(false);
+				merge();
+			});
+		}
+	}
+
+	/**
+	 * Rebuilds the arrays with the pending changes. Runs without blocking
+	 * writers; changes made meanwhile stay pending on top of the new arrays.
+	 */
+	void merge() {
+		Snapshot merged = snapshot;
+		List<Entry> entries = new ArrayList<>(merged.size());
+		for (Entry entry : merged.base.byPrice) {
+			if (!merged.shadows(entry.pid)) {
+				entries.add(entry);
+			}
+		}
+		entries.addAll(merged.upserts.values());
+		install(Base.of(entries), merged, false);
+	}
+
+	/**
+	 * Loads the index from the table and swaps it in. On failure the current
+	 * index is kept.
+	 */
+	public void rebuild() {
+		try {
+			Snapshot started = snapshot;
+			List<Entry> entries = new ArrayList<>();
+			readOnlyTransaction.executeWithoutResult(status -> {
+				try (Stream<Object[]> rows = productDAO.streamSearchFields()) {
+					rows.forEach(row -> entries.add(Entry.of((Integer) row[0], (String) row[1], (Double) row[2])));
+				}
+			});
+			// Changes made while the table was read may or may not be in it and are kept, which is harmless;
+			// older ones are in it and are dropped
+			install(Base.of(entries), started, true);
+			logger.info("Built product search index: {} products", entries.size());
+		} catch (RuntimeException e) {
+			logger.warn("Could not build product search index, keeping the previous one: {}", e.getMessage());
+		}
+	}
+
+	// Keeps the changes made since the merge or load started: those not already (same object) in the arrays
+	private synchronized void install(Base base, Snapshot merged, boolean loaded) {
+		Snapshot current = snapshot;
+		Map<Integer, Entry> upserts = new HashMap<>();
+		current.upserts.forEach((pid, entry) -> {
+			if (merged.upserts.get(pid) != entry) {
+				upserts.put(pid, entry);
+			}
+		});
+		Set<Integer> deletes = new HashSet<>();
+		for (Integer pid : current.deletes) {
+			if (!merged.deletes.contains(pid)) {
+				deletes.add(pid);
+			}
+		}
+		snapshot = new Snapshot(base, upserts, deletes, current.ready || loaded);
+	}
+
+	@PreDestroy
+	public void stop() {
+		merger.shutdownNow();
+	}
+
+	private record Entry(int pid, String name, double price) {
+
+		// Products without a price sort after all others and match no price bound
+		static Entry of(Product product) {
+			return of(product.getPid(), product.getPname(), product.getPrice());
+		}
+
+		static Entry of(int pid, String name, Double price) {
+			return new Entry(pid, name == null ? "" : name.toLowerCase(Locale.ROOT), price == null ? Double.NaN : price);
+		}
+	}
+
+	private record Query(String prefix, double minPrice, double maxPrice, boolean anyPrice) {
+
+		Query(String prefix, Double minPrice, Double maxPrice) {
+			this(prefix == null ? "" : prefix.toLowerCase(Locale.ROOT),
+					minPrice == null ? Double.NEGATIVE_INFINITY : minPrice,
+					maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice,
+					minPrice == null && maxPrice == null);
+		}
+
+		boolean matches(Entry entry) {
+			return entry.name.startsWith(prefix)
+					&& (anyPrice || (entry.price >= minPrice && entry.price <= maxPrice));
+		}
+	}
+
+	/**
+	 * The sorted arrays. Entries are shared between the two orders.
+	 */
+	private static final class Base {
+
+		private final Entry[] byPrice;
+
+		private final double[] prices;
+
+		private final Entry[] byName;
+
+		private final String[] names;
+
+		private Base(Entry[] byPrice, Entry[] byName) {
+			this.byPrice = byPrice;
+			this.prices = new double[byPrice.length];
+			for (int i = 0; i < byPrice.length; i++) {
+				prices[i] = byPrice[i].price;
+			}
+			this.byName = byName;
+			this.names = new String[byName.length];
+			for (int i = 0; i < byName.length; i++) {
+				names[i] = byName[i].name;
+			}
+		}
+
+		static Base of(List<Entry> entries) {
+			Entry[] byPrice = entries.toArray(Entry[]::new);
+			Arrays.sort(byPrice, BY_PRICE);
+			Entry[] byName = entries.toArray(Entry[]::new);
+			Arrays.sort(byName, Comparator.comparing(Entry::name).thenComparingInt(Entry::pid));
+			return new Base(byPrice, byName);
+		}
+
+		// First index whose price is >= price (NaN sorts last, as in BY_PRICE)
+		int priceIndex(double price) {
+			int low = 0;
+			int high = prices.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (Double.compare(prices[mid], price) < 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+
+		// First index whose name is >= name
+		int nameIndex(String name) {
+			int low = 0;
+			int high = names.length;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				if (names[mid].compareTo(name) < 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
+	private static final class Snapshot {
+
+		private final Base base;
+
+		// Changes on top of base: products saved since, by ID, and IDs deleted since
+		private final Map<Integer, Entry> upserts;
+
+		private final Set<Integer> deletes;
+
+		private final boolean ready;
+
+		Snapshot(Base base, Map<Integer, Entry> upserts, Set<Integer> deletes, boolean ready) {
+			this.base = base;
+			this.upserts = upserts;
+			this.deletes = deletes;
+			this.ready = ready;
+		}
+
+		boolean shadows(int pid) {
+			return upserts.containsKey(pid) || deletes.contains(pid);
+		}
+
+		int pending() {
+			return upserts.size() + deletes.size();
+		}
+
+		// Approximate: saved products that replace a base entry are counted twice
+		int size() {
+			return base.byPrice.length + upserts.size() - deletes.size();
+		}
+
+		List<Integer> search(Query query, int limit) {
+			int priceFrom = query.anyPrice ? 0 : base.priceIndex(query.minPrice);
+			int priceTo = query.anyPrice ? base.prices.length
+					: base.priceIndex(Math.nextUp(query.maxPrice));
+			List<Entry> found = new ArrayList<>();
+			if (!query.prefix.isEmpty()) {
+				int nameFrom = base.nameIndex(query.prefix);
+				// Every name starting with the prefix sorts before prefix + the highest char
+				int nameTo = base.nameIndex(query.prefix + Character.MAX_VALUE);
+				if (nameTo - nameFrom < priceTo - priceFrom) {
+					for (int i = nameFrom; i < nameTo; i++) {
+						Entry entry = base.byName[i];
+						if (query.matches(entry) && !shadows(entry.pid)) {
+							found.add(entry);
+						}
+					}
+					return finish(found, query, limit);
+				}
+			}
+			// In price order already: the first limit matches are enough
+			for (int i = priceFrom; i < priceTo && found.size() < limit; i++) {
+				Entry entry = base.byPrice[i];
+				if (query.matches(entry) && !shadows(entry.pid)) {
+					found.add(entry);
+				}
+			}
+			return finish(found, query, limit);
+		}
+
+		private List<Integer> finish(List<Entry> found, Query query, int limit) {
+			for (Entry entry : upserts.values()) {
+				if (query.matches(entry)) {
+					found.add(entry);
+				}
+			}
+			found.sort(BY_PRICE);
+			List<Integer> pids = new ArrayList<>(Math.min(limit, found.size()));
+			for (int i = 0; i < found.size() && i < limit; i++) {
+				pids.add(found.get(i).pid);
+			}
+			return pids;
+		}
+	}
+}
@@ -1,6 +1,9 @@
 package com.example.demo.service;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
 import com.example.demo.entity.Product;
 
@@ -8,9 +11,44 @@ public interface IProductMgmtService {
 
 	public Product addProduct(Product product);
 
+	public int importProducts(Iterator<Product> products);
+
 	public List<Product> showAllProducts();
 
+	public List<Product> showProducts(int afterPid, int limit);
+
+	/**
+	 * {@link #showAllProducts()} for a response tagged with
+	 * {@code catalogVersion}, read before the call from versions that other
+	 * nodes bump too: the list is at least as new as that version.
+	 */
+	public List<Product> showAllProducts(String catalogVersion);
+
+	// showProducts(afterPid, limit) at least as new as catalogVersion, see showAllProducts(String)
+	public List<Product> showProducts(int afterPid, int limit, String catalogVersion);
+
+	public void streamAllProducts(Consumer<Product> consumer);
+
 	public String deleteProduct(int pid);
 
 	public Product findProductById(int pid);
+
+	// findProductById(pid) at least as new as version, see showAllProducts(String)
+	public Product findProductById(int pid, String version);
+
+	public List<Product> findProductsByIds(List<Integer> pids);
+
+	/**
+	 * Products whose name starts with {@code prefix} (any case) and whose price
+	 * is within the bounds, by price then ID. {@code null} bounds are open.
+	 */
+	public List<Product> searchProducts(String prefix, Double minPrice, Double maxPrice, int limit);
+
+	/**
+	 * Takes {@code n} units of a product's stock.
+	 *
+	 * @return the units left, or empty if there is no such product
+	 * @throws InsufficientStockException if fewer than {@code n} units are left
+	 */
+	public OptionalLong reserveStock(int pid, int n);
 }
@@ -0,0 +1,14 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when a reservation asks for more units than are left. Nothing was
+ * taken.
+ */
+public class InsufficientStockException extends RuntimeException {
+
+	private static final long serialVersionUID = -3279524186437110625L;
+
+	public InsufficientStockException(int pid, long requested) {
+		super(String.format("Fewer than %d units of product %d left", requested, pid));
+	}
+}
@@ -0,0 +1,21 @@
+package com.example.demo.service;
+
+/**
+ * Thrown when a bulk import stops part way. The chunks committed before the
+ * failure stay in the database.
+ */
+public class ProductImportException extends RuntimeException {
+
+	private static final long serialVersionUID = 4610853241907735126L;
+
+	private final int imported;
+
+	public ProductImportException(int imported, Throwable cause) {
+		super(String.format("Import stopped after %d products: %s", imported, cause.getMessage()), cause);
+		this.imported = imported;
+	}
+
+	public int getImported() {
+		return imported;
+	}
+}
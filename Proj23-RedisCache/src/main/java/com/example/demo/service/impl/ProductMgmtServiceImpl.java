@@ -1,18 +1,48 @@
 package com.example.demo.service.impl;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.demo.cache.ProductChanges;
+import com.example.demo.cache.ProductVersions;
+import com.example.demo.cache.TwoLevelCache;
 import com.example.demo.dao.IProductDAO;
 import com.example.demo.entity.Product;
+import com.example.demo.index.ProductIdIndex;
+import com.example.demo.index.ProductSearchIndex;
 import com.example.demo.service.IProductMgmtService;
+import com.example.demo.service.InsufficientStockException;
+import com.example.demo.service.ProductImportException;
+import com.example.demo.snapshot.ProductSnapshot;
+import com.example.demo.stock.StockStore;
+import com.example.demo.stock.StockWriteBehind;
+
+import jakarta.persistence.EntityManager;
 
 @Service
 public class ProductMgmtServiceImpl implements IProductMgmtService {
@@ -20,21 +50,172 @@ public class ProductMgmtServiceImpl implements IProductMgmtService {
     // Create a logger instance for this class
     private static final Logger logger = LoggerFactory.getLogger(ProductMgmtServiceImpl.class);
 
+    // Single products by ID
+    public static final String PRODUCT_CACHE = "products";
+
+    // The showAllProducts list, kept apart so that a write only drops the list and not every product
+    public static final String PRODUCT_LIST_CACHE = "productList";
+
     @Autowired
     private IProductDAO productDAO;
 
-    // Adding a product: Clear the cache so it is refetched after saving the new product
-    @CacheEvict(value = "prods", allEntries = true)  // Clears cache to ensure fresh data
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductIdIndex productIdIndex;
+
+    @Autowired
+    private ProductSearchIndex productSearchIndex;
+
+    @Autowired
+    private ProductSnapshot productSnapshot;
+
+    @Autowired
+    private StockStore stockStore;
+
+    @Autowired
+    private ProductVersions productVersions;
+
+    @Autowired
+    private StockWriteBehind stockWriteBehind;
+
+    @Autowired
+    private ProductChanges productChanges;
+
+    @Value("${product.import.chunk-size:1000}")
+    private int importChunkSize;
+
+    // Saves of the same ID on this node, held from the row lock to the end of the write-through below
+    private final Object[] saveLocks = new Object[64];
+
+    {
+        for (int i = 0; i < saveLocks.length; i++) {
+            saveLocks[i] = new Object();
+        }
+    }
+
+    // Adding a product: drop it from the product cache and drop only the cached list, then bump its ETag
+    // version. Not done with @CachePut, which would run after the version has changed. Updates of one ID on
+    // this node write through to the indexes in commit order; the shared product cache is only evicted, as
+    // another node's older write could still land after ours
     @Override
     public Product addProduct(Product product) {
+        Integer pid = product.getPid();
+        if (pid == null) {
+            return save(product);  // new ID, nothing to race with
+        }
+        synchronized (saveLocks[Math.floorMod(pid, saveLocks.length)]) {
+            return save(product);
+        }
+    }
+
+    private Product save(Product product) {
         logger.info("Attempting to save product: {}", product);
-        Product savedProduct = productDAO.save(product);  // Save the product
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        double[] previousQty = { Double.NaN };
+        Product savedProduct = transaction.execute(status -> {
+            if (product.getPid() != null) {
+                productDAO.lockById(product.getPid())
+                        .ifPresent(previous -> previousQty[0] = previous.getQty() == null ? 0 : previous.getQty());
+            }
+            return productDAO.save(product);  // Save the product
+        });
+        productIdIndex.add(savedProduct.getPid());
+        if (!Double.isNaN(previousQty[0])) {
+            adjustStock(savedProduct.getPid(), previousQty[0], savedProduct.getQty());
+        }
+        productSearchIndex.put(savedProduct);
+        productSnapshot.put(savedProduct);
+        Cache productCache = cacheManager.getCache(PRODUCT_CACHE);
+        if (productCache != null) {
+            productCache.evict(savedProduct.getPid());
+        }
+        clearProductList();
+        productVersions.bump(List.of(savedProduct.getPid()));
+        productChanges.saved(List.of(savedProduct.getPid()));
         logger.info("Product saved successfully with ID: {}", savedProduct.getPid());
         return savedProduct;
     }
 
+    // Bulk import: one transaction and one cache invalidation per chunk instead of per product
+    @Override
+    public int importProducts(Iterator<Product> products) {
+        logger.info("Importing products in chunks of {}", importChunkSize);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<Product> chunk = new ArrayList<>(importChunkSize);
+        int imported = 0;
+        try {
+            while (products.hasNext()) {
+                Product product = products.next();
+                product.setPid(null);  // always inserted, IDs come from the sequence
+                chunk.add(product);
+                if (chunk.size() == importChunkSize || !products.hasNext()) {
+                    transaction.executeWithoutResult(status -> {
+                        // Imported rows are not put in the Hibernate second-level cache, they would push out the read ones
+                        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+                        productDAO.saveAll(chunk);
+                        // Write the batched inserts and drop the entities from the persistence context
+                        entityManager.flush();
+                        entityManager.clear();
+                    });
+                    evictImported(chunk);
+                    imported += chunk.size();
+                    chunk.clear();
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Product import stopped after {} products: {}", imported, e.getMessage());
+            throw new ProductImportException(imported, e);
+        }
+        logger.info("Imported {} products.", imported);
+        return imported;
+    }
+
+    // An update sets qty as if no reservation were pending. The stock count still holds the reservations not
+    // flushed yet, on any node, and their flush will take them off the new qty: move the count by the change
+    // in qty instead of loading it again, which would let those units be reserved twice
+    private void adjustStock(int pid, double previousQty, Double qty) {
+        long delta = (long) Math.floor(qty == null ? 0 : qty) - (long) Math.floor(previousQty);
+        if (delta != 0) {
+            stockStore.adjust(pid, delta);
+        }
+    }
+
+    // New IDs may have been looked up (and cached as missing) before the import
+    private void evictImported(List<Product> chunk) {
+        List<Integer> pids = new ArrayList<>(chunk.size());
+        chunk.forEach(product -> pids.add(product.getPid()));
+        pids.forEach(productIdIndex::add);
+        productSearchIndex.putAll(chunk);
+        productSnapshot.putAll(chunk);
+        Cache productCache = cacheManager.getCache(PRODUCT_CACHE);
+        if (productCache instanceof TwoLevelCache twoLevelCache) {
+            twoLevelCache.evictAll(pids);
+        } else if (productCache != null) {
+            pids.forEach(productCache::evict);
+        }
+        clearProductList();
+        productVersions.bump(pids);
+        productChanges.saved(pids);
+    }
+
+    private void clearProductList() {
+        Cache listCache = cacheManager.getCache(PRODUCT_LIST_CACHE);
+        if (listCache != null) {
+            listCache.clear();
+        }
+    }
+
     // Fetching all products: @Cacheable to retrieve data from cache if present
-    @Cacheable(value = "prods")
+    // sync loads are not cached if a write happens meanwhile, see TwoLevelCache
+    @Cacheable(cacheNames = PRODUCT_LIST_CACHE, sync = true)
     @Override
     public List<Product> showAllProducts() {
         logger.info("Fetching all products.");
@@ -43,14 +224,89 @@ public class ProductMgmtServiceImpl implements IProductMgmtService {
         return products;
     }
 
-    // Deleting a product: @CacheEvict to remove the specific product from cache
-    @CacheEvict(value = "prods", key = "#pid")
+    // Fetching one page of products after the given ID; pages are dropped with the list on every write
+    @Cacheable(cacheNames = PRODUCT_LIST_CACHE, key = "'page:' + #afterPid + ':' + #limit", sync = true)
+    @Override
+    public List<Product> showProducts(int afterPid, int limit) {
+        logger.info("Fetching {} products after ID: {}", limit, afterPid);
+        return productDAO.findByPidGreaterThanOrderByPidAsc(afterPid, Limit.of(limit));
+    }
+
+    // The versioned reads below serve responses tagged with a version other nodes bump too. Their writes reach
+    // this node's L1 after their version does, so L1 is only used for a version it was already checked at
+    // (see TwoLevelCache), and the catalog snapshot not at all. Same cache entries as the @Cacheable methods
+    @Override
+    public List<Product> showAllProducts(String catalogVersion) {
+        return getAtVersion(PRODUCT_LIST_CACHE, SimpleKey.EMPTY, catalogVersion, productDAO::findAll);
+    }
+
+    @Override
+    public List<Product> showProducts(int afterPid, int limit, String catalogVersion) {
+        return getAtVersion(PRODUCT_LIST_CACHE, "page:" + afterPid + ":" + limit, catalogVersion,
+                () -> productDAO.findByPidGreaterThanOrderByPidAsc(afterPid, Limit.of(limit)));
+    }
+
+    @Override
+    public Product findProductById(int pid, String version) {
+        if (!productIdIndex.mightContain(pid)) {
+            productIdIndex.recordRejection();
+            return null;
+        }
+        return getAtVersion(PRODUCT_CACHE, pid, version, () -> {
+            Optional<Product> product = productDAO.findById(pid);
+            if (product.isEmpty()) {
+                productIdIndex.recordFalsePositive();
+            }
+            return product.orElse(null);
+        });
+    }
+
+    private <T> T getAtVersion(String cacheName, Object key, String version, Callable<T> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache instanceof TwoLevelCache twoLevelCache) {
+            return twoLevelCache.get(key, version, loader);
+        }
+        // Any other cache: nothing kept in this node to distrust
+        return cache.get(key, loader);
+    }
+
+    // Streaming all products: not cached, each product is detached once handed over so memory stays flat
+    @Transactional(readOnly = true)
+    @Override
+    public void streamAllProducts(Consumer<Product> consumer) {
+        logger.info("Streaming all products.");
+        try (Stream<Product> products = productDAO.streamAllOrderByPid()) {
+            products.forEach(product -> {
+                consumer.accept(product);
+                entityManager.detach(product);
+            });
+        }
+    }
+
+    // Deleting a product: remove it from the product cache and drop the cached list, then bump its ETag version
     @Override
     public String deleteProduct(int pid) {
         logger.info("Attempting to delete product with ID: {}", pid);
+        if (!productIdIndex.mightContain(pid)) {
+            productIdIndex.recordRejection();
+            logger.warn("Product with ID: {} not found for deletion.", pid);
+            return String.format("%d not found", pid);
+        }
         Optional<Product> optional = productDAO.findById(pid);
         if (optional.isPresent()) {
             productDAO.delete(optional.get());  // Delete the product from the database
+            productIdIndex.remove(pid);
+            stockStore.remove(pid);
+            productSearchIndex.remove(pid);
+            productSnapshot.remove(pid);
+            stockWriteBehind.forget(pid);
+            Cache productCache = cacheManager.getCache(PRODUCT_CACHE);
+            if (productCache != null) {
+                productCache.evict(pid);
+            }
+            clearProductList();
+            productVersions.deleted(List.of(pid));
+            productChanges.deleted(List.of(pid));
             logger.info("Product with ID: {} deleted successfully.", pid);
             return String.format("%d deleted successfully", pid);
         } else {
@@ -59,21 +315,147 @@ public class ProductMgmtServiceImpl implements IProductMgmtService {
         }
     }
 
-    // Fetching a single product by ID: @Cacheable to cache the result
-    @Cacheable(value = "prods", key = "#pid")
+    // Fetching a single product by ID: @Cacheable to cache the result. IDs the filter rules out
+    // skip the cache (so they cannot fill it) and the database; unknown IDs it lets through are cached as missing.
+    // With the catalog snapshot on, products are read from it instead of the cache
+    @Cacheable(cacheNames = PRODUCT_CACHE, key = "#pid", sync = true,
+            condition = "@productIdIndex.mightContain(#pid) and !@productSnapshot.covers(#pid)")
     @Override
     public Product findProductById(int pid) {
         logger.info("Fetching product with ID: {}", pid);
+        if (!productIdIndex.mightContain(pid)) {
+            productIdIndex.recordRejection();
+            logger.warn("Product with ID: {} not found.", pid);
+            return null;
+        }
+        if (productSnapshot.covers(pid)) {
+            Product product = productSnapshot.find(pid);
+            if (product == null) {
+                productIdIndex.recordFalsePositive();
+            }
+            return product;
+        }
         Optional<Product> optional = productDAO.findById(pid);
         if (optional.isPresent()) {
             Product product = optional.get();
             logger.info("Product found: {}", product);
             return product;
         } else {
+            productIdIndex.recordFalsePositive();
             logger.warn("Product with ID: {} not found.", pid);
             return null;
         }
     }
-}
 
+    // Fetching several products by ID: one cache round-trip for all IDs and one multi-ID load for the misses.
+    // Entries are shared with findProductById; IDs the filter rules out are dropped first, other unknown IDs
+    // are cached as missing, and both are left out of the result
+    @Override
+    public List<Product> findProductsByIds(List<Integer> pids) {
+        logger.info("Fetching {} products by ID.", pids.size());
+        List<Integer> candidates = new ArrayList<>(pids.size());
+        for (Integer pid : pids) {
+            if (productIdIndex.mightContain(pid)) {
+                candidates.add(pid);
+            } else {
+                productIdIndex.recordRejection();
+            }
+        }
+        Cache productCache = cacheManager.getCache(PRODUCT_CACHE);
+        Map<Integer, Object> cached;
+        if (candidates.isEmpty()) {
+            cached = Map.of();
+        } else if (productCache instanceof TwoLevelCache twoLevelCache) {
+            cached = twoLevelCache.getAll(candidates, this::loadProducts);
+        } else {
+            // Any other cache: key by key, then one load for what is missing
+            cached = new HashMap<>();
+            List<Integer> misses = new ArrayList<>();
+            for (Integer pid : candidates) {
+                Cache.ValueWrapper wrapper = productCache == null ? null : productCache.get(pid);
+                if (wrapper != null) {
+                    cached.put(pid, wrapper.get());
+                } else {
+                    misses.add(pid);
+                }
+            }
+            if (!misses.isEmpty()) {
+                Map<Integer, Product> loaded = loadProducts(misses);
+                for (Integer pid : misses) {
+                    Product product = loaded.get(pid);
+                    cached.put(pid, product);
+                    if (productCache != null) {
+                        productCache.put(pid, product);
+                    }
+                }
+            }
+        }
+        List<Product> products = new ArrayList<>(pids.size());
+        for (Integer pid : pids) {
+            if (cached.get(pid) instanceof Product product) {
+                products.add(product);
+            }
+        }
+        logger.info("Found {} of {} products.", products.size(), pids.size());
+        return products;
+    }
+
+    // Searching by name prefix and price: IDs from the in-memory index, products from the product cache.
+    // Until the index is loaded the database answers the same query
+    @Override
+    public List<Product> searchProducts(String prefix, Double minPrice, Double maxPrice, int limit) {
+        if (productSearchIndex.isReady()) {
+            return findProductsByIds(productSearchIndex.search(prefix, minPrice, maxPrice, limit));
+        }
+        logger.info("Search index not loaded yet, searching the database.");
+        String pattern = prefix == null ? "" : prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return productDAO.search(pattern, minPrice, maxPrice, Limit.of(limit));
+    }
+
+    // Reserving stock: taken atomically in the stock store, no row lock and no cache eviction per call.
+    // The database and the caches catch up in the next write-behind flush
+    @Override
+    public OptionalLong reserveStock(int pid, int n) {
+        if (!productIdIndex.mightContain(pid)) {
+            productIdIndex.recordRejection();
+            return OptionalLong.empty();
+        }
+        long left = stockStore.reserve(pid, n);
+        if (left == StockStore.NOT_LOADED) {
+            Optional<Double> qty = productDAO.findQtyByPid(pid);
+            if (qty.isEmpty()) {
+                productIdIndex.recordFalsePositive();
+                logger.warn("Product with ID: {} not found for reservation.", pid);
+                return OptionalLong.empty();
+            }
+            // Whole units only. If another call loaded the product meanwhile, its count (with reservations
+            // not flushed yet) is kept
+            stockStore.loadIfAbsent(pid, (long) Math.floor(qty.get()));
+            left = stockStore.reserve(pid, n);
+        }
+        if (left == StockStore.INSUFFICIENT) {
+            throw new InsufficientStockException(pid, n);
+        }
+        stockWriteBehind.record(pid, n);
+        return OptionalLong.of(left);
+    }
 
+    // One multi-ID load: Hibernate reads the IDs in batches with a prepared statement, where a JPQL
+    // "in" query (findAllById) would translate its SQL again on every call
+    private Map<Integer, Product> loadProducts(Collection<Integer> pids) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        List<Product> loaded = transaction.execute(status -> entityManager.unwrap(Session.class)
+                .byMultipleIds(Product.class)
+                .multiLoad(new ArrayList<>(pids)));
+        Map<Integer, Product> products = new HashMap<>();
+        for (Product product : loaded) {
+            if (product != null) {
+                products.put(product.getPid(), product);
+            } else {
+                productIdIndex.recordFalsePositive();
+            }
+        }
+        return products;
+    }
+}
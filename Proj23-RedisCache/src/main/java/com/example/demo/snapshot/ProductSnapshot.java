@@ -0,0 +1,526 @@
+package com.example.demo.snapshot;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.cache.ProductChanges;
+import com.example.demo.cache.ProductVersions;
+import com.example.demo.dao.IProductDAO;
+import com.example.demo.entity.Product;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Optional copy of the catalog in a memory-mapped file, so that
+ * {@code findProductById} reads a product straight from the mapped pages:
+ * no cache entry and no entity on the heap between reads, and nothing to
+ * load again after a restart.
+ *
+ * The file holds one fixed-width record per product ID, at
+ * {@code HEADER_BYTES + pid * RECORD_BYTES}: a sequence number, the state,
+ * null flags, price, qty and the name as up to {@value #NAME_CHARS} chars.
+ * Saves, deletes, imports and stock writes rewrite only their own records.
+ * A writer makes the sequence number odd while it writes a record and
+ * readers retry while it is odd or has changed, so readers never lock.
+ * Records written on other nodes sharing the L2 are read from the table
+ * again when their {@link ProductChanges} message arrives; until then, and
+ * if the message is lost until the file is next checked against the table,
+ * this node serves the product as it was.
+ *
+ * On startup an existing file is mapped and served at once, then checked
+ * against the table in the background; without one the table is copied
+ * first and {@link #covers} is {@code false} until then. Serving the old file
+ * assumes nobody changes the table while the node is down; whatever did
+ * change is corrected once the check is over. The check is repeated every
+ * {@code product.snapshot.check-interval-ms}.
+ *
+ * With {@link ProductVersions#shared() shared} versions (the L2 turned on),
+ * the snapshot stays off: {@code /get/{pid}} then reads at the version it
+ * sends as the ETag, and a record of this node may lag behind a version
+ * bumped on another node.
+ *
+ * The file belongs to one node: it is locked while mapped, and a node that
+ * finds it locked runs without a snapshot. The default name includes the
+ * application name and port, so that nodes on one host each get their own.
+ */
+// Named explicitly: the @Cacheable condition in ProductMgmtServiceImpl refers to it
+@Component("productSnapshot")
+public class ProductSnapshot implements ProductChanges.Listener {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductSnapshot.class);
+
+	// "PSNP", then the format version and the record size
+	private static final int MAGIC = 0x50534e50;
+
+	private static final int FORMAT_VERSION = 1;
+
+	static final int HEADER_BYTES = 64;
+
+	static final int RECORD_BYTES = 88;
+
+	// Longer names are read from the database; the column holds 30
+	static final int NAME_CHARS = 32;
+
+	// Offsets in a record
+	private static final int SEQUENCE = 0;
+
+	private static final int STATE = 4;
+
+	private static final int FLAGS = 5;
+
+	private static final int NAME_LENGTH = 6;
+
+	private static final int PRICE = 8;
+
+	private static final int QTY = 16;
+
+	private static final int NAME = 24;
+
+	private static final byte EMPTY = 0;
+
+	private static final byte PRESENT = 1;
+
+	// Name too long for the record, or a record left half-written by a crash: read from the database
+	private static final byte ELSEWHERE = 2;
+
+	private static final int NULL_NAME = 1;
+
+	private static final int NULL_PRICE = 2;
+
+	private static final int NULL_QTY = 4;
+
+	private static final int INITIAL_SLOTS = 1 << 16;
+
+	private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final IProductDAO productDAO;
+
+	private final TransactionTemplate readOnlyTransaction;
+
+	private final boolean enabled;
+
+	private final boolean sharedVersions;
+
+	private final Path file;
+
+	// Highest ID with a record; the mapping must stay under 2 GB
+	private final int maxPid;
+
+	private final long checkIntervalMs;
+
+	private final ScheduledExecutorService loader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "product-snapshot");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private FileChannel channel;
+
+	// Replaced by a larger mapping of the same file when an ID beyond its end is written
+	private volatile MappedByteBuffer buffer;
+
+	private volatile boolean ready;
+
+	// One copy of the table at a time
+	private final Object copyLock = new Object();
+
+	// IDs written while the table is copied, which the copy must not overwrite; null outside a copy
+	private Set<Integer> writtenDuringCopy;
+
+	public ProductSnapshot(IProductDAO productDAO, PlatformTransactionManager transactionManager,
+			ProductChanges productChanges, ProductVersions productVersions,
+			@Value("${product.snapshot.enabled:false}") boolean enabled,
+			@Value("${product.snapshot.file:${java.io.tmpdir}/"
+					+ "${spring.application.name}-${server.port:8080}-product-snapshot.bin}") Path file,
+			@Value("${product.snapshot.max-pid:10000000}") int maxPid,
+			@Value("${product.snapshot.check-interval-ms:600000}") long checkIntervalMs) {
+		this.productDAO = productDAO;
+		this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+		this.readOnlyTransaction.setReadOnly(true);
+		this.enabled = enabled;
+		this.sharedVersions = productVersions.shared();
+		this.file = file;
+		this.maxPid = Math.min(maxPid, (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES - 1);
+		this.checkIntervalMs = checkIntervalMs;
+		productChanges.subscribe(this);
+	}
+
+	/**
+	 * Maps the file, serving it at once if it holds a snapshot of this
+	 * format. A file that cannot be opened, or that another node holds,
+	 * leaves the snapshot off, as do shared versions.
+	 */
+	@PostConstruct
+	public synchronized void open() {
+		if (!enabled) {
+			return;
+		}
+		if (sharedVersions) {
+			logger.warn("Product snapshot is not used with the L2 cache: /get/{pid} reads at versions shared "
+					+ "with other nodes, which the file of this node may lag behind. Turn off "
+					+ "product.snapshot.enabled or product.cache.l2.enabled");
+			return;
+		}
+		try {
+			Files.createDirectories(file.toAbsolutePath().getParent());
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			if (!lock()) {
+				channel.close();
+				logger.warn("Product snapshot {} is used by another node, reading products without it", file);
+				return;
+			}
+			long size = channel.size();
+			if (size >= HEADER_BYTES + RECORD_BYTES && hasHeader()) {
+				buffer = map((int) ((size - HEADER_BYTES) / RECORD_BYTES));
+				int unfinished = finishInterruptedWrites();
+				ready = true;
+				logger.info("Mapped product snapshot {}: {} records, {} left unfinished", file, slots(buffer),
+						unfinished);
+			} else {
+				channel.truncate(0);
+				buffer = map(INITIAL_SLOTS);
+				buffer.putInt(0, MAGIC).putInt(4, FORMAT_VERSION).putInt(8, RECORD_BYTES);
+			}
+		} catch (IOException e) {
+			logger.warn("Product snapshot {} cannot be used, reading products without it: {}", file, e.getMessage());
+			buffer = null;
+		}
+	}
+
+	// Released when the channel is closed
+	private boolean lock() throws IOException {
+		try {
+			return channel.tryLock() != null;
+		} catch (OverlappingFileLockException e) {
+			// Another node in this JVM
+			return false;
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (buffer != null) {
+			loader.execute(this::rebuild);
+			if (checkIntervalMs > 0) {
+				loader.scheduleWithFixedDelay(this::rebuild, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	/**
+	 * @return {@code true} if {@link #find} answers for this ID from the file,
+	 *         so the product cache is not needed for it
+	 */
+	public boolean covers(int pid) {
+		MappedByteBuffer current = buffer;
+		if (!ready || current == null || pid <= 0 || pid > maxPid) {
+			return false;
+		}
+		return pid >= slots(current) || current.get(offset(pid) + STATE) != ELSEWHERE;
+	}
+
+	/**
+	 * The product with this ID as of the latest write, or {@code null} if
+	 * there is none. Only meaningful where {@link #covers} is {@code true}.
+	 */
+	public Product find(int pid) {
+		MappedByteBuffer current = buffer;
+		if (current == null || pid <= 0 || pid >= slots(current)) {
+			return null;
+		}
+		int offset = offset(pid);
+		char[] name = new char[NAME_CHARS];
+		while (true) {
+			int sequence = (int) INT.getAcquire(current, offset + SEQUENCE);
+			if ((sequence & 1) == 0) {
+				byte state = current.get(offset + STATE);
+				byte flags = current.get(offset + FLAGS);
+				int nameLength = Math.min(Math.max(current.getShort(offset + NAME_LENGTH), 0), NAME_CHARS);
+				double price = current.getDouble(offset + PRICE);
+				double qty = current.getDouble(offset + QTY);
+				for (int i = 0; i < nameLength; i++) {
+					name[i] = current.getChar(offset + NAME + 2 * i);
+				}
+				VarHandle.loadLoadFence();
+				if ((int) INT.getAcquire(current, offset + SEQUENCE) == sequence) {
+					if (state == ELSEWHERE) {
+						return productDAO.findById(pid).orElse(null);
+					}
+					if (state != PRESENT) {
+						return null;
+					}
+					Product product = new Product();
+					product.setPid(pid);
+					product.setPname((flags & NULL_NAME) != 0 ? null : new String(name, 0, nameLength));
+					product.setPrice((flags & NULL_PRICE) != 0 ? null : price);
+					product.setQty((flags & NULL_QTY) != 0 ? null : qty);
+					return product;
+				}
+			}
+			Thread.onSpinWait();
+		}
+	}
+
+	public synchronized void put(Product product) {
+		if (buffer != null) {
+			write(product.getPid(), product.getPname(), product.getPrice(), product.getQty());
+		}
+	}
+
+	public synchronized void putAll(Collection<Product> products) {
+		products.forEach(this::put);
+	}
+
+	public synchronized void remove(int pid) {
+		if (buffer != null) {
+			clear(pid);
+		}
+	}
+
+	// Written on another node: read from the table off the message listener's thread
+	@Override
+	public void onSaved(Collection<Integer> pids) {
+		if (buffer != null) {
+			loader.execute(() -> reload(pids));
+		}
+	}
+
+	@Override
+	public void onDeleted(Collection<Integer> pids) {
+		onSaved(pids);
+	}
+
+	/**
+	 * Reads the products from the table again, for writes that bypass the
+	 * entities. A product written through {@link #put} meanwhile keeps that
+	 * newer write.
+	 */
+	public void reload(Collection<Integer> pids) {
+		if (buffer == null || pids.isEmpty()) {
+			return;
+		}
+		Map<Integer, Integer> sequences = new HashMap<>();
+		synchronized (this) {
+			pids.forEach(pid -> sequences.put(pid, sequence(pid)));
+		}
+		Map<Integer, Product> loaded = new HashMap<>();
+		productDAO.findAllById(pids).forEach(product -> loaded.put(product.getPid(), product));
+		synchronized (this) {
+			sequences.forEach((pid, sequence) -> {
+				if (sequence(pid) != sequence) {
+					return;
+				}
+				Product product = loaded.get(pid);
+				if (product != null) {
+					put(product);
+				} else {
+					clear(pid);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Copies the table into the file: every product is written, and records
+	 * of IDs no longer in the table are cleared. Saves and deletes made
+	 * meanwhile are kept.
+	 */
+	public void rebuild() {
+		if (buffer == null) {
+			return;
+		}
+		synchronized (copyLock) {
+			copy();
+		}
+	}
+
+	private void copy() {
+		synchronized (this) {
+			writtenDuringCopy = new HashSet<>();
+		}
+		try {
+			int[] next = { 1 };
+			int[] copied = { 0 };
+			readOnlyTransaction.executeWithoutResult(status -> {
+				try (Stream<Object[]> rows = productDAO.streamSnapshotFields()) {
+					rows.forEach(row -> {
+						int pid = (Integer) row[0];
+						synchronized (this) {
+							clearCopied(next[0], pid);
+							if (!writtenDuringCopy.contains(pid)) {
+								write(pid, (String) row[1], (Double) row[2], (Double) row[3]);
+							}
+						}
+						next[0] = Math.max(next[0], pid + 1);
+						copied[0]++;
+					});
+				}
+			});
+			synchronized (this) {
+				clearCopied(next[0], slots(buffer));
+				ready = true;
+			}
+			logger.info("Product snapshot {} matches the table: {} products", file, copied[0]);
+		} catch (RuntimeException e) {
+			logger.warn("Could not copy the products into snapshot {}: {}", file, e.getMessage());
+		} finally {
+			synchronized (this) {
+				writtenDuringCopy = null;
+			}
+		}
+	}
+
+	@PreDestroy
+	public synchronized void close() throws IOException {
+		loader.shutdownNow();
+		if (buffer != null) {
+			buffer.force();
+			channel.close();
+			buffer = null;
+		}
+	}
+
+	// Records from..to (exclusive) with no product in the table, except those written meanwhile
+	private void clearCopied(int from, int to) {
+		MappedByteBuffer current = buffer;
+		for (int pid = from; pid < Math.min(to, slots(current)); pid++) {
+			if (current.get(offset(pid) + STATE) != EMPTY && !writtenDuringCopy.contains(pid)) {
+				clear(pid);
+			}
+		}
+	}
+
+	private void write(Integer pid, String name, Double price, Double qty) {
+		if (pid == null || pid <= 0 || pid > maxPid) {
+			return;
+		}
+		MappedByteBuffer current = capacityFor(pid);
+		int offset = offset(pid);
+		int sequence = begin(current, offset);
+		if (name != null && name.length() > NAME_CHARS) {
+			current.put(offset + STATE, ELSEWHERE);
+		} else {
+			current.put(offset + STATE, PRESENT);
+			current.put(offset + FLAGS, (byte) ((name == null ? NULL_NAME : 0) | (price == null ? NULL_PRICE : 0)
+					| (qty == null ? NULL_QTY : 0)));
+			current.putDouble(offset + PRICE, price == null ? 0 : price);
+			current.putDouble(offset + QTY, qty == null ? 0 : qty);
+			int nameLength = name == null ? 0 : name.length();
+			current.putShort(offset + NAME_LENGTH, (short) nameLength);
+			for (int i = 0; i < nameLength; i++) {
+				current.putChar(offset + NAME + 2 * i, name.charAt(i));
+			}
+		}
+		INT.setRelease(current, offset + SEQUENCE, sequence + 2);
+		written(pid);
+	}
+
+	private void clear(int pid) {
+		MappedByteBuffer current = buffer;
+		if (pid <= 0 || pid >= slots(current)) {
+			return;
+		}
+		int offset = offset(pid);
+		int sequence = begin(current, offset);
+		current.put(offset + STATE, EMPTY);
+		INT.setRelease(current, offset + SEQUENCE, sequence + 2);
+		written(pid);
+	}
+
+	// Makes the sequence number odd before a record is written; returns the even number it had
+	private static int begin(MappedByteBuffer current, int offset) {
+		int sequence = (int) INT.getVolatile(current, offset + SEQUENCE);
+		INT.setVolatile(current, offset + SEQUENCE, sequence + 1);
+		return sequence;
+	}
+
+	private void written(int pid) {
+		if (writtenDuringCopy != null) {
+			writtenDuringCopy.add(pid);
+		}
+	}
+
+	private int sequence(int pid) {
+		MappedByteBuffer current = buffer;
+		return pid > 0 && pid < slots(current) ? (int) INT.getVolatile(current, offset(pid) + SEQUENCE) : 0;
+	}
+
+	private MappedByteBuffer capacityFor(int pid) {
+		MappedByteBuffer current = buffer;
+		if (pid >= slots(current)) {
+			try {
+				current = map((int) Math.min(Math.max((long) slots(current) * 2, pid + 1L), maxPid + 1L));
+				buffer = current;
+			} catch (IOException e) {
+				throw new IllegalStateException("Cannot grow product snapshot " + file, e);
+			}
+		}
+		return current;
+	}
+
+	// Odd sequence numbers are records a crash stopped in the middle of; they are read from the database
+	private int finishInterruptedWrites() {
+		MappedByteBuffer current = buffer;
+		int unfinished = 0;
+		for (int pid = 1; pid < slots(current); pid++) {
+			int offset = offset(pid);
+			int sequence = current.getInt(offset + SEQUENCE);
+			if ((sequence & 1) != 0) {
+				current.put(offset + STATE, ELSEWHERE);
+				current.putInt(offset + SEQUENCE, sequence + 1);
+				unfinished++;
+			}
+		}
+		return unfinished;
+	}
+
+	private boolean hasHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+		channel.read(header, 0);
+		return header.getInt(0) == MAGIC && header.getInt(4) == FORMAT_VERSION && header.getInt(8) == RECORD_BYTES;
+	}
+
+	private MappedByteBuffer map(int slots) throws IOException {
+		MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+				HEADER_BYTES + (long) slots * RECORD_BYTES);
+		mapped.order(ByteOrder.LITTLE_ENDIAN);
+		return mapped;
+	}
+
+	private static int slots(MappedByteBuffer mapped) {
+		return (mapped.capacity() - HEADER_BYTES) / RECORD_BYTES;
+	}
+
+	private static int offset(int pid) {
+		return HEADER_BYTES + pid * RECORD_BYTES;
+	}
+}
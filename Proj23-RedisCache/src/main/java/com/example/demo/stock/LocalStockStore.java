@@ -0,0 +1,51 @@
+package com.example.demo.stock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link StockStore} in this node's memory, for a single node or when Redis
+ * is turned off. Each product has its own counter, so reservations of
+ * different products never contend; reservations of one product retry a
+ * compare-and-set instead of taking a lock.
+ */
+public class LocalStockStore implements StockStore {
+
+	private final ConcurrentMap<Integer, AtomicLong> stock = new ConcurrentHashMap<>();
+
+	@Override
+	public long reserve(int pid, long n) {
+		AtomicLong counter = stock.get(pid);
+		if (counter == null) {
+			return NOT_LOADED;
+		}
+		while (true) {
+			long left = counter.get();
+			if (left < n) {
+				return INSUFFICIENT;
+			}
+			if (counter.compareAndSet(left, left - n)) {
+				return left - n;
+			}
+		}
+	}
+
+	@Override
+	public void loadIfAbsent(int pid, long qty) {
+		stock.putIfAbsent(pid, new AtomicLong(qty));
+	}
+
+	@Override
+	public void adjust(int pid, long delta) {
+		AtomicLong counter = stock.get(pid);
+		if (counter != null) {
+			counter.addAndGet(delta);
+		}
+	}
+
+	@Override
+	public void remove(int pid) {
+		stock.remove(pid);
+	}
+}
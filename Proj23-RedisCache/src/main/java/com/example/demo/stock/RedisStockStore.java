@@ -0,0 +1,63 @@
+package com.example.demo.stock;
+
+import java.util.List;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * {@link StockStore} shared by all nodes, one Redis key
+ * {@code product-stock::<pid>} per product. The check and the decrement run
+ * in one Lua script, so no two nodes can take the same unit.
+ *
+ * Errors reaching Redis are not hidden: a reservation that cannot be checked
+ * must not succeed.
+ */
+public class RedisStockStore implements StockStore {
+
+	private static final String KEY_PREFIX = "product-stock::";
+
+	private static final RedisScript<Long> RESERVE = new DefaultRedisScript<>("""
+			local left = redis.call('get', KEYS[1])
+			if not left then return -2 end
+			local n = tonumber(ARGV[1])
+			if tonumber(left) < n then return -1 end
+			return redis.call('decrby', KEYS[1], n)
+			""", Long.class);
+
+	private static final RedisScript<Long> ADJUST = new DefaultRedisScript<>("""
+			if redis.call('exists', KEYS[1]) == 0 then return -2 end
+			return redis.call('incrby', KEYS[1], tonumber(ARGV[1]))
+			""", Long.class);
+
+	private final StringRedisTemplate redisTemplate;
+
+	public RedisStockStore(StringRedisTemplate redisTemplate) {
+		this.redisTemplate = redisTemplate;
+	}
+
+	@Override
+	public long reserve(int pid, long n) {
+		return redisTemplate.execute(RESERVE, List.of(key(pid)), String.valueOf(n));
+	}
+
+	@Override
+	public void loadIfAbsent(int pid, long qty) {
+		redisTemplate.opsForValue().setIfAbsent(key(pid), String.valueOf(qty));
+	}
+
+	@Override
+	public void adjust(int pid, long delta) {
+		redisTemplate.execute(ADJUST, List.of(key(pid)), String.valueOf(delta));
+	}
+
+	@Override
+	public void remove(int pid) {
+		redisTemplate.delete(key(pid));
+	}
+
+	private static String key(int pid) {
+		return KEY_PREFIX + pid;
+	}
+}
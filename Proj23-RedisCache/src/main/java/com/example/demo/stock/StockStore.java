@@ -0,0 +1,38 @@
+package com.example.demo.stock;
+
+/**
+ * Stock counts per product that can be decremented without a database row
+ * lock. The database is brought up to date afterwards by
+ * {@link StockWriteBehind}.
+ */
+public interface StockStore {
+
+	// reserve: the store has no count for the product yet, load it and retry
+	long NOT_LOADED = -2;
+
+	// reserve: fewer than n units left, nothing was taken
+	long INSUFFICIENT = -1;
+
+	/**
+	 * Takes {@code n} units if at least {@code n} are left, atomically.
+	 *
+	 * @return the units left afterwards, {@link #INSUFFICIENT} or
+	 *         {@link #NOT_LOADED}
+	 */
+	long reserve(int pid, long n);
+
+	/**
+	 * Sets the count of a product unless it already has one, so that nodes
+	 * loading it at the same time do not overwrite each other's reservations.
+	 */
+	void loadIfAbsent(int pid, long qty);
+
+	/**
+	 * Adds {@code delta} (which may be negative) to the count of a product,
+	 * if it has one.
+	 */
+	void adjust(int pid, long delta);
+
+	// The next reserve loads the count again
+	void remove(int pid);
+}
@@ -0,0 +1,183 @@
+package com.example.demo.stock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.cache.ProductChanges;
+import com.example.demo.cache.ProductVersions;
+import com.example.demo.cache.TwoLevelCache;
+import com.example.demo.entity.Product;
+import com.example.demo.service.impl.ProductMgmtServiceImpl;
+import com.example.demo.snapshot.ProductSnapshot;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Writes stock reservations to {@code tbl_mst_cache_product} in the
+ * background. Reservations are summed per product, and every
+ * {@code product.stock.flush-interval-ms} the sums are subtracted from
+ * {@code qty} in one batched update, so a product reserved a thousand times
+ * between two flushes costs one row update. Only the flushed products are
+ * dropped from the product cache, and the list once per flush; their ETag
+ * versions are bumped after that. The update bypasses Hibernate, so the
+ * flushed products and the cached query results are dropped from its
+ * second-level cache too, and read again into the catalog snapshot, here
+ * and on the other nodes.
+ *
+ * A flush that fails puts its sums back for the next one. Sums not flushed
+ * when the node stops are lost if the final flush on shutdown fails too.
+ *
+ * Metrics: {@code product.stock.flush.rows} (products updated per flush) and
+ * {@code product.stock.pending} (products waiting for the next flush).
+ */
+@Component
+public class StockWriteBehind {
+
+	private static final Logger logger = LoggerFactory.getLogger(StockWriteBehind.class);
+
+	// Relative, so that the sums of all nodes add up whatever order they arrive in
+	private static final String UPDATE_SQL = "update tbl_mst_cache_product set qty = qty - ? where pid = ?";
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transaction;
+
+	private final CacheManager cacheManager;
+
+	private final EntityManagerFactory entityManagerFactory;
+
+	private final ProductVersions productVersions;
+
+	private final ProductSnapshot productSnapshot;
+
+	private final ProductChanges productChanges;
+
+	private final int batchSize;
+
+	private final ConcurrentMap<Integer, Long> pending = new ConcurrentHashMap<>();
+
+	private final DistributionSummary flushedRows;
+
+	private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "product-stock-flusher");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	public StockWriteBehind(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			CacheManager cacheManager, EntityManagerFactory entityManagerFactory, ProductVersions productVersions,
+			ProductSnapshot productSnapshot, ProductChanges productChanges, MeterRegistry meterRegistry,
+			@Value("${product.stock.flush-interval-ms:500}") long flushIntervalMs,
+			@Value("${product.stock.flush-batch-size:500}") int batchSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.cacheManager = cacheManager;
+		this.entityManagerFactory = entityManagerFactory;
+		this.productVersions = productVersions;
+		this.productSnapshot = productSnapshot;
+		this.productChanges = productChanges;
+		this.batchSize = batchSize;
+		this.flushedRows = DistributionSummary.builder("product.stock.flush.rows")
+				.description("Products whose stock was written per flush")
+				.register(meterRegistry);
+		meterRegistry.gauge("product.stock.pending", pending, ConcurrentMap::size);
+		flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	public void record(int pid, long n) {
+		pending.merge(pid, n, Long::sum);
+	}
+
+	// The product is gone, its row with it
+	public void forget(int pid) {
+		pending.remove(pid);
+	}
+
+	/**
+	 * Writes the sums collected since the last flush.
+	 *
+	 * @return the number of products updated
+	 */
+	public synchronized int flush() {
+		List<Object[]> rows = new ArrayList<>();
+		List<Integer> pids = new ArrayList<>();
+		for (Integer pid : pending.keySet()) {
+			Long n = pending.remove(pid);
+			if (n != null && n != 0) {
+				rows.add(new Object[] { n, pid });
+				pids.add(pid);
+			}
+		}
+		if (rows.isEmpty()) {
+			return 0;
+		}
+		try {
+			transaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_SQL, rows, batchSize,
+					(statement, row) -> {
+						statement.setLong(1, (Long) row[0]);
+						statement.setInt(2, (Integer) row[1]);
+					}));
+		} catch (RuntimeException e) {
+			rows.forEach(row -> record((Integer) row[1], (Long) row[0]));
+			throw e;
+		}
+		flushedRows.record(rows.size());
+		evict(pids);
+		return rows.size();
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			logger.warn("Stock flush failed, retrying with the next one: {}", e.getMessage());
+		}
+	}
+
+	private void evict(List<Integer> pids) {
+		pids.forEach(pid -> entityManagerFactory.getCache().evict(Product.class, pid));
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictDefaultQueryRegion();
+		productSnapshot.reload(pids);
+		Cache productCache = cacheManager.getCache(ProductMgmtServiceImpl.PRODUCT_CACHE);
+		if (productCache instanceof TwoLevelCache twoLevelCache) {
+			twoLevelCache.evictAll(pids);
+		} else if (productCache != null) {
+			pids.forEach(productCache::evict);
+		}
+		Cache listCache = cacheManager.getCache(ProductMgmtServiceImpl.PRODUCT_LIST_CACHE);
+		if (listCache != null) {
+			listCache.clear();
+		}
+		productVersions.bump(pids);
+		productChanges.saved(pids);
+	}
+
+	@PreDestroy
+	public void stop() {
+		flusher.shutdownNow();
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			logger.error("Final stock flush failed, {} products not written: {}", pending.size(), e.getMessage());
+		}
+	}
+}
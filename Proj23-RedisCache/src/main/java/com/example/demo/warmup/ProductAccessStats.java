@@ -0,0 +1,122 @@
+package com.example.demo.warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Counts reads per product ID, so that the next start can warm the cache with
+ * the most read products.
+ *
+ * Counts are saved to {@code product.warmup.stats-file} on shutdown as
+ * {@code pid,count} lines, most read first, and read back on start. Counts
+ * from earlier runs are halved when read, so the list follows changes in
+ * traffic. At most {@code product.warmup.stats.max-tracked} IDs are counted;
+ * reads of other IDs are ignored once that many are tracked.
+ */
+@Component
+public class ProductAccessStats {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductAccessStats.class);
+
+	private final Path file;
+
+	private final int maxTracked;
+
+	private final Map<Integer, LongAdder> counts = new ConcurrentHashMap<>();
+
+	public ProductAccessStats(@Value("${product.warmup.stats-file:}") Path file,
+			@Value("${product.warmup.stats.max-tracked:100000}") int maxTracked) {
+		this.file = file == null || file.toString().isEmpty() ? null : file;
+		this.maxTracked = maxTracked;
+		load();
+	}
+
+	public void record(int pid) {
+		LongAdder count = counts.get(pid);
+		if (count == null) {
+			if (counts.size() >= maxTracked) {
+				return;
+			}
+			count = counts.computeIfAbsent(pid, key -> new LongAdder());
+		}
+		count.increment();
+	}
+
+	/**
+	 * @return up to {@code limit} IDs, most read first
+	 */
+	public List<Integer> top(int limit) {
+		return sorted().stream().limit(limit).map(Map.Entry::getKey).toList();
+	}
+
+	private List<Map.Entry<Integer, Long>> sorted() {
+		List<Map.Entry<Integer, Long>> entries = new ArrayList<>(counts.size());
+		counts.forEach((pid, count) -> entries.add(Map.entry(pid, count.sum())));
+		entries.sort(Map.Entry.<Integer, Long>comparingByValue().reversed());
+		return entries;
+	}
+
+	private void load() {
+		if (file == null || !Files.isReadable(file)) {
+			return;
+		}
+		try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+			lines.forEach(line -> {
+				int comma = line.indexOf(',');
+				if (comma > 0 && counts.size() < maxTracked) {
+					long count = Long.parseLong(line.substring(comma + 1).trim()) / 2;
+					if (count > 0) {
+						counts.computeIfAbsent(Integer.parseInt(line.substring(0, comma).trim()),
+								key -> new LongAdder()).add(count);
+					}
+				}
+			});
+			logger.info("Read access counts of {} products from {}", counts.size(), file);
+		} catch (IOException | RuntimeException e) {
+			logger.warn("Could not read product access counts from {}: {}", file, e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes the counts to a temporary file next to the stats file and moves
+	 * it over, so a crash while writing leaves the previous file in place.
+	 */
+	@PreDestroy
+	public void save() {
+		if (file == null || counts.isEmpty()) {
+			return;
+		}
+		try {
+			Path parent = file.toAbsolutePath().getParent();
+			Files.createDirectories(parent);
+			Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+			try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				for (Map.Entry<Integer, Long> entry : sorted()) {
+					writer.write(entry.getKey() + "," + entry.getValue());
+					writer.newLine();
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			logger.info("Saved access counts of {} products to {}", counts.size(), file);
+		} catch (IOException e) {
+			logger.warn("Could not save product access counts to {}: {}", file, e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package com.example.demo.warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.service.IProductMgmtService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Loads the product list and the most read products into the caches once the
+ * application is ready, so the first requests after a deploy do not all go to
+ * the database.
+ *
+ * The products are {@code product.warmup.ids} if set, else the
+ * {@code product.warmup.top-n} most read products of earlier runs (see
+ * {@link ProductAccessStats}). They are read through the service in
+ * multi-get chunks, on {@code product.warmup.threads} threads next to the
+ * list.
+ *
+ * As a health indicator it is {@code OUT_OF_SERVICE} until the warm-up has
+ * finished, failed or run for {@code product.warmup.timeout-seconds}; it is
+ * part of the readiness group, so the node gets traffic only then.
+ *
+ * Metrics: {@code product.cache.warmup.duration} with {@code outcome}
+ * completed, failed or timed_out, and {@code product.cache.warmup.entries},
+ * the cache entries loaded.
+ */
+@Component
+public class ProductCacheWarmup implements HealthIndicator {
+
+	private static final Logger logger = LoggerFactory.getLogger(ProductCacheWarmup.class);
+
+	enum State {
+		PENDING, RUNNING, COMPLETED, FAILED, TIMED_OUT, DISABLED
+	}
+
+	private final IProductMgmtService productMgmtService;
+
+	private final ProductAccessStats accessStats;
+
+	private final MeterRegistry meterRegistry;
+
+	private final boolean enabled;
+
+	private final List<Integer> configuredIds;
+
+	private final int topN;
+
+	private final int chunkSize;
+
+	private final long timeoutMs;
+
+	private final ExecutorService workers;
+
+	private final Counter entries;
+
+	private final AtomicLong entriesLoaded = new AtomicLong();
+
+	private volatile State state = State.PENDING;
+
+	private volatile long durationMs;
+
+	public ProductCacheWarmup(IProductMgmtService productMgmtService, ProductAccessStats accessStats,
+			MeterRegistry meterRegistry,
+			@Value("${product.warmup.enabled:true}") boolean enabled,
+			@Value("${product.warmup.ids:}") List<Integer> configuredIds,
+			@Value("${product.warmup.top-n:1000}") int topN,
+			@Value("${product.multiget.max-ids:100}") int chunkSize,
+			@Value("${product.warmup.threads:4}") int threads,
+			@Value("${product.warmup.timeout-seconds:30}") long timeoutSeconds) {
+		this.productMgmtService = productMgmtService;
+		this.accessStats = accessStats;
+		this.meterRegistry = meterRegistry;
+		this.enabled = enabled;
+		this.configuredIds = configuredIds;
+		this.topN = topN;
+		this.chunkSize = chunkSize;
+		this.timeoutMs = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+		AtomicInteger threadCount = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "product-cache-warmup-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.entries = Counter.builder("product.cache.warmup.entries")
+				.description("Cache entries loaded by the startup warm-up")
+				.register(meterRegistry);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!enabled) {
+			state = State.DISABLED;
+			workers.shutdown();
+			return;
+		}
+		state = State.RUNNING;
+		long started = System.nanoTime();
+		List<Integer> pids = configuredIds.isEmpty() ? accessStats.top(topN) : configuredIds;
+		logger.info("Warming product caches: list and {} products", pids.size());
+		List<CompletableFuture<Void>> tasks = new ArrayList<>();
+		tasks.add(CompletableFuture.runAsync(() -> {
+			productMgmtService.showAllProducts();
+			loaded(1);
+		}, workers));
+		for (int from = 0; from < pids.size(); from += chunkSize) {
+			List<Integer> chunk = pids.subList(from, Math.min(from + chunkSize, pids.size()));
+			tasks.add(CompletableFuture.runAsync(() -> loaded(productMgmtService.findProductsByIds(chunk).size()),
+					workers));
+		}
+		CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+				.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+				.whenComplete((result, failure) -> finish(started, failure));
+	}
+
+	private void loaded(int count) {
+		entriesLoaded.addAndGet(count);
+		entries.increment(count);
+	}
+
+	private void finish(long started, Throwable failure) {
+		durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+		if (failure == null) {
+			state = State.COMPLETED;
+			logger.info("Warmed product caches with {} entries in {} ms", entriesLoaded.get(), durationMs);
+		} else if (failure instanceof TimeoutException) {
+			state = State.TIMED_OUT;
+			logger.warn("Cache warm-up stopped after {} ms with {} entries loaded", durationMs, entriesLoaded.get());
+		} else {
+			state = State.FAILED;
+			logger.warn("Cache warm-up failed after {} ms with {} entries loaded: {}", durationMs,
+					entriesLoaded.get(), failure.getMessage());
+		}
+		// Loads still running after a timeout are interrupted, the node serves traffic from now on
+		workers.shutdownNow();
+		Timer.builder("product.cache.warmup.duration")
+				.description("Time from application ready to the end of the cache warm-up")
+				.tag("outcome", state.name().toLowerCase())
+				.register(meterRegistry)
+				.record(durationMs, TimeUnit.MILLISECONDS);
+	}
+
+	State state() {
+		return state;
+	}
+
+	@Override
+	public Health health() {
+		Health.Builder health = state == State.PENDING || state == State.RUNNING ? Health.outOfService() : Health.up();
+		return health.withDetail("state", state.name().toLowerCase())
+				.withDetail("entries", entriesLoaded.get())
+				.withDetail("durationMs", durationMs)
+				.build();
+	}
+
+	@PreDestroy
+	public void stop() {
+		workers.shutdownNow();
+	}
+}
@@ -1,28 +1,32 @@
+-- Product IDs come from a sequence handed out in blocks of 50 (see Product), so Hibernate can batch inserts.
+-- The sample rows below use fixed IDs under the sequence start; MERGE keeps the script re-runnable.
+CREATE SEQUENCE IF NOT EXISTS product_seq START WITH 1001 INCREMENT BY 50;
+
 -- Create table if it does not exist
 CREATE TABLE IF NOT EXISTS tbl_mst_cache_product (
-    pid INT AUTO_INCREMENT PRIMARY KEY,
+    pid INT PRIMARY KEY,
     pname VARCHAR(255),
     price DECIMAL(10,2),
     qty DECIMAL(10,2)
 );
 
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Apple iPhone 13', 999.99, 50);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Samsung Galaxy S21', 799.99, 60);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Sony WH-1000XM4 Headphones', 349.99, 120);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Dell XPS 13 Laptop', 1299.99, 30);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('HP Envy 15', 1099.99, 40);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Samsung 55" QLED TV', 799.99, 25);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Bose QuietComfort 35 II', 299.99, 70);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Apple AirPods Pro', 249.99, 150);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Google Pixel 6', 599.99, 80);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('OnePlus 9 Pro', 969.99, 100);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Sony PlayStation 5', 499.99, 10);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Microsoft Xbox Series X', 499.99, 15);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Nvidia GeForce RTX 3080', 699.99, 30);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Corsair Vengeance LPX 16GB RAM', 69.99, 200);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Samsung 1TB SSD', 129.99, 250);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Apple MacBook Pro 16"', 2399.99, 20);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Kindle Paperwhite', 129.99, 180);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Garmin Forerunner 945', 599.99, 50);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('Fitbit Charge 5', 179.99, 150);
-INSERT INTO tbl_mst_cache_product (pname, price, qty) VALUES ('GoPro HERO 10 Black', 499.99, 40);
\ No newline at end of file
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (1, 'Apple iPhone 13', 999.99, 50);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (2, 'Samsung Galaxy S21', 799.99, 60);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (3, 'Sony WH-1000XM4 Headphones', 349.99, 120);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (4, 'Dell XPS 13 Laptop', 1299.99, 30);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (5, 'HP Envy 15', 1099.99, 40);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (6, 'Samsung 55" QLED TV', 799.99, 25);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (7, 'Bose QuietComfort 35 II', 299.99, 70);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (8, 'Apple AirPods Pro', 249.99, 150);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (9, 'Google Pixel 6', 599.99, 80);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (10, 'OnePlus 9 Pro', 969.99, 100);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (11, 'Sony PlayStation 5', 499.99, 10);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (12, 'Microsoft Xbox Series X', 499.99, 15);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (13, 'Nvidia GeForce RTX 3080', 699.99, 30);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (14, 'Corsair Vengeance LPX 16GB RAM', 69.99, 200);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (15, 'Samsung 1TB SSD', 129.99, 250);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (16, 'Apple MacBook Pro 16"', 2399.99, 20);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (17, 'Kindle Paperwhite', 129.99, 180);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (18, 'Garmin Forerunner 945', 599.99, 50);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (19, 'Fitbit Charge 5', 179.99, 150);
+MERGE INTO tbl_mst_cache_product (pid, pname, price, qty) KEY (pid) VALUES (20, 'GoPro HERO 10 Black', 499.99, 40);
\ No newline at end of file
@@ -3,7 +3,7 @@ package com.example.demo;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "product.cache.l2.enabled=false")
 class Proj23RedisCacheApplicationTests {
 
 	@Test
@@ -0,0 +1,219 @@
+package com.example.demo;
+
+import static com.example.demo.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.cache.BulkCache;
+import com.example.demo.cache.BulkRedisCacheManager;
+import com.example.demo.cache.CacheLoadLock;
+import com.example.demo.cache.ProductChanges;
+import com.example.demo.cache.ProductRedisSerializer;
+import com.example.demo.cache.ProductVersions;
+import com.example.demo.cache.RedisCacheLoadLock;
+import com.example.demo.cache.RedisProductVersions;
+import com.example.demo.entity.Product;
+import com.example.demo.service.IProductMgmtService;
+import com.example.demo.service.impl.ProductMgmtServiceImpl;
+import com.example.demo.stock.RedisStockStore;
+import com.example.demo.stock.StockStore;
+
+import redis.embedded.RedisServer;
+
+/**
+ * The parts that only run with the Redis L2 turned on: shared ETag versions,
+ * the stock scripts, the cross-node load lock, multi-key reads and the
+ * versioned {@code /get/{pid}}, against a Redis server started for the test.
+ */
+@SpringBootTest(properties = {
+		"product.cache.l2.enabled=true",
+		"product.warmup.enabled=false",
+		"product.stock.flush-interval-ms=3600000",
+		"product.versions.ttl-seconds=600" })
+@AutoConfigureMockMvc
+// Closed after the class, while the server is still up; the server stops with the JVM
+@DirtiesContext
+class RedisL2Tests {
+
+	private static final RedisServer REDIS = startRedis();
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	@Autowired
+	private RedisConnectionFactory connectionFactory;
+
+	@Autowired
+	private ProductVersions productVersions;
+
+	@Autowired
+	private StockStore stockStore;
+
+	@Autowired
+	private CacheLoadLock cacheLoadLock;
+
+	@Autowired
+	private IProductMgmtService productMgmtService;
+
+	@Autowired
+	private ProductChanges productChanges;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@DynamicPropertySource
+	static void redisPort(DynamicPropertyRegistry registry) {
+		registry.add("spring.data.redis.host", () -> "127.0.0.1");
+		registry.add("spring.data.redis.port", () -> REDIS.ports().get(0));
+	}
+
+	@Test
+	void versionsAreSharedExpireAndAreDroppedOnDelete() {
+		assertThat(productVersions).isInstanceOf(RedisProductVersions.class);
+		String first = productVersions.product(900_001);
+		assertThat(productVersions.product(900_001)).isEqualTo(first);
+		assertThat(redisTemplate.getExpire("product-version::900001")).isPositive();
+
+		String catalog = productVersions.catalog();
+		productVersions.bump(List.of(900_001));
+		String bumped = productVersions.product(900_001);
+		assertThat(bumped).isNotEqualTo(first);
+		assertThat(productVersions.catalog()).isNotEqualTo(catalog);
+
+		productVersions.deleted(List.of(900_001));
+		assertThat(redisTemplate.hasKey("product-version::900001")).isFalse();
+		assertThat(productVersions.product(900_001)).isNotIn(first, bumped);
+
+		// Lost counters come back under a new epoch
+		String epoch = first.substring(0, first.indexOf('.'));
+		redisTemplate.delete("product-version::epoch");
+		assertThat(productVersions.product(900_001)).doesNotStartWith(epoch + ".");
+	}
+
+	@Test
+	void stockScriptsNeverTakeMoreThanIsLeft() {
+		assertThat(stockStore).isInstanceOf(RedisStockStore.class);
+		assertThat(stockStore.reserve(900_002, 1)).isEqualTo(StockStore.NOT_LOADED);
+		stockStore.adjust(900_002, 5);
+		assertThat(redisTemplate.hasKey("product-stock::900002")).isFalse();
+
+		stockStore.loadIfAbsent(900_002, 5);
+		stockStore.loadIfAbsent(900_002, 50);
+		assertThat(stockStore.reserve(900_002, 3)).isEqualTo(2);
+		assertThat(stockStore.reserve(900_002, 3)).isEqualTo(StockStore.INSUFFICIENT);
+		stockStore.adjust(900_002, 4);
+		assertThat(stockStore.reserve(900_002, 6)).isZero();
+
+		stockStore.remove(900_002);
+		assertThat(stockStore.reserve(900_002, 1)).isEqualTo(StockStore.NOT_LOADED);
+	}
+
+	@Test
+	void loadLockIsHeldByOneOwnerAtATime() throws Exception {
+		assertThat(cacheLoadLock).isInstanceOf(RedisCacheLoadLock.class);
+		assertThat(cacheLoadLock.tryAcquire("test", "k")).isTrue();
+		assertThat(redisTemplate.getExpire("test::k::loading")).isPositive();
+		assertThat(CompletableFuture.supplyAsync(() -> cacheLoadLock.tryAcquire("test", "k")).get()).isFalse();
+
+		// Only the owner releases it
+		CompletableFuture.runAsync(() -> cacheLoadLock.release("test", "k")).get();
+		assertThat(redisTemplate.hasKey("test::k::loading")).isTrue();
+		cacheLoadLock.release("test", "k");
+		assertThat(CompletableFuture.supplyAsync(() -> cacheLoadLock.tryAcquire("test", "k")).get()).isTrue();
+	}
+
+	@Test
+	void multiGetReadsWhatSingleKeyWritesStored() {
+		int first = productMgmtService.addProduct(product("Redis bulk cup", 3.0)).getPid();
+		int second = productMgmtService.addProduct(product("Redis bulk jug", 7.0)).getPid();
+		// Both missing: one MGET, then one pipeline of writes
+		productMgmtService.findProductsByIds(List.of(first, second));
+
+		BulkRedisCacheManager redisCacheManager = new BulkRedisCacheManager(
+				RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory),
+				RedisCacheConfiguration.defaultCacheConfig()
+						.serializeValuesWith(SerializationPair.fromSerializer(new ProductRedisSerializer())),
+				connectionFactory);
+		redisCacheManager.afterPropertiesSet();
+		BulkCache l2 = (BulkCache) redisCacheManager.getCache(ProductMgmtServiceImpl.PRODUCT_CACHE);
+
+		List<ValueWrapper> values = l2.getAll(List.of(first, 900_003, second));
+		assertThat(values).hasSize(3);
+		assertThat(((Product) values.get(0).get()).getPname()).isEqualTo("Redis bulk cup");
+		assertThat(values.get(1)).isNull();
+		assertThat(((Product) values.get(2).get()).getPname()).isEqualTo("Redis bulk jug");
+
+		l2.putAll(Map.of(900_003, product("Redis bulk bowl", 1.0)));
+		assertThat(((Product) l2.getAll(List.of(900_003)).get(0).get()).getPname()).isEqualTo("Redis bulk bowl");
+		redisTemplate.delete("products::900003");
+	}
+
+	@Test
+	void sharedVersionsAreNotAnsweredFromAnOlderL1() throws Exception {
+		int pid = productMgmtService.addProduct(product("Redis lamp", 40.0)).getPid();
+		String url = "/product-api/get/" + pid;
+		String etag = mockMvc.perform(get(url))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.pname").value("Redis lamp"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+
+		// Another node saves it: the row, its L2 entry and the shared version change, this L1 keeps the old product
+		jdbcTemplate.update("update tbl_mst_cache_product set pname = ? where pid = ?", "Redis lamp 2", pid);
+		redisTemplate.delete("products::" + pid);
+		productVersions.bump(List.of(pid));
+		productChanges.onInvalidation(ProductChanges.SAVED, String.valueOf(pid));
+
+		mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.pname").value("Redis lamp 2"));
+	}
+
+	private static RedisServer startRedis() {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			int port = socket.getLocalPort();
+			socket.close();
+			RedisServer server = RedisServer.newRedisServer()
+					.port(port)
+					.bind("127.0.0.1")
+					// Nothing written to disk
+					.setting("save \"\"")
+					.setting("appendonly no")
+					.onShutdownForceStop(true)
+					.build();
+			server.start();
+			return server;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
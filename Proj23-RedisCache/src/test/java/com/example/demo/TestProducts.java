@@ -0,0 +1,20 @@
+package com.example.demo;
+
+import com.example.demo.entity.Product;
+
+/**
+ * Products for the tests, not yet saved.
+ */
+public final class TestProducts {
+
+	private TestProducts() {
+	}
+
+	public static Product product(String name, Double price) {
+		Product product = new Product();
+		product.setPname(name);
+		product.setPrice(price);
+		product.setQty(10.0);
+		return product;
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.demo.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import com.example.demo.entity.Product;
+
+class ProductRedisSerializerTests {
+
+	private final ProductRedisSerializer serializer = new ProductRedisSerializer();
+
+	@Test
+	void roundTripsAProduct() {
+		Product product = product(1042, "Galaxy S24 Ultra 512GB", 1299.99, 7.0);
+
+		Product read = (Product) serializer.deserialize(serializer.serialize(product));
+
+		assertThat(read).usingRecursiveComparison().isEqualTo(product);
+	}
+
+	@Test
+	void roundTripsListsWithMissingFieldsAndNullElements() {
+		List<Product> products = Arrays.asList(product(1, "iPhone", 999.0, 3.0), product(null, null, null, null), null,
+				product(-5, "Ünïcödé ✓", -0.0, Double.MAX_VALUE));
+
+		Object read = serializer.deserialize(serializer.serialize(products));
+
+		assertThat(read).asList().usingRecursiveFieldByFieldElementComparator().containsExactlyElementsOf(products);
+	}
+
+	@Test
+	void fallsBackToJdkSerializationForOtherValues() {
+		assertThat(serializer.deserialize(serializer.serialize("plain"))).isEqualTo("plain");
+		assertThat(serializer.deserialize(serializer.serialize(List.of("a", "b")))).isEqualTo(List.of("a", "b"));
+	}
+
+	@Test
+	void readsEntriesWrittenWithJdkSerialization() {
+		Product product = product(7, "Pixel", 599.0, 1.0);
+
+		Object read = serializer.deserialize(RedisSerializer.java().serialize(product));
+
+		assertThat(read).usingRecursiveComparison().isEqualTo(product);
+	}
+
+	@Test
+	void rejectsNewerFormatVersionsAndGarbage() {
+		byte[] bytes = serializer.serialize(product(7, "Pixel", 599.0, 1.0));
+		bytes[1] = ProductRedisSerializer.VERSION + 1;
+
+		assertThatExceptionOfType(SerializationException.class).isThrownBy(() -> serializer.deserialize(bytes))
+				.withMessageContaining("version");
+		assertThatExceptionOfType(SerializationException.class)
+				.isThrownBy(() -> serializer.deserialize(new byte[] { 1, 2, 3 }));
+		byte[] truncated = Arrays.copyOf(serializer.serialize(product(7, "Pixel", 599.0, 1.0)), 8);
+		assertThatExceptionOfType(SerializationException.class).isThrownBy(() -> serializer.deserialize(truncated));
+	}
+
+	@Test
+	void isMuchSmallerThanJdkSerialization() {
+		Product product = product(1042, "Galaxy S24 Ultra 512", 1299.99, 7.0);
+		List<Product> list = List.of(product, product(1043, "Galaxy S24 Ultra 256", 1199.99, 3.0),
+				product(1044, "Galaxy S24 256", 899.99, 12.0));
+
+		assertThat(serializer.serialize(product)).hasSizeLessThan(50);
+		assertThat(serializer.serialize(product).length * 4).isLessThan(RedisSerializer.java().serialize(product).length);
+		assertThat(serializer.serialize(list).length * 2).isLessThan(RedisSerializer.java().serialize(list).length);
+	}
+
+	private static Product product(Integer pid, String pname, Double price, Double qty) {
+		Product product = new Product();
+		product.setPid(pid);
+		product.setPname(pname);
+		product.setPrice(price);
+		product.setQty(qty);
+		return product;
+	}
+}
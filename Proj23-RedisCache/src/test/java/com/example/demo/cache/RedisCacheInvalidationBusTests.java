@@ -0,0 +1,52 @@
+package com.example.demo.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+class RedisCacheInvalidationBusTests {
+
+	private static final String CHANNEL = "product-cache-invalidation";
+
+	private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+
+	private final RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+
+	@Test
+	void deliversInvalidationsFromOtherNodesOnly() {
+		RedisCacheInvalidationBus nodeA = new RedisCacheInvalidationBus(redisTemplate, container, CHANNEL);
+		RedisCacheInvalidationBus nodeB = new RedisCacheInvalidationBus(redisTemplate, container, CHANNEL);
+		List<String> receivedByA = new ArrayList<>();
+		List<String> receivedByB = new ArrayList<>();
+		nodeA.subscribe((cacheName, key) -> receivedByA.add(cacheName + "/" + key));
+		nodeB.subscribe((cacheName, key) -> receivedByB.add(cacheName + "/" + key));
+
+		nodeA.publish("prods", "42");
+		nodeA.publish("prods", null);
+		nodeA.publishAll("prods", List.of("7", "8"));
+
+		ArgumentCaptor<String> messages = ArgumentCaptor.forClass(String.class);
+		verify(redisTemplate, times(3)).convertAndSend(eq(CHANNEL), messages.capture());
+		for (String message : messages.getAllValues()) {
+			DefaultMessage redisMessage = new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8),
+					message.getBytes(StandardCharsets.UTF_8));
+			nodeA.onMessage(redisMessage, null);
+			nodeB.onMessage(redisMessage, null);
+		}
+
+		assertThat(receivedByA).isEmpty();
+		assertThat(receivedByB).containsExactly("prods/42", "prods/null", "prods/7", "prods/8");
+	}
+}
@@ -0,0 +1,461 @@
+package com.example.demo.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Two cache managers playing two nodes. Redis is stood in for by a shared
+ * {@link ConcurrentMapCacheManager} (L2) and an in-memory channel (pub/sub).
+ */
+class TwoLevelCacheManagerTests {
+
+	private ConcurrentMapCacheManager sharedL2;
+
+	private LocalChannel channel;
+
+	private SimpleMeterRegistry registryA;
+
+	private TwoLevelCacheManager nodeA;
+
+	private TwoLevelCacheManager nodeB;
+
+	@BeforeEach
+	void setUp() {
+		sharedL2 = new ConcurrentMapCacheManager();
+		channel = new LocalChannel();
+		registryA = new SimpleMeterRegistry();
+		nodeA = node(100, registryA);
+		nodeB = node(100, new SimpleMeterRegistry());
+	}
+
+	private TwoLevelCacheManager node(long l1MaximumSize, SimpleMeterRegistry registry) {
+		return new TwoLevelCacheManager(l1MaximumSize, Duration.ofMinutes(1), sharedL2::getCache, channel.join(),
+				registry);
+	}
+
+	@Test
+	void readsFallBackToL2AndFillL1() {
+		nodeA.getCache("prods").put(1, "iPhone");
+
+		assertThat(nodeB.getCache("prods").get(1, String.class)).isEqualTo("iPhone");
+		assertThat(localSize(nodeB, "prods")).isEqualTo(1);
+	}
+
+	@Test
+	void writeOnOneNodeDropsStaleL1CopyOnOthers() {
+		nodeA.getCache("prods").put(1, "iPhone");
+		nodeB.getCache("prods").get(1);
+
+		nodeA.getCache("prods").put(1, "iPhone 13");
+
+		assertThat(localSize(nodeB, "prods")).isZero();
+		assertThat(nodeB.getCache("prods").get(1, String.class)).isEqualTo("iPhone 13");
+	}
+
+	@Test
+	void evictAndClearReachAllNodes() {
+		nodeA.getCache("prods").put(1, "iPhone");
+		nodeA.getCache("prods").put(2, "Galaxy");
+		nodeB.getCache("prods").get(1);
+		nodeB.getCache("prods").get(2);
+
+		nodeA.getCache("prods").evict(1);
+		assertThat(nodeB.getCache("prods").get(1)).isNull();
+		assertThat(nodeB.getCache("prods").get(2, String.class)).isEqualTo("Galaxy");
+
+		nodeA.getCache("prods").clear();
+		assertThat(localSize(nodeB, "prods")).isZero();
+		assertThat(nodeB.getCache("prods").get(2)).isNull();
+	}
+
+	@Test
+	void valueLoadedDuringAWriteIsNotCached() {
+		Cache cache = nodeA.getCache("prods");
+
+		// The loader read the old value, then a write evicted the key before the load finished
+		String loaded = cache.get(1, () -> {
+			cache.evict(1);
+			return "stale";
+		});
+
+		assertThat(loaded).isEqualTo("stale");
+		assertThat(cache.get(1)).isNull();
+		assertThat(sharedL2.getCache("prods").get(1)).isNull();
+		assertThat(cache.get(1, () -> "fresh")).isEqualTo("fresh");
+		assertThat(cache.get(1, String.class)).isEqualTo("fresh");
+	}
+
+	@Test
+	void versionedReadsDoNotTrustL1BehindTheVersion() {
+		// A node the invalidation has not reached yet
+		TwoLevelCache late = (TwoLevelCache) new TwoLevelCacheManager(100, Duration.ofMinutes(1), sharedL2::getCache,
+				CacheInvalidationBus.none(), new SimpleMeterRegistry()).getCache("prods");
+		nodeA.getCache("prods").put(1, "iPhone");
+		assertThat(late.get(1, "v1", () -> "loaded")).isEqualTo("iPhone");
+
+		// Written on the other node, then its version bumped
+		nodeA.getCache("prods").put(1, "iPhone 13");
+
+		assertThat(late.get(1, String.class)).isEqualTo("iPhone");
+		assertThat(late.get(1, "v1", () -> "loaded")).isEqualTo("iPhone");
+		assertThat(late.get(1, "v2", () -> "loaded")).isEqualTo("iPhone 13");
+		assertThat(late.get(1, String.class)).isEqualTo("iPhone 13");
+
+		nodeA.getCache("prods").evict(1);
+		assertThat(late.get(1, "v3", () -> (String) null)).isNull();
+	}
+
+	@Test
+	void evictAllDropsEveryKeyOnAllNodes() {
+		TwoLevelCache cache = (TwoLevelCache) nodeA.getCache("prods");
+		cache.put(1, "iPhone");
+		cache.put(2, "Galaxy");
+		cache.put(3, "Pixel");
+		nodeB.getCache("prods").get(1);
+		nodeB.getCache("prods").get(2);
+		nodeB.getCache("prods").get(3);
+
+		cache.evictAll(List.of(1, 2));
+
+		assertThat(nodeB.getCache("prods").get(1)).isNull();
+		assertThat(nodeB.getCache("prods").get(2)).isNull();
+		assertThat(nodeB.getCache("prods").get(3, String.class)).isEqualTo("Pixel");
+		// Three puts and one message for both evictions
+		assertThat(channel.messages).isEqualTo(4);
+	}
+
+	@Test
+	void getAllLoadsOnlyTheMissesInOneCallAndKeepsKeyOrder() {
+		TwoLevelCache cache = (TwoLevelCache) nodeA.getCache("prods");
+		cache.put(2, "Galaxy");                       // in L1
+		sharedL2.getCache("prods").put(3, "Pixel");   // only in L2
+		List<Set<Integer>> loads = new ArrayList<>();
+
+		Map<Integer, Object> values = cache.getAll(List.of(4, 3, 2, 1, 4), misses -> {
+			loads.add(misses);
+			return Map.of(1, "iPhone");
+		});
+
+		assertThat(values).containsExactly(entry(4, null), entry(3, "Pixel"), entry(2, "Galaxy"), entry(1, "iPhone"));
+		assertThat(loads).containsExactly(Set.of(4, 1));
+		// Loaded values and missing keys are now cached on both layers
+		assertThat(nodeB.getCache("prods").get(1, String.class)).isEqualTo("iPhone");
+		assertThat(nodeB.getCache("prods").get(4)).isNotNull();
+		assertThat(cache.getAll(List.of(1, 2, 3, 4), misses -> {
+			throw new AssertionError("nothing to load");
+		})).hasSize(4);
+	}
+
+	@Test
+	void getAllDoesNotCacheValuesLoadedDuringAWrite() {
+		TwoLevelCache cache = (TwoLevelCache) nodeA.getCache("prods");
+
+		Map<Integer, Object> values = cache.getAll(List.of(1), misses -> {
+			cache.evict(1);
+			return Map.of(1, "stale");
+		});
+
+		assertThat(values).containsEntry(1, "stale");
+		assertThat(cache.get(1)).isNull();
+		assertThat(sharedL2.getCache("prods").get(1)).isNull();
+	}
+
+	@Test
+	void concurrentMissesOnAKeyShareOneLoad() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+
+		List<Object> values = storm(500, thread -> nodeA.getCache("prods").get(1, () -> slowLoad(loads, "iPhone")));
+
+		assertThat(loads).hasValue(1);
+		assertThat(values).hasSize(500).containsOnly("iPhone");
+		assertThat(registryA.get("product.cache.loads").tag("cause", "shared").counter().count()).isPositive();
+	}
+
+	@Test
+	void concurrentVersionedMissesShareOneLoad() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		TwoLevelCache cache = (TwoLevelCache) nodeA.getCache("prods");
+
+		List<Object> values = storm(500, thread -> cache.get(1, "v1", () -> slowLoad(loads, "iPhone")));
+
+		assertThat(loads).hasValue(1);
+		assertThat(values).hasSize(500).containsOnly("iPhone");
+		assertThat(registryA.get("product.cache.loads").tag("cause", "shared").counter().count()).isPositive();
+	}
+
+	@Test
+	void versionedHitsRefreshAhead() throws Exception {
+		TwoLevelCache cache = (TwoLevelCache) lockedNode(CacheLoadLock.none(), 0.5, Runnable::run).getCache("prods");
+		cache.get(1, "v1", () -> "iPhone");
+
+		assertThat(cache.get(1, "v1", () -> "iPhone 13")).isEqualTo("iPhone");
+		Thread.sleep(120);
+		assertThat(cache.get(1, "v1", () -> "iPhone 13")).isEqualTo("iPhone");
+		assertThat(cache.get(1, String.class)).isEqualTo("iPhone 13");
+	}
+
+	@Test
+	void loadLockLetsOneNodeLoadForAllNodes() throws Exception {
+		LocalLoadLock loadLock = new LocalLoadLock();
+		TwoLevelCacheManager lockedA = lockedNode(loadLock, 0, null);
+		TwoLevelCacheManager lockedB = lockedNode(loadLock, 0, null);
+		AtomicInteger loads = new AtomicInteger();
+
+		List<Object> values = storm(500, thread -> (thread % 2 == 0 ? lockedA : lockedB).getCache("prods")
+				.get(1, () -> slowLoad(loads, "iPhone")));
+
+		assertThat(loads).hasValue(1);
+		assertThat(values).hasSize(500).containsOnly("iPhone");
+		assertThat(loadLock.locks).isEmpty();
+	}
+
+	@Test
+	void refreshAheadReloadsEntriesReadLateInTheirLifetime() throws Exception {
+		// Refreshes after 100 ms, run on the reading thread to keep the test deterministic
+		TwoLevelCacheManager refreshing = lockedNode(CacheLoadLock.none(), 0.5, Runnable::run);
+		Cache cache = refreshing.getCache("prods");
+		cache.get(1, () -> "iPhone");
+
+		assertThat(cache.get(1, () -> "iPhone 13")).isEqualTo("iPhone");
+		Thread.sleep(120);
+		// The read is served the current value and triggers the reload
+		assertThat(cache.get(1, () -> "iPhone 13")).isEqualTo("iPhone");
+		assertThat(cache.get(1, String.class)).isEqualTo("iPhone 13");
+	}
+
+	private TwoLevelCacheManager lockedNode(CacheLoadLock loadLock, double refreshAheadRatio,
+			Executor refreshExecutor) {
+		return new TwoLevelCacheManager(100, Duration.ofMillis(200), 100, Duration.ofMillis(200), sharedL2::getCache,
+				channel.join(), loadLock, refreshAheadRatio, refreshExecutor, new SimpleMeterRegistry());
+	}
+
+	private static String slowLoad(AtomicInteger loads, String value) throws InterruptedException {
+		loads.incrementAndGet();
+		Thread.sleep(100);
+		return value;
+	}
+
+	// Starts all threads at once and returns what each of them read
+	private static List<Object> storm(int threads, IntFunction<Object> read) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<Object>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				int thread = i;
+				futures.add(pool.submit(() -> {
+					start.await();
+					return read.apply(thread);
+				}));
+			}
+			start.countDown();
+			List<Object> values = new ArrayList<>();
+			for (Future<Object> future : futures) {
+				values.add(future.get(30, TimeUnit.SECONDS));
+			}
+			return values;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void cachesNullValues() {
+		nodeA.getCache("prods").put(404, null);
+
+		Cache.ValueWrapper wrapper = nodeB.getCache("prods").get(404);
+		assertThat(wrapper).isNotNull();
+		assertThat(wrapper.get()).isNull();
+	}
+
+	@Test
+	void missingKeysAreBoundedApartFromRealEntries() {
+		TwoLevelCacheManager node = new TwoLevelCacheManager(100, Duration.ofMinutes(1), 10, Duration.ofMinutes(1),
+				null, CacheInvalidationBus.none(), CacheLoadLock.none(), 0, null, new SimpleMeterRegistry());
+		Cache cache = node.getCache("prods");
+		cache.put(1, "iPhone");
+		for (int i = 1000; i < 1100; i++) {
+			cache.get(i, () -> null);
+		}
+		nativeCache(node, "prods").cleanUp();
+
+		// A hundred probes for unknown keys leave the real entry alone
+		assertThat(cache.get(1, String.class)).isEqualTo("iPhone");
+		assertThat(localSize(node, "prods")).isEqualTo(1);
+		assertThat(cache.get(1099)).isNotNull();
+
+		cache.put(1099, "Pixel");
+		assertThat(cache.get(1099, String.class)).isEqualTo("Pixel");
+	}
+
+	@Test
+	void l2ValuesThatCannotBeDecodedAreMisses() {
+		// As seen by a node still on the previous format version during a rolling deploy
+		Cache newerFormat = new ConcurrentMapCache("prods") {
+
+			@Override
+			public ValueWrapper get(Object key) {
+				throw new SerializationException("format version 2");
+			}
+		};
+		TwoLevelCacheManager node = new TwoLevelCacheManager(100, Duration.ofMinutes(1), name -> newerFormat,
+				CacheInvalidationBus.none(), new SimpleMeterRegistry());
+
+		assertThat(node.getCache("prods").get(1)).isNull();
+		assertThat(node.getCache("prods").get(1, () -> "iPhone")).isEqualTo("iPhone");
+	}
+
+	@Test
+	void countsHitsAndMissesPerLayer() {
+		Cache cache = nodeA.getCache("prods");
+		cache.get(1);                          // l1 miss, l2 miss
+		sharedL2.getCache("prods").put(1, "iPhone");
+		cache.get(1);                          // l1 miss, l2 hit
+		cache.get(1);                          // l1 hit
+
+		assertThat(count("product.cache.gets", "l1", "result", "hit")).isEqualTo(1);
+		assertThat(count("product.cache.gets", "l1", "result", "miss")).isEqualTo(2);
+		assertThat(count("product.cache.gets", "l2", "result", "hit")).isEqualTo(1);
+		assertThat(count("product.cache.gets", "l2", "result", "miss")).isEqualTo(1);
+	}
+
+	@Test
+	void l1IsBoundedAndCountsSizeEvictions() {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		TwoLevelCacheManager small = node(10, registry);
+		Cache cache = small.getCache("prods");
+		for (int i = 0; i < 50; i++) {
+			cache.put(i, "product-" + i);
+		}
+		nativeCache(small, "prods").cleanUp();
+
+		assertThat(localSize(small, "prods")).isLessThanOrEqualTo(10);
+		assertThat(registry.get("product.cache.evictions").tag("layer", "l1").tag("cause", "size").counter().count())
+				.isGreaterThanOrEqualTo(40);
+		// Entries dropped from L1 are still served from L2
+		assertThat(cache.get(0, String.class)).isEqualTo("product-0");
+	}
+
+	@Test
+	void runsWithL1OnlyWhenNoL2IsConfigured() {
+		TwoLevelCacheManager standalone = new TwoLevelCacheManager(100, Duration.ofMinutes(1), null,
+				CacheInvalidationBus.none(), new SimpleMeterRegistry());
+		standalone.getCache("prods").put(1, "iPhone");
+
+		assertThat(standalone.getCache("prods").get(1, String.class)).isEqualTo("iPhone");
+		assertThat(sharedL2.getCacheNames()).isEmpty();
+	}
+
+	private double count(String name, String layer, String tag, String value) {
+		return registryA.get(name).tag("layer", layer).tag(tag, value).counter().count();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static com.github.benmanes.caffeine.cache.Cache<String, Object> nativeCache(TwoLevelCacheManager manager,
+			String name) {
+		return (com.github.benmanes.caffeine.cache.Cache<String, Object>) manager.getCache(name).getNativeCache();
+	}
+
+	private static long localSize(TwoLevelCacheManager manager, String name) {
+		com.github.benmanes.caffeine.cache.Cache<String, Object> cache = nativeCache(manager, name);
+		cache.cleanUp();
+		return cache.estimatedSize();
+	}
+
+	/**
+	 * In-memory pub/sub channel: each joined bus delivers its messages to the
+	 * listeners of every other bus, synchronously.
+	 */
+	static class LocalChannel {
+
+		private final List<Member> members = new CopyOnWriteArrayList<>();
+
+		private int messages;
+
+		CacheInvalidationBus join() {
+			Member member = new Member();
+			members.add(member);
+			return member;
+		}
+
+		private class Member implements CacheInvalidationBus {
+
+			private final List<CacheInvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+			@Override
+			public void publish(String cacheName, String key) {
+				messages++;
+				for (Member other : members) {
+					if (other != this) {
+						other.listeners.forEach(listener -> listener.onInvalidation(cacheName, key));
+					}
+				}
+			}
+
+			@Override
+			public void publishAll(String cacheName, Collection<String> keys) {
+				messages++;
+				for (Member other : members) {
+					if (other != this) {
+						keys.forEach(key -> other.listeners.forEach(listener -> listener.onInvalidation(cacheName, key)));
+					}
+				}
+			}
+
+			@Override
+			public void subscribe(CacheInvalidationListener listener) {
+				listeners.add(listener);
+			}
+		}
+	}
+
+	/**
+	 * In-memory stand-in for the Redis load lock, shared by the nodes of a test.
+	 */
+	static class LocalLoadLock implements CacheLoadLock {
+
+		private final ConcurrentMap<String, Boolean> locks = new ConcurrentHashMap<>();
+
+		@Override
+		public boolean tryAcquire(String cacheName, String key) {
+			return locks.putIfAbsent(cacheName + "::" + key, Boolean.TRUE) == null;
+		}
+
+		@Override
+		public void release(String cacheName, String key) {
+			locks.remove(cacheName + "::" + key);
+		}
+
+		@Override
+		public Duration lease() {
+			return Duration.ofSeconds(5);
+		}
+	}
+}
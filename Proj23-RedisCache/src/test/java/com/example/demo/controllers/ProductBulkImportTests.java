@@ -0,0 +1,91 @@
+package com.example.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.dao.IProductDAO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = { "product.cache.l2.enabled=false", "product.import.chunk-size=100" })
+@AutoConfigureMockMvc
+class ProductBulkImportTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private IProductDAO productDAO;
+
+	@Test
+	void importsJsonArrayInChunks() throws Exception {
+		long before = productDAO.count();
+		// Warm the cached list so the import has to invalidate it
+		mockMvc.perform(get("/product-api/getall")).andExpect(status().isOk());
+		List<Map<String, Object>> feed = IntStream.range(0, 250)
+				.mapToObj(i -> Map.<String, Object>of("pid", 1, "pname", "Bulk-" + i, "price", 10.5, "qty", 3))
+				.toList();
+
+		mockMvc.perform(post("/product-api/bulk").contentType(MediaType.APPLICATION_JSON)
+				.content(objectMapper.writeValueAsBytes(feed)))
+				.andExpect(status().isCreated())
+				.andExpect(content().string("250 products imported"));
+
+		assertThat(productDAO.count()).isEqualTo(before + 250);
+		// pid 1 in the feed must not overwrite the existing product 1
+		mockMvc.perform(get("/product-api/get/1")).andExpect(jsonPath("$.pname").value("Apple iPhone 13"));
+		mockMvc.perform(get("/product-api/getall")).andExpect(jsonPath("$.length()").value(before + 250));
+	}
+
+	@Test
+	void importsCsvWithHeaderAndQuotedNames() throws Exception {
+		long before = productDAO.count();
+		String csv = """
+				pname,price,qty
+				"Cable, USB-C",9.99,500
+
+				"12"" Ruler",1.5,40
+				""";
+
+		mockMvc.perform(post("/product-api/bulk").contentType("text/csv").content(csv))
+				.andExpect(status().isCreated())
+				.andExpect(content().string("2 products imported"));
+
+		assertThat(productDAO.count()).isEqualTo(before + 2);
+		assertThat(productDAO.findAll()).extracting("pname").contains("Cable, USB-C", "12\" Ruler");
+	}
+
+	@Test
+	void keepsCommittedChunksWhenTheFeedBreaks() throws Exception {
+		long before = productDAO.count();
+		StringBuilder csv = new StringBuilder();
+		for (int i = 0; i < 150; i++) {
+			csv.append("Broken-").append(i).append(",1,1\n");
+		}
+		csv.append("Broken-150,not-a-price,1\n");
+
+		mockMvc.perform(post("/product-api/bulk").contentType("text/csv").content(csv.toString()))
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string(startsWith("Import stopped after 100 products")));
+
+		assertThat(productDAO.count()).isEqualTo(before + 100);
+	}
+}
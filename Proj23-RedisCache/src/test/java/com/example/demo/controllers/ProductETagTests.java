@@ -0,0 +1,117 @@
+package com.example.demo.controllers;
+
+import static com.example.demo.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.demo.cache.LocalProductVersions;
+import com.example.demo.entity.Product;
+import com.example.demo.service.IProductMgmtService;
+import com.example.demo.stock.StockWriteBehind;
+
+@SpringBootTest(properties = {
+		"product.cache.l2.enabled=false",
+		"product.warmup.enabled=false",
+		// Flushed by the tests
+		"product.stock.flush-interval-ms=3600000" })
+@AutoConfigureMockMvc
+class ProductETagTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private IProductMgmtService productMgmtService;
+
+	@Autowired
+	private StockWriteBehind stockWriteBehind;
+
+	@Test
+	void productIsNotSentAgainUntilItChanges() throws Exception {
+		Product product = productMgmtService.addProduct(product("ETag lamp", 40.0));
+		String url = "/product-api/get/" + product.getPid();
+		String etag = etagOf(get(url));
+
+		mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, etag))
+				.andExpect(content().string(""));
+
+		// Saving, even unchanged, and a written reservation both give a new version
+		productMgmtService.addProduct(product);
+		String saved = etagOf(get(url).header(HttpHeaders.IF_NONE_MATCH, etag));
+		assertThat(saved).isNotEqualTo(etag);
+		productMgmtService.reserveStock(product.getPid(), 1);
+		mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, saved)).andExpect(status().isNotModified());
+		stockWriteBehind.flush();
+		String reserved = etagOf(get(url).header(HttpHeaders.IF_NONE_MATCH, saved));
+		assertThat(reserved).isNotEqualTo(saved);
+
+		productMgmtService.deleteProduct(product.getPid());
+		mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, reserved)).andExpect(status().isNotFound());
+	}
+
+	@Test
+	void idsOutsideTheFilterAreNotFoundBeforeAnyVersion() throws Exception {
+		// Any version would match *; the filter answers first
+		mockMvc.perform(get("/product-api/get/" + Integer.MAX_VALUE).header(HttpHeaders.IF_NONE_MATCH, "*"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void droppedVersionsDoNotComeBack() {
+		LocalProductVersions versions = new LocalProductVersions();
+		String first = versions.product(1);
+		versions.bump(List.of(1));
+		String bumped = versions.product(1);
+		versions.bump(List.of(2));
+		versions.deleted(List.of(1));
+
+		// Starts again from the catalog, past every version handed out before
+		assertThat(versions.product(1)).isNotIn(first, bumped);
+		versions.bump(List.of(1));
+		assertThat(versions.product(1)).isNotIn(first, bumped);
+	}
+
+	@Test
+	void listsChangeWithAnyProduct() throws Exception {
+		String etag = etagOf(get("/product-api/getall"));
+		String page = etagOf(get("/product-api/getall").param("limit", "5"));
+		String stream = etagOf(get("/product-api/getall").accept(MediaType.APPLICATION_NDJSON));
+		assertThat(stream).isNotEqualTo(etag);
+
+		mockMvc.perform(get("/product-api/getall").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+		mockMvc.perform(get("/product-api/getall").param("limit", "5").header(HttpHeaders.IF_NONE_MATCH, page))
+				.andExpect(status().isNotModified());
+		mockMvc.perform(get("/product-api/getall").accept(MediaType.APPLICATION_NDJSON)
+				.header(HttpHeaders.IF_NONE_MATCH, stream))
+				.andExpect(status().isNotModified());
+
+		productMgmtService.addProduct(product("ETag chair", 75.0));
+		assertThat(etagOf(get("/product-api/getall").header(HttpHeaders.IF_NONE_MATCH, etag))).isNotEqualTo(etag);
+	}
+
+	// Expects a full response and returns its ETag
+	private String etagOf(MockHttpServletRequestBuilder request) throws Exception {
+		String etag = mockMvc.perform(request)
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertThat(etag).startsWith("\"").endsWith("\"");
+		return etag;
+	}
+}
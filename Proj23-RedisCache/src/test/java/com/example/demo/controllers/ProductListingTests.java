@@ -0,0 +1,105 @@
+package com.example.demo.controllers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.example.demo.dao.IProductDAO;
+import com.example.demo.entity.Product;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = "product.cache.l2.enabled=false")
+@AutoConfigureMockMvc
+class ProductListingTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private IProductDAO productDAO;
+
+	@Test
+	void pagesWalkTheWholeCatalogInIdOrder() throws Exception {
+		List<Integer> pids = new ArrayList<>();
+		String afterPid = "0";
+		while (afterPid != null) {
+			MvcResult result = mockMvc.perform(get("/product-api/getall").param("afterPid", afterPid).param("limit", "7"))
+					.andExpect(status().isOk())
+					.andReturn();
+			List<Product> page = objectMapper.readValue(result.getResponse().getContentAsString(),
+					new TypeReference<List<Product>>() {
+					});
+			assertThat(page).hasSizeLessThanOrEqualTo(7);
+			page.forEach(product -> pids.add(product.getPid()));
+			afterPid = result.getResponse().getHeader(ProductOperationControllers.NEXT_AFTER_PID_HEADER);
+		}
+
+		assertThat(pids).isSorted().doesNotHaveDuplicates().hasSize((int) productDAO.count());
+	}
+
+	@Test
+	void rejectsPageLimitsOutOfRange() throws Exception {
+		mockMvc.perform(get("/product-api/getall").param("limit", "0")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/product-api/getall").param("limit", "100000")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void streamsEveryProductAsOneJsonLine() throws Exception {
+		MvcResult started = mockMvc.perform(get("/product-api/getall").accept(MediaType.APPLICATION_NDJSON))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		String body = mockMvc.perform(asyncDispatch(started))
+				.andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", MediaType.APPLICATION_NDJSON_VALUE))
+				.andExpect(content().string(endsWith("\n")))
+				.andReturn().getResponse().getContentAsString();
+
+		String[] lines = body.strip().split("\n");
+		assertThat(lines).hasSize((int) productDAO.count());
+		for (String line : lines) {
+			assertThat(objectMapper.readValue(line, Product.class).getPid()).isNotNull();
+		}
+	}
+
+	@Test
+	void multiGetKeepsRequestOrderAndSkipsUnknownIds() throws Exception {
+		MvcResult result = mockMvc.perform(get("/product-api/get").param("ids", "3,999999,1,2"))
+				.andExpect(status().isOk())
+				.andReturn();
+		List<Product> products = objectMapper.readValue(result.getResponse().getContentAsString(),
+				new TypeReference<List<Product>>() {
+				});
+
+		assertThat(products).extracting(Product::getPid).containsExactly(3, 1, 2);
+		// Second call is served from the cache and gives the same answer
+		mockMvc.perform(get("/product-api/get").param("ids", "3,999999,1,2"))
+				.andExpect(content().json(result.getResponse().getContentAsString()));
+	}
+
+	@Test
+	void rejectsTooManyIds() throws Exception {
+		String ids = String.join(",", Collections.nCopies(101, "1"));
+		mockMvc.perform(get("/product-api/get").param("ids", ids)).andExpect(status().isBadRequest());
+	}
+}
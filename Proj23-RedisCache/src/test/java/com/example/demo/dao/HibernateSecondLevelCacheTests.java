@@ -0,0 +1,134 @@
+package com.example.demo.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.config.HibernateCacheConfig;
+import com.example.demo.config.HibernateCacheEviction;
+import com.example.demo.entity.Product;
+import com.example.demo.service.IProductMgmtService;
+import com.example.demo.stock.StockWriteBehind;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * DAO reads that do not go through the service caches are served by the
+ * Hibernate second-level and query cache.
+ */
+@SpringBootTest(properties = {
+		"product.cache.l2.enabled=false",
+		"product.warmup.enabled=false",
+		"product.stock.flush-interval-ms=3600000" })
+@AutoConfigureMockMvc
+class HibernateSecondLevelCacheTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private IProductDAO productDAO;
+
+	@Autowired
+	private IProductMgmtService productMgmtService;
+
+	@Autowired
+	private StockWriteBehind stockWriteBehind;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private HibernateCacheEviction hibernateCacheEviction;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+		// Query results too, which the JPA evictAll keeps
+		sessionFactory.getCache().evictAllRegions();
+		statistics = sessionFactory.getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void findByIdIsServedFromTheEntityCache() {
+		productDAO.findById(1);
+		productDAO.findById(1);
+		productDAO.findById(1);
+
+		assertThat(statistics.getEntityLoadCount()).isEqualTo(1);
+		assertThat(statistics.getDomainDataRegionStatistics(Product.CACHE_REGION).getHitCount()).isEqualTo(2);
+	}
+
+	@Test
+	void queryResultsAreCachedUntilTheTableChanges() {
+		productDAO.findByPidGreaterThanOrderByPidAsc(0, Limit.of(5));
+		productDAO.findByPidGreaterThanOrderByPidAsc(0, Limit.of(5));
+
+		assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+		assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+
+		Product product = new Product();
+		product.setPname("Query cache test");
+		productDAO.save(product);
+		productDAO.findByPidGreaterThanOrderByPidAsc(0, Limit.of(5));
+
+		assertThat(statistics.getQueryExecutionCount()).isEqualTo(2);
+	}
+
+	@Test
+	void stockFlushDropsTheProductFromTheEntityCache() {
+		Product product = new Product();
+		product.setPname("Stock flush test");
+		product.setQty(10.0);
+		int pid = productMgmtService.addProduct(product).getPid();
+		productDAO.findById(pid);
+
+		productMgmtService.reserveStock(pid, 4);
+		stockWriteBehind.flush();
+
+		assertThat(productDAO.findById(pid).get().getQty()).isEqualTo(6.0);
+	}
+
+	@Test
+	void otherNodesChangesEvictTheProductAndQueryResults() {
+		productDAO.findById(1);
+		productDAO.findByPidGreaterThanOrderByPidAsc(0, Limit.of(5));
+		assertThat(entityManagerFactory.getCache().contains(Product.class, 1)).isTrue();
+
+		// As told by ProductChanges of another node's save; not through it, its other listeners query the table
+		hibernateCacheEviction.onSaved(List.of(1));
+
+		assertThat(entityManagerFactory.getCache().contains(Product.class, 1)).isFalse();
+		productDAO.findByPidGreaterThanOrderByPidAsc(0, Limit.of(5));
+		assertThat(statistics.getQueryExecutionCount()).isEqualTo(2);
+	}
+
+	@Test
+	void actuatorReportsRegionStatistics() throws Exception {
+		productDAO.findById(1);
+		productDAO.findById(1);
+
+		mockMvc.perform(get("/actuator/hibernatecache"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.statisticsEnabled").value(true))
+				.andExpect(jsonPath("$.regions.product.hits").value(1))
+				.andExpect(jsonPath("$.regions.product.misses").value(1))
+				.andExpect(jsonPath("$.regions['" + HibernateCacheConfig.QUERY_RESULTS_REGION + "']").exists());
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.demo.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTests {
+
+	@Test
+	void neverMissesAKeyThatWasPut() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int pid = 1; pid <= 10_000; pid++) {
+			filter.put(pid);
+		}
+
+		for (int pid = 1; pid <= 10_000; pid++) {
+			assertThat(filter.mightContain(pid)).as("pid %d", pid).isTrue();
+		}
+	}
+
+	@Test
+	void falsePositiveRateStaysNearTheTargetAtCapacity() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int pid = 1; pid <= 10_000; pid++) {
+			filter.put(pid);
+		}
+
+		int falsePositives = 0;
+		for (int pid = 1_000_001; pid <= 1_100_000; pid++) {
+			if (filter.mightContain(pid)) {
+				falsePositives++;
+			}
+		}
+		assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+		assertThat(filter.expectedFalsePositiveRate()).isBetween(0.005, 0.015);
+		// About 9.6 bits per key for 1%
+		assertThat(filter.bitSize() / 8).isBetween(11_000L, 13_000L);
+	}
+
+	@Test
+	void emptyFilterContainsNothing() {
+		BloomFilter filter = new BloomFilter(100, 0.01);
+
+		assertThat(filter.mightContain(1)).isFalse();
+		assertThat(filter.expectedFalsePositiveRate()).isZero();
+	}
+
+	@Test
+	void rejectsInvalidSizes() {
+		assertThatIllegalArgumentException().isThrownBy(() -> new BloomFilter(0, 0.01));
+		assertThatIllegalArgumentException().isThrownBy(() -> new BloomFilter(100, 1));
+	}
+}
@@ -0,0 +1,108 @@
+package com.example.demo.index;
+
+import static com.example.demo.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.cache.ProductChanges;
+import com.example.demo.service.IProductMgmtService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest(properties = {
+		"product.cache.l2.enabled=false",
+		"product.warmup.enabled=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true" })
+@AutoConfigureMockMvc
+class ProductIdIndexTests {
+
+	// Well above every ID the tests create
+	private static final int UNKNOWN_PID = 900_000_000;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private IProductMgmtService productMgmtService;
+
+	@Autowired
+	private ProductIdIndex productIdIndex;
+
+	@Autowired
+	private ProductChanges productChanges;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void unknownIdsAre404WithoutTouchingTheDatabase() throws Exception {
+		assertThat(productIdIndex.mightContain(UNKNOWN_PID)).isFalse();
+
+		mockMvc.perform(get("/product-api/get/{pid}", UNKNOWN_PID)).andExpect(status().isNotFound());
+		assertThat(productMgmtService.deleteProduct(UNKNOWN_PID)).isEqualTo(UNKNOWN_PID + " not found");
+		assertThat(productMgmtService.findProductsByIds(List.of(UNKNOWN_PID))).isEmpty();
+
+		assertThat(statistics.getPrepareStatementCount()).isZero();
+		assertThat(meterRegistry.get("product.id.filter.rejections").counter().count()).isGreaterThanOrEqualTo(3);
+	}
+
+	@Test
+	void savedProductsAreFoundAndDeletedOnesAreCachedAsMissing() {
+		int pid = productMgmtService.addProduct(product("Filtered", 5.0)).getPid();
+		assertThat(productIdIndex.mightContain(pid)).isTrue();
+
+		productMgmtService.deleteProduct(pid);
+		statistics.clear();
+
+		// Deleted IDs stay in the filter until a rebuild: one lookup, then the negative cache answers
+		assertThat(productMgmtService.findProductById(pid)).isNull();
+		assertThat(productMgmtService.findProductById(pid)).isNull();
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+		productIdIndex.rebuild();
+		assertThat(productIdIndex.mightContain(pid)).isFalse();
+	}
+
+	@Test
+	void idsSavedOnOtherNodesAreAdded() {
+		int pid = UNKNOWN_PID + 1;
+		assertThat(productIdIndex.mightContain(pid)).isFalse();
+
+		// As delivered by the invalidation bus from another node
+		productChanges.onInvalidation(ProductChanges.SAVED, List.of(String.valueOf(pid)));
+
+		assertThat(productIdIndex.mightContain(pid)).isTrue();
+	}
+
+	@Test
+	void exposesFilterMetrics() {
+		assertThat(meterRegistry.get("product.id.filter.memory").gauge().value()).isPositive();
+		assertThat(meterRegistry.get("product.id.filter.false.positive.rate").tag("kind", "expected").gauge().value())
+				.isBetween(0.0, 0.01);
+		assertThat(meterRegistry.get("product.id.filter.entries").gauge().value()).isPositive();
+	}
+}
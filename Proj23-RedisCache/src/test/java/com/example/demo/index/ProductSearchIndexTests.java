@@ -0,0 +1,143 @@
+package com.example.demo.index;
+
+import static com.example.demo.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.cache.ProductChanges;
+import com.example.demo.dao.IProductDAO;
+import com.example.demo.entity.Product;
+import com.example.demo.service.IProductMgmtService;
+
+/**
+ * The search index must answer exactly what the equivalent database query
+ * answers, also while saves and deletes are pending on top of its arrays and
+ * after they were merged into them.
+ */
+@SpringBootTest(properties = {
+		"product.cache.l2.enabled=false",
+		"product.warmup.enabled=false",
+		// Merges after every few changes
+		"product.search.max-pending=3" })
+@AutoConfigureMockMvc
+class ProductSearchIndexTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ProductSearchIndex productSearchIndex;
+
+	@Autowired
+	private IProductMgmtService productMgmtService;
+
+	@Autowired
+	private IProductDAO productDAO;
+
+	@Autowired
+	private ProductChanges productChanges;
+
+	@BeforeEach
+	void setUp() {
+		// Other test contexts share the database
+		productSearchIndex.rebuild();
+	}
+
+	@Test
+	void matchesTheDatabaseQuery() {
+		assertSameAsDatabase("samsung", null, null, 100);
+		assertSameAsDatabase("SAM", 100.0, 800.0, 100);
+		assertSameAsDatabase("", 499.99, 499.99, 100);
+		assertSameAsDatabase(null, null, 300.0, 3);
+		assertSameAsDatabase("apple", 250.0, null, 100);
+		assertSameAsDatabase("nothing like it", null, null, 100);
+	}
+
+	@Test
+	void followsSavesAndDeletes() throws Exception {
+		List<Integer> added = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			added.add(productMgmtService.addProduct(product("Searchable widget " + i, 10.0 + i)).getPid());
+			assertSameAsDatabase("searchable", null, null, 100);
+		}
+		// A price change moves the product
+		Product changed = productDAO.findById(added.get(0)).get();
+		changed.setPrice(100.0);
+		productMgmtService.addProduct(changed);
+		productMgmtService.deleteProduct(added.get(5));
+		productMgmtService.addProduct(product(null, null));
+
+		assertSameAsDatabase("searchable", 12.0, 50.0, 100);
+		assertSameAsDatabase("searchable", null, null, 100);
+		assertSameAsDatabase("searchable widget", null, null, 4);
+		assertThat(productSearchIndex.search("searchable", null, null, 100)).hasSize(9).endsWith(added.get(0));
+
+		mockMvc.perform(get("/product-api/search").param("prefix", "Searchable").param("minPrice", "12")
+				.param("maxPrice", "14").param("limit", "2"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[0].pid").value(added.get(2)))
+				.andExpect(jsonPath("$[1].pid").value(added.get(3)));
+	}
+
+	@Test
+	void followsWritesOnOtherNodes() throws InterruptedException {
+		// Written by another node, which then publishes the change
+		int pid = productDAO.save(product("Remote gadget", 7.0)).getPid();
+		productChanges.onInvalidation(ProductChanges.SAVED, List.of(String.valueOf(pid)));
+		awaitTrue(() -> productSearchIndex.search("remote gadget", null, null, 10).equals(List.of(pid)));
+
+		productDAO.deleteById(pid);
+		productChanges.onInvalidation(ProductChanges.DELETED, List.of(String.valueOf(pid)));
+		awaitTrue(() -> productSearchIndex.search("remote gadget", null, null, 10).isEmpty());
+	}
+
+	@Test
+	void rebuildDropsChangesTheTableNoLongerHas() {
+		int pid = productMgmtService.addProduct(product("Lost gadget", 9.0)).getPid();
+		// Deleted on another node, whose message never arrived
+		productDAO.deleteById(pid);
+		assertThat(productSearchIndex.search("lost gadget", null, null, 10)).containsExactly(pid);
+
+		productSearchIndex.rebuild();
+
+		assertThat(productSearchIndex.search("lost gadget", null, null, 10)).isEmpty();
+	}
+
+	@Test
+	void rejectsBadSearches() throws Exception {
+		mockMvc.perform(get("/product-api/search").param("limit", "0")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/product-api/search").param("limit", "101")).andExpect(status().isBadRequest());
+		mockMvc.perform(get("/product-api/search").param("minPrice", "10").param("maxPrice", "5"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private void assertSameAsDatabase(String prefix, Double minPrice, Double maxPrice, int limit) {
+		List<Integer> expected = productDAO.search(prefix == null ? "" : prefix, minPrice, maxPrice, Limit.of(limit))
+				.stream().map(Product::getPid).toList();
+
+		assertThat(productSearchIndex.search(prefix, minPrice, maxPrice, limit)).isEqualTo(expected);
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertThat(condition.getAsBoolean()).isTrue();
+	}
+}
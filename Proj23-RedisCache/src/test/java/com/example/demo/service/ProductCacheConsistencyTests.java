@@ -0,0 +1,154 @@
+package com.example.demo.service;
+
+import static com.example.demo.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.dao.IProductDAO;
+import com.example.demo.entity.Product;
+import com.example.demo.index.ProductSearchIndex;
+
+/**
+ * Concurrent readers and writers on the cached product service. Every writer
+ * checks that its own writes are visible through the caches right after it
+ * made them, while readers keep reloading the same entries. At the end the
+ * caches must match the database, also after concurrent updates of a single
+ * product.
+ */
+@SpringBootTest(properties = {
+		"product.cache.l2.enabled=false",
+		// Per-call logging would dominate the run time
+		"spring.jpa.show-sql=false",
+		"logging.level.com.example.demo=WARN" })
+class ProductCacheConsistencyTests {
+
+	private static final int WRITERS = 2;
+
+	private static final int READERS = 4;
+
+	private static final int WRITES_PER_WRITER = 150;
+
+	@Autowired
+	private IProductMgmtService productMgmtService;
+
+	@Autowired
+	private IProductDAO productDAO;
+
+	@Autowired
+	private ProductSearchIndex productSearchIndex;
+
+	@Test
+	void cachesStayConsistentUnderConcurrentReadsAndWrites() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+		AtomicBoolean writing = new AtomicBoolean(true);
+		Queue<String> violations = new ConcurrentLinkedQueue<>();
+		try {
+			for (int i = 0; i < READERS; i++) {
+				pool.submit(() -> {
+					while (writing.get()) {
+						productMgmtService.showAllProducts();
+						productMgmtService.findProductById(ThreadLocalRandom.current().nextInt(1, 400));
+					}
+				});
+			}
+			List<Future<?>> writers = new ArrayList<>();
+			for (int w = 0; w < WRITERS; w++) {
+				int writer = w;
+				writers.add(pool.submit(() -> write(writer, violations)));
+			}
+			for (Future<?> future : writers) {
+				future.get(2, TimeUnit.MINUTES);
+			}
+		} finally {
+			writing.set(false);
+			pool.shutdown();
+			assertThat(pool.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+		}
+
+		assertThat(violations).isEmpty();
+
+		Set<Integer> inDatabase = pids(productDAO.findAll());
+		assertThat(pids(productMgmtService.showAllProducts())).isEqualTo(inDatabase);
+		int maxPid = inDatabase.stream().mapToInt(Integer::intValue).max().orElse(0) + 5;
+		for (int pid = 1; pid <= maxPid; pid++) {
+			assertThat(productMgmtService.findProductById(pid) != null)
+					.as("cached presence of product %d", pid)
+					.isEqualTo(inDatabase.contains(pid));
+		}
+	}
+
+	@Test
+	void concurrentUpdatesOfOneProductLeaveTheLastCommitCached() throws Exception {
+		int pid = productMgmtService.addProduct(product("same-pid", 1.0)).getPid();
+		productMgmtService.findProductById(pid);
+		ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int w = 0; w < WRITERS + READERS; w++) {
+				int writer = w;
+				writers.add(pool.submit(() -> {
+					for (int i = 0; i < WRITES_PER_WRITER / 3; i++) {
+						Product update = product("same-pid-" + writer + "-" + i, writer * 1000.0 + i);
+						update.setPid(pid);
+						productMgmtService.addProduct(update);
+						productMgmtService.findProductById(pid);
+					}
+				}));
+			}
+			for (Future<?> future : writers) {
+				future.get(2, TimeUnit.MINUTES);
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		Product stored = productDAO.findById(pid).orElseThrow();
+		Product cached = productMgmtService.findProductById(pid);
+		assertThat(cached.getPname()).isEqualTo(stored.getPname());
+		assertThat(cached.getPrice()).isEqualTo(stored.getPrice());
+		assertThat(productSearchIndex.search(stored.getPname(), stored.getPrice(), stored.getPrice(), 10))
+				.containsExactly(pid);
+	}
+
+	private void write(int writer, Queue<String> violations) {
+		for (int i = 0; i < WRITES_PER_WRITER; i++) {
+			Product product = product("w" + writer + "-" + i, 10.0);
+			int pid = productMgmtService.addProduct(product).getPid();
+			if (productMgmtService.findProductById(pid) == null) {
+				violations.add("added product " + pid + " not found by id");
+			}
+			if (!pids(productMgmtService.showAllProducts()).contains(pid)) {
+				violations.add("added product " + pid + " missing from list");
+			}
+			if (i % 3 == 0) {
+				productMgmtService.deleteProduct(pid);
+				if (productMgmtService.findProductById(pid) != null) {
+					violations.add("deleted product " + pid + " still found by id");
+				}
+				if (pids(productMgmtService.showAllProducts()).contains(pid)) {
+					violations.add("deleted product " + pid + " still in list");
+				}
+			}
+		}
+	}
+
+	private static Set<Integer> pids(List<Product> products) {
+		return products.stream().map(Product::getPid).collect(Collectors.toSet());
+	}
+}
@@ -0,0 +1,106 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+
+import com.example.demo.entity.Product;
+import com.example.demo.service.impl.ProductMgmtServiceImpl;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * 500 threads missing the same cache entries at once, as after an expiry or a
+ * write: the database must be hit once per key, counted with Hibernate
+ * statistics.
+ */
+@SpringBootTest(properties = {
+		"product.cache.l2.enabled=false",
+		// A warm-up running next to the test would add to the load counts
+		"product.warmup.enabled=false",
+		// Loads must reach the database to be counted
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.show-sql=false",
+		"logging.level.com.example.demo=WARN" })
+class ProductCacheStampedeTests {
+
+	private static final int THREADS = 500;
+
+	private static final int KEYS = 5;
+
+	@Autowired
+	private IProductMgmtService productMgmtService;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		cacheManager.getCache(ProductMgmtServiceImpl.PRODUCT_CACHE).clear();
+		cacheManager.getCache(ProductMgmtServiceImpl.PRODUCT_LIST_CACHE).clear();
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	void missStormLoadsEachProductOnce() throws Exception {
+		List<Product> products = storm(thread -> () -> productMgmtService.findProductById(thread % KEYS + 1));
+
+		assertThat(products).hasSize(THREADS).doesNotContainNull();
+		assertThat(statistics.getEntityLoadCount()).isEqualTo(KEYS);
+	}
+
+	@Test
+	void missStormLoadsTheListOnce() throws Exception {
+		List<List<Product>> lists = storm(thread -> productMgmtService::showAllProducts);
+
+		assertThat(lists).hasSize(THREADS).allSatisfy(list -> assertThat(list).isNotEmpty());
+		assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+	}
+
+	private static <T> List<T> storm(IntFunction<Callable<T>> call) throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<T>> futures = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				Callable<T> read = call.apply(i);
+				futures.add(pool.submit(() -> {
+					start.await();
+					return read.call();
+				}));
+			}
+			start.countDown();
+			List<T> results = new ArrayList<>();
+			for (Future<T> future : futures) {
+				results.add(future.get(1, TimeUnit.MINUTES));
+			}
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
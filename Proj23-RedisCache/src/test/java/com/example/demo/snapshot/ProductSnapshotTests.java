@@ -0,0 +1,202 @@
+package com.example.demo.snapshot;
+
+import static com.example.demo.TestProducts.product;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.demo.cache.LocalProductVersions;
+import com.example.demo.cache.ProductChanges;
+import com.example.demo.cache.ProductVersions;
+import com.example.demo.dao.IProductDAO;
+import com.example.demo.entity.Product;
+import com.example.demo.service.IProductMgmtService;
+import com.example.demo.service.impl.ProductMgmtServiceImpl;
+import com.example.demo.stock.StockWriteBehind;
+
+/**
+ * Reads from the catalog snapshot must give what the table holds, follow
+ * every kind of write, and survive a restart of the node.
+ */
+@SpringBootTest(properties = {
+		"product.cache.l2.enabled=false",
+		"product.warmup.enabled=false",
+		"product.snapshot.enabled=true",
+		// Flushed by the tests
+		"product.stock.flush-interval-ms=3600000" })
+class ProductSnapshotTests {
+
+	private static final Path DIRECTORY = createDirectory();
+
+	@Autowired
+	private ProductSnapshot productSnapshot;
+
+	@Autowired
+	private IProductMgmtService productMgmtService;
+
+	@Autowired
+	private IProductDAO productDAO;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private StockWriteBehind stockWriteBehind;
+
+	@Autowired
+	private ProductChanges productChanges;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@DynamicPropertySource
+	static void snapshotFile(DynamicPropertyRegistry registry) {
+		registry.add("product.snapshot.file", () -> DIRECTORY.resolve("products.bin").toString());
+	}
+
+	@BeforeEach
+	void setUp() {
+		// Other test contexts share the database
+		productSnapshot.rebuild();
+	}
+
+	@Test
+	void servesTheTableWithoutTheCache() {
+		for (Product product : productDAO.findAll()) {
+			assertThat(productSnapshot.covers(product.getPid())).isTrue();
+			assertThat(productMgmtService.findProductById(product.getPid())).usingRecursiveComparison()
+					.isEqualTo(product);
+			assertThat(cacheManager.getCache(ProductMgmtServiceImpl.PRODUCT_CACHE).get(product.getPid())).isNull();
+		}
+		assertThat(productMgmtService.findProductById(999_999)).isNull();
+	}
+
+	@Test
+	void followsWrites() {
+		Product product = productMgmtService.addProduct(product("Snapshot kettle", null));
+		assertThat(productSnapshot.find(product.getPid())).usingRecursiveComparison().isEqualTo(product);
+
+		product.setPrice(25.5);
+		productMgmtService.addProduct(product);
+		productMgmtService.reserveStock(product.getPid(), 3);
+		stockWriteBehind.flush();
+		assertThat(productSnapshot.find(product.getPid()).getPrice()).isEqualTo(25.5);
+		assertThat(productSnapshot.find(product.getPid()).getQty()).isEqualTo(7.0);
+
+		productMgmtService.deleteProduct(product.getPid());
+		assertThat(productSnapshot.find(product.getPid())).isNull();
+	}
+
+	@Test
+	void followsWritesOnOtherNodes() throws InterruptedException {
+		int pid = productMgmtService.addProduct(product("Snapshot grinder", 12.0)).getPid();
+
+		// Another node updates the row, then its message arrives
+		jdbcTemplate.update("update tbl_mst_cache_product set price = 14.0 where pid = ?", pid);
+		productChanges.onInvalidation(ProductChanges.SAVED, List.of(String.valueOf(pid)));
+		awaitTrue(() -> Double.valueOf(14.0).equals(productSnapshot.find(pid).getPrice()));
+
+		jdbcTemplate.update("delete from tbl_mst_cache_product where pid = ?", pid);
+		productChanges.onInvalidation(ProductChanges.DELETED, List.of(String.valueOf(pid)));
+		awaitTrue(() -> productSnapshot.find(pid) == null);
+	}
+
+	@Test
+	void fileInUseIsNotShared() throws IOException {
+		ProductSnapshot second = new ProductSnapshot(productDAO, transactionManager, productChanges,
+				new LocalProductVersions(), true, DIRECTORY.resolve("products.bin"), 10_000_000, 0);
+		second.open();
+		try {
+			assertThat(second.covers(1)).isFalse();
+		} finally {
+			second.close();
+		}
+		assertThat(productSnapshot.covers(1)).isTrue();
+	}
+
+	@Test
+	void staysOffWithSharedVersions() throws IOException {
+		ProductVersions sharedVersions = new LocalProductVersions() {
+
+			@Override
+			public boolean shared() {
+				return true;
+			}
+		};
+		ProductSnapshot shared = new ProductSnapshot(productDAO, transactionManager, productChanges, sharedVersions,
+				true, DIRECTORY.resolve("shared.bin"), 10_000_000, 0);
+		shared.open();
+		try {
+			assertThat(shared.covers(1)).isFalse();
+			assertThat(Files.exists(DIRECTORY.resolve("shared.bin"))).isFalse();
+		} finally {
+			shared.close();
+		}
+	}
+
+	@Test
+	void restartServesTheFileBeforeTheTableIsRead() throws IOException {
+		Product product = productMgmtService.addProduct(product("Snapshot toaster", 31.0));
+		Path copy = Files.copy(DIRECTORY.resolve("products.bin"), DIRECTORY.resolve("restarted.bin"));
+		// A crash in the middle of writing a record leaves its sequence number odd
+		try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.WRITE)) {
+			ByteBuffer odd = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, 7);
+			channel.write(odd, ProductSnapshot.HEADER_BYTES + (long) 1 * ProductSnapshot.RECORD_BYTES);
+		}
+
+		ProductSnapshot restarted = new ProductSnapshot(productDAO, transactionManager, productChanges,
+				new LocalProductVersions(), true, copy, 10_000_000, 0);
+		restarted.open();
+		try {
+			assertThat(restarted.covers(product.getPid())).isTrue();
+			assertThat(restarted.find(product.getPid())).usingRecursiveComparison().isEqualTo(product);
+			// Left to the database until the table is copied again
+			assertThat(restarted.covers(1)).isFalse();
+			assertThat(restarted.find(1)).usingRecursiveComparison().isEqualTo(productDAO.findById(1).get());
+			restarted.rebuild();
+			assertThat(restarted.covers(1)).isTrue();
+		} finally {
+			restarted.close();
+		}
+	}
+
+	private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertThat(condition.getAsBoolean()).isTrue();
+	}
+
+	private static Path createDirectory() {
+		try {
+			Path directory = Files.createTempDirectory("product-snapshot");
+			directory.toFile().deleteOnExit();
+			return directory;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
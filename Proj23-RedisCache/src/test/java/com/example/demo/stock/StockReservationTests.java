@@ -0,0 +1,136 @@
+package com.example.demo.stock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.dao.IProductDAO;
+import com.example.demo.entity.Product;
+import com.example.demo.service.IProductMgmtService;
+import com.example.demo.service.InsufficientStockException;
+
+/**
+ * 1000 threads reserving the same product at once must never take more than
+ * its stock, and the table must end up with exactly what is left.
+ */
+@SpringBootTest(properties = {
+		"product.cache.l2.enabled=false",
+		"product.warmup.enabled=false",
+		// Flushed by the tests
+		"product.stock.flush-interval-ms=3600000",
+		"spring.jpa.show-sql=false",
+		"logging.level.com.example.demo=WARN" })
+@AutoConfigureMockMvc
+class StockReservationTests {
+
+	private static final int THREADS = 1000;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private IProductMgmtService productMgmtService;
+
+	@Autowired
+	private IProductDAO productDAO;
+
+	@Autowired
+	private StockWriteBehind stockWriteBehind;
+
+	@Test
+	void contendedReservationsNeverOversell() throws Exception {
+		int pid = newProduct(700.0);
+		// Cached before the reservations, so the flush must drop it
+		assertThat(productMgmtService.findProductById(pid).getQty()).isEqualTo(700.0);
+
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Boolean>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < THREADS; i++) {
+				results.add(pool.submit(() -> {
+					start.await();
+					try {
+						productMgmtService.reserveStock(pid, 1);
+						return true;
+					} catch (InsufficientStockException e) {
+						return false;
+					}
+				}));
+			}
+			start.countDown();
+			int reserved = 0;
+			for (Future<Boolean> result : results) {
+				if (result.get(30, TimeUnit.SECONDS)) {
+					reserved++;
+				}
+			}
+
+			assertThat(reserved).isEqualTo(700);
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertThat(stockWriteBehind.flush()).isEqualTo(1);
+		assertThat(productDAO.findById(pid).get().getQty()).isZero();
+		assertThat(productMgmtService.findProductById(pid).getQty()).isZero();
+	}
+
+	@Test
+	void reserveEndpointAnswersWithTheUnitsLeft() throws Exception {
+		int pid = newProduct(5.5);
+
+		mockMvc.perform(post("/product-api/{pid}/reserve", pid).param("n", "3"))
+				.andExpect(status().isOk())
+				.andExpect(content().string("2"));
+		mockMvc.perform(post("/product-api/{pid}/reserve", pid).param("n", "3")).andExpect(status().isConflict());
+		mockMvc.perform(post("/product-api/{pid}/reserve", pid)).andExpect(status().isOk())
+				.andExpect(content().string("1"));
+		mockMvc.perform(post("/product-api/{pid}/reserve", pid).param("n", "0")).andExpect(status().isBadRequest());
+		mockMvc.perform(post("/product-api/{pid}/reserve", 900_000_000)).andExpect(status().isNotFound());
+
+		stockWriteBehind.flush();
+		// The half unit was never reservable and stays
+		assertThat(productDAO.findById(pid).get().getQty()).isEqualTo(1.5);
+	}
+
+	@Test
+	void updateKeepsReservationsNotFlushedYet() {
+		int pid = newProduct(10.0);
+		productMgmtService.reserveStock(pid, 3);
+
+		// Restocked to 20 while the 3 units are still waiting for the flush
+		Product product = productDAO.findById(pid).get();
+		product.setQty(20.0);
+		productMgmtService.addProduct(product);
+
+		assertThat(productMgmtService.reserveStock(pid, 17)).hasValue(0);
+		assertThatThrownBy(() -> productMgmtService.reserveStock(pid, 1)).isInstanceOf(InsufficientStockException.class);
+		stockWriteBehind.flush();
+		assertThat(productDAO.findById(pid).get().getQty()).isZero();
+	}
+
+	private int newProduct(double qty) {
+		Product product = new Product();
+		product.setPname("Stock test");
+		product.setPrice(10.0);
+		product.setQty(qty);
+		return productMgmtService.addProduct(product).getPid();
+	}
+}
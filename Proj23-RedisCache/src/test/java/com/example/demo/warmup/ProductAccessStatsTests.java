@@ -0,0 +1,68 @@
+package com.example.demo.warmup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProductAccessStatsTests {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void topListsTheMostReadProductsFirst() {
+		ProductAccessStats stats = new ProductAccessStats(null, 100);
+		read(stats, 7, 3);
+		read(stats, 2, 5);
+		read(stats, 9, 1);
+
+		assertThat(stats.top(2)).containsExactly(2, 7);
+		assertThat(stats.top(10)).containsExactly(2, 7, 9);
+	}
+
+	@Test
+	void ignoresNewIdsOnceFull() {
+		ProductAccessStats stats = new ProductAccessStats(null, 2);
+		read(stats, 1, 1);
+		read(stats, 2, 1);
+		read(stats, 3, 10);
+		read(stats, 1, 1);
+
+		assertThat(stats.top(10)).containsExactly(1, 2);
+	}
+
+	@Test
+	void countsSurviveARestartAtHalfWeight() throws Exception {
+		Path file = dir.resolve("stats/access.csv");
+		ProductAccessStats before = new ProductAccessStats(file, 100);
+		read(before, 1, 10);
+		read(before, 2, 4);
+		read(before, 3, 1);
+		before.save();
+
+		assertThat(Files.readAllLines(file)).containsExactly("1,10", "2,4", "3,1");
+
+		ProductAccessStats after = new ProductAccessStats(file, 100);
+		read(after, 3, 6);
+		// 1 and 2 come back as 5 and 2, 3 rounds down to nothing before its new reads
+		assertThat(after.top(10)).containsExactly(3, 1, 2);
+	}
+
+	@Test
+	void unreadableFileStartsEmpty() throws Exception {
+		Path file = dir.resolve("access.csv");
+		Files.writeString(file, "not,a number\n");
+
+		assertThat(new ProductAccessStats(file, 100).top(10)).isEmpty();
+	}
+
+	private static void read(ProductAccessStats stats, int pid, int times) {
+		for (int i = 0; i < times; i++) {
+			stats.record(pid);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.example.demo.warmup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.service.IProductMgmtService;
+import com.example.demo.service.impl.ProductMgmtServiceImpl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@SpringBootTest(properties = {
+		"product.cache.l2.enabled=false",
+		"product.warmup.ids=1,2,3,999999",
+		"product.warmup.stats-file=" })
+@AutoConfigureMockMvc
+class ProductCacheWarmupTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ProductCacheWarmup warmup;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void readinessIsUpOnceTheConfiguredProductsAreCached() throws Exception {
+		awaitFinished(warmup);
+
+		mockMvc.perform(get("/actuator/health/readiness"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.components.productCacheWarmup.details.state").value("completed"))
+				.andExpect(jsonPath("$.components.productCacheWarmup.details.entries").value(4));
+		for (int pid = 1; pid <= 3; pid++) {
+			assertThat(cacheManager.getCache(ProductMgmtServiceImpl.PRODUCT_CACHE).get(pid)).isNotNull();
+		}
+		assertThat(cacheManager.getCache(ProductMgmtServiceImpl.PRODUCT_LIST_CACHE).get(SimpleKey.EMPTY))
+				.isNotNull();
+		assertThat(meterRegistry.get("product.cache.warmup.entries").counter().count()).isEqualTo(4);
+		assertThat(meterRegistry.get("product.cache.warmup.duration").tag("outcome", "completed").timer().count())
+				.isEqualTo(1);
+	}
+
+	@Test
+	void slowWarmupStopsBlockingReadinessAfterTheTimeout() throws Exception {
+		IProductMgmtService slowService = mock(IProductMgmtService.class);
+		when(slowService.showAllProducts()).thenAnswer(invocation -> {
+			Thread.sleep(60_000);
+			return List.of();
+		});
+		ProductCacheWarmup slow = new ProductCacheWarmup(slowService, new ProductAccessStats(null, 10),
+				new SimpleMeterRegistry(), true, List.of(), 10, 100, 1, 1);
+
+		assertThat(slow.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+		slow.start();
+		assertThat(slow.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+		awaitFinished(slow);
+
+		assertThat(slow.state()).isEqualTo(ProductCacheWarmup.State.TIMED_OUT);
+		assertThat(slow.health().getStatus()).isEqualTo(Status.UP);
+	}
+
+	private static void awaitFinished(ProductCacheWarmup warmup) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (warmup.health().getStatus().equals(Status.OUT_OF_SERVICE) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+	}
+}
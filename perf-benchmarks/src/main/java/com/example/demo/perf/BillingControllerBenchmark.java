@@ -0,0 +1,106 @@
+package com.example.demo.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.ReflectionUtils;
+
+import com.example.demo.controllers.BillingServiceController;
+import com.example.demo.dto.PaymentResponse;
+
+/**
+ * {@link BillingServiceController} called directly, without HTTP. The
+ * {@code legacyFormat} benchmarks rebuild the message the way the controller
+ * did before (new Random plus String.format) as a baseline.
+ *
+ * Run with {@code -prof gc} to get the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BillingControllerBenchmark {
+
+	private static final String INSTANCE_ID = "Proj22-CircuitBreaker-BillingService:7f3c2a";
+
+	private static final int PORT = 9901;
+
+	private BillingServiceController controller;
+
+	private List<Long> cardNos;
+
+	@Setup
+	public void setUp() {
+		controller = new BillingServiceController();
+		setField("port", PORT);
+		setField("instanceId", INSTANCE_ID);
+		setField("maxBatchSize", 500);
+		invoke("precomputeResponseFragments");
+		cardNos = new ArrayList<>();
+		for (long i = 0; i < 50; i++) {
+			cardNos.add(4000_1234_5678_0000L + i);
+		}
+	}
+
+	@Benchmark
+	public ResponseEntity<String> doPayment() {
+		return controller.doPayment();
+	}
+
+	@Benchmark
+	public ResponseEntity<String> doPaymentWithCard() {
+		return controller.doPayment(4000_1234_5678_9010L);
+	}
+
+	@Benchmark
+	public ResponseEntity<List<String>> doPaymentsBatchOf50() {
+		return controller.doPayments(cardNos);
+	}
+
+	@Benchmark
+	public ResponseEntity<PaymentResponse> doPaymentV2() {
+		return controller.doPaymentV2();
+	}
+
+	@Benchmark
+	public String legacyFormat() {
+		int amount = new Random().nextInt(100000000);
+		return String.format("Bill Amount is %s. Payment can be done via Cards, UPI Payment %s : %d", amount,
+				INSTANCE_ID, PORT);
+	}
+
+	@Benchmark
+	public String legacyFormatWithCard() {
+		int amount = new Random().nextInt(100000000);
+		return String.format("Bill Amount is %s. Payment can be done using CardNO: %d. Instance ID: %s, Port: %d",
+				amount, 4000_1234_5678_9010L, INSTANCE_ID, PORT);
+	}
+
+	// The controller is normally populated by Spring from @Value fields
+	private void setField(String name, Object value) {
+		var field = ReflectionUtils.findField(BillingServiceController.class, name);
+		ReflectionUtils.makeAccessible(field);
+		ReflectionUtils.setField(field, controller, value);
+	}
+
+	private void invoke(String name) {
+		var method = ReflectionUtils.findMethod(BillingServiceController.class, name);
+		ReflectionUtils.makeAccessible(method);
+		ReflectionUtils.invokeMethod(method, controller);
+	}
+}
@@ -0,0 +1,111 @@
+package com.example.demo.perf;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.Timeout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * One billing call through each of the HTTP clients used by the shopping
+ * services, against a {@link BillingStubServer}:
+ * <ul>
+ * <li>a new {@link RestTemplate} per call, as the first shopping service did</li>
+ * <li>a shared {@link RestTemplate} over a pooled Apache HttpClient, as
+ * {@code BillingRestClientConfig} sets up</li>
+ * <li>a shared {@link WebClient} over Reactor Netty, blocking on the result</li>
+ * </ul>
+ * Run with {@code -t <threads>} to see how each behaves under concurrency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class BillingHttpClientBenchmark {
+
+	private BillingStubServer stub;
+
+	private String paymentUrl;
+
+	private CloseableHttpClient pooledHttpClient;
+
+	private RestTemplate pooledRestTemplate;
+
+	private ConnectionProvider connectionProvider;
+
+	private WebClient webClient;
+
+	@Setup
+	public void setUp() throws Exception {
+		stub = new BillingStubServer(8);
+		paymentUrl = stub.baseUrl() + "/billing-api/payment";
+
+		pooledHttpClient = HttpClients.custom()
+				.setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+						.setMaxConnTotal(200)
+						.setMaxConnPerRoute(50)
+						.setDefaultConnectionConfig(ConnectionConfig.custom()
+								.setConnectTimeout(Timeout.ofSeconds(1))
+								.setSocketTimeout(Timeout.ofSeconds(5))
+								.build())
+						.build())
+				.setDefaultRequestConfig(RequestConfig.custom()
+						.setConnectionRequestTimeout(Timeout.ofSeconds(1))
+						.build())
+				.build();
+		pooledRestTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(pooledHttpClient));
+
+		connectionProvider = ConnectionProvider.builder("billing-benchmark").maxConnections(200).build();
+		webClient = WebClient.builder()
+				.baseUrl(stub.baseUrl())
+				.clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+						.responseTimeout(Duration.ofSeconds(5))))
+				.build();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		pooledHttpClient.close();
+		connectionProvider.disposeLater().block();
+		stub.close();
+	}
+
+	@Benchmark
+	public String restTemplatePerCall() {
+		return new RestTemplate().getForObject(paymentUrl, String.class);
+	}
+
+	@Benchmark
+	public String restTemplatePooled() {
+		return pooledRestTemplate.getForObject(paymentUrl, String.class);
+	}
+
+	@Benchmark
+	public String webClient() {
+		return webClient.get().uri("/billing-api/payment").retrieve().bodyToMono(String.class).block();
+	}
+}
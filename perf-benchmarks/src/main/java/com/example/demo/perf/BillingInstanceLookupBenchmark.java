@@ -0,0 +1,119 @@
+package com.example.demo.perf;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.composite.CompositeDiscoveryClient;
+import org.springframework.cloud.netflix.eureka.EurekaClientConfigBean;
+import org.springframework.cloud.netflix.eureka.EurekaDiscoveryClient;
+
+import com.example.demo.loadbalancer.BillingInstanceCache;
+import com.example.demo.loadbalancer.LeastOutstandingInstanceChooser;
+import com.example.demo.loadbalancer.RandomInstanceChooser;
+import com.example.demo.loadbalancer.RoundRobinInstanceChooser;
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import com.netflix.discovery.shared.Applications;
+
+/**
+ * Cost of picking a billing instance in the DiscoveryClient shopping service
+ * (Proj03) among {@code instances} registered ones: asking the
+ * {@link DiscoveryClient} on every purchase and taking the first instance, as
+ * the service used to ({@code perCallLookup}), against
+ * {@link BillingInstanceCache} with each {@code chooser} ({@code cachedLookup}).
+ * {@code perCallLookup} ignores {@code chooser}.
+ *
+ * The discovery client is the one the service gets, a
+ * {@link CompositeDiscoveryClient} over {@link EurekaDiscoveryClient}, on top
+ * of a Eureka client that answers from a local registry copy as the real one
+ * does between fetches, so no network is involved.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BillingInstanceLookupBenchmark {
+
+	private static final String SERVICE_ID = "Proj04-DiscoveryClient-BillingService";
+
+	@Param({ "3", "20" })
+	public int instances;
+
+	@Param({ "round-robin", "random", "least-outstanding" })
+	public String chooser;
+
+	private DiscoveryClient discoveryClient;
+
+	private BillingInstanceCache cache;
+
+	@Setup
+	public void setUp() {
+		Application application = new Application(SERVICE_ID);
+		for (int i = 0; i < instances; i++) {
+			application.addInstance(InstanceInfo.Builder.newBuilder()
+					.setInstanceId(SERVICE_ID + ":" + i)
+					.setAppName(SERVICE_ID)
+					.setVIPAddress(SERVICE_ID)
+					.setHostName("billing-" + i)
+					.setIPAddr("10.0.0." + i)
+					.setPort(8081)
+					.setStatus(InstanceInfo.InstanceStatus.UP)
+					.build());
+		}
+		Applications registry = new Applications();
+		registry.addApplication(application);
+		registry.shuffleInstances(true);
+		EurekaClient eurekaClient = (EurekaClient) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { EurekaClient.class }, (proxy, method, args) -> switch (method.getName()) {
+					case "getInstancesByVipAddress" -> registry.getInstancesByVirtualHostName((String) args[0]);
+					case "getApplications" -> registry;
+					default -> throw new UnsupportedOperationException(method.getName());
+				});
+		discoveryClient = new CompositeDiscoveryClient(
+				List.of(new EurekaDiscoveryClient(eurekaClient, new EurekaClientConfigBean())));
+
+		cache = new BillingInstanceCache(discoveryClient, switch (chooser) {
+			case "random" -> new RandomInstanceChooser();
+			case "least-outstanding" -> new LeastOutstandingInstanceChooser();
+			default -> new RoundRobinInstanceChooser();
+		}, SERVICE_ID, 60_000, 1000);
+		cache.refresh();
+		if (cache.size() != instances || perCallLookup() == null) {
+			throw new IllegalStateException("Billing instances not found");
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		cache.stop();
+	}
+
+	@Benchmark
+	public ServiceInstance perCallLookup() {
+		List<ServiceInstance> instanceList = discoveryClient.getInstances(SERVICE_ID);
+		return instanceList.isEmpty() ? null : instanceList.get(0);
+	}
+
+	@Benchmark
+	public ServiceInstance cachedLookup() {
+		return cache.choose();
+	}
+}
@@ -0,0 +1,83 @@
+package com.example.demo.perf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal in-process billing service answering {@code /billing-api/payment}
+ * and {@code /billing-api/payment/{cardNo}} with a fixed message, and
+ * {@code /billing-api/payments/batch} with one such message per card number,
+ * so the client benchmarks measure the client side and not the billing logic.
+ */
+public class BillingStubServer implements AutoCloseable {
+
+	static final String PAYMENT_MESSAGE = "Bill Amount is 4242. Payment can be done via Cards, UPI Payment stub:1 : 0";
+
+	private static final byte[] PAYMENT_BODY = PAYMENT_MESSAGE.getBytes(StandardCharsets.UTF_8);
+
+	static {
+		// Without it the JDK server waits for delayed ACKs and every call costs ~40ms
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+	}
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private final HttpServer server;
+
+	private final ExecutorService executor;
+
+	public BillingStubServer(int threads) throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 512);
+		executor = Executors.newFixedThreadPool(threads);
+		server.setExecutor(executor);
+		server.createContext("/billing-api/payment", this::handlePayment);
+		server.createContext("/billing-api/payments/batch", this::handleBatch);
+		server.start();
+	}
+
+	private void handlePayment(HttpExchange exchange) throws IOException {
+		try (InputStream body = exchange.getRequestBody()) {
+			body.readAllBytes();
+		}
+		exchange.getResponseHeaders().set("Content-Type", "text/plain;charset=UTF-8");
+		exchange.sendResponseHeaders(200, PAYMENT_BODY.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(PAYMENT_BODY);
+		}
+	}
+
+	private void handleBatch(HttpExchange exchange) throws IOException {
+		long[] cardNos;
+		try (InputStream body = exchange.getRequestBody()) {
+			cardNos = JSON.readValue(body, long[].class);
+		}
+		String[] messages = new String[cardNos.length];
+		Arrays.fill(messages, PAYMENT_MESSAGE);
+		byte[] response = JSON.writeValueAsBytes(messages);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, response.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(response);
+		}
+	}
+
+	public String baseUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+}
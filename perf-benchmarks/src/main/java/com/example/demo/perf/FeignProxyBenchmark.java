@@ -0,0 +1,84 @@
+package com.example.demo.perf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.cloud.openfeign.support.SpringEncoder;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.demo.controllers.IBillingServiceClientComponent;
+
+import feign.Client;
+import feign.Feign;
+import feign.optionals.OptionalDecoder;
+
+/**
+ * Cost of going through the Feign proxy of {@link IBillingServiceClientComponent}
+ * compared with a plain {@link RestTemplate} call. Both use
+ * {@code HttpURLConnection} underneath (Feign's default client), so the
+ * difference is the proxy itself: contract metadata, template expansion and
+ * decoding. The proxy is built with the same contract, encoder and decoder
+ * Spring Cloud OpenFeign uses, minus load balancing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class FeignProxyBenchmark {
+
+	private BillingStubServer stub;
+
+	private IBillingServiceClientComponent feignClient;
+
+	private RestTemplate restTemplate;
+
+	private String paymentUrl;
+
+	@Setup
+	public void setUp() throws Exception {
+		stub = new BillingStubServer(8);
+		paymentUrl = stub.baseUrl() + "/billing-api/payment/{cardNo}";
+
+		ObjectFactory<HttpMessageConverters> converters = HttpMessageConverters::new;
+		feignClient = Feign.builder()
+				.client(new Client.Default(null, null))
+				.contract(new SpringMvcContract())
+				.encoder(new SpringEncoder(converters))
+				.decoder(new OptionalDecoder(new ResponseEntityDecoder(new SpringDecoder(converters))))
+				.target(IBillingServiceClientComponent.class, stub.baseUrl());
+		restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
+	}
+
+	@TearDown
+	public void tearDown() {
+		stub.close();
+	}
+
+	@Benchmark
+	public String feignProxy() {
+		return feignClient.invokeDoPayment(4000_1234_5678_9010L);
+	}
+
+	@Benchmark
+	public String restTemplate() {
+		return restTemplate.getForObject(paymentUrl, String.class, 4000_1234_5678_9010L);
+	}
+}
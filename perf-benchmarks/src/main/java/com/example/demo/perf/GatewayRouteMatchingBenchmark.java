@@ -0,0 +1,117 @@
+package com.example.demo.perf;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.handler.predicate.PathRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.example.demo.routing.TrieRoutePredicateHandlerMapping;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Route selection in the API gateway among {@code routes} routes built the
+ * way the discovery locator builds them, one {@code Path} pattern
+ * {@code /service-N-api/**} per service: the gateway's own
+ * {@link RoutePredicateHandlerMapping}, which tries the routes in order
+ * ({@code default}), against {@link TrieRoutePredicateHandlerMapping}
+ * ({@code trie}). Requests go to the services in turn, so the default mapping
+ * tries half the routes on average.
+ *
+ * There is one mock exchange per service, built up front as a new one costs
+ * more than the lookup; its attributes are cleared before each lookup so
+ * nothing the last one worked out, such as the parsed path, is reused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GatewayRouteMatchingBenchmark {
+
+	@Param({ "10", "100", "500" })
+	public int routes;
+
+	@Param({ "default", "trie" })
+	public String mapping;
+
+	private RoutePredicateHandlerMapping handlerMapping;
+
+	private MockServerWebExchange[] exchanges;
+
+	private int next;
+
+	@Setup
+	public void setUp() {
+		List<Route> routeList = new ArrayList<>();
+		List<RouteDefinition> definitions = new ArrayList<>();
+		exchanges = new MockServerWebExchange[routes];
+		for (int i = 0; i < routes; i++) {
+			String pattern = "/service-" + i + "-api/**";
+			routeList.add(Route.async().id("service-" + i).uri(URI.create("lb://service-" + i)).order(0)
+					.predicate(new PathRoutePredicateFactory().apply(c -> c.setPatterns(List.of(pattern))))
+					.build());
+			RouteDefinition definition = new RouteDefinition();
+			definition.setId("service-" + i);
+			definition.setPredicates(List.of(new PredicateDefinition("Path=" + pattern)));
+			definitions.add(definition);
+			exchanges[i] = MockServerWebExchange
+					.from(MockServerHttpRequest.get("/service-" + i + "-api/report/" + i));
+		}
+
+		if ("trie".equals(mapping)) {
+			TrieRoutePredicateHandlerMapping trie = new TrieRoutePredicateHandlerMapping(
+					new FilteringWebHandler(List.of()), () -> Flux.fromIterable(routeList),
+					() -> Flux.fromIterable(definitions), new GlobalCorsProperties(), new MockEnvironment());
+			trie.compile().block();
+			handlerMapping = trie;
+		}
+		else {
+			handlerMapping = new RoutePredicateHandlerMapping(new FilteringWebHandler(List.of()),
+					() -> Flux.fromIterable(routeList), new GlobalCorsProperties(), new MockEnvironment());
+		}
+		for (int i = 0; i < routes; i++) {
+			if (!("service-" + i).equals(route(exchanges[i]).getId())) {
+				throw new IllegalStateException("Wrong route for " + exchanges[i].getRequest().getPath());
+			}
+		}
+	}
+
+	@Benchmark
+	public Route lookup() {
+		MockServerWebExchange exchange = exchanges[next];
+		next = next + 1 == exchanges.length ? 0 : next + 1;
+		return route(exchange);
+	}
+
+	private Route route(MockServerWebExchange exchange) {
+		exchange.getAttributes().clear();
+		handlerMapping.getHandler(exchange).block();
+		return exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+	}
+}
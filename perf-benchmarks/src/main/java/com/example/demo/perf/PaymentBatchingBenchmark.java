@@ -0,0 +1,100 @@
+package com.example.demo.perf;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.cloud.openfeign.support.SpringEncoder;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+
+import com.example.demo.controllers.BatchingBillingServiceClient;
+import com.example.demo.controllers.IBillingServiceClientComponent;
+import com.example.demo.controllers.PaymentMicroBatcher;
+
+import feign.Client;
+import feign.Feign;
+import feign.optionals.OptionalDecoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Payments per millisecond from 16 concurrent purchases against an embedded
+ * billing stub: one {@code /billing-api/payment/{cardNo}} call per payment
+ * through the Feign proxy ({@code single}), against the same proxy behind
+ * {@link BatchingBillingServiceClient} with the shopping service's default
+ * batching settings ({@code batched}), where the payments share
+ * {@code /billing-api/payments/batch} requests. With {@code lingerMs} at 0 a
+ * batch only holds what was already queued when the collector got to it;
+ * {@code single} ignores it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(16)
+@Fork(1)
+public class PaymentBatchingBenchmark {
+
+	@Param({ "single", "batched" })
+	public String client;
+
+	@Param({ "0", "5" })
+	public long lingerMs;
+
+	private BillingStubServer stub;
+
+	private PaymentMicroBatcher batcher;
+
+	private IBillingServiceClientComponent billingClient;
+
+	@Setup
+	public void setUp() throws Exception {
+		stub = new BillingStubServer(8);
+		ObjectFactory<HttpMessageConverters> converters = HttpMessageConverters::new;
+		IBillingServiceClientComponent feignClient = Feign.builder()
+				.client(new Client.Default(null, null))
+				.contract(new SpringMvcContract())
+				.encoder(new SpringEncoder(converters))
+				.decoder(new OptionalDecoder(new ResponseEntityDecoder(new SpringDecoder(converters))))
+				.target(IBillingServiceClientComponent.class, stub.baseUrl());
+		if ("batched".equals(client)) {
+			batcher = new PaymentMicroBatcher(feignClient, 50, lingerMs, 10000, 4, new SimpleMeterRegistry());
+			billingClient = new BatchingBillingServiceClient(feignClient, batcher, Duration.ofSeconds(10));
+		}
+		else {
+			billingClient = feignClient;
+		}
+		if (!BillingStubServer.PAYMENT_MESSAGE.equals(billingClient.invokeDoPayment(4000_1234_5678_9010L))) {
+			throw new IllegalStateException("Unexpected payment message");
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (batcher != null) {
+			batcher.close();
+		}
+		stub.close();
+	}
+
+	@Benchmark
+	public String payment() {
+		return billingClient.invokeDoPayment(4000_1234_5678_9010L);
+	}
+}
@@ -0,0 +1,36 @@
+package com.example.demo.perf;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import com.example.demo.cache.ProductChanges;
+import com.example.demo.config.ProductVersionConfig;
+import com.example.demo.config.StockConfig;
+import com.example.demo.dao.IProductDAO;
+import com.example.demo.entity.Product;
+import com.example.demo.index.ProductIdIndex;
+import com.example.demo.index.ProductSearchIndex;
+import com.example.demo.service.impl.ProductMgmtServiceImpl;
+import com.example.demo.snapshot.ProductSnapshot;
+import com.example.demo.stock.StockWriteBehind;
+
+/**
+ * The Proj23 beans behind {@link ProductMgmtServiceImpl}, shared by the product
+ * benchmarks. Without {@code CacheConfig} Spring Boot's own cache is used; the
+ * benchmarks that need the two-level cache, the Hibernate caches or the REST
+ * controllers add those configurations next to this one.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EnableCaching
+@EntityScan(basePackageClasses = Product.class)
+@EnableJpaRepositories(basePackageClasses = IProductDAO.class)
+@Import({ ProductMgmtServiceImpl.class, ProductIdIndex.class, ProductSearchIndex.class,
+		ProductVersionConfig.class, ProductChanges.class, ProductSnapshot.class, StockConfig.class,
+		StockWriteBehind.class })
+class ProductBenchmarkApplication {
+}
@@ -0,0 +1,107 @@
+package com.example.demo.perf;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dao.IProductDAO;
+import com.example.demo.entity.Product;
+import com.example.demo.index.ProductIdIndex;
+import com.example.demo.service.IProductMgmtService;
+import com.example.demo.service.impl.ProductMgmtServiceImpl;
+
+/**
+ * Reads through {@link ProductMgmtServiceImpl} with Proj23's two-level cache
+ * (L1 only, no Redis), with Spring's unbounded {@code simple} cache and with
+ * no cache ({@code none}, every read goes to H2).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductCacheBenchmark {
+
+	private static final int PRODUCTS = 1000;
+
+	@Param({ "two-level", "simple", "none" })
+	public String cacheType;
+
+	private ConfigurableApplicationContext context;
+
+	private IProductMgmtService service;
+
+	private int firstPid;
+
+	@Setup
+	public void setUp() {
+		boolean twoLevel = "two-level".equals(cacheType);
+		context = new SpringApplicationBuilder(twoLevel
+				? new Class<?>[] { ProductBenchmarkApplication.class, CacheConfig.class }
+				: new Class<?>[] { ProductBenchmarkApplication.class })
+				.web(WebApplicationType.NONE)
+				.properties(
+						twoLevel ? "product.cache.l2.enabled=false" : "spring.cache.type=" + cacheType,
+						"spring.datasource.url=jdbc:h2:mem:products-benchmark;DB_CLOSE_DELAY=-1",
+						"spring.jpa.hibernate.ddl-auto=create-drop",
+						"spring.sql.init.mode=never",
+						"spring.autoconfigure.exclude="
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration,"
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration",
+						// The billing and shopping classes share the classpath, keep them off the network
+						"spring.cloud.discovery.enabled=false",
+						"eureka.client.enabled=false")
+				.run();
+		service = context.getBean(IProductMgmtService.class);
+		IProductDAO dao = context.getBean(IProductDAO.class);
+		for (int i = 0; i < PRODUCTS; i++) {
+			Product product = new Product();
+			product.setPname("Product-" + i);
+			product.setPrice(10.0 + i);
+			product.setQty(100.0);
+			Product saved = dao.save(product);
+			if (i == 0) {
+				firstPid = saved.getPid();
+			}
+		}
+		// Saved with the DAO, so the ID filter has to be rebuilt to know them
+		context.getBean(ProductIdIndex.class).rebuild();
+		// Measure steady state reads, not the first misses
+		for (int i = 0; i < PRODUCTS; i++) {
+			service.findProductById(firstPid + i);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Product findProductById() {
+		return service.findProductById(firstPid + ThreadLocalRandom.current().nextInt(PRODUCTS));
+	}
+
+	@Benchmark
+	public List<Product> showAllProducts() {
+		return service.showAllProducts();
+	}
+}
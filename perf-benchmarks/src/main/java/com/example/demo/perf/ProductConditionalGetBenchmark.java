@@ -0,0 +1,113 @@
+package com.example.demo.perf;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.index.ProductIdIndex;
+import com.example.demo.perf.ProductListingBenchmark.ProductListingApplication;
+
+/**
+ * A client polling {@code /product-api/get/{pid}} or the whole
+ * {@code /product-api/getall} list of {@code rows} products, which do not
+ * change. With {@code conditional} it sends back the ETag of the first
+ * response in {@code If-None-Match} and gets 304 without a body; without it
+ * every poll reads the full JSON, from the L1 cache. The body bytes of one
+ * poll each way are printed per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductConditionalGetBenchmark {
+
+	@Param({ "1000" })
+	public int rows;
+
+	@Param({ "product", "list" })
+	public String resource;
+
+	@Param({ "false", "true" })
+	public boolean conditional;
+
+	private ConfigurableApplicationContext context;
+
+	private HttpClient httpClient;
+
+	private HttpRequest request;
+
+	@Setup
+	public void setUp() throws Exception {
+		context = new SpringApplicationBuilder(ProductListingApplication.class)
+				.properties(
+						"server.port=0",
+						"product.cache.l2.enabled=false",
+						"spring.datasource.url=jdbc:h2:mem:products-etag;DB_CLOSE_DELAY=-1",
+						"spring.jpa.hibernate.ddl-auto=create-drop",
+						"spring.sql.init.mode=never",
+						"spring.autoconfigure.exclude="
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration,"
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration",
+						"spring.cloud.discovery.enabled=false",
+						"eureka.client.enabled=false",
+						"logging.level.com.example.demo=WARN")
+				.run();
+		context.getBean(JdbcTemplate.class).update(
+				"INSERT INTO tbl_mst_cache_product (pid, pname, price, qty) "
+						+ "SELECT X, 'Product-' || X, 10 + MOD(X, 1000), 100 FROM SYSTEM_RANGE(1, ?)",
+				rows);
+		// Inserted behind its back, so the ID filter has to be rebuilt to know them
+		context.getBean(ProductIdIndex.class).rebuild();
+		httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		String url = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+				+ ("product".equals(resource) ? "/product-api/get/" + rows / 2 : "/product-api/getall");
+
+		HttpRequest first = HttpRequest.newBuilder(URI.create(url)).header("Accept", "application/json").build();
+		HttpResponse<byte[]> response = httpClient.send(first, HttpResponse.BodyHandlers.ofByteArray());
+		String etag = response.headers().firstValue("ETag").orElseThrow();
+		request = conditional
+				? HttpRequest.newBuilder(URI.create(url)).header("Accept", "application/json")
+						.header("If-None-Match", etag).build()
+				: first;
+		HttpResponse<byte[]> polled = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+		System.out.printf("%n%s: %d body bytes per poll (status %d), %d without If-None-Match%n", resource,
+				polled.body().length, polled.statusCode(), response.body().length);
+	}
+
+	@TearDown
+	public void tearDown() {
+		httpClient.close();
+		context.close();
+	}
+
+	@Benchmark
+	public long poll() throws Exception {
+		HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		try (InputStream body = response.body()) {
+			return body.transferTo(OutputStream.nullOutputStream());
+		}
+	}
+}
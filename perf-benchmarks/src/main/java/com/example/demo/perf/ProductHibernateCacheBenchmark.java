@@ -0,0 +1,122 @@
+package com.example.demo.perf;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.config.HibernateCacheConfig;
+import com.example.demo.dao.IProductDAO;
+import com.example.demo.entity.Product;
+import com.example.demo.index.ProductIdIndex;
+import com.example.demo.service.IProductMgmtService;
+
+/**
+ * Reads of single products and of pages with the service-level two-level
+ * cache ({@code service}, L1 only), the Hibernate second-level and query
+ * cache ({@code hibernate}), both, or {@code none}.
+ *
+ * {@code findProductById} and {@code showProducts} go through the service;
+ * {@code daoFindById} calls the repository directly, as the paths without
+ * {@code @Cacheable} do (the lookup before a delete, for one).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductHibernateCacheBenchmark {
+
+	private static final int PRODUCTS = 1000;
+
+	private static final int PAGE = 20;
+
+	@Param({ "none", "service", "hibernate", "both" })
+	public String layers;
+
+	private ConfigurableApplicationContext context;
+
+	private IProductMgmtService service;
+
+	private IProductDAO dao;
+
+	private int firstPid;
+
+	@Setup
+	public void setUp() {
+		boolean serviceCache = "service".equals(layers) || "both".equals(layers);
+		boolean hibernateCache = "hibernate".equals(layers) || "both".equals(layers);
+		context = new SpringApplicationBuilder(serviceCache
+				? new Class<?>[] { ProductBenchmarkApplication.class, HibernateCacheConfig.class, CacheConfig.class }
+				: new Class<?>[] { ProductBenchmarkApplication.class, HibernateCacheConfig.class })
+				.web(WebApplicationType.NONE)
+				.properties(
+						serviceCache ? "product.cache.l2.enabled=false" : "spring.cache.type=none",
+						"spring.jpa.properties.hibernate.cache.use_second_level_cache=" + hibernateCache,
+						"spring.jpa.properties.hibernate.cache.use_query_cache=" + hibernateCache,
+						"spring.datasource.url=jdbc:h2:mem:products-benchmark;DB_CLOSE_DELAY=-1",
+						"spring.jpa.hibernate.ddl-auto=create-drop",
+						"spring.sql.init.mode=never",
+						"spring.autoconfigure.exclude="
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration,"
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration",
+						"spring.cloud.discovery.enabled=false",
+						"eureka.client.enabled=false")
+				.run();
+		service = context.getBean(IProductMgmtService.class);
+		dao = context.getBean(IProductDAO.class);
+		for (int i = 0; i < PRODUCTS; i++) {
+			Product product = new Product();
+			product.setPname("Product-" + i);
+			product.setPrice(10.0 + i);
+			product.setQty(100.0);
+			Product saved = dao.save(product);
+			if (i == 0) {
+				firstPid = saved.getPid();
+			}
+		}
+		context.getBean(ProductIdIndex.class).rebuild();
+		for (int i = 0; i < PRODUCTS; i++) {
+			service.findProductById(firstPid + i);
+			dao.findById(firstPid + i);
+			service.showProducts(firstPid + i - 1, PAGE);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public Product findProductById() {
+		return service.findProductById(firstPid + ThreadLocalRandom.current().nextInt(PRODUCTS));
+	}
+
+	@Benchmark
+	public Product daoFindById() {
+		return dao.findById(firstPid + ThreadLocalRandom.current().nextInt(PRODUCTS)).orElse(null);
+	}
+
+	@Benchmark
+	public List<Product> showProducts() {
+		return service.showProducts(firstPid + ThreadLocalRandom.current().nextInt(PRODUCTS) - 1, PAGE);
+	}
+}
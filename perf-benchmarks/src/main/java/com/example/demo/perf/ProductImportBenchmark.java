@@ -0,0 +1,116 @@
+package com.example.demo.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.entity.Product;
+import com.example.demo.service.IProductMgmtService;
+
+/**
+ * Loads {@code rows} products into an empty in-memory H2 table, through the
+ * chunked bulk import and, as a baseline, through one {@code addProduct} call
+ * per product (what {@code /product-api/save} does). Run with
+ * {@code -p jdbcBatchSize=1} to see the import without JDBC batching.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ProductImportBenchmark {
+
+	@Param({ "100000" })
+	public int rows;
+
+	@Param({ "50" })
+	public int jdbcBatchSize;
+
+	private ConfigurableApplicationContext context;
+
+	private IProductMgmtService service;
+
+	private CacheManager cacheManager;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private List<Product> products;
+
+	@Setup
+	public void setUp() {
+		context = new SpringApplicationBuilder(ProductBenchmarkApplication.class, CacheConfig.class)
+				.web(WebApplicationType.NONE)
+				.properties(
+						"product.cache.l2.enabled=false",
+						"product.import.chunk-size=1000",
+						"spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize,
+						"spring.jpa.properties.hibernate.order_inserts=true",
+						"spring.datasource.url=jdbc:h2:mem:products-import;DB_CLOSE_DELAY=-1",
+						"spring.jpa.hibernate.ddl-auto=create-drop",
+						"spring.sql.init.mode=never",
+						"spring.autoconfigure.exclude="
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration,"
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration",
+						"spring.cloud.discovery.enabled=false",
+						"eureka.client.enabled=false")
+				.run();
+		service = context.getBean(IProductMgmtService.class);
+		cacheManager = context.getBean(CacheManager.class);
+		jdbcTemplate = context.getBean(JdbcTemplate.class);
+	}
+
+	@Setup(Level.Invocation)
+	public void emptyCatalog() {
+		jdbcTemplate.execute("TRUNCATE TABLE tbl_mst_cache_product");
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		products = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			Product product = new Product();
+			product.setPname("Product-" + i);
+			product.setPrice(10.0 + i % 1000);
+			product.setQty(100.0);
+			products.add(product);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public int bulkImport() {
+		return service.importProducts(products.iterator());
+	}
+
+	@Benchmark
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 2)
+	public int singleSaves() {
+		for (Product product : products) {
+			service.addProduct(product);
+		}
+		return products.size();
+	}
+}
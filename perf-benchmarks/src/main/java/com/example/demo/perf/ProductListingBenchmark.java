@@ -0,0 +1,152 @@
+package com.example.demo.perf;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.config.CacheConfig;
+import com.example.demo.controllers.ProductOperationControllers;
+import com.example.demo.warmup.ProductAccessStats;
+
+/**
+ * {@code /product-api/getall} over HTTP on a catalog of {@code rows} products:
+ * the full JSON list, one keyset page, and the NDJSON stream. The
+ * {@code firstByte} benchmarks stop at the first byte of the body
+ * (time-to-first-byte), the others read the whole response. Caches are
+ * cleared before every call so each one goes to the database.
+ *
+ * Server and client share the JVM, so {@code -prof gc} shows what each mode
+ * allocates on the server side; the full list also needs a large heap, hence
+ * the fixed {@code -Xmx}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ProductListingBenchmark {
+
+	@Param({ "1000000" })
+	public int rows;
+
+	private ConfigurableApplicationContext context;
+
+	private CacheManager cacheManager;
+
+	private HttpClient httpClient;
+
+	private String baseUrl;
+
+	@Setup
+	public void setUp() {
+		context = new SpringApplicationBuilder(ProductListingApplication.class)
+				.properties(
+						"server.port=0",
+						"product.cache.l2.enabled=false",
+						"product.page.max-limit=1000",
+						"spring.mvc.async.request-timeout=-1",
+						"spring.datasource.url=jdbc:h2:mem:products-listing;DB_CLOSE_DELAY=-1",
+						"spring.jpa.hibernate.ddl-auto=create-drop",
+						"spring.sql.init.mode=never",
+						"spring.autoconfigure.exclude="
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration,"
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration",
+						"spring.cloud.discovery.enabled=false",
+						"eureka.client.enabled=false")
+				.run();
+		context.getBean(JdbcTemplate.class).update(
+				"INSERT INTO tbl_mst_cache_product (pid, pname, price, qty) "
+						+ "SELECT X, 'Product-' || X, 10 + MOD(X, 1000), 100 FROM SYSTEM_RANGE(1, ?)",
+				rows);
+		cacheManager = context.getBean(CacheManager.class);
+		httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+		baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort()
+				+ "/product-api/getall";
+	}
+
+	@Setup(Level.Invocation)
+	public void clearCaches() {
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+	}
+
+	@TearDown
+	public void tearDown() {
+		httpClient.close();
+		context.close();
+	}
+
+	@Benchmark
+	public int fullListFirstByte() throws Exception {
+		return firstByte(get(baseUrl, "application/json"));
+	}
+
+	@Benchmark
+	public long fullListComplete() throws Exception {
+		return readAll(get(baseUrl, "application/json"));
+	}
+
+	@Benchmark
+	public int pageFirstByte() throws Exception {
+		return firstByte(get(baseUrl + "?afterPid=" + rows / 2 + "&limit=100", "application/json"));
+	}
+
+	@Benchmark
+	public int ndjsonFirstByte() throws Exception {
+		return firstByte(get(baseUrl, "application/x-ndjson"));
+	}
+
+	@Benchmark
+	public long ndjsonComplete() throws Exception {
+		return readAll(get(baseUrl, "application/x-ndjson"));
+	}
+
+	private HttpResponse<InputStream> get(String url, String accept) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url)).header("Accept", accept).build();
+		return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+	}
+
+	private static int firstByte(HttpResponse<InputStream> response) throws Exception {
+		try (InputStream body = response.body()) {
+			return body.read();
+		}
+	}
+
+	private static long readAll(HttpResponse<InputStream> response) throws Exception {
+		try (InputStream body = response.body()) {
+			return body.transferTo(OutputStream.nullOutputStream());
+		}
+	}
+
+	// The shared product beans with the two-level cache and the REST controllers
+	@Configuration(proxyBeanMethods = false)
+	@Import({ ProductBenchmarkApplication.class, CacheConfig.class, ProductOperationControllers.class,
+			ProductAccessStats.class })
+	static class ProductListingApplication {
+	}
+}
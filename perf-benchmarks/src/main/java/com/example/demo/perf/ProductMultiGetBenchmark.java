@@ -0,0 +1,145 @@
+package com.example.demo.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.demo.cache.TwoLevelCache;
+import com.example.demo.cache.TwoLevelCacheManager;
+import com.example.demo.config.CacheConfig;
+import com.example.demo.dao.IProductDAO;
+import com.example.demo.entity.Product;
+import com.example.demo.index.ProductIdIndex;
+import com.example.demo.service.IProductMgmtService;
+import com.example.demo.service.impl.ProductMgmtServiceImpl;
+
+/**
+ * Latency of reading 1, 10 and 100 products: one
+ * {@link IProductMgmtService#findProductsByIds} call vs one
+ * {@code findProductById} per ID, through the two-level cache.
+ *
+ * {@code source} says where the reads are served from: {@code l1} (warm
+ * Caffeine), {@code db} (the IDs evicted before each call, so H2 serves
+ * them) or {@code l2} (the IDs dropped from L1 before each call, so Redis
+ * serves them; needs a Redis on localhost:6379, run with {@code -p source=l2}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductMultiGetBenchmark {
+
+	private static final int PRODUCTS = 1000;
+
+	@Param({ "1", "10", "100" })
+	public int ids;
+
+	@Param({ "l1", "db" })
+	public String source;
+
+	private ConfigurableApplicationContext context;
+
+	private IProductMgmtService service;
+
+	private TwoLevelCacheManager cacheManager;
+
+	private int firstPid;
+
+	private List<Integer> pids;
+
+	@Setup
+	public void setUp() {
+		boolean redis = "l2".equals(source);
+		context = new SpringApplicationBuilder(ProductBenchmarkApplication.class, CacheConfig.class)
+				.web(WebApplicationType.NONE)
+				.properties(
+						"product.cache.l2.enabled=" + redis,
+						"spring.datasource.url=jdbc:h2:mem:products-multiget;DB_CLOSE_DELAY=-1",
+						"spring.jpa.hibernate.ddl-auto=create-drop",
+						"spring.sql.init.mode=never",
+						"spring.autoconfigure.exclude=" + (redis ? ""
+								: "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration,"
+										+ "org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration"),
+						"spring.cloud.discovery.enabled=false",
+						"eureka.client.enabled=false")
+				.run();
+		service = context.getBean(IProductMgmtService.class);
+		cacheManager = (TwoLevelCacheManager) context.getBean(CacheManager.class);
+		IProductDAO dao = context.getBean(IProductDAO.class);
+		for (int i = 0; i < PRODUCTS; i++) {
+			Product product = new Product();
+			product.setPname("Product-" + i);
+			product.setPrice(10.0 + i);
+			product.setQty(100.0);
+			Product saved = dao.save(product);
+			if (i == 0) {
+				firstPid = saved.getPid();
+			}
+		}
+		// Saved with the DAO, so the ID filter has to be rebuilt to know them
+		context.getBean(ProductIdIndex.class).rebuild();
+		// Fill both layers
+		for (int i = 0; i < PRODUCTS; i++) {
+			service.findProductById(firstPid + i);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Setup(Level.Invocation)
+	public void pickIds() {
+		int start = ThreadLocalRandom.current().nextInt(PRODUCTS - ids + 1);
+		pids = new ArrayList<>(ids);
+		for (int i = 0; i < ids; i++) {
+			pids.add(firstPid + start + i);
+		}
+		// Drop only the IDs about to be read, clearing everything would bring Caffeine maintenance into the measurement
+		TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache(ProductMgmtServiceImpl.PRODUCT_CACHE);
+		switch (source) {
+		case "db" -> cache.evictAll(pids);
+		case "l2" -> ((com.github.benmanes.caffeine.cache.Cache<String, ?>) cache.getNativeCache())
+				.invalidateAll(pids.stream().map(String::valueOf).toList());
+		default -> {
+		}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Product> multiGet() {
+		return service.findProductsByIds(pids);
+	}
+
+	@Benchmark
+	public List<Product> singleGets() {
+		List<Product> products = new ArrayList<>(pids.size());
+		for (Integer pid : pids) {
+			products.add(service.findProductById(pid));
+		}
+		return products;
+	}
+}
@@ -0,0 +1,124 @@
+package com.example.demo.perf;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.dao.IProductDAO;
+import com.example.demo.entity.Product;
+import com.example.demo.index.ProductSearchIndex;
+
+/**
+ * Product search by name prefix and price range on a catalog of {@code rows}
+ * products: {@link ProductSearchIndex} against the same {@code LIKE} and
+ * price-bound query through {@link IProductDAO#search}. Names start with one
+ * of 676 two-letter prefixes and prices spread over 0-1000; {@code query}
+ * picks a prefix only, a price range of 10 only, or both.
+ *
+ * Both return the first 20 matches by price; the index returns IDs, the query
+ * whole products, as each feeds {@code searchProducts}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ProductSearchBenchmark {
+
+	private static final int LIMIT = 20;
+
+	private static final int QUERIES = 1024;
+
+	@Param({ "100000", "1000000" })
+	public int rows;
+
+	@Param({ "prefix", "priceRange", "both" })
+	public String query;
+
+	private ConfigurableApplicationContext context;
+
+	private ProductSearchIndex index;
+
+	private IProductDAO dao;
+
+	private final String[] prefixes = new String[QUERIES];
+
+	private final Double[] minPrices = new Double[QUERIES];
+
+	private final Double[] maxPrices = new Double[QUERIES];
+
+	private int next;
+
+	@Setup
+	public void setUp() {
+		context = new SpringApplicationBuilder(ProductBenchmarkApplication.class)
+				.web(WebApplicationType.NONE)
+				.properties(
+						"spring.cache.type=none",
+						"spring.datasource.url=jdbc:h2:mem:products-search;DB_CLOSE_DELAY=-1",
+						"spring.jpa.hibernate.ddl-auto=create-drop",
+						"spring.sql.init.mode=never",
+						"spring.autoconfigure.exclude="
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration,"
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration",
+						"spring.cloud.discovery.enabled=false",
+						"eureka.client.enabled=false")
+				.run();
+		context.getBean(JdbcTemplate.class).update(
+				"INSERT INTO tbl_mst_cache_product (pid, pname, price, qty) "
+						+ "SELECT X, CHAR(65 + MOD(X, 26)) || CHAR(65 + MOD(X / 26, 26)) || '-product-' || X, "
+						+ "MOD(X * 7919, 100000) / 100.0, 100 FROM SYSTEM_RANGE(1, ?)",
+				rows);
+		index = context.getBean(ProductSearchIndex.class);
+		// Inserted behind its back, so load it again
+		index.rebuild();
+		dao = context.getBean(IProductDAO.class);
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (int i = 0; i < QUERIES; i++) {
+			if (!"priceRange".equals(query)) {
+				prefixes[i] = "" + (char) ('a' + random.nextInt(26)) + (char) ('a' + random.nextInt(26));
+			}
+			if (!"prefix".equals(query)) {
+				minPrices[i] = (double) random.nextInt(990);
+				maxPrices[i] = minPrices[i] + 10;
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Integer> index() {
+		int i = next++ & (QUERIES - 1);
+		return index.search(prefixes[i], minPrices[i], maxPrices[i], LIMIT);
+	}
+
+	@Benchmark
+	public List<Product> jpa() {
+		int i = next++ & (QUERIES - 1);
+		return dao.search(prefixes[i] == null ? "" : prefixes[i], minPrices[i], maxPrices[i], Limit.of(LIMIT));
+	}
+}
@@ -0,0 +1,90 @@
+package com.example.demo.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.example.demo.cache.ProductRedisSerializer;
+import com.example.demo.entity.Product;
+
+/**
+ * Encoding a cached {@link Product} and a list of 100 for Redis with the
+ * {@code binary} ({@link ProductRedisSerializer}), {@code jdk} and
+ * {@code json} serializers that {@code product.cache.l2.serializer} can pick.
+ *
+ * The bytes per entry do not change between runs, so they are printed once
+ * per trial ({@code bytes per entry: ...}) rather than measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSerializerBenchmark {
+
+	@Param({ "binary", "jdk", "json" })
+	public String serializer;
+
+	@Param({ "product", "list100" })
+	public String shape;
+
+	private RedisSerializer<Object> redisSerializer;
+
+	private Object value;
+
+	private byte[] encoded;
+
+	@Setup
+	public void setUp() {
+		redisSerializer = switch (serializer) {
+		case "binary" -> new ProductRedisSerializer();
+		case "jdk" -> RedisSerializer.java();
+		case "json" -> RedisSerializer.json();
+		default -> throw new IllegalArgumentException(serializer);
+		};
+		if ("product".equals(shape)) {
+			value = product(1042);
+		} else {
+			List<Product> products = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				products.add(product(1000 + i));
+			}
+			value = products;
+		}
+		encoded = redisSerializer.serialize(value);
+		System.out.println("bytes per entry: " + encoded.length);
+	}
+
+	@Benchmark
+	public byte[] serialize() {
+		return redisSerializer.serialize(value);
+	}
+
+	@Benchmark
+	public Object deserialize() {
+		return redisSerializer.deserialize(encoded);
+	}
+
+	private static Product product(int pid) {
+		Product product = new Product();
+		product.setPid(pid);
+		product.setPname("Galaxy S24 Ultra " + pid);
+		product.setPrice(1299.99);
+		product.setQty(7.0);
+		return product;
+	}
+}
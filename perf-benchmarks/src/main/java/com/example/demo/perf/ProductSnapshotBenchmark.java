@@ -0,0 +1,134 @@
+package com.example.demo.perf;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.entity.Product;
+import com.example.demo.index.ProductIdIndex;
+import com.example.demo.service.IProductMgmtService;
+import com.example.demo.service.impl.ProductMgmtServiceImpl;
+import com.example.demo.snapshot.ProductSnapshot;
+
+/**
+ * {@code findProductById} over {@code rows} products read from the catalog
+ * snapshot ({@code snapshot}) or from JPA behind Spring's {@code simple}
+ * cache ({@code cache}), once every product has been read, and
+ * {@code storeRead} the same read straight from the snapshot or the cache,
+ * without the service's {@code @Cacheable} proxy. The heap used after a
+ * full GC at that point is printed per trial. Restart times are in
+ * {@link ProductSnapshotRestartBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ProductSnapshotBenchmark {
+
+	@Param({ "100000" })
+	public int rows;
+
+	@Param({ "snapshot", "cache" })
+	public String source;
+
+	private ConfigurableApplicationContext context;
+
+	private IProductMgmtService service;
+
+	private ProductSnapshot snapshot;
+
+	private Cache cache;
+
+	private Path directory;
+
+	@Setup
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("product-snapshot-benchmark");
+		context = start(ProductBenchmarkApplication.class, "jdbc:h2:mem:products-snapshot;DB_CLOSE_DELAY=-1",
+				"create-drop", "snapshot".equals(source), directory);
+		context.getBean(JdbcTemplate.class).update(
+				"INSERT INTO tbl_mst_cache_product (pid, pname, price, qty) "
+						+ "SELECT X, 'Product-' || X, 10 + MOD(X, 1000), 100 FROM SYSTEM_RANGE(1, ?)",
+				rows);
+		// Inserted behind their back, so the ID filter and the snapshot have to be loaded again
+		context.getBean(ProductIdIndex.class).rebuild();
+		snapshot = context.getBean(ProductSnapshot.class);
+		snapshot.rebuild();
+		service = context.getBean(IProductMgmtService.class);
+		cache = context.getBean(CacheManager.class).getCache(ProductMgmtServiceImpl.PRODUCT_CACHE);
+		for (int pid = 1; pid <= rows; pid++) {
+			service.findProductById(pid);
+		}
+		System.gc();
+		System.gc();
+		System.out.printf("%n%s: %d MB of heap used with all %d products read%n", source,
+				ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20, rows);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		context.close();
+		deleteDirectory(directory);
+	}
+
+	@Benchmark
+	public Product findProductById() {
+		return service.findProductById(1 + ThreadLocalRandom.current().nextInt(rows));
+	}
+
+	@Benchmark
+	public Object storeRead() {
+		int pid = 1 + ThreadLocalRandom.current().nextInt(rows);
+		return "snapshot".equals(source) ? snapshot.find(pid) : cache.get(pid);
+	}
+
+	static ConfigurableApplicationContext start(Class<?> application, String url, String ddl, boolean snapshot,
+			Path directory) {
+		return new SpringApplicationBuilder(application)
+				.web(WebApplicationType.NONE)
+				.properties(
+						"spring.cache.type=simple",
+						"product.snapshot.enabled=" + snapshot,
+						"product.snapshot.file=" + directory.resolve("products.bin"),
+						"spring.datasource.url=" + url,
+						"spring.jpa.hibernate.ddl-auto=" + ddl,
+						"spring.sql.init.mode=never",
+						"spring.autoconfigure.exclude="
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration,"
+								+ "org.springframework.boot.autoconfigure.data.redis.RedisRepositoriesAutoConfiguration",
+						"spring.cloud.discovery.enabled=false",
+						"eureka.client.enabled=false",
+						"logging.level.com.example.demo=WARN")
+				.run();
+	}
+
+	static void deleteDirectory(Path directory) throws IOException {
+		try (var files = Files.walk(directory)) {
+			files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.example.demo.perf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.service.IProductMgmtService;
+import com.example.demo.snapshot.ProductSnapshot;
+
+/**
+ * A restart: the time from starting the application until {@code reads}
+ * random products out of {@code rows} have been read, against a database
+ * file that survives the restart. With {@code snapshot} the snapshot file of
+ * the previous run is mapped and serves the reads while it is checked
+ * against the table in the background; with {@code cache} the reads start
+ * from an empty cache and go to the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ProductSnapshotRestartBenchmark {
+
+	@Param({ "100000" })
+	public int rows;
+
+	@Param({ "10000" })
+	public int reads;
+
+	@Param({ "snapshot", "cache" })
+	public String source;
+
+	private Path directory;
+
+	private String url;
+
+	private ConfigurableApplicationContext context;
+
+	@Setup
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("product-restart-benchmark");
+		url = "jdbc:h2:file:" + directory.resolve("products");
+		// First run: creates the table and, with the snapshot on, its file
+		try (ConfigurableApplicationContext first = start("create")) {
+			first.getBean(JdbcTemplate.class).update(
+					"INSERT INTO tbl_mst_cache_product (pid, pname, price, qty) "
+							+ "SELECT X, 'Product-' || X, 10 + MOD(X, 1000), 100 FROM SYSTEM_RANGE(1, ?)",
+					rows);
+			first.getBean(ProductSnapshot.class).rebuild();
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void stop() {
+		context.close();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		ProductSnapshotBenchmark.deleteDirectory(directory);
+	}
+
+	@Benchmark
+	public int restartAndRead() {
+		context = start("none");
+		IProductMgmtService service = context.getBean(IProductMgmtService.class);
+		int found = 0;
+		for (int i = 0; i < reads; i++) {
+			if (service.findProductById(1 + ThreadLocalRandom.current().nextInt(rows)) != null) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	private ConfigurableApplicationContext start(String ddl) {
+		return ProductSnapshotBenchmark.start(ProductBenchmarkApplication.class, url, ddl,
+				"snapshot".equals(source), directory);
+	}
+}